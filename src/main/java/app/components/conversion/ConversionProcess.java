@@ -1,22 +1,49 @@
 package app.components.conversion;
 
 import app.components.conversion.classconverter.ClassConverter;
+import app.components.conversion.classconverter.InMemoryClassFileSource;
 import app.components.conversion.dexconverter.Dex2JarExecutor;
+import app.components.conversion.dexconverter.DexClassTranslator;
+import app.components.conversion.dexconverter.DexIndex;
+import app.components.conversion.dexconverter.DexPrefilter;
 import app.components.conversion.jarfilter.JarFilter;
+import app.components.conversion.jarfilter.ScopeFilter;
+import app.components.conversion.unzip.ApkIngestion;
 import app.components.conversion.unzip.UnzipFile;
 import app.components.conversion.xmlconverter.XMLConverter;
+import app.components.model.DangerousPattern;
+import app.components.parsing.ParsingProcess;
+import app.components.parsing.TriageScore;
+import app.components.parsing.javaparsing.codeparsing.BytecodeMatcher;
+import app.components.parsing.javaparsing.codeparsing.CodeParser;
+import app.components.parsing.javaparsing.codeparsing.StreamingCodeParser;
+import app.components.parsing.xmlparsing.BinaryXMLParser;
+import app.components.parsing.xmlparsing.ResourceTable;
+import app.components.parsing.xmlparsing.ResourceXMLScanner;
+import app.utils.CreateOutputDir;
 import app.utils.ReadFilesFromDirectory;
 import app.utils.ThreadPoolManager;
 import app.utils.Timer;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.commons.compress.utils.IOUtils;
+import org.apache.commons.compress.utils.SeekableInMemoryByteChannel;
 
 /**
  * This class is responsible for unzipping user provided files, converting DEX files to JAR,
@@ -27,6 +54,15 @@ public class ConversionProcess {
   private static Path outputPath;
   private static Timer timer = new Timer();
   private static List<String> convertedXMLStringList = new ArrayList<>();
+  private static List<String> manifestPackages = new ArrayList<>();
+  private static int parsedManifestCount = 0;
+  private static Map<File, String> inMemorySources = null;
+  private static boolean isInMemoryOn = false;
+  private static boolean isStreamingOn = false;
+  private static boolean isSourceStreamed = false;
+  private static boolean isTriageOn = false;
+  private static ApkIngestion apkIngestion = null;
+  private static List<DangerousPattern> bytecodeResults = new ArrayList<>();
 
   /**
    * Initiates the conversion process for an APK file. This process involves these steps: 1.
@@ -46,17 +82,53 @@ public class ConversionProcess {
    */
   public static void startConversion(String apkPath, Boolean isMultiThreadingOn, Path outputDirPath)
       throws IOException, InterruptedException {
+    convertedXMLStringList.clear();
+    manifestPackages.clear();
+    parsedManifestCount = 0;
+    ParsingProcess.setResourceTable(null);
+    if (isTriageOn) {
+      startTriage(apkPath, Boolean.TRUE.equals(isMultiThreadingOn), outputDirPath);
+      return;
+    }
+    if (isInMemoryOn || isStreamingOn) {
+      startInMemoryConversion(apkPath, isMultiThreadingOn, outputDirPath);
+      return;
+    }
     timer.start();
 
-    if (outputDirPath != null) {
-      outputPath = UnzipFile.unzip(apkPath, outputDirPath.toString());
-    } else {
-      outputPath = UnzipFile.unzip(apkPath, System.getProperty("java.io.tmpdir"));
-    }
+    String unzipDir =
+        outputDirPath != null ? outputDirPath.toString() : System.getProperty("java.io.tmpdir");
+    outputPath =
+        UnzipFile.unzip(apkPath, unzipDir, ConversionProcess::isExtractedEntry, isMultiThreadingOn);
     System.out.println("APK unzipped in: " + outputPath);
+    ApkIngestion ingestion = getIngestion(apkPath);
+    if (ingestion == null || !readIngestedResourceTable(ingestion)) {
+      ParsingProcess.loadResourceTable(outputPath);
+    }
 
     System.out.println("\nConverting XML files, please wait...");
-    convertXML();
+    convertXML(ingestion);
+    ScopeFilter.setManifests(convertedXMLStringList);
+    if (ScopeFilter.isFirstPartyOnly()) {
+      List<String> classPaths = new ArrayList<>();
+      for (File dexFile :
+          ReadFilesFromDirectory.getSpecificFilesFromDirectory(outputPath, ".dex")) {
+        try {
+          classPaths.addAll(DexIndex.map(dexFile.toPath()).readClassPaths());
+        } catch (IOException e) {
+          System.err.println("Could not read the classes of " + dexFile.getName());
+        }
+      }
+      ScopeFilter.checkFirstPartyScope(classPaths);
+    }
+    scanResourceXML(apkPath, isMultiThreadingOn);
+
+    if (DexPrefilter.isEnabled()) {
+      System.out.println("\nIndexing DEX files, please wait...");
+      ReadFilesFromDirectory.getSpecificFilesFromDirectory(outputPath, ".dex")
+          .forEach(dexFile -> DexPrefilter.addDexFile(dexFile.toPath()));
+      selectClasses();
+    }
 
     System.out.println("\nDEX files are being converted to JAR files, please wait...");
     Dex2JarExecutor.convertToJar(outputPath, isMultiThreadingOn);
@@ -68,6 +140,84 @@ public class ConversionProcess {
     System.out.println("\nClass files are being converted to source code, please wait...");
     ClassConverter.convert(JarFilter.getOutputDir(), outputPath, isMultiThreadingOn);
     Timer.printDuration("Class file conversion", timer.lap());
+    ClassConverter.printCacheStatistics();
+    addSkippedSources();
+    if (isMultiThreadingOn) {
+      ThreadPoolManager.getInstance().shutdownExecutor();
+    }
+    System.out.println("================================================");
+    Timer.printDuration("Total conversion process", timer.stop());
+  }
+
+  /**
+   * Runs the conversion process without writing intermediate files. DEX files and manifests are
+   * read straight from the APK, DEX files are translated to class files in memory, classes from
+   * excluded packages are dropped before translation and the decompiled source code is kept in
+   * memory for the parsing process. The converted manifests and the source code are only written
+   * to disk if {@param outputDirPath} is given, otherwise the output directory only receives the
+   * analysis report.
+   *
+   * @param apkPath The file path of the APK to be converted.
+   * @param isMultiThreadingOn Flag indicating whether multithreading should be used for conversion.
+   * @param outputDirPath A directory to keep the converted files in, or null.
+   * @throws IOException If the APK can not be read or the output directory can not be created.
+   * @throws InterruptedException If the thread executing the conversion is interrupted.
+   */
+  private static void startInMemoryConversion(
+      String apkPath, Boolean isMultiThreadingOn, Path outputDirPath)
+      throws IOException, InterruptedException {
+    timer.start();
+
+    System.out.println("\nReading APK contents into memory, please wait...");
+    List<byte[]> dexFiles = readApk(apkPath, isMultiThreadingOn, outputDirPath);
+    Path keepPath = outputDirPath != null ? outputPath : null;
+
+    if (DexPrefilter.isEnabled()) {
+      System.out.println("\nIndexing DEX files, please wait...");
+      dexFiles.forEach(DexPrefilter::addDexBytes);
+      selectClasses();
+    }
+
+    System.out.println("\nDEX files are being translated to class files, please wait...");
+    InMemoryClassFileSource classFileSource = new InMemoryClassFileSource();
+    if (isMultiThreadingOn) {
+      ThreadPoolManager.getInstance().initializeFixedThreadPool(dexFiles.size());
+      ThreadPoolManager.getInstance()
+          .executeConversionTasks(dexFiles, dexBytes -> translateDex(dexBytes, classFileSource));
+    } else {
+      dexFiles.forEach(dexBytes -> translateDex(dexBytes, classFileSource));
+    }
+    dexFiles.clear();
+    JarFilter.filterLibraries(classFileSource);
+    Timer.printDuration("DEX to class translation", timer.lap());
+
+    if (isStreamingOn) {
+      System.out.println(
+          "\nClass files are being converted to source code and analyzed, please wait...");
+      if (!DexPrefilter.isEnabled()) {
+        ParsingProcess.loadPatternDetectors();
+      }
+      StreamingCodeParser streamingCodeParser = new StreamingCodeParser();
+      streamingCodeParser.start();
+      ClassConverter.convertInMemory(
+          classFileSource, keepPath, isMultiThreadingOn, streamingCodeParser::submit);
+      classFileSource.clear();
+      Timer.printDuration("Class file conversion", timer.lap());
+      ClassConverter.printCacheStatistics();
+      streamingCodeParser.awaitCompletion();
+      addSkippedSources();
+      System.out.println(streamingCodeParser.finish());
+      isSourceStreamed = true;
+      Timer.printDuration("Remaining java source analysis", timer.lap());
+    } else {
+      System.out.println("\nClass files are being converted to source code, please wait...");
+      inMemorySources =
+          ClassConverter.convertInMemory(classFileSource, keepPath, isMultiThreadingOn);
+      classFileSource.clear();
+      Timer.printDuration("Class file conversion", timer.lap());
+      ClassConverter.printCacheStatistics();
+      addSkippedSources();
+    }
     if (isMultiThreadingOn) {
       ThreadPoolManager.getInstance().shutdownExecutor();
     }
@@ -75,6 +225,480 @@ public class ConversionProcess {
     Timer.printDuration("Total conversion process", timer.stop());
   }
 
+  /**
+   * Runs a triage scan, which finishes in seconds since no class is translated or decompiled. The
+   * manifests and the DEX files are read in memory and every DEX file is indexed by the {@link
+   * DexPrefilter}. Patterns which do not need the AST are detected on the bytecode, for the other
+   * patterns it is only checked whether the methods and types they look for are referenced. The
+   * string constants of all classes are passed on to the string analysis.
+   *
+   * @param apkPath The file path of the APK to be scanned.
+   * @param isMultiThreadingOn Flag indicating whether the resources should be scanned in parallel.
+   * @param outputDirPath A directory to keep the converted manifests in, or null.
+   * @throws IOException If the APK can not be read or the output directory can not be created.
+   * @throws InterruptedException If the thread executing the scan is interrupted.
+   */
+  private static void startTriage(String apkPath, boolean isMultiThreadingOn, Path outputDirPath)
+      throws IOException, InterruptedException {
+    timer.start();
+
+    System.out.println("\nReading APK contents into memory, please wait...");
+    List<byte[]> dexFiles = readApk(apkPath, isMultiThreadingOn, outputDirPath);
+    if (isMultiThreadingOn) {
+      ThreadPoolManager.getInstance().shutdownExecutor();
+    }
+
+    System.out.println("\nIndexing DEX files, please wait...");
+    boolean isBytecodeMatchingOn = DexPrefilter.isBytecodeMatchingOn();
+    DexPrefilter.setBytecodeMatching(true);
+    dexFiles.forEach(DexPrefilter::addDexBytes);
+    DexPrefilter.setBytecodeMatching(isBytecodeMatchingOn);
+    dexFiles.clear();
+
+    ParsingProcess.loadPatternDetectors();
+    if (CodeParser.getPatternDetectors() != null) {
+      BytecodeMatcher bytecodeMatcher = new BytecodeMatcher(CodeParser.getPatternDetectors());
+      CodeParser.addBytecodeResults(
+          bytecodeMatcher.getBytecodePatterns(),
+          DexPrefilter.matchBytecode(bytecodeMatcher, ConversionProcess::isAnalyzedSource));
+      TriageScore.setPossiblePatterns(
+          DexPrefilter.getPossiblePatterns(
+              CodeParser.getSourcePatternDetectors(), ConversionProcess::isAnalyzedSource));
+      System.out.println(
+          "Evaluated "
+              + bytecodeMatcher.getBytecodePatterns().size()
+              + " of "
+              + CodeParser.getPatternDetectors().size()
+              + " patterns on bytecode, "
+              + TriageScore.getPossiblePatterns().size()
+              + " of the others may be present");
+    }
+    addSourceStrings(DexPrefilter.getSourceStrings());
+    System.out.println("================================================");
+    Timer.printDuration("Total triage scan", timer.stop());
+  }
+
+  /**
+   * Creates the output directory and reads the DEX files and manifests of an APK in memory, while
+   * its XML resources are scanned by the {@link ResourceXMLScanner}. The application package is
+   * read from the converted manifests.
+   *
+   * @param apkPath The file path of the APK to be read.
+   * @param isMultiThreadingOn Flag indicating whether the resources should be scanned in parallel.
+   * @param outputDirPath A directory to keep the converted manifests in, or null.
+   * @return A {@link List} of the bytes of every DEX file of the APK.
+   * @throws IOException If the APK can not be read or the output directory can not be created.
+   * @throws InterruptedException If the thread scanning the resources is interrupted.
+   */
+  private static List<byte[]> readApk(
+      String apkPath, boolean isMultiThreadingOn, Path outputDirPath)
+      throws IOException, InterruptedException {
+    File apkFile = new File(apkPath);
+    String apkFileName = apkFile.getName();
+    String baseName = apkFileName.substring(0, apkFileName.lastIndexOf('.'));
+    Path rootDir =
+        outputDirPath != null ? outputDirPath : Paths.get(System.getProperty("java.io.tmpdir"));
+    outputPath = CreateOutputDir.createDir(rootDir, baseName);
+    Path keepPath = outputDirPath != null ? outputPath : null;
+
+    List<byte[]> dexFiles = new ArrayList<>();
+    ApkIngestion ingestion = getIngestion(apkPath);
+    try (ZipFile zipFile = new ZipFile(apkFile)) {
+      if (ingestion == null || !readIngestedResourceTable(ingestion)) {
+        readResourceTable(zipFile, apkFile);
+      }
+      readArchive(
+          zipFile,
+          apkPath.toLowerCase().endsWith(".xapk"),
+          isMultiThreadingOn,
+          dexFiles,
+          keepPath,
+          ingestion != null ? ingestion.getManifest() : null);
+    }
+    ScopeFilter.setManifestPackages(manifestPackages);
+    if (ScopeFilter.isFirstPartyOnly()) {
+      List<String> classPaths = new ArrayList<>();
+      for (byte[] dexBytes : dexFiles) {
+        try {
+          classPaths.addAll(DexIndex.wrap(dexBytes).readClassPaths());
+        } catch (IOException e) {
+          System.err.println("Could not read the classes of a DEX file");
+        }
+      }
+      ScopeFilter.checkFirstPartyScope(classPaths);
+    }
+    return dexFiles;
+  }
+
+  /**
+   * Reads the DEX files and parses the AndroidManifest.xml files of an archive in memory. The XML
+   * resources checked by the {@link ResourceXMLScanner} are collected on the way and scanned once
+   * all entries were read. If {@param isXapk} is true, APK files nested inside the archive are
+   * read as well, and their converted manifests are kept in directories named after them, the same
+   * way the APKs of an XAPK are unzipped. The nested APKs are read in the order of {@link
+   * ResourceTable#getSplitRank(String)}, so the resource table of the base APK is used rather than
+   * the one of a configuration split.
+   *
+   * @param zipFile The {@link ZipFile} to read.
+   * @param isXapk Flag indicating whether nested APK files should be read.
+   * @param isMultiThreadingOn Flag indicating whether the resources should be scanned in parallel.
+   * @param dexFiles A {@link List} the bytes of every found DEX file are added to.
+   * @param keepPath A directory to write converted manifests to, or null.
+   * @param ingestedManifest The root AndroidManifest.xml of the archive read by the {@link
+   *     ApkIngestion}, which is parsed instead of reading the entry again, or null.
+   * @throws IOException If the archive can not be read.
+   * @throws InterruptedException If the thread scanning the resources is interrupted.
+   */
+  private static void readArchive(
+      ZipFile zipFile,
+      boolean isXapk,
+      boolean isMultiThreadingOn,
+      List<byte[]> dexFiles,
+      Path keepPath,
+      byte[] ingestedManifest)
+      throws IOException, InterruptedException {
+    List<ZipArchiveEntry> resourceEntries = new ArrayList<>();
+    List<ZipArchiveEntry> nestedApkEntries = new ArrayList<>();
+    Enumeration<ZipArchiveEntry> entries = zipFile.getEntries();
+    while (entries.hasMoreElements()) {
+      ZipArchiveEntry entry = entries.nextElement();
+      String name = entry.getName();
+      if (entry.isDirectory()) {
+        continue;
+      }
+
+      if (name.endsWith(".dex")) {
+        try (InputStream in = zipFile.getInputStream(entry)) {
+          dexFiles.add(IOUtils.toByteArray(in));
+        }
+      } else if (name.equals("AndroidManifest.xml") && ingestedManifest != null) {
+        readManifestEntry(name, new ByteArrayInputStream(ingestedManifest), keepPath);
+      } else if (name.endsWith("AndroidManifest.xml")) {
+        try (InputStream in = zipFile.getInputStream(entry)) {
+          readManifestEntry(name, in, keepPath);
+        }
+      } else if (ResourceXMLScanner.isRuleTarget(name, ParsingProcess.getResourceTable())) {
+        resourceEntries.add(entry);
+      } else if (isXapk && name.toLowerCase().endsWith(".apk")) {
+        nestedApkEntries.add(entry);
+      }
+    }
+    nestedApkEntries.sort(
+        Comparator.comparingInt(
+            (ZipArchiveEntry entry) ->
+                ResourceTable.getSplitRank(getNestedApkName(entry.getName()))));
+    for (ZipArchiveEntry entry : nestedApkEntries) {
+      String name = entry.getName();
+      try (InputStream in = zipFile.getInputStream(entry);
+          ZipFile nestedZipFile =
+              new ZipFile(new SeekableInMemoryByteChannel(IOUtils.toByteArray(in)))) {
+        readResourceTable(nestedZipFile, null);
+        readArchive(
+            nestedZipFile,
+            false,
+            isMultiThreadingOn,
+            dexFiles,
+            keepPath != null ? keepPath.resolve(getNestedApkName(name)) : null,
+            null);
+      } catch (IOException e) {
+        System.err.println("Could not read nested APK " + name + ", skipping...");
+      }
+    }
+    ParsingProcess.getXMLInfoObject()
+        .getResourceFindings()
+        .addAll(
+            ResourceXMLScanner.scan(
+                zipFile, resourceEntries, ParsingProcess.getResourceTable(), isMultiThreadingOn));
+  }
+
+  /**
+   * Declares the entries of an APK which are read from the unzipped files: the DEX files for the
+   * DEX to JAR conversion, the manifests for the XML conversion and the resource table for
+   * resolving references. The XML resources checked by the {@link ResourceXMLScanner} are read
+   * straight from the APK. All other entries, mostly images, media assets and native libraries, are
+   * not extracted.
+   *
+   * @param entryName The name of an entry of the APK.
+   * @return true if the entry has to be extracted.
+   */
+  private static boolean isExtractedEntry(String entryName) {
+    return entryName.endsWith(".dex")
+        || entryName.endsWith("AndroidManifest.xml")
+        || entryName.endsWith("resources.arsc");
+  }
+
+  /**
+   * Indexes the resources.arsc table of an archive, unless the table of another archive of an XAPK
+   * was already indexed. A table stored uncompressed, as required since Android 11, is
+   * memory-mapped straight from the APK file, otherwise it has to be inflated into memory.
+   *
+   * @param zipFile The {@link ZipFile} to read the table from.
+   * @param archiveFile The {@link File} of the archive, or null if it is nested in another one.
+   */
+  private static void readResourceTable(ZipFile zipFile, File archiveFile) {
+    ZipArchiveEntry entry = zipFile.getEntry("resources.arsc");
+    if (entry == null || ParsingProcess.getResourceTable() != null) {
+      return;
+    }
+    try {
+      if (archiveFile != null
+          && entry.getMethod() == ZipArchiveEntry.STORED
+          && entry.getDataOffset() >= 0) {
+        ParsingProcess.setResourceTable(
+            ResourceTable.open(archiveFile.toPath(), entry.getDataOffset(), entry.getSize()));
+      } else {
+        try (InputStream in = zipFile.getInputStream(entry)) {
+          ParsingProcess.setResourceTable(
+              new ResourceTable(ByteBuffer.wrap(IOUtils.toByteArray(in))));
+        }
+      }
+    } catch (IOException e) {
+      System.err.println("Could not read the resource table, references are not resolved...");
+    }
+  }
+
+  /**
+   * Indexes the resources.arsc table through the index of the {@link ApkIngestion}. A stored table
+   * is a view of the already mapped APK, so it is neither mapped nor extracted again.
+   *
+   * @param ingestion The {@link ApkIngestion} of the APK.
+   * @return true if the APK has a resource table and it was read.
+   */
+  private static boolean readIngestedResourceTable(ApkIngestion ingestion) {
+    try {
+      ByteBuffer tableBuffer = ingestion.getEntry("resources.arsc");
+      if (tableBuffer == null) {
+        return false;
+      }
+      ParsingProcess.setResourceTable(new ResourceTable(tableBuffer));
+      return true;
+    } catch (IOException | RuntimeException e) {
+      System.err.println("Could not read the indexed resource table: " + e.getMessage());
+      return false;
+    }
+  }
+
+  /**
+   * Scans the XML resources of an APK with the {@link ResourceXMLScanner}. The resources are read
+   * straight from the archive instead of the unzipped files, since they are not converted to text.
+   *
+   * @param apkPath The file path of the APK to be scanned.
+   * @param isMultiThreadingOn Flag indicating whether the resources should be scanned in parallel.
+   * @throws InterruptedException If the thread scanning the resources is interrupted.
+   */
+  private static void scanResourceXML(String apkPath, boolean isMultiThreadingOn)
+      throws InterruptedException {
+    try (ZipFile zipFile = new ZipFile(new File(apkPath))) {
+      scanArchiveResources(zipFile, apkPath.toLowerCase().endsWith(".xapk"), isMultiThreadingOn);
+    } catch (IOException e) {
+      System.err.println("Could not scan the XML resources of " + apkPath + ", skipping...");
+    }
+  }
+
+  /**
+   * Scans the XML resources of an archive and, if {@param isXapk} is true, of the APK files nested
+   * inside it.
+   *
+   * @param zipFile The {@link ZipFile} to scan.
+   * @param isXapk Flag indicating whether nested APK files should be scanned.
+   * @param isMultiThreadingOn Flag indicating whether the resources should be scanned in parallel.
+   * @throws InterruptedException If the thread scanning the resources is interrupted.
+   */
+  private static void scanArchiveResources(
+      ZipFile zipFile, boolean isXapk, boolean isMultiThreadingOn) throws InterruptedException {
+    List<ZipArchiveEntry> resourceEntries = new ArrayList<>();
+    List<ZipArchiveEntry> nestedApkEntries = new ArrayList<>();
+    Enumeration<ZipArchiveEntry> entries = zipFile.getEntries();
+    while (entries.hasMoreElements()) {
+      ZipArchiveEntry entry = entries.nextElement();
+      String name = entry.getName();
+      if (entry.isDirectory()) {
+        continue;
+      }
+      if (ResourceXMLScanner.isRuleTarget(name, ParsingProcess.getResourceTable())) {
+        resourceEntries.add(entry);
+      } else if (isXapk && name.toLowerCase().endsWith(".apk")) {
+        try (InputStream in = zipFile.getInputStream(entry);
+            ZipFile nestedZipFile =
+                new ZipFile(new SeekableInMemoryByteChannel(IOUtils.toByteArray(in)))) {
+          scanArchiveResources(nestedZipFile, false, isMultiThreadingOn);
+        } catch (IOException e) {
+          System.err.println("Could not read nested APK " + name + ", skipping...");
+        }
+      }
+    }
+    ParsingProcess.getXMLInfoObject()
+        .getResourceFindings()
+        .addAll(
+            ResourceXMLScanner.scan(
+                zipFile, resourceEntries, ParsingProcess.getResourceTable(), isMultiThreadingOn));
+  }
+
+  /**
+   * @param entryName The name of an APK entry of an XAPK, e.g. "config.arm64_v8a.apk".
+   * @return The file name of the APK without its extension, e.g. "config.arm64_v8a".
+   */
+  private static String getNestedApkName(String entryName) {
+    String fileName = Paths.get(entryName).getFileName().toString();
+    return fileName.substring(0, fileName.length() - ".apk".length());
+  }
+
+  /**
+   * Parses a binary AndroidManifest.xml straight from the archive entry with a {@link
+   * BinaryXMLParser}, which fills the {@code XMLFileInfo} of the parsing process and reads the
+   * application package. The manifest is only converted to text if it is kept in {@param
+   * keepPath}.
+   *
+   * @param name The name of the archive entry.
+   * @param in The {@link InputStream} of the archive entry.
+   * @param keepPath A directory to write the converted manifest to, or null.
+   */
+  private static void readManifestEntry(String name, InputStream in, Path keepPath) {
+    BinaryXMLParser binaryXMLParser =
+        new BinaryXMLParser(ParsingProcess.getXMLInfoObject(), ParsingProcess.getResourceTable());
+    try {
+      if (keepPath == null) {
+        manifestPackages.add(binaryXMLParser.parse(in));
+      } else {
+        byte[] xmlBytes = IOUtils.toByteArray(in);
+        manifestPackages.add(binaryXMLParser.parse(new ByteArrayInputStream(xmlBytes)));
+        writeXMLEntry(name, xmlBytes, keepPath);
+      }
+      parsedManifestCount++;
+    } catch (IOException | RuntimeException e) {
+      System.err.println("Could not parse binary XML file " + name + ", skipping...");
+    }
+  }
+
+  /**
+   * Converts a binary AndroidManifest.xml read from an archive to text and writes it to the
+   * directory the converted files are kept in.
+   *
+   * @param name The name of the archive entry.
+   * @param xmlBytes The bytes of the binary XML file.
+   * @param keepPath A directory to write the converted manifest to.
+   */
+  private static void writeXMLEntry(String name, byte[] xmlBytes, Path keepPath) {
+    String xmlContent;
+    try {
+      xmlContent = XMLConverter.convertToXmlString(new ByteArrayInputStream(xmlBytes));
+    } catch (RuntimeException e) {
+      xmlContent = null;
+    }
+    if (xmlContent == null || xmlContent.isEmpty()) {
+      System.err.println(
+          "A conversion error occurred or XML file " + name + " is empty, skipping...");
+      return;
+    }
+    try {
+      Path convertedXmlFilePath = keepPath.resolve(name).normalize();
+      if (!convertedXmlFilePath.startsWith(keepPath.normalize())) {
+        throw new IOException("Entry lies outside of the output directory");
+      }
+      Files.createDirectories(convertedXmlFilePath.getParent());
+      Files.write(convertedXmlFilePath, xmlContent.getBytes());
+    } catch (IOException e) {
+      System.err.println("Could not write converted XML file " + name + " to " + keepPath);
+    }
+  }
+
+  /**
+   * Translates a DEX file to class files and adds all classes outside of the excluded packages to
+   * {@param classFileSource}.
+   *
+   * @param dexBytes The bytes of the DEX file.
+   * @param classFileSource The {@link InMemoryClassFileSource} to add the translated classes to.
+   */
+  private static void translateDex(byte[] dexBytes, InMemoryClassFileSource classFileSource) {
+    try {
+      int errorCount =
+          DexClassTranslator.translate(
+              dexBytes,
+              classPath -> !JarFilter.isExcluded(classPath) && DexPrefilter.isSelected(classPath),
+              classFileSource::addClass);
+      System.out.println("Completed translation of DEX file with " + errorCount + " errors");
+    } catch (IOException e) {
+      System.err.println("An error occurred reading a DEX file: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Selects the classes which may contain a pattern from the indexed DEX files. The pattern
+   * detectors are loaded for this before the conversion, so that no class is translated or
+   * decompiled in which none of the patterns can be detected. With bytecode matching, the patterns
+   * which do not need the AST are detected on the indexed classes first and the classes are only
+   * selected for the remaining patterns. The classes of known libraries are only found after the
+   * translation, so the bytecode results are added by {@link #addSkippedSources()}.
+   */
+  private static void selectClasses() {
+    ParsingProcess.loadPatternDetectors();
+    bytecodeResults = new ArrayList<>();
+    if (DexPrefilter.isBytecodeMatchingOn()
+        && DexPrefilter.isIndexComplete()
+        && CodeParser.getPatternDetectors() != null) {
+      BytecodeMatcher bytecodeMatcher = new BytecodeMatcher(CodeParser.getPatternDetectors());
+      bytecodeResults =
+          DexPrefilter.matchBytecode(
+              bytecodeMatcher, sourcePath -> !JarFilter.isExcluded(sourcePath));
+      CodeParser.addBytecodeResults(bytecodeMatcher.getBytecodePatterns(), new ArrayList<>());
+      System.out.println(
+          "Evaluated "
+              + bytecodeMatcher.getBytecodePatterns().size()
+              + " of "
+              + CodeParser.getPatternDetectors().size()
+              + " patterns on bytecode");
+    }
+    DexPrefilter.select(CodeParser.getSourcePatternDetectors());
+    Timer.printDuration("DEX indexing", timer.lap());
+  }
+
+  /**
+   * @param sourcePath The path of a source file, e.g. "com/example/Main.java".
+   * @return true if the source lies in the analyzed scope and was not skipped as part of a known
+   *     library of this application.
+   */
+  private static boolean isAnalyzedSource(String sourcePath) {
+    return !JarFilter.isExcluded(sourcePath) && !JarFilter.isSkippedLibrarySource(sourcePath);
+  }
+
+  /**
+   * Passes the string constants of the classes left out by the {@link DexPrefilter} on to the
+   * string analysis and adds the patterns detected on bytecode. Classes outside of the analyzed
+   * scope or skipped as part of a known library are not passed on, since they would not have been
+   * analyzed either.
+   */
+  private static void addSkippedSources() {
+    addSourceStrings(DexPrefilter.getSkippedSourceStrings());
+    List<DangerousPattern> analyzedResults = new ArrayList<>();
+    for (DangerousPattern dangerousPattern : bytecodeResults) {
+      String sourcePath = dangerousPattern.getJavaFile().getPath().replace(File.separatorChar, '/');
+      if (isAnalyzedSource(sourcePath)) {
+        analyzedResults.add(dangerousPattern);
+      }
+    }
+    CodeParser.addBytecodeResults(new ArrayList<>(), analyzedResults);
+    bytecodeResults = new ArrayList<>();
+  }
+
+  /**
+   * Passes the string constants of sources which are not decompiled on to the string analysis,
+   * leaving out sources outside of the analyzed scope or in packages of known libraries.
+   *
+   * @param sourceStrings A {@link Map} of the source path, e.g. "com/example/Main.java", to its
+   *     strings.
+   */
+  private static void addSourceStrings(Map<String, List<String>> sourceStrings) {
+    Path sourceRoot = ClassConverter.getSourceRoot();
+    Map<File, List<String>> skippedSources = new HashMap<>();
+    sourceStrings.forEach(
+        (sourcePath, strings) -> {
+          if (isAnalyzedSource(sourcePath)) {
+            skippedSources.put(sourceRoot.resolve(sourcePath).toFile(), strings);
+          }
+        });
+    CodeParser.addSkippedSources(skippedSources);
+  }
+
   /**
    * This method looks for all "AndroidManifest.xml" files in the given directory or its
    * subdirectories and converts them to a string format. Then it renames the binary
@@ -82,13 +706,22 @@ public class ConversionProcess {
    * and writes the converted xml string to newly created 'AndroidManifest.xml' file. If an error
    * occurs during one of the files retrieval or XML conversion it does not stop the program, but
    * continues to look for and convert other present files
+   *
+   * <p>The manifest at the root of the APK is converted from the bytes read by the {@link
+   * ApkIngestion}, instead of reading the unzipped file again.
+   *
+   * @param ingestion The {@link ApkIngestion} of the APK, or null.
    */
-  private static void convertXML() {
+  private static void convertXML(ApkIngestion ingestion) {
     try {
       List<File> xmlFileList =
           ReadFilesFromDirectory.getSpecificFilesFromDirectory(outputPath, "AndroidManifest.xml");
+      File rootManifest = outputPath.resolve("AndroidManifest.xml").toFile();
       for (File xmlFile : xmlFileList) {
-        String xmlContent = XMLConverter.convertToXmlString(xmlFile.getPath());
+        String xmlContent =
+            ingestion != null && ingestion.getManifest() != null && xmlFile.equals(rootManifest)
+                ? XMLConverter.convertToXmlString(new ByteArrayInputStream(ingestion.getManifest()))
+                : XMLConverter.convertToXmlString(xmlFile.getPath());
         if (xmlContent != null && !xmlContent.isEmpty()) {
           convertedXMLStringList.add(xmlContent);
 
@@ -128,6 +761,87 @@ public class ConversionProcess {
     xmlFile.renameTo(newFile);
   }
 
+  /**
+   * @return The source code decompiled by the in-memory conversion, mapped by source file paths.
+   */
+  public static Optional<Map<File, String>> getInMemorySources() {
+    return Optional.ofNullable(inMemorySources);
+  }
+
+  /**
+   * Sets whether the conversion should keep all intermediate files in memory instead of writing
+   * them to a temporary directory.
+   *
+   * @param inMemory true to run the in-memory conversion, false to run the file based conversion.
+   */
+  public static void setInMemory(boolean inMemory) {
+    isInMemoryOn = inMemory;
+  }
+
+  /**
+   * Sets whether decompiled classes should be analyzed while the decompilation is still running.
+   * Streaming always uses the in-memory conversion.
+   *
+   * @param streaming true to overlap decompilation and analysis, false otherwise.
+   */
+  public static void setStreaming(boolean streaming) {
+    isStreamingOn = streaming;
+  }
+
+  /**
+   * Sets whether only a triage scan is run instead of the conversion, see {@link
+   * #startTriage(String, boolean, Path)}.
+   *
+   * @param triage true to scan the manifests and DEX files without decompiling, false otherwise.
+   */
+  public static void setTriage(boolean triage) {
+    isTriageOn = triage;
+  }
+
+  /**
+   * Sets the {@link ApkIngestion} of the APK, whose manifest and index are used instead of reading
+   * the APK again. It is ignored for conversions of other files.
+   *
+   * @param ingestion The {@link ApkIngestion} of the APK to be converted, or null.
+   */
+  public static void setIngestion(ApkIngestion ingestion) {
+    apkIngestion = ingestion;
+  }
+
+  /**
+   * @param apkPath The file path of the APK to be converted.
+   * @return The {@link ApkIngestion} of the APK, or null if it was not ingested.
+   */
+  private static ApkIngestion getIngestion(String apkPath) {
+    if (apkIngestion == null) {
+      return null;
+    }
+    Path ingestedPath = apkIngestion.getApkPath().toAbsolutePath();
+    return ingestedPath.equals(Paths.get(apkPath).toAbsolutePath()) ? apkIngestion : null;
+  }
+
+  /**
+   * @return true if only a triage scan is run instead of the conversion.
+   */
+  public static boolean isTriageOn() {
+    return isTriageOn;
+  }
+
+  /**
+   * @return true if the java sources were already analyzed during the conversion.
+   */
+  public static boolean isSourceStreamed() {
+    return isSourceStreamed;
+  }
+
+  /**
+   * @return The number of binary AndroidManifest.xml files which were parsed while the archive was
+   *     read, without converting them to XML strings.
+   */
+  public static int getParsedManifestCount() {
+    return parsedManifestCount;
+  }
+
   /**
    * @return A list of converted XML strings.
    */
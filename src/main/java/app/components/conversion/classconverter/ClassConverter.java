@@ -5,9 +5,22 @@ import app.utils.ReadFilesFromDirectory;
 import app.utils.ThreadPoolManager;
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
 import org.benf.cfr.reader.Main;
+import org.benf.cfr.reader.api.CfrDriver;
+import org.benf.cfr.reader.util.CfrVersionInfo;
 
 /**
  * Provides a way to convert compiled .jar files into their java source code using CFR decompiler
@@ -15,7 +28,11 @@ import org.benf.cfr.reader.Main;
 public class ClassConverter {
 
   private static final String SOURCE_OUTPUT_FOLDER = "JavaSource";
+  private static final int MAX_CLASSES_PER_UNIT = 64;
+  private static final long MAX_CACHE_SIZE = 2L * 1024 * 1024 * 1024;
   private static Path sourceOutputDir;
+  private static boolean isClassGranularOn = false;
+  private static DecompilationCache decompilationCache;
 
   /**
    * Converts all JAR files in the specified directory to Java source code, placing the results in a
@@ -37,7 +54,9 @@ public class ClassConverter {
     List<File> jarFileList =
         ReadFilesFromDirectory.getSpecificFilesFromDirectory(jarFolderPath, ".jar");
 
-    if (isMultiThreadingOn) {
+    if (isMultiThreadingOn && isClassGranularOn) {
+      convertByClassUnits(jarFileList);
+    } else if (isMultiThreadingOn) {
       ThreadPoolManager.getInstance().initializeFixedThreadPool(jarFileList.size());
       ThreadPoolManager.getInstance()
           .executeConversionTasks(jarFileList, file -> executeConversion(file));
@@ -45,22 +64,300 @@ public class ClassConverter {
     } else {
       jarFileList.forEach(file -> executeConversion(file));
     }
+    evictCache();
   }
 
   /**
    * Handles the decompilation process for a single class file using CFR decompiler & notifies the
-   * user upon successfull file conversion.
+   * user upon successfull file conversion. If the decompilation cache is used, the classes of the
+   * file are decompiled with the CFR API, so that cached classes can be skipped.
    *
    * @param file The class file to be decompiled to Java source code.
    */
   private static void executeConversion(File file) {
-    String[] paths = {
-      file.toString(), "--outputdir", sourceOutputDir.toString(), "--silent", "true"
-    };
-    Main.main(paths);
+    if (decompilationCache != null) {
+      InMemoryClassFileSource classFileSource = new InMemoryClassFileSource();
+      try {
+        classFileSource.addJars(Collections.singletonList(file));
+      } catch (IOException e) {
+        System.err.println("An error occurred loading class files from: " + file);
+        return;
+      }
+      for (List<String> unit : createClassUnits(classFileSource.getTopLevelClassPaths())) {
+        executeUnitConversion(classFileSource, unit, ClassConverter::writeSourceFile);
+      }
+    } else {
+      String[] paths = {
+        file.toString(), "--outputdir", sourceOutputDir.toString(), "--silent", "true"
+      };
+      Main.main(paths);
+    }
     System.out.println("Completed conversion for file: " + file.getName());
   }
 
+  /**
+   * Decompiles the class files of all given JAR files in per-package units. All class files are
+   * loaded into a shared {@link InMemoryClassFileSource}, the top level classes are grouped by
+   * package and split into units of at most {@link #MAX_CLASSES_PER_UNIT} classes. Each unit is
+   * decompiled by its own {@link CfrDriver} on a work-stealing pool, so the number of busy threads
+   * depends on the number of cores instead of the number of JAR files.
+   *
+   * @param jarFileList A {@link List} of JAR files to decompile.
+   * @throws IOException If one of the JAR files can not be read.
+   * @throws InterruptedException If interrupted while initializing the thread pool.
+   */
+  private static void convertByClassUnits(List<File> jarFileList)
+      throws IOException, InterruptedException {
+    InMemoryClassFileSource classFileSource = new InMemoryClassFileSource();
+    classFileSource.addJars(jarFileList);
+
+    List<List<String>> units = createClassUnits(classFileSource.getTopLevelClassPaths());
+    System.out.println(
+        "Decompiling "
+            + classFileSource.size()
+            + " class files in "
+            + units.size()
+            + " units, please wait...");
+
+    ThreadPoolManager.getInstance().initializeWorkStealingPool();
+    ThreadPoolManager.getInstance()
+        .executeConversionTasks(
+            units,
+            unit -> executeUnitConversion(classFileSource, unit, ClassConverter::writeSourceFile));
+    classFileSource.clear();
+  }
+
+  /**
+   * Decompiles all classes of an {@link InMemoryClassFileSource} and keeps the source code in
+   * memory. The source files are only written to the output folder if {@param outputPath} is
+   * given.
+   *
+   * @param classFileSource The {@link InMemoryClassFileSource} holding the classes to decompile.
+   * @param outputPath A {@link Path} where the output folder will be created to keep the source
+   *     code files, or null if nothing should be written to disk.
+   * @param isMultiThreadingOn A {@link Boolean} object that specifies if multi-threading should be
+   *     used.
+   * @return A {@link Map} of source {@link File} paths to their decompiled source code. The paths
+   *     are relative to the output folder if nothing is written to disk.
+   * @throws IOException If the output folder can not be created.
+   * @throws InterruptedException If interrupted while initializing the thread pool.
+   */
+  public static Map<File, String> convertInMemory(
+      InMemoryClassFileSource classFileSource, Path outputPath, Boolean isMultiThreadingOn)
+      throws IOException, InterruptedException {
+    Map<File, String> sources = new ConcurrentHashMap<>();
+    convertInMemory(classFileSource, outputPath, isMultiThreadingOn, sources::put);
+    return sources;
+  }
+
+  /**
+   * Decompiles all classes of an {@link InMemoryClassFileSource} and passes the source code of each
+   * class to {@param sourceConsumer} as soon as it is decompiled. The consumer may be called from
+   * several threads at once if multi-threading is used. The source files are only written to the
+   * output folder if {@param outputPath} is given.
+   *
+   * @param classFileSource The {@link InMemoryClassFileSource} holding the classes to decompile.
+   * @param outputPath A {@link Path} where the output folder will be created to keep the source
+   *     code files, or null if nothing should be written to disk.
+   * @param isMultiThreadingOn A {@link Boolean} object that specifies if multi-threading should be
+   *     used.
+   * @param sourceConsumer A {@link BiConsumer} accepting the source {@link File} path and the
+   *     decompiled source code of each class.
+   * @throws IOException If the output folder can not be created.
+   * @throws InterruptedException If interrupted while initializing the thread pool.
+   */
+  public static void convertInMemory(
+      InMemoryClassFileSource classFileSource,
+      Path outputPath,
+      Boolean isMultiThreadingOn,
+      BiConsumer<File, String> sourceConsumer)
+      throws IOException, InterruptedException {
+    if (outputPath != null) {
+      sourceOutputDir = CreateOutputDir.createDir(outputPath, SOURCE_OUTPUT_FOLDER);
+    }
+    Path sourceRoot = outputPath != null ? sourceOutputDir : Paths.get(SOURCE_OUTPUT_FOLDER);
+    BiConsumer<String, String> relativeSourceConsumer =
+        (relativePath, source) -> {
+          if (outputPath != null) {
+            writeSourceFile(relativePath, source);
+          }
+          sourceConsumer.accept(sourceRoot.resolve(relativePath).toFile(), source);
+        };
+
+    List<List<String>> units = createClassUnits(classFileSource.getTopLevelClassPaths());
+    if (isMultiThreadingOn) {
+      ThreadPoolManager.getInstance().initializeWorkStealingPool();
+      ThreadPoolManager.getInstance()
+          .executeConversionTasks(
+              units, unit -> executeUnitConversion(classFileSource, unit, relativeSourceConsumer));
+    } else {
+      units.forEach(unit -> executeUnitConversion(classFileSource, unit, relativeSourceConsumer));
+    }
+    evictCache();
+  }
+
+  /**
+   * Groups class paths by their package and splits every package into units of at most {@link
+   * #MAX_CLASSES_PER_UNIT} classes. Classes of the same package are kept together, so CFR can reuse
+   * the class files it has already loaded for a unit. Units are ordered from the largest to the
+   * smallest, so the longest tasks are started first.
+   *
+   * @param classPaths A {@link List} of class paths, e.g. "com/example/Main.class".
+   * @return A {@link List} of units, each unit being a {@link List} of class paths.
+   */
+  static List<List<String>> createClassUnits(List<String> classPaths) {
+    Map<String, List<String>> packages = new TreeMap<>();
+    for (String classPath : classPaths) {
+      int packageIndex = classPath.lastIndexOf('/');
+      String packageName = packageIndex < 0 ? "" : classPath.substring(0, packageIndex);
+      packages.computeIfAbsent(packageName, key -> new ArrayList<>()).add(classPath);
+    }
+
+    List<List<String>> units = new ArrayList<>();
+    for (List<String> packageClasses : packages.values()) {
+      packageClasses.sort(Comparator.naturalOrder());
+      for (int i = 0; i < packageClasses.size(); i += MAX_CLASSES_PER_UNIT) {
+        units.add(
+            new ArrayList<>(
+                packageClasses.subList(
+                    i, Math.min(i + MAX_CLASSES_PER_UNIT, packageClasses.size()))));
+      }
+    }
+    units.sort(Comparator.comparingInt(List<String>::size).reversed());
+    return units;
+  }
+
+  /**
+   * Decompiles a single unit of classes with the CFR API and passes the source code of each class
+   * to {@param sourceConsumer}. If the decompilation cache is used, cached classes are passed
+   * without running CFR and the source code of the decompiled classes is added to the cache.
+   *
+   * @param classFileSource The shared {@link InMemoryClassFileSource} to read class files from.
+   * @param unit A {@link List} of class paths to decompile.
+   * @param sourceConsumer A {@link BiConsumer} accepting the relative source file path and the
+   *     decompiled source code of each class.
+   */
+  private static void executeUnitConversion(
+      InMemoryClassFileSource classFileSource,
+      List<String> unit,
+      BiConsumer<String, String> sourceConsumer) {
+    List<String> classPaths = unit;
+    BiConsumer<String, String> unitSourceConsumer = sourceConsumer;
+    if (decompilationCache != null) {
+      Map<String, String> missedKeys = new HashMap<>();
+      classPaths = new ArrayList<>();
+      for (String classPath : unit) {
+        String key = decompilationCache.getKey(classFileSource.getClassFiles(classPath));
+        String relativePath = getSourcePath(classPath);
+        String source = decompilationCache.get(key);
+        if (source != null) {
+          sourceConsumer.accept(relativePath, source);
+        } else {
+          classPaths.add(classPath);
+          missedKeys.put(relativePath, key);
+        }
+      }
+      if (classPaths.isEmpty()) {
+        return;
+      }
+      unitSourceConsumer =
+          (relativePath, source) -> {
+            String key = missedKeys.get(relativePath);
+            if (key != null) {
+              decompilationCache.put(key, source);
+            }
+            sourceConsumer.accept(relativePath, source);
+          };
+    }
+    CfrDriver driver =
+        new CfrDriver.Builder()
+            .withClassFileSource(classFileSource)
+            .withOutputSink(new JavaSourceSinkFactory(unitSourceConsumer))
+            .withOptions(getCfrOptions())
+            .build();
+    driver.analyse(classPaths);
+  }
+
+  /**
+   * @param classPath A class path, e.g. "com/example/Main.class".
+   * @return The relative path of the decompiled source file, e.g. "com/example/Main.java".
+   */
+  private static String getSourcePath(String classPath) {
+    return classPath.substring(0, classPath.length() - ".class".length()) + ".java";
+  }
+
+  /** Removes the least recently used entries of the decompilation cache if it grew too large. */
+  private static void evictCache() {
+    if (decompilationCache != null) {
+      try {
+        decompilationCache.evict();
+      } catch (IOException e) {
+        System.err.println("An error occurred evicting decompilation cache entries: " + e);
+      }
+    }
+  }
+
+  /**
+   * Writes decompiled source code to its file inside the output folder.
+   *
+   * @param relativePath The path of the source file relative to the output folder.
+   * @param source The decompiled source code.
+   */
+  private static void writeSourceFile(String relativePath, String source) {
+    Path sourceFile = sourceOutputDir.resolve(relativePath);
+    try {
+      Files.createDirectories(sourceFile.getParent());
+      Files.write(sourceFile, source.getBytes(StandardCharsets.UTF_8));
+    } catch (IOException e) {
+      System.err.println("An error occurred writing decompiled source file: " + sourceFile);
+    }
+  }
+
+  /**
+   * @return A {@link Map} of CFR options used for API based decompilation.
+   */
+  static Map<String, String> getCfrOptions() {
+    Map<String, String> options = new HashMap<>();
+    options.put("silent", "true");
+    return options;
+  }
+
+  /**
+   * Sets the directory of the on-disk decompilation cache shared by all analyzed APKs. Entries are
+   * only reused with the same CFR version and options, and the least recently used entries are
+   * removed once the cache exceeds {@link #MAX_CACHE_SIZE} bytes.
+   *
+   * @param cacheDirectory The {@link Path} of the cache directory, or null to decompile every
+   *     class.
+   * @throws IOException If the cache directory can not be created or read.
+   */
+  public static void setCacheDirectory(Path cacheDirectory) throws IOException {
+    decompilationCache =
+        cacheDirectory == null
+            ? null
+            : new DecompilationCache(
+                cacheDirectory,
+                MAX_CACHE_SIZE,
+                "CFR " + CfrVersionInfo.VERSION + " " + new TreeMap<>(getCfrOptions()));
+  }
+
+  /** Prints the hit rate of the decompilation cache, if it is used. */
+  public static void printCacheStatistics() {
+    if (decompilationCache != null) {
+      System.out.println(decompilationCache.getStatistics());
+    }
+  }
+
+  /**
+   * Sets whether class files should be decompiled in per-package units on a work-stealing pool
+   * instead of one task per JAR file. Only used when multi-threading is enabled.
+   *
+   * @param classGranular true to decompile in per-package units, false to decompile per JAR file.
+   */
+  public static void setClassGranular(boolean classGranular) {
+    isClassGranularOn = classGranular;
+  }
+
   /**
    * Retrieves the name of the output folder where the decompiled Java source code is stored.
    *
@@ -69,4 +366,12 @@ public class ClassConverter {
   public static String getOutputFolderName() {
     return SOURCE_OUTPUT_FOLDER;
   }
+
+  /**
+   * @return The {@link Path} the decompiled source files are written to, or the name of the output
+   *     folder if the source code was only kept in memory.
+   */
+  public static Path getSourceRoot() {
+    return sourceOutputDir != null ? sourceOutputDir : Paths.get(SOURCE_OUTPUT_FOLDER);
+  }
 }
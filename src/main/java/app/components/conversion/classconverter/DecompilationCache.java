@@ -0,0 +1,125 @@
+package app.components.conversion.classconverter;
+
+import app.utils.DiskCache;
+import app.utils.FileHashing;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+
+/**
+ * An on-disk cache of decompiled source code shared between the analyzed APKs. Every entry holds
+ * the source code of a top level class and is keyed by the SHA-256 hash of its class file bytes,
+ * the bytes of its nested classes and the CFR version and options it was decompiled with. Third
+ * party libraries bundled by many applications are therefore only decompiled once.
+ *
+ * <p>The cache is bounded by the total size of its entries and removes the least recently used
+ * entries first, see {@link DiskCache}. A single instance can be used by several threads at once.
+ */
+public class DecompilationCache {
+
+  private static final String ENTRY_EXTENSION = ".java";
+  private static final String FORMAT_VERSION = "1";
+  private final DiskCache diskCache;
+  private final byte[] configuration;
+
+  /**
+   * Opens the cache stored in a directory, creating the directory if it does not exist yet.
+   *
+   * @param directory The {@link Path} of the cache directory.
+   * @param maxSize The maximum total size of the cached entries in bytes.
+   * @param configuration A description of the decompiler version and options. Entries created
+   *     with a different configuration are never returned.
+   * @throws IOException If the directory can not be created or read.
+   */
+  public DecompilationCache(Path directory, long maxSize, String configuration)
+      throws IOException {
+    this.diskCache = new DiskCache(directory, maxSize, ENTRY_EXTENSION);
+    this.configuration = (FORMAT_VERSION + '\n' + configuration).getBytes(StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Creates the key of a top level class.
+   *
+   * @param classFiles The bytes of the top level class file, followed by the bytes of its nested
+   *     class files in a stable order.
+   * @return The hexadecimal SHA-256 hash identifying the decompiled source code of the class.
+   */
+  public String getKey(List<byte[]> classFiles) {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e.getMessage());
+    }
+    digest.update(configuration);
+    for (byte[] classFile : classFiles) {
+      digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(classFile.length).array());
+      digest.update(classFile);
+    }
+    return FileHashing.bytesToHex(digest.digest());
+  }
+
+  /**
+   * Returns the cached source code of a class and marks its entry as recently used.
+   *
+   * @param key The key created by {@link #getKey(List)}.
+   * @return The decompiled source code, or null if the class is not cached.
+   */
+  public String get(String key) {
+    byte[] source = diskCache.get(key);
+    return source == null ? null : new String(source, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Stores the source code of a decompiled class.
+   *
+   * @param key The key created by {@link #getKey(List)}.
+   * @param source The decompiled source code.
+   */
+  public void put(String key, String source) {
+    diskCache.put(key, source.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Removes the least recently used entries until the cache is within its size bound.
+   *
+   * @throws IOException If the cache directory can not be read.
+   */
+  public void evict() throws IOException {
+    diskCache.evict();
+  }
+
+  /**
+   * @return The number of classes whose source code was found in the cache.
+   */
+  public int getHitCount() {
+    return diskCache.getHitCount();
+  }
+
+  /**
+   * @return The number of classes which had to be decompiled.
+   */
+  public int getMissCount() {
+    return diskCache.getMissCount();
+  }
+
+  /**
+   * @return The total size of the cached entries in bytes.
+   */
+  public long getSize() {
+    return diskCache.getSize();
+  }
+
+  /**
+   * @return A summary of the cache hits since the cache was opened.
+   */
+  public String getStatistics() {
+    return String.format(
+        "Decompilation cache hit rate: %.1f%% (%d of %d classes)",
+        diskCache.getHitRate(), getHitCount(), getHitCount() + getMissCount());
+  }
+}
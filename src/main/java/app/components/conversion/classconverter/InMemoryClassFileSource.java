@@ -0,0 +1,237 @@
+package app.components.conversion.classconverter;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.commons.compress.utils.IOUtils;
+import org.benf.cfr.reader.api.ClassFileSource;
+import org.benf.cfr.reader.bytecode.analysis.parse.utils.Pair;
+
+/**
+ * A CFR {@link ClassFileSource} that keeps the bytes of every loaded class file in memory. A single
+ * instance can be shared between several {@link org.benf.cfr.reader.api.CfrDriver} objects running
+ * on different threads, because class files are only read after they have been added.
+ */
+public class InMemoryClassFileSource implements ClassFileSource {
+
+  private static final String CLASS_EXTENSION = ".class";
+  private final Map<String, byte[]> classFiles = new ConcurrentHashMap<>();
+  private volatile Map<String, List<String>> nestedClassPaths;
+
+  /**
+   * Loads all class files from every JAR file in the given list.
+   *
+   * @param jarFileList A {@link List} of JAR {@link File} objects to load class files from.
+   * @throws IOException If one of the JAR files can not be read.
+   */
+  public void addJars(List<File> jarFileList) throws IOException {
+    for (File jarFile : jarFileList) {
+      loadJar(jarFile);
+    }
+  }
+
+  /**
+   * Adds a single class file to the source.
+   *
+   * @param classPath The path of the class file inside its archive, e.g. "com/example/Main.class".
+   * @param classBytes The bytes of the class file.
+   */
+  public void addClass(String classPath, byte[] classBytes) {
+    classFiles.put(classPath, classBytes);
+    nestedClassPaths = null;
+  }
+
+  /**
+   * Returns the paths of all loaded classes which are not nested inside another loaded class. CFR
+   * decompiles inner classes together with their outer class, so only these paths need to be passed
+   * to {@link org.benf.cfr.reader.api.CfrDriver#analyse(List)}.
+   *
+   * @return A {@link List} of top level class paths.
+   */
+  public List<String> getTopLevelClassPaths() {
+    List<String> topLevelClassPaths = new ArrayList<>();
+    for (String classPath : classFiles.keySet()) {
+      if (!isInnerClass(classPath)) {
+        topLevelClassPaths.add(classPath);
+      }
+    }
+    return topLevelClassPaths;
+  }
+
+  /**
+   * Returns the bytes of a top level class file followed by the bytes of all class files nested
+   * inside it, which CFR decompiles together with the top level class.
+   *
+   * @param topLevelClassPath The path of a top level class file.
+   * @return A {@link List} of class file bytes, with nested classes ordered by their path.
+   */
+  public List<byte[]> getClassFiles(String topLevelClassPath) {
+    Map<String, List<String>> nestedClassIndex = nestedClassPaths;
+    if (nestedClassIndex == null) {
+      nestedClassIndex = createNestedClassIndex();
+    }
+    List<byte[]> classFileBytes = new ArrayList<>();
+    classFileBytes.add(classFiles.get(topLevelClassPath));
+    for (String nestedClassPath :
+        nestedClassIndex.getOrDefault(topLevelClassPath, Collections.emptyList())) {
+      classFileBytes.add(classFiles.get(nestedClassPath));
+    }
+    return classFileBytes;
+  }
+
+  /**
+   * Passes every loaded class file to a consumer.
+   *
+   * @param consumer The {@link BiConsumer} receiving the path and bytes of every class file.
+   */
+  public void forEachClass(BiConsumer<String, byte[]> consumer) {
+    classFiles.forEach(consumer);
+  }
+
+  /**
+   * Removes the class files whose path matches a filter.
+   *
+   * @param classPathFilter The {@link Predicate} deciding whether a class path is removed.
+   */
+  public void removeClasses(Predicate<String> classPathFilter) {
+    classFiles.keySet().removeIf(classPathFilter);
+    nestedClassPaths = null;
+  }
+
+  /**
+   * @return The number of class files held by this source.
+   */
+  public int size() {
+    return classFiles.size();
+  }
+
+  /** Removes all loaded class files. */
+  public void clear() {
+    classFiles.clear();
+    nestedClassPaths = null;
+  }
+
+  @Override
+  public void informAnalysisRelativePathDetail(String usePath, String classFilePath) {}
+
+  @Override
+  public Collection<String> addJar(String jarPath) {
+    try {
+      return loadJar(new File(jarPath));
+    } catch (IOException e) {
+      System.err.println("An error occurred loading class files from: " + jarPath);
+      return new ArrayList<>();
+    }
+  }
+
+  @Override
+  public String getPossiblyRenamedPath(String path) {
+    return path;
+  }
+
+  /**
+   * Returns the bytes of a requested class file. Classes which are not part of the application,
+   * such as the ones from the Java runtime, are looked up through the system class loader so CFR
+   * can still resolve their types.
+   *
+   * @param path The path of the requested class file.
+   * @return A {@link Pair} of the class file bytes and the path they were loaded from.
+   * @throws IOException If the class file could not be found.
+   */
+  @Override
+  public Pair<byte[], String> getClassFileContent(String path) throws IOException {
+    byte[] classBytes = classFiles.get(path);
+    if (classBytes != null) {
+      return Pair.make(classBytes, path);
+    }
+
+    try (InputStream in = ClassLoader.getSystemResourceAsStream(path)) {
+      if (in == null) {
+        throw new IOException("No such class file: " + path);
+      }
+      return Pair.make(in.readAllBytes(), path);
+    }
+  }
+
+  /**
+   * Loads all class files of a JAR file into memory.
+   *
+   * @param jarFile The JAR {@link File} to read.
+   * @return A {@link List} of the loaded class paths.
+   * @throws IOException If the JAR file can not be read.
+   */
+  private List<String> loadJar(File jarFile) throws IOException {
+    List<String> loadedClassPaths = new ArrayList<>();
+    try (ZipFile zipFile = new ZipFile(jarFile)) {
+      Enumeration<ZipArchiveEntry> entries = zipFile.getEntries();
+      while (entries.hasMoreElements()) {
+        ZipArchiveEntry entry = entries.nextElement();
+        String name = entry.getName();
+        if (entry.isDirectory() || !name.endsWith(CLASS_EXTENSION)) {
+          continue;
+        }
+        try (InputStream in = zipFile.getInputStream(entry)) {
+          classFiles.put(name, IOUtils.toByteArray(in));
+          loadedClassPaths.add(name);
+        }
+      }
+    }
+    nestedClassPaths = null;
+    return loadedClassPaths;
+  }
+
+  /**
+   * Maps the path of every top level class to the sorted paths of the classes nested inside it,
+   * following inner classes of inner classes up to their top level class.
+   *
+   * @return A {@link Map} of top level class paths to the paths of their nested classes.
+   */
+  private synchronized Map<String, List<String>> createNestedClassIndex() {
+    if (nestedClassPaths != null) {
+      return nestedClassPaths;
+    }
+    Map<String, List<String>> nestedClassIndex = new HashMap<>();
+    for (String classPath : classFiles.keySet()) {
+      String outerClassPath = classPath;
+      while (isInnerClass(outerClassPath)) {
+        outerClassPath =
+            outerClassPath.substring(0, outerClassPath.lastIndexOf('$')) + CLASS_EXTENSION;
+      }
+      if (!outerClassPath.equals(classPath)) {
+        nestedClassIndex.computeIfAbsent(outerClassPath, key -> new ArrayList<>()).add(classPath);
+      }
+    }
+    nestedClassIndex.values().forEach(Collections::sort);
+    nestedClassPaths = nestedClassIndex;
+    return nestedClassIndex;
+  }
+
+  /**
+   * Checks whether a class path belongs to an inner class of another loaded class. A class called
+   * "a$b" is only treated as an inner class if "a" was loaded as well, since obfuscated top level
+   * classes may also contain a '$' character.
+   *
+   * @param classPath The class path to check.
+   * @return true if the outer class of {@param classPath} is loaded, false otherwise.
+   */
+  private boolean isInnerClass(String classPath) {
+    int separatorIndex = classPath.lastIndexOf('$');
+    int packageIndex = classPath.lastIndexOf('/');
+    if (separatorIndex <= packageIndex + 1) {
+      return false;
+    }
+    return classFiles.containsKey(classPath.substring(0, separatorIndex) + CLASS_EXTENSION);
+  }
+}
@@ -0,0 +1,69 @@
+package app.components.conversion.classconverter;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BiConsumer;
+import org.benf.cfr.reader.api.OutputSinkFactory;
+import org.benf.cfr.reader.api.SinkReturns;
+
+/**
+ * A CFR {@link OutputSinkFactory} that hands every decompiled class to a consumer instead of
+ * letting CFR write it to disk. The consumer receives the relative source file path of the class
+ * (e.g. "com/example/Main.java") and its decompiled source code.
+ */
+public class JavaSourceSinkFactory implements OutputSinkFactory {
+
+  private static final String JAVA_EXTENSION = ".java";
+  private final BiConsumer<String, String> sourceConsumer;
+
+  /**
+   * @param sourceConsumer A {@link BiConsumer} accepting the relative source file path and the
+   *     decompiled source code of each class.
+   */
+  public JavaSourceSinkFactory(BiConsumer<String, String> sourceConsumer) {
+    this.sourceConsumer = sourceConsumer;
+  }
+
+  @Override
+  public List<SinkClass> getSupportedSinks(SinkType sinkType, Collection<SinkClass> available) {
+    switch (sinkType) {
+      case JAVA:
+        return Collections.singletonList(SinkClass.DECOMPILED);
+      case EXCEPTION:
+        return Collections.singletonList(SinkClass.EXCEPTION_MESSAGE);
+      default:
+        return Collections.singletonList(SinkClass.STRING);
+    }
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <T> Sink<T> getSink(SinkType sinkType, SinkClass sinkClass) {
+    if (sinkType == SinkType.JAVA && sinkClass == SinkClass.DECOMPILED) {
+      return sinkable -> writeDecompiled((SinkReturns.Decompiled) sinkable);
+    }
+    if (sinkType == SinkType.EXCEPTION && sinkClass == SinkClass.EXCEPTION_MESSAGE) {
+      return sinkable -> {
+        SinkReturns.ExceptionMessage exception = (SinkReturns.ExceptionMessage) sinkable;
+        System.err.println(
+            "An error occurred decompiling " + exception.getPath() + ": " + exception.getMessage());
+      };
+    }
+    return sinkable -> {};
+  }
+
+  /**
+   * Builds the relative source file path of a decompiled class and passes it to the consumer.
+   *
+   * @param decompiled The {@link SinkReturns.Decompiled} class returned by CFR.
+   */
+  private void writeDecompiled(SinkReturns.Decompiled decompiled) {
+    String packageName = decompiled.getPackageName();
+    String relativePath = decompiled.getClassName() + JAVA_EXTENSION;
+    if (packageName != null && !packageName.isEmpty()) {
+      relativePath = packageName.replace('.', '/') + "/" + relativePath;
+    }
+    sourceConsumer.accept(relativePath, decompiled.getJava());
+  }
+}
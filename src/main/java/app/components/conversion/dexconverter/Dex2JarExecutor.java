@@ -4,17 +4,28 @@ import app.utils.CreateOutputDir;
 import app.utils.CreatePathWithExtension;
 import app.utils.ReadFilesFromDirectory;
 import app.utils.ThreadPoolManager;
+import com.googlecode.d2j.dex.Dex2jar;
+import com.googlecode.d2j.reader.BaseDexFileReader;
+import com.googlecode.d2j.reader.MultiDexFileReader;
+import com.googlecode.dex2jar.tools.BaksmaliBaseDexExceptionHandler;
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
 import java.util.stream.Collectors;
 
-/** This class utilizes Dex2Jar tool to perform the conversion from DEX files to JAR files */
+/**
+ * This class utilizes Dex2Jar tool to perform the conversion from DEX files to JAR files. By
+ * default the dex2jar translation library is called directly inside the running JVM, the bundled
+ * d2j-dex2jar script is only used when shell conversion is requested or the library is missing.
+ */
 public class Dex2JarExecutor {
   private static final String JAR_OUTPUT_DIR = "JarFiles";
+  private static final String DEX2JAR_LIBRARY_CLASS = "com.googlecode.d2j.dex.Dex2jar";
   private static String pathToExecutable;
   private static Path outputDir;
+  private static boolean isShellConversionOn = false;
 
   /**
    * Converts DEX files located in a specified directory to JAR files. Uses multi-threading if
@@ -29,7 +40,15 @@ public class Dex2JarExecutor {
   public static void convertToJar(Path unzippedPath, Boolean isMultiThreadingOn)
       throws IOException, InterruptedException {
 
-    pathToExecutable = setPathToExecutable();
+    if (!isShellConversionOn && !isLibraryAvailable()) {
+      System.err.println(
+          "dex2jar library was not found on the classpath, falling back to d2j-dex2jar script");
+      isShellConversionOn = true;
+    }
+
+    if (isShellConversionOn) {
+      pathToExecutable = setPathToExecutable();
+    }
 
     outputDir = CreateOutputDir.createDir(unzippedPath, JAR_OUTPUT_DIR);
 
@@ -97,9 +116,10 @@ public class Dex2JarExecutor {
   }
 
   /**
-   * Executes the conversion of a DEX file to a JAR file. This method uses {@link ProcessBuilder} to
-   * start the dex2jar tool process. Notifies the user upon successfull or unsuccessfull file
-   * conversion.
+   * Executes the conversion of a DEX file to a JAR file, either in-process through {@link
+   * #executeLibraryConversion(Path, Path, Path)} or by starting the dex2jar script through {@link
+   * #executeShellConversion(Path, Path, Path)}. Notifies the user upon successfull or unsuccessfull
+   * file conversion.
    *
    * @param outputPath The {@link Path} where the output JAR file will be saved.
    * @param errorFilePath The {@link Path} where any error file will be saved.
@@ -111,21 +131,14 @@ public class Dex2JarExecutor {
       Path outputPath, Path errorFilePath, Path dexPath, boolean isMultiThreadingOn)
       throws InterruptedException {
     try {
-      ProcessBuilder processBuilder =
-          new ProcessBuilder(
-              pathToExecutable,
-              "-o",
-              outputPath.toString(),
-              "-e",
-              errorFilePath.toString(),
-              "--force",
-              dexPath.toString());
-
-      Process process = processBuilder.start();
-
-      int exitCode = process.waitFor();
+      boolean isConverted;
+      if (isShellConversionOn) {
+        isConverted = executeShellConversion(outputPath, errorFilePath, dexPath);
+      } else {
+        isConverted = executeLibraryConversion(outputPath, errorFilePath, dexPath);
+      }
 
-      if (exitCode != 0) {
+      if (!isConverted) {
         System.err.println("An error occurred during the conversion of " + dexPath.getFileName());
       } else {
         System.out.println("Completed conversion for file: " + dexPath.getFileName());
@@ -145,6 +158,80 @@ public class Dex2JarExecutor {
     }
   }
 
+  /**
+   * Converts a DEX file to a JAR file by calling the dex2jar translation library in the current
+   * JVM. The translation options mirror the defaults of the d2j-dex2jar script, methods which fail
+   * to translate are reported to the error file just like the script does.
+   *
+   * @param outputPath The {@link Path} where the output JAR file will be saved.
+   * @param errorFilePath The {@link Path} where any error file will be saved.
+   * @param dexPath The {@link Path} of the DEX file to be converted.
+   * @return true if the DEX file was translated, false otherwise.
+   * @throws IOException If the DEX file could not be read or the JAR file could not be written.
+   */
+  private static boolean executeLibraryConversion(
+      Path outputPath, Path errorFilePath, Path dexPath) throws IOException {
+    BaksmaliBaseDexExceptionHandler handler = new BaksmaliBaseDexExceptionHandler();
+    try {
+      BaseDexFileReader reader = MultiDexFileReader.open(Files.readAllBytes(dexPath));
+      Dex2jar.from(reader)
+          .withExceptionHandler(handler)
+          .reUseReg(false)
+          .topoLogicalSort()
+          .skipDebug(true)
+          .optimizeSynchronized(false)
+          .to(outputPath);
+    } catch (RuntimeException e) {
+      System.err.println("dex2jar failed to translate " + dexPath + ": " + e.getMessage());
+      return false;
+    }
+
+    if (handler.hasException()) {
+      handler.dump(errorFilePath, new String[] {dexPath.toString()});
+    }
+    return true;
+  }
+
+  /**
+   * Converts a DEX file to a JAR file by starting the dex2jar tool script with {@link
+   * ProcessBuilder}. The output of the process is drained while it runs, so a verbose conversion
+   * can not block on a full pipe buffer, and is printed if the conversion fails.
+   *
+   * @param outputPath The {@link Path} where the output JAR file will be saved.
+   * @param errorFilePath The {@link Path} where any error file will be saved.
+   * @param dexPath The {@link Path} of the DEX file to be converted.
+   * @return true if the process exited successfully, false otherwise.
+   * @throws IOException If the process could not be started or its output could not be read.
+   * @throws InterruptedException If the conversion process is interrupted.
+   */
+  private static boolean executeShellConversion(Path outputPath, Path errorFilePath, Path dexPath)
+      throws IOException, InterruptedException {
+    ProcessBuilder processBuilder =
+        new ProcessBuilder(
+            pathToExecutable,
+            "-o",
+            outputPath.toString(),
+            "-e",
+            errorFilePath.toString(),
+            "--force",
+            dexPath.toString());
+    processBuilder.redirectErrorStream(true);
+
+    Process process = processBuilder.start();
+
+    String processOutput;
+    try (InputStream processStream = process.getInputStream()) {
+      processOutput = new String(processStream.readAllBytes(), StandardCharsets.UTF_8);
+    }
+
+    int exitCode = process.waitFor();
+
+    if (exitCode != 0 && !processOutput.isBlank()) {
+      System.err.println(processOutput);
+    }
+    return exitCode == 0;
+  }
+
   /**
    * Searches for all files with a ".dex" extension within the given unzipped directory path. It
    * utilizes the utility method {@link ReadFilesFromDirectory#getSpecificFilesFromDirectory(Path,
@@ -203,6 +290,30 @@ public class Dex2JarExecutor {
     }
   }
 
+  /**
+   * Checks whether the dex2jar translation library can be loaded by the current class loader.
+   *
+   * @return true if the library is available, false otherwise.
+   */
+  private static boolean isLibraryAvailable() {
+    try {
+      Class.forName(DEX2JAR_LIBRARY_CLASS, false, Dex2JarExecutor.class.getClassLoader());
+      return true;
+    } catch (ClassNotFoundException | LinkageError e) {
+      return false;
+    }
+  }
+
+  /**
+   * Sets whether DEX files should be converted by starting the d2j-dex2jar script for each file
+   * instead of using the in-process dex2jar library.
+   *
+   * @param shellConversion true to use the d2j-dex2jar script, false to use the library.
+   */
+  public static void setShellConversion(boolean shellConversion) {
+    isShellConversionOn = shellConversion;
+  }
+
   public static Path getOutputDir() {
     return outputDir;
   }
@@ -0,0 +1,119 @@
+package app.components.conversion.dexconverter;
+
+import com.googlecode.d2j.Method;
+import com.googlecode.d2j.dex.BaseDexExceptionHandler;
+import com.googlecode.d2j.dex.ClassVisitorFactory;
+import com.googlecode.d2j.dex.ExDex2Asm;
+import com.googlecode.d2j.dex.LambadaNameSafeClassAdapter;
+import com.googlecode.d2j.node.DexClassNode;
+import com.googlecode.d2j.node.DexFileNode;
+import com.googlecode.d2j.node.DexMethodNode;
+import com.googlecode.d2j.reader.BaseDexFileReader;
+import com.googlecode.d2j.reader.DexFileReader;
+import com.googlecode.d2j.reader.MultiDexFileReader;
+import java.io.IOException;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+/**
+ * Translates DEX bytes to Java class file bytes in memory with the dex2jar library. Unlike {@link
+ * Dex2JarExecutor}, no JAR file is written, every translated class is handed to a consumer instead.
+ */
+public class DexClassTranslator {
+
+  private static final String CLASS_EXTENSION = ".class";
+
+  /**
+   * Translates all classes of a DEX file which are accepted by {@code classFilter}. Classes that
+   * are not accepted are removed before translation, so no time is spent on them.
+   *
+   * @param dexBytes The bytes of a DEX file.
+   * @param classFilter A {@link Predicate} accepting class paths, e.g. "com/example/Main.class".
+   * @param classConsumer A {@link BiConsumer} accepting the class path and bytes of each translated
+   *     class.
+   * @return The number of methods which could not be translated.
+   * @throws IOException If the DEX bytes can not be read.
+   */
+  public static int translate(
+      byte[] dexBytes, Predicate<String> classFilter, BiConsumer<String, byte[]> classConsumer)
+      throws IOException {
+    BaseDexFileReader reader = MultiDexFileReader.open(dexBytes);
+    DexFileNode fileNode = new DexFileNode();
+    reader.accept(fileNode, DexFileReader.SKIP_DEBUG | DexFileReader.IGNORE_READ_EXCEPTION);
+
+    fileNode.clzs.removeIf(classNode -> !classFilter.test(toClassPath(classNode)));
+
+    TranslationExceptionHandler handler = new TranslationExceptionHandler();
+    new ExDex2Asm(handler).convertDex(fileNode, createClassVisitorFactory(classConsumer, handler));
+    return handler.getErrorCount();
+  }
+
+  /**
+   * Creates a {@link ClassVisitorFactory} which writes every translated class with an ASM {@link
+   * ClassWriter} and passes the result to {@code classConsumer}. Lambda class names are made safe
+   * the same way the dex2jar tool does it.
+   *
+   * @param classConsumer A {@link BiConsumer} accepting the class path and bytes of each class.
+   * @param handler The {@link TranslationExceptionHandler} to report failed classes to.
+   * @return A {@link ClassVisitorFactory} for the dex2jar translator.
+   */
+  private static ClassVisitorFactory createClassVisitorFactory(
+      BiConsumer<String, byte[]> classConsumer, TranslationExceptionHandler handler) {
+    return name -> {
+      ClassWriter classWriter = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+      LambadaNameSafeClassAdapter adapter = new LambadaNameSafeClassAdapter(classWriter);
+      return new ClassVisitor(Opcodes.ASM9, adapter) {
+        @Override
+        public void visitEnd() {
+          super.visitEnd();
+          try {
+            classConsumer.accept(
+                adapter.getClassName() + CLASS_EXTENSION, classWriter.toByteArray());
+          } catch (RuntimeException e) {
+            System.err.println("ASM failed to generate class file: " + adapter.getClassName());
+            handler.handleFileException(e);
+          }
+        }
+      };
+    };
+  }
+
+  /**
+   * Converts the type descriptor of a DEX class (e.g. "Lcom/example/Main;") to a class path.
+   *
+   * @param classNode The {@link DexClassNode} to get the class path for.
+   * @return The class path, e.g. "com/example/Main.class".
+   */
+  private static String toClassPath(DexClassNode classNode) {
+    String descriptor = classNode.className;
+    return descriptor.substring(1, descriptor.length() - 1) + CLASS_EXTENSION;
+  }
+
+  /**
+   * Counts methods and classes which could not be translated. Failed methods still get a body that
+   * throws a {@link RuntimeException}, so the rest of their class can be decompiled.
+   */
+  private static class TranslationExceptionHandler extends BaseDexExceptionHandler {
+    private int errorCount = 0;
+
+    @Override
+    public void handleFileException(Exception e) {
+      errorCount++;
+    }
+
+    @Override
+    public void handleMethodTranslateException(
+        Method method, DexMethodNode methodNode, MethodVisitor methodVisitor, Exception e) {
+      super.handleMethodTranslateException(method, methodNode, methodVisitor, e);
+      errorCount++;
+    }
+
+    private int getErrorCount() {
+      return errorCount;
+    }
+  }
+}
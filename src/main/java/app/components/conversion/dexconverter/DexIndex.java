@@ -0,0 +1,581 @@
+package app.components.conversion.dexconverter;
+
+import app.components.parsing.javaparsing.detectors.BytecodeMethod;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reads which methods every class and every method of a DEX file invokes, which types they create
+ * and which string constants a class holds, without translating or decompiling it. The DEX file is
+ * read from a {@link ByteBuffer}, usually a memory-mapped file, and only the header, the id tables,
+ * the class definitions and the bytecode of the methods are visited.
+ *
+ * <p>The bytecode is scanned instruction by instruction: invoke instructions name the called
+ * method through the method_ids table, new-instance instructions name the created type through the
+ * type_ids table and const-string instructions name a string of the string_ids table. An anonymous
+ * class is created as its super class or interface in the source code, e.g. {@code new
+ * Runnable() {...}}, so for anonymous classes defined in the same DEX file the super class and
+ * interfaces are recorded as created types as well. The strings
+ * of static field initial values are read as well, since the decompiler turns them into field
+ * initializers.
+ */
+public class DexIndex {
+
+  private static final int HEADER_SIZE = 0x70;
+  private static final int CLASS_DEF_SIZE = 32;
+  private static final int METHOD_ID_SIZE = 8;
+  private static final int STRING_ID_SIZE = 4;
+  private static final int TYPE_ID_SIZE = 4;
+  private static final int NO_INDEX = -1;
+  private final ByteBuffer dex;
+  private final int stringIdsOffset;
+  private final int typeIdsOffset;
+  private final int methodIdsOffset;
+  private final int classDefsSize;
+  private final int classDefsOffset;
+  private final String[] strings;
+  private final Map<Integer, Integer> classDefOffsets = new HashMap<>();
+
+  private DexIndex(ByteBuffer dex) throws IOException {
+    this.dex = dex.order(ByteOrder.LITTLE_ENDIAN);
+    if (dex.limit() < HEADER_SIZE
+        || dex.get(0) != 'd'
+        || dex.get(1) != 'e'
+        || dex.get(2) != 'x'
+        || dex.get(3) != '\n') {
+      throw new IOException("Not a DEX file");
+    }
+    int stringIdsSize = dex.getInt(0x38);
+    stringIdsOffset = dex.getInt(0x3C);
+    typeIdsOffset = dex.getInt(0x44);
+    methodIdsOffset = dex.getInt(0x5C);
+    classDefsSize = dex.getInt(0x60);
+    classDefsOffset = dex.getInt(0x64);
+    if (!isTableInFile(stringIdsOffset, stringIdsSize, STRING_ID_SIZE)
+        || !isTableInFile(typeIdsOffset, dex.getInt(0x40), TYPE_ID_SIZE)
+        || !isTableInFile(methodIdsOffset, dex.getInt(0x58), METHOD_ID_SIZE)
+        || !isTableInFile(classDefsOffset, classDefsSize, CLASS_DEF_SIZE)) {
+      throw new IOException("Malformed DEX header");
+    }
+    strings = new String[stringIdsSize];
+  }
+
+  /**
+   * @param offset The offset of a table of the DEX file.
+   * @param size The number of items of the table.
+   * @param itemSize The size of a single item in bytes.
+   * @return true if the whole table lies inside the file.
+   */
+  private boolean isTableInFile(int offset, int size, int itemSize) {
+    return offset >= 0 && size >= 0 && (long) offset + (long) size * itemSize <= dex.limit();
+  }
+
+  /**
+   * Maps a DEX file into memory and reads its header.
+   *
+   * @param dexPath The {@link Path} of the DEX file.
+   * @return The {@link DexIndex} of the file.
+   * @throws IOException If the file can not be mapped or is not a DEX file.
+   */
+  public static DexIndex map(Path dexPath) throws IOException {
+    try (FileChannel channel = FileChannel.open(dexPath, StandardOpenOption.READ)) {
+      return new DexIndex(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    }
+  }
+
+  /**
+   * @param dexBytes The bytes of a DEX file.
+   * @return The {@link DexIndex} of the bytes.
+   * @throws IOException If the bytes are not a DEX file.
+   */
+  public static DexIndex wrap(byte[] dexBytes) throws IOException {
+    return new DexIndex(ByteBuffer.wrap(dexBytes));
+  }
+
+  /**
+   * Reads the references of every class defined in the DEX file. A class whose data can not be
+   * read is returned with {@link ClassEntry#isComplete()} being false.
+   *
+   * @return A {@link List} of the {@link ClassEntry} of every class.
+   * @throws IOException If the name of a class can not be read.
+   */
+  public List<ClassEntry> readClasses() throws IOException {
+    List<ClassEntry> classes = new ArrayList<>(classDefsSize);
+    for (int i = 0; i < classDefsSize; i++) {
+      int classDefOffset = classDefsOffset + i * CLASS_DEF_SIZE;
+      classDefOffsets.put(dex.getInt(classDefOffset), classDefOffset);
+    }
+    for (int i = 0; i < classDefsSize; i++) {
+      int classDefOffset = classDefsOffset + i * CLASS_DEF_SIZE;
+      ClassEntry entry = new ClassEntry(readClassPath(i));
+      try {
+        int classDataOffset = dex.getInt(classDefOffset + 24);
+        int staticValuesOffset = dex.getInt(classDefOffset + 28);
+        if (classDataOffset != 0) {
+          readClassData(classDataOffset, entry);
+        }
+        if (staticValuesOffset != 0) {
+          readEncodedArray(new Cursor(staticValuesOffset), entry);
+        }
+      } catch (RuntimeException e) {
+        entry.isComplete = false;
+      }
+      classes.add(entry);
+    }
+    return classes;
+  }
+
+  /**
+   * Reads only the names of the classes defined in the DEX file, e.g. to check which packages they
+   * lie in before any class is indexed.
+   *
+   * @return A {@link List} of the paths of every class, e.g. "com/example/MainActivity.class".
+   * @throws IOException If the name of a class can not be read.
+   */
+  public List<String> readClassPaths() throws IOException {
+    List<String> classPaths = new ArrayList<>(classDefsSize);
+    for (int i = 0; i < classDefsSize; i++) {
+      classPaths.add(readClassPath(i));
+    }
+    return classPaths;
+  }
+
+  /**
+   * @param classDefIndex The index of a class_def_item.
+   * @return The path of the defined class, e.g. "com/example/MainActivity.class".
+   * @throws IOException If the name of the class can not be read.
+   */
+  private String readClassPath(int classDefIndex) throws IOException {
+    try {
+      String descriptor = getType(dex.getInt(classDefsOffset + classDefIndex * CLASS_DEF_SIZE));
+      return descriptor.substring(1, descriptor.length() - 1) + ".class";
+    } catch (RuntimeException e) {
+      throw new IOException("Malformed class definition " + classDefIndex, e);
+    }
+  }
+
+  /**
+   * Reads the methods of a class_data_item and scans the bytecode of each of them.
+   *
+   * @param offset The offset of the class_data_item.
+   * @param entry The {@link ClassEntry} to add the references to.
+   */
+  private void readClassData(int offset, ClassEntry entry) {
+    Cursor cursor = new Cursor(offset);
+    int staticFieldsSize = cursor.readUleb128();
+    int instanceFieldsSize = cursor.readUleb128();
+    int directMethodsSize = cursor.readUleb128();
+    int virtualMethodsSize = cursor.readUleb128();
+    for (int i = 0; i < (staticFieldsSize + instanceFieldsSize) * 2; i++) {
+      cursor.readUleb128();
+    }
+    int methodIndex = 0;
+    for (int i = 0; i < directMethodsSize + virtualMethodsSize; i++) {
+      // method indices are stored as differences, starting anew with the virtual methods
+      methodIndex = (i == directMethodsSize ? 0 : methodIndex) + cursor.readUleb128();
+      cursor.readUleb128();
+      int codeOffset = cursor.readUleb128();
+      if (codeOffset != 0) {
+        MethodEntry method = new MethodEntry(entry.getClassName(), getMethodName(methodIndex));
+        scanCode(codeOffset, entry, method);
+        entry.methods.add(method);
+      }
+    }
+  }
+
+  /**
+   * Scans the instructions of a code_item for invoked methods, created types and string constants.
+   *
+   * @param codeOffset The offset of the code_item.
+   * @param entry The {@link ClassEntry} to add the references to.
+   * @param method The {@link MethodEntry} of the code_item to add the references to.
+   */
+  private void scanCode(int codeOffset, ClassEntry entry, MethodEntry method) {
+    int insnsSize = dex.getInt(codeOffset + 12);
+    int insnsOffset = codeOffset + 16;
+    int unit = 0;
+    while (unit < insnsSize) {
+      int position = insnsOffset + unit * 2;
+      int opcode = dex.get(position) & 0xFF;
+      if (opcode == 0x00) {
+        unit += getPayloadLength(position);
+        continue;
+      }
+      if ((opcode >= 0x6E && opcode <= 0x72)
+          || (opcode >= 0x74 && opcode <= 0x78)
+          || opcode == 0xFA
+          || opcode == 0xFB) {
+        method.invokedMethods.add(getMethodName(dex.getShort(position + 2) & 0xFFFF));
+      } else if (opcode == 0x22) {
+        int typeIndex = dex.getShort(position + 2) & 0xFFFF;
+        String createdType = getClassName(getType(typeIndex));
+        method.createdTypes.add(createdType);
+        if (isAnonymousClass(createdType)) {
+          method.createdTypes.addAll(getSuperTypes(typeIndex));
+        }
+      } else if (opcode == 0x1A) {
+        entry.strings.add(getString(dex.getShort(position + 2) & 0xFFFF));
+      } else if (opcode == 0x1B) {
+        entry.strings.add(getString(dex.getInt(position + 2)));
+      }
+      unit += getInstructionLength(opcode);
+    }
+    entry.invokedMethods.addAll(method.invokedMethods);
+    method.createdTypes.forEach(type -> entry.createdTypes.add(getSimpleName(type)));
+  }
+
+  /**
+   * @param className The binary name of a class, e.g. "com.example.Main$1".
+   * @return true if the class is named like an anonymous class, by a number.
+   */
+  private static boolean isAnonymousClass(String className) {
+    int nameIndex = className.lastIndexOf('$');
+    String name = className.substring(nameIndex + 1);
+    return nameIndex > 0 && !name.isEmpty() && name.chars().allMatch(Character::isDigit);
+  }
+
+  /**
+   * Reads the super class and interfaces of a class defined in the DEX file, leaving out
+   * java.lang.Object.
+   *
+   * @param typeIndex The type index of the class.
+   * @return The binary names of the super types, empty if the class is not defined in the file.
+   */
+  private List<String> getSuperTypes(int typeIndex) {
+    List<String> superTypes = new ArrayList<>();
+    Integer classDefOffset = classDefOffsets.get(typeIndex);
+    if (classDefOffset == null) {
+      return superTypes;
+    }
+    int superclassIndex = dex.getInt(classDefOffset + 8);
+    if (superclassIndex != NO_INDEX) {
+      superTypes.add(getClassName(getType(superclassIndex)));
+    }
+    int interfacesOffset = dex.getInt(classDefOffset + 12);
+    if (interfacesOffset != 0) {
+      int interfaceCount = dex.getInt(interfacesOffset);
+      for (int i = 0; i < interfaceCount; i++) {
+        superTypes.add(
+            getClassName(getType(dex.getShort(interfacesOffset + 4 + i * 2) & 0xFFFF)));
+      }
+    }
+    superTypes.remove("java.lang.Object");
+    return superTypes;
+  }
+
+  /**
+   * Returns the length of a nop instruction or of the switch or array data payload starting with
+   * it.
+   *
+   * @param position The offset of the instruction.
+   * @return The length in 16 bit code units.
+   */
+  private int getPayloadLength(int position) {
+    int identifier = dex.get(position + 1) & 0xFF;
+    if (identifier == 0x01) {
+      return (dex.getShort(position + 2) & 0xFFFF) * 2 + 4;
+    } else if (identifier == 0x02) {
+      return (dex.getShort(position + 2) & 0xFFFF) * 4 + 2;
+    } else if (identifier == 0x03) {
+      int elementWidth = dex.getShort(position + 2) & 0xFFFF;
+      long size = dex.getInt(position + 4) & 0xFFFFFFFFL;
+      return (int) ((size * elementWidth + 1) / 2 + 4);
+    }
+    return 1;
+  }
+
+  /**
+   * Returns the length of an instruction from the format of its opcode, see the Dalvik bytecode
+   * instruction formats.
+   *
+   * @param opcode The opcode of the instruction.
+   * @return The length in 16 bit code units.
+   */
+  private static int getInstructionLength(int opcode) {
+    if (opcode == 0x18) {
+      return 5;
+    }
+    if (opcode == 0x03
+        || opcode == 0x06
+        || opcode == 0x09
+        || opcode == 0x14
+        || opcode == 0x17
+        || opcode == 0x1B
+        || (opcode >= 0x24 && opcode <= 0x26)
+        || opcode == 0x2A
+        || opcode == 0x2B
+        || opcode == 0x2C
+        || (opcode >= 0x6E && opcode <= 0x72)
+        || (opcode >= 0x74 && opcode <= 0x78)
+        || opcode == 0xFC
+        || opcode == 0xFD) {
+      return 3;
+    }
+    if (opcode == 0xFA || opcode == 0xFB) {
+      return 4;
+    }
+    if (opcode == 0x02
+        || opcode == 0x05
+        || opcode == 0x08
+        || opcode == 0x13
+        || opcode == 0x15
+        || opcode == 0x16
+        || opcode == 0x19
+        || opcode == 0x1A
+        || opcode == 0x1C
+        || opcode == 0x1F
+        || opcode == 0x20
+        || opcode == 0x22
+        || opcode == 0x23
+        || opcode == 0x29
+        || (opcode >= 0x2D && opcode <= 0x3D)
+        || (opcode >= 0x44 && opcode <= 0x6D)
+        || (opcode >= 0x90 && opcode <= 0xAF)
+        || (opcode >= 0xD0 && opcode <= 0xE2)
+        || opcode == 0xFE
+        || opcode == 0xFF) {
+      return 2;
+    }
+    return 1;
+  }
+
+  /**
+   * Reads the strings of an encoded_array, e.g. the initial values of static fields.
+   *
+   * @param cursor The {@link Cursor} positioned at the encoded_array.
+   * @param entry The {@link ClassEntry} to add the strings to.
+   */
+  private void readEncodedArray(Cursor cursor, ClassEntry entry) {
+    int size = cursor.readUleb128();
+    for (int i = 0; i < size; i++) {
+      readEncodedValue(cursor, entry);
+    }
+  }
+
+  private void readEncodedValue(Cursor cursor, ClassEntry entry) {
+    int header = cursor.readByte();
+    int valueType = header & 0x1F;
+    int valueArgument = header >> 5;
+    if (valueType == 0x17) {
+      entry.strings.add(getString((int) cursor.readUnsigned(valueArgument + 1)));
+    } else if (valueType == 0x1C) {
+      readEncodedArray(cursor, entry);
+    } else if (valueType == 0x1D) {
+      cursor.readUleb128();
+      int size = cursor.readUleb128();
+      for (int i = 0; i < size; i++) {
+        cursor.readUleb128();
+        readEncodedValue(cursor, entry);
+      }
+    } else if (valueType != 0x1E && valueType != 0x1F) {
+      cursor.position += valueArgument + 1;
+    }
+  }
+
+  private String getMethodName(int methodIndex) {
+    return getString(dex.getInt(methodIdsOffset + methodIndex * METHOD_ID_SIZE + 4));
+  }
+
+  private String getType(int typeIndex) {
+    return getString(dex.getInt(typeIdsOffset + typeIndex * 4));
+  }
+
+  /**
+   * Decodes a string of the string_ids table. Strings are stored in modified UTF-8, whose byte
+   * sequences map one to one to UTF-16 characters. Decoded strings are kept, since the same
+   * strings are referenced by many classes.
+   *
+   * @param stringIndex The index of the string.
+   * @return The decoded string.
+   */
+  private synchronized String getString(int stringIndex) {
+    if (stringIndex == NO_INDEX) {
+      return "";
+    }
+    String string = strings[stringIndex];
+    if (string == null) {
+      Cursor cursor = new Cursor(dex.getInt(stringIdsOffset + stringIndex * 4));
+      char[] chars = new char[cursor.readUleb128()];
+      for (int i = 0; i < chars.length; i++) {
+        int first = cursor.readByte();
+        if (first < 0x80) {
+          chars[i] = (char) first;
+        } else if ((first & 0xE0) == 0xC0) {
+          chars[i] = (char) (((first & 0x1F) << 6) | (cursor.readByte() & 0x3F));
+        } else {
+          int second = cursor.readByte();
+          chars[i] =
+              (char) (((first & 0x0F) << 12) | ((second & 0x3F) << 6) | (cursor.readByte() & 0x3F));
+        }
+      }
+      string = new String(chars);
+      strings[stringIndex] = string;
+    }
+    return string;
+  }
+
+  /**
+   * @param descriptor A type descriptor, e.g. "Ljava/util/Map$Entry;".
+   * @return The binary name of the type, e.g. "java.util.Map$Entry".
+   */
+  private static String getClassName(String descriptor) {
+    String name =
+        descriptor.startsWith("L") && descriptor.endsWith(";")
+            ? descriptor.substring(1, descriptor.length() - 1)
+            : descriptor;
+    return name.replace('/', '.');
+  }
+
+  /**
+   * @param className The binary name of a type, e.g. "java.util.Map$Entry".
+   * @return The simple name of the type, e.g. "Entry".
+   */
+  private static String getSimpleName(String className) {
+    int nameIndex = Math.max(className.lastIndexOf('.'), className.lastIndexOf('$'));
+    return className.substring(nameIndex + 1);
+  }
+
+  /** A read position in the DEX file for variable length data. */
+  private class Cursor {
+    private int position;
+
+    private Cursor(int position) {
+      this.position = position;
+    }
+
+    private int readByte() {
+      return dex.get(position++) & 0xFF;
+    }
+
+    private int readUleb128() {
+      int result = 0;
+      int shift = 0;
+      int value;
+      do {
+        if (shift > 28) {
+          throw new BufferUnderflowException();
+        }
+        value = readByte();
+        result |= (value & 0x7F) << shift;
+        shift += 7;
+      } while ((value & 0x80) != 0);
+      return result;
+    }
+
+    private long readUnsigned(int size) {
+      long result = 0;
+      for (int i = 0; i < size; i++) {
+        result |= (long) readByte() << (i * 8);
+      }
+      return result;
+    }
+  }
+
+  /** The methods, types and strings referenced by a single class of a DEX file. */
+  public static class ClassEntry {
+    private final String classPath;
+    private final Set<String> invokedMethods = new HashSet<>();
+    private final Set<String> createdTypes = new HashSet<>();
+    private final List<String> strings = new ArrayList<>();
+    private final List<MethodEntry> methods = new ArrayList<>();
+    private boolean isComplete = true;
+
+    private ClassEntry(String classPath) {
+      this.classPath = classPath;
+    }
+
+    /**
+     * @return The path of the class, e.g. "com/example/Main.class".
+     */
+    public String getClassPath() {
+      return classPath;
+    }
+
+    /**
+     * @return The binary name of the class, e.g. "com.example.Main".
+     */
+    public String getClassName() {
+      return classPath.substring(0, classPath.length() - ".class".length()).replace('/', '.');
+    }
+
+    /**
+     * @return The {@link MethodEntry} of every method of the class which has code, in the order of
+     *     the class definition.
+     */
+    public List<MethodEntry> getMethods() {
+      return methods;
+    }
+
+    /**
+     * @return The names of all methods invoked by the class.
+     */
+    public Set<String> getInvokedMethods() {
+      return invokedMethods;
+    }
+
+    /**
+     * @return The simple names of all types the class creates instances of.
+     */
+    public Set<String> getCreatedTypes() {
+      return createdTypes;
+    }
+
+    /**
+     * @return The string constants of the class, in the order of its bytecode.
+     */
+    public List<String> getStrings() {
+      return strings;
+    }
+
+    /**
+     * @return false if the data of the class could not be read, so its references are incomplete.
+     */
+    public boolean isComplete() {
+      return isComplete;
+    }
+  }
+
+  /** The methods invoked and the types created by the bytecode of a single method. */
+  public static class MethodEntry implements BytecodeMethod {
+    private final String className;
+    private final String name;
+    private final Set<String> invokedMethods = new HashSet<>();
+    private final Set<String> createdTypes = new HashSet<>();
+
+    private MethodEntry(String className, String name) {
+      this.className = className;
+      this.name = name;
+    }
+
+    @Override
+    public String getClassName() {
+      return className;
+    }
+
+    @Override
+    public String getName() {
+      return name;
+    }
+
+    @Override
+    public Set<String> getInvokedMethods() {
+      return invokedMethods;
+    }
+
+    @Override
+    public Set<String> getCreatedTypes() {
+      return createdTypes;
+    }
+  }
+}
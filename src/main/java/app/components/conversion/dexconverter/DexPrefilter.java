@@ -0,0 +1,319 @@
+package app.components.conversion.dexconverter;
+
+import app.components.model.DangerousPattern;
+import app.components.parsing.javaparsing.codeparsing.BytecodeMatcher;
+import app.components.parsing.javaparsing.codeparsing.PatternDetector;
+import app.components.parsing.javaparsing.codeparsing.TokenPrefilter;
+import app.components.parsing.javaparsing.detectors.Detector;
+import app.components.parsing.javaparsing.detectors.MethodArgumentDetector;
+import app.components.parsing.javaparsing.detectors.MethodCallDetector;
+import app.components.parsing.javaparsing.detectors.ObjectCreationDetector;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+
+/**
+ * Selects the classes of an application which are converted and decompiled, before any DEX file is
+ * translated. The {@link DexIndex} of every DEX file tells which methods each class invokes, which
+ * types it creates and which strings it holds. A class is only selected if at least one pattern
+ * may be detected in it, the same way {@code CallSiteIndex} decides it for decompiled sources.
+ *
+ * <p>A class is decompiled into the source file of its top-level class, so a top-level class and
+ * all of its nested classes form one source and are selected together. The string literals of the
+ * sources which are not selected are still passed on to the string analysis, since it does not
+ * depend on the patterns.
+ *
+ * <p>With bytecode matching, patterns which do not need the AST are detected on the indexed
+ * bytecode by a {@link BytecodeMatcher}, so classes are only decompiled for the remaining patterns.
+ */
+public class DexPrefilter {
+
+  private static final Map<String, SourceEntry> sources = new HashMap<>();
+  private static final Set<String> selectedSources = new HashSet<>();
+  private static boolean isEnabled = false;
+  private static boolean isBytecodeMatchingOn = false;
+  private static boolean isIndexComplete = true;
+  private static boolean isSelectionDone = false;
+
+  /**
+   * @param enabled Flag indicating whether only classes which may match a pattern are decompiled.
+   */
+  public static void setEnabled(boolean enabled) {
+    isEnabled = enabled;
+  }
+
+  public static boolean isEnabled() {
+    return isEnabled;
+  }
+
+  /**
+   * @param bytecodeMatching Flag indicating whether patterns which do not need the AST are detected
+   *     on the bytecode of the indexed classes instead of on decompiled source code.
+   */
+  public static void setBytecodeMatching(boolean bytecodeMatching) {
+    isBytecodeMatchingOn = bytecodeMatching;
+  }
+
+  public static boolean isBytecodeMatchingOn() {
+    return isBytecodeMatchingOn;
+  }
+
+  /**
+   * @return false if a DEX file could not be indexed, so not all classes are known.
+   */
+  public static synchronized boolean isIndexComplete() {
+    return isIndexComplete;
+  }
+
+  /**
+   * Detects the patterns of a {@link BytecodeMatcher} in the indexed classes, one source at a time.
+   * Sources with incomplete class data are left to the source code analysis.
+   *
+   * @param bytecodeMatcher The {@link BytecodeMatcher} of the patterns.
+   * @param isAnalyzed A {@link Predicate} accepting the paths of the sources to analyze, e.g.
+   *     "com/example/Main.java".
+   * @return A {@link List} of the detected {@link DangerousPattern} objects, ordered by their
+   *     source path.
+   */
+  public static synchronized List<DangerousPattern> matchBytecode(
+      BytecodeMatcher bytecodeMatcher, Predicate<String> isAnalyzed) {
+    List<DangerousPattern> dangerousPatterns = new ArrayList<>();
+    for (Map.Entry<String, SourceEntry> source : new TreeMap<>(sources).entrySet()) {
+      if (source.getValue().isComplete && isAnalyzed.test(source.getKey())) {
+        dangerousPatterns.addAll(
+            bytecodeMatcher.match(new File(source.getKey()), source.getValue().methods));
+      }
+    }
+    return dangerousPatterns;
+  }
+
+  /**
+   * Reads the classes of a DEX file.
+   *
+   * @param dexPath The {@link Path} of the DEX file.
+   */
+  public static void addDexFile(Path dexPath) {
+    try {
+      addDexIndex(DexIndex.map(dexPath));
+    } catch (IOException e) {
+      System.err.println("Could not index " + dexPath.getFileName() + ": " + e.getMessage());
+      setIndexIncomplete();
+    }
+  }
+
+  /**
+   * Reads the classes of a DEX file held in memory.
+   *
+   * @param dexBytes The bytes of the DEX file.
+   */
+  public static void addDexBytes(byte[] dexBytes) {
+    try {
+      addDexIndex(DexIndex.wrap(dexBytes));
+    } catch (IOException e) {
+      System.err.println("Could not index a DEX file: " + e.getMessage());
+      setIndexIncomplete();
+    }
+  }
+
+  /**
+   * Merges the classes of a DEX file into the sources they are decompiled into. Nested classes may
+   * be stored in another DEX file than their top-level class.
+   *
+   * @param dexIndex The {@link DexIndex} of the DEX file.
+   * @throws IOException If the classes of the DEX file can not be read.
+   */
+  public static synchronized void addDexIndex(DexIndex dexIndex) throws IOException {
+    for (DexIndex.ClassEntry classEntry : dexIndex.readClasses()) {
+      String sourcePath = getSourcePath(classEntry.getClassPath());
+      sources.computeIfAbsent(sourcePath, key -> new SourceEntry()).add(classEntry);
+    }
+    isSelectionDone = false;
+  }
+
+  /**
+   * Selects the sources in which at least one of the patterns may be detected. Sources with
+   * incomplete class data are always selected. When a DEX file could not be indexed at all, every
+   * class is selected.
+   *
+   * @param patternDetectors The {@link PatternDetector} objects of all patterns, or null if they
+   *     could not be loaded, in which case every class is selected.
+   */
+  public static synchronized void select(List<PatternDetector> patternDetectors) {
+    selectedSources.clear();
+    isSelectionDone = false;
+    if (patternDetectors == null) {
+      return;
+    }
+    for (Map.Entry<String, SourceEntry> source : sources.entrySet()) {
+      if (!source.getValue().isComplete || source.getValue().mayMatch(patternDetectors)) {
+        selectedSources.add(source.getKey());
+      }
+    }
+    isSelectionDone = isIndexComplete;
+    if (isSelectionDone) {
+      System.out.println(
+          "Decompiling "
+              + selectedSources.size()
+              + " of "
+              + sources.size()
+              + " top-level classes, which may contain a pattern");
+    }
+  }
+
+  /**
+   * Checks whether an archive entry is converted. Entries which are no classes, and all classes if
+   * no selection has been made, are converted.
+   *
+   * @param path The path of the archive entry, e.g. "com/example/MainActivity.class".
+   * @return true if the entry should be converted, false otherwise.
+   */
+  public static synchronized boolean isSelected(String path) {
+    if (!isEnabled || !isSelectionDone || !path.endsWith(".class")) {
+      return true;
+    }
+    return selectedSources.contains(getSourcePath(path));
+  }
+
+  /**
+   * Returns the string constants of the sources which are not decompiled, so that their strings can
+   * still be analyzed.
+   *
+   * @return A {@link Map} of the source path, e.g. "com/example/Main.java", to its strings.
+   */
+  public static synchronized Map<String, List<String>> getSkippedSourceStrings() {
+    Map<String, List<String>> skippedSourceStrings = new HashMap<>();
+    if (!isEnabled || !isSelectionDone) {
+      return skippedSourceStrings;
+    }
+    for (Map.Entry<String, SourceEntry> source : sources.entrySet()) {
+      if (!selectedSources.contains(source.getKey())) {
+        skippedSourceStrings.put(source.getKey(), source.getValue().strings);
+      }
+    }
+    return skippedSourceStrings;
+  }
+
+  /**
+   * Returns the string constants of all indexed sources, for an analysis in which no class is
+   * decompiled.
+   *
+   * @return A {@link Map} of the source path, e.g. "com/example/Main.java", to its strings.
+   */
+  public static synchronized Map<String, List<String>> getSourceStrings() {
+    Map<String, List<String>> sourceStrings = new HashMap<>();
+    sources.forEach((sourcePath, source) -> sourceStrings.put(sourcePath, source.strings));
+    return sourceStrings;
+  }
+
+  /**
+   * Finds the patterns which may be detected in at least one of the indexed sources, without
+   * decompiling them. Sources with incomplete class data are left out.
+   *
+   * @param patternDetectors The {@link PatternDetector} objects of the patterns to check.
+   * @param isAnalyzed A {@link Predicate} accepting the paths of the sources to analyze, e.g.
+   *     "com/example/Main.java".
+   * @return A {@link List} of the {@link PatternDetector} objects which may be detected.
+   */
+  public static synchronized List<PatternDetector> getPossiblePatterns(
+      List<PatternDetector> patternDetectors, Predicate<String> isAnalyzed) {
+    List<PatternDetector> possiblePatterns = new ArrayList<>();
+    for (PatternDetector patternDetector : patternDetectors) {
+      List<PatternDetector> pattern = Collections.singletonList(patternDetector);
+      for (Map.Entry<String, SourceEntry> source : sources.entrySet()) {
+        if (source.getValue().isComplete
+            && isAnalyzed.test(source.getKey())
+            && source.getValue().mayMatch(pattern)) {
+          possiblePatterns.add(patternDetector);
+          break;
+        }
+      }
+    }
+    return possiblePatterns;
+  }
+
+  /** Removes all indexed classes and the selection. */
+  public static synchronized void reset() {
+    sources.clear();
+    selectedSources.clear();
+    isIndexComplete = true;
+    isSelectionDone = false;
+  }
+
+  /**
+   * @param classPath The path of a class, e.g. "com/example/Main$Listener.class".
+   * @return The path of the source file the class is decompiled into, e.g. "com/example/Main.java".
+   */
+  public static String getSourcePath(String classPath) {
+    String path = classPath.replaceFirst("\\.class$", "");
+    int nestedIndex = path.indexOf('$', path.lastIndexOf('/') + 1);
+    if (nestedIndex > 0 && path.charAt(nestedIndex - 1) != '/') {
+      path = path.substring(0, nestedIndex);
+    }
+    return path + ".java";
+  }
+
+  /** Marks the index as incomplete, so that every class is converted. */
+  private static synchronized void setIndexIncomplete() {
+    isIndexComplete = false;
+  }
+
+  /** The references of a top-level class and all of its nested classes. */
+  private static class SourceEntry {
+    private final Set<String> invokedMethods = new HashSet<>();
+    private final Set<String> createdTypes = new HashSet<>();
+    private final List<String> strings = new ArrayList<>();
+    private final List<DexIndex.MethodEntry> methods = new ArrayList<>();
+    private boolean isComplete = true;
+
+    private void add(DexIndex.ClassEntry classEntry) {
+      invokedMethods.addAll(classEntry.getInvokedMethods());
+      if (isBytecodeMatchingOn) {
+        methods.addAll(classEntry.getMethods());
+      }
+      createdTypes.addAll(classEntry.getCreatedTypes());
+      strings.addAll(classEntry.getStrings());
+      isComplete &= classEntry.isComplete();
+    }
+
+    private boolean mayMatch(List<PatternDetector> patternDetectors) {
+      for (PatternDetector patternDetector : patternDetectors) {
+        int matchingDetectorCount = 0;
+        for (Detector detector : patternDetector.getDetectors()) {
+          if (mayMatch(detector)) {
+            matchingDetectorCount++;
+          }
+        }
+        if (matchingDetectorCount >= patternDetector.getRequiredState()) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    private boolean mayMatch(Detector detector) {
+      if (detector instanceof MethodCallDetector) {
+        if (!invokedMethods.contains(((MethodCallDetector) detector).getMethodToDetect())) {
+          return false;
+        }
+        if (detector instanceof MethodArgumentDetector) {
+          return strings.stream().anyMatch(((MethodArgumentDetector) detector)::isArgumentMatch);
+        }
+        return true;
+      } else if (detector instanceof ObjectCreationDetector) {
+        return createdTypes.contains(
+            TokenPrefilter.getSimpleTypeName(
+                ((ObjectCreationDetector) detector).getTypeToDetect()));
+      }
+      return true;
+    }
+  }
+}
@@ -1,5 +1,7 @@
 package app.components.conversion.jarfilter;
 
+import app.components.conversion.classconverter.InMemoryClassFileSource;
+import app.components.conversion.dexconverter.DexPrefilter;
 import app.utils.CreateOutputDir;
 import app.utils.CreatePathWithExtension;
 import app.utils.ReadFilesFromDirectory;
@@ -9,17 +11,24 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 import org.apache.commons.compress.archivers.zip.*;
 import org.apache.commons.compress.utils.IOUtils;
 
 public class JarFilter {
 
   private static final String CLASS_OUTPUT_DIR = "FilteredJarFiles";
-  private static final List<String> EXCLUDED_FOLDERS = Arrays.asList("android/", "androidx/");
   private static Path outputDir;
+  private static LibraryFingerprints libraryFingerprints;
+  private static final Set<String> skippedLibrarySources = new HashSet<>();
 
   /**
    * Filters JAR files found in a specified directory, copying them to a target directory after
@@ -33,6 +42,7 @@ public class JarFilter {
   public static void filterLibs(Path jarFolderPath, Path unzippedPath) throws IOException {
 
     outputDir = CreateOutputDir.createDir(unzippedPath, CLASS_OUTPUT_DIR);
+    skippedLibrarySources.clear();
 
     List<File> jarFileList =
         ReadFilesFromDirectory.getSpecificFilesFromDirectory(jarFolderPath, ".jar");
@@ -60,7 +70,8 @@ public class JarFilter {
 
   /**
    * Filters the contents (folders) of JAR file, writing the result to a target JAR file based on
-   * predefined criteria.
+   * predefined criteria. If {@link LibraryFingerprints} are set, classes of known libraries are
+   * left out as well, and so are classes not selected by the {@link DexPrefilter}.
    *
    * @param sourceJar The source JAR file to be filtered.
    * @param targetJar The target JAR file where the filtered contents are written to.
@@ -72,12 +83,16 @@ public class JarFilter {
         ZipArchiveOutputStream target =
             new ZipArchiveOutputStream(new FileOutputStream(targetJar))) {
 
+      Set<String> libraryClasses =
+          libraryFingerprints != null ? findLibraryClasses(source) : Collections.emptySet();
       Enumeration<ZipArchiveEntry> entries = source.getEntries();
       while (entries.hasMoreElements()) {
         ZipArchiveEntry entry = entries.nextElement();
         String name = entry.getName();
 
-        if (EXCLUDED_FOLDERS.stream().noneMatch(name::startsWith)) {
+        if (!isExcluded(name)
+            && !libraryClasses.contains(name)
+            && DexPrefilter.isSelected(name)) {
           target.putArchiveEntry(new ZipArchiveEntry(name));
           if (!entry.isDirectory()) {
             try (InputStream in = source.getInputStream(entry)) {
@@ -90,7 +105,172 @@ public class JarFilter {
     }
   }
 
+  /**
+   * Finds the classes of known libraries among the classes of a JAR file.
+   *
+   * @param source The JAR file to search.
+   * @return A {@link Set} of the paths of the classes of known libraries.
+   * @throws IOException If a class file can not be read.
+   */
+  private static Set<String> findLibraryClasses(ZipFile source) throws IOException {
+    Map<String, Long> classSignatures = new HashMap<>();
+    Enumeration<ZipArchiveEntry> entries = source.getEntries();
+    while (entries.hasMoreElements()) {
+      ZipArchiveEntry entry = entries.nextElement();
+      String name = entry.getName();
+      if (!entry.isDirectory() && name.endsWith(".class") && !isExcluded(name)) {
+        try (InputStream in = source.getInputStream(entry)) {
+          addClassSignature(classSignatures, name, IOUtils.toByteArray(in));
+        }
+      }
+    }
+    return findLibraryClasses(classSignatures);
+  }
+
+  /**
+   * Removes the classes of known libraries from classes translated in memory. Does nothing if no
+   * {@link LibraryFingerprints} are set.
+   *
+   * @param classFileSource The {@link InMemoryClassFileSource} holding the translated classes.
+   */
+  public static void filterLibraries(InMemoryClassFileSource classFileSource) {
+    skippedLibrarySources.clear();
+    if (libraryFingerprints == null) {
+      return;
+    }
+    Map<String, Long> classSignatures = new HashMap<>();
+    classFileSource.forEachClass(
+        (classPath, classBytes) -> addClassSignature(classSignatures, classPath, classBytes));
+    Set<String> libraryClasses = findLibraryClasses(classSignatures);
+    classFileSource.removeClasses(libraryClasses::contains);
+  }
+
+  /**
+   * Adds the signature of a class. Classes which can not be read get a signature of 0, which
+   * matches no known class, so that they are never skipped.
+   *
+   * @param classSignatures A {@link Map} of class paths to their signatures.
+   * @param classPath The path of the class file, e.g. "com/google/gson/Gson.class".
+   * @param classBytes The bytes of the class file.
+   */
+  private static void addClassSignature(
+      Map<String, Long> classSignatures, String classPath, byte[] classBytes) {
+    long signature;
+    try {
+      signature = LibraryFingerprints.getClassSignature(classBytes);
+    } catch (RuntimeException e) {
+      signature = 0;
+    }
+    classSignatures.put(classPath, signature);
+  }
+
+  /**
+   * Finds the classes which are skipped as classes of known libraries. The packages of known
+   * libraries are found by {@link LibraryFingerprints#findLibraryPackages(Map)}, but only the
+   * sources of such a package whose top-level class and nested classes all match a class of the
+   * library are skipped. A class planted in a bundled library or whose declaration was changed is
+   * still analyzed, together with the classes it is decompiled with. Changes to method bodies alone
+   * are not detected, since the signatures only cover class declarations. The skipped sources are
+   * recorded for {@link #isSkippedLibrarySource(String)}.
+   *
+   * @param classSignatures A {@link Map} of class paths to their signatures.
+   * @return A {@link Set} of the paths of the skipped classes.
+   */
+  private static Set<String> findLibraryClasses(Map<String, Long> classSignatures) {
+    Map<String, List<Long>> packageSignatures = new HashMap<>();
+    classSignatures.forEach(
+        (classPath, signature) ->
+            packageSignatures
+                .computeIfAbsent(
+                    LibraryFingerprints.getPackagePath(classPath), path -> new ArrayList<>())
+                .add(signature));
+    Map<String, String> libraryPackages =
+        libraryFingerprints.findLibraryPackages(packageSignatures);
+
+    Map<String, List<String>> sourceClasses = new HashMap<>();
+    for (String classPath : classSignatures.keySet()) {
+      if (libraryPackages.containsKey(LibraryFingerprints.getPackagePath(classPath))) {
+        sourceClasses
+            .computeIfAbsent(DexPrefilter.getSourcePath(classPath), path -> new ArrayList<>())
+            .add(classPath);
+      }
+    }
+    Set<String> libraryClasses = new HashSet<>();
+    int changedSourceCount = 0;
+    for (Map.Entry<String, List<String>> source : sourceClasses.entrySet()) {
+      boolean isLibrarySource =
+          source.getValue().stream()
+              .allMatch(
+                  classPath ->
+                      libraryFingerprints.containsClass(
+                          LibraryFingerprints.getPackagePath(classPath),
+                          classSignatures.get(classPath)));
+      if (isLibrarySource) {
+        libraryClasses.addAll(source.getValue());
+        skippedLibrarySources.add(source.getKey());
+      } else {
+        changedSourceCount++;
+      }
+    }
+
+    if (!libraryPackages.isEmpty()) {
+      System.out.println(
+          "Skipping "
+              + libraryPackages.size()
+              + " packages of known libraries: "
+              + String.join(", ", new TreeSet<>(libraryPackages.values())));
+    }
+    if (changedSourceCount > 0) {
+      System.out.println(
+          "Analyzing "
+              + changedSourceCount
+              + " sources in packages of known libraries, which do not match the library");
+    }
+    return libraryClasses;
+  }
+
+  /**
+   * Checks whether an archive entry or class path lies outside of the analyzed scope, see {@link
+   * ScopeFilter}.
+   *
+   * @param entryName The name of the entry, e.g. "androidx/core/app/ActivityCompat.class".
+   * @return true if the entry should be filtered out, false otherwise.
+   */
+  public static boolean isExcluded(String entryName) {
+    return !ScopeFilter.getInstance().isInScope(entryName);
+  }
+
+  /**
+   * Checks whether a source file was skipped as part of a known library by the last filtering of
+   * an application's classes.
+   *
+   * @param sourcePath The path of the source file, e.g. "com/google/gson/Gson.java".
+   * @return true if all classes of the source were skipped as library classes, false otherwise.
+   */
+  public static boolean isSkippedLibrarySource(String sourcePath) {
+    return skippedLibrarySources.contains(sourcePath);
+  }
+
+  /**
+   * @return A description of the library options, which changes whenever a different set of
+   *     libraries may be skipped, e.g. "skiplibs=[okhttp, gson]" or "skiplibs=off".
+   */
+  public static String getOptions() {
+    return "skiplibs="
+        + (libraryFingerprints == null ? "off" : libraryFingerprints.getLibraryNames().toString());
+  }
+
   public static Path getOutputDir() {
     return outputDir;
   }
+
+  /**
+   * Sets the database of known libraries whose packages are not converted and analyzed.
+   *
+   * @param fingerprints The {@link LibraryFingerprints} of known libraries, or null to convert
+   *     every package outside of the excluded folders.
+   */
+  public static void setLibraryFingerprints(LibraryFingerprints fingerprints) {
+    libraryFingerprints = fingerprints;
+  }
 }
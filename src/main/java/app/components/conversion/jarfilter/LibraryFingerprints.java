@@ -0,0 +1,371 @@
+package app.components.conversion.jarfilter;
+
+import app.utils.ReadFilesFromDirectory;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.commons.compress.utils.IOUtils;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+/**
+ * A database of class signatures of known third party libraries, stored per package. Packages of
+ * an application whose classes match the signatures of the same package of a known library are
+ * bundled copies of that library. Only the classes which match a signature of the library are
+ * left out of the conversion and analysis, so classes added to a bundled copy or whose declaration
+ * was changed are still analyzed.
+ *
+ * <p>The signature of a class only covers its declaration: its name, super class, interfaces and
+ * the names and descriptors of its non-synthetic fields and methods. Method bodies are left out,
+ * because the DEX to JAR conversion does not reproduce the bytecode the library was compiled to.
+ * A class whose method bodies were changed but whose declaration was kept therefore matches the
+ * library and is skipped.
+ *
+ * <p>The database is stored in a compact binary format: a header, the library names and for every
+ * package its path, the index of its library and the sorted 64 bit signatures of its classes. The
+ * default database is shipped as the {@value #DEFAULT_RESOURCE} resource and can be rebuilt from a
+ * directory of reference JAR files with {@link #build(List)}.
+ */
+public class LibraryFingerprints {
+
+  private static final String DEFAULT_RESOURCE = "/libraries/libraryFingerprints.bin";
+  private static final int MAGIC = 0x5355534C;
+  private static final int FORMAT_VERSION = 1;
+  private static final int MATCH_THRESHOLD_PERCENT = 80;
+  private static final String CLASS_EXTENSION = ".class";
+  private final List<String> libraryNames;
+  private final Map<String, PackageFingerprint> packages;
+
+  private LibraryFingerprints(List<String> libraryNames, Map<String, PackageFingerprint> packages) {
+    this.libraryNames = libraryNames;
+    this.packages = packages;
+  }
+
+  /**
+   * Loads the database shipped with the application.
+   *
+   * @return The default {@link LibraryFingerprints}.
+   * @throws IOException If the resource is missing or can not be read.
+   */
+  public static LibraryFingerprints loadDefault() throws IOException {
+    InputStream in = LibraryFingerprints.class.getResourceAsStream(DEFAULT_RESOURCE);
+    if (in == null) {
+      throw new IOException("Library fingerprint database " + DEFAULT_RESOURCE + " not found");
+    }
+    try (in) {
+      return load(in);
+    }
+  }
+
+  /**
+   * Loads a database written by {@link #write(OutputStream)}.
+   *
+   * @param input The {@link InputStream} to read the database from.
+   * @return The loaded {@link LibraryFingerprints}.
+   * @throws IOException If the database can not be read or has an unsupported format.
+   */
+  public static LibraryFingerprints load(InputStream input) throws IOException {
+    DataInputStream in = new DataInputStream(new BufferedInputStream(input));
+    if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+      throw new IOException("Unsupported library fingerprint database format");
+    }
+    int libraryCount = in.readInt();
+    List<String> libraryNames = new ArrayList<>(libraryCount);
+    for (int i = 0; i < libraryCount; i++) {
+      libraryNames.add(in.readUTF());
+    }
+    int packageCount = in.readInt();
+    Map<String, PackageFingerprint> packages = new HashMap<>(packageCount * 2);
+    for (int i = 0; i < packageCount; i++) {
+      String packagePath = in.readUTF();
+      int libraryIndex = in.readInt();
+      long[] signatures = new long[in.readInt()];
+      for (int j = 0; j < signatures.length; j++) {
+        signatures[j] = in.readLong();
+      }
+      packages.put(packagePath, new PackageFingerprint(libraryIndex, signatures));
+    }
+    return new LibraryFingerprints(libraryNames, packages);
+  }
+
+  /**
+   * Builds a database from reference JAR files. Every JAR file is recorded as a library named
+   * after the file, e.g. "gson-2.10.1". A package found in several JAR files is attributed to the
+   * first of them and holds the signatures of all of them.
+   *
+   * @param jarFiles A {@link List} of the reference JAR files.
+   * @return The built {@link LibraryFingerprints}.
+   * @throws IOException If one of the JAR files can not be read.
+   */
+  public static LibraryFingerprints build(List<File> jarFiles) throws IOException {
+    List<String> libraryNames = new ArrayList<>();
+    Map<String, Integer> packageLibraries = new TreeMap<>();
+    Map<String, Set<Long>> packageSignatures = new HashMap<>();
+
+    for (File jarFile : jarFiles) {
+      String libraryName = jarFile.getName().replaceFirst("\\.jar$", "");
+      int libraryIndex = libraryNames.size();
+      libraryNames.add(libraryName);
+      try (ZipFile zipFile = new ZipFile(jarFile)) {
+        Enumeration<ZipArchiveEntry> entries = zipFile.getEntries();
+        while (entries.hasMoreElements()) {
+          ZipArchiveEntry entry = entries.nextElement();
+          String name = entry.getName();
+          if (entry.isDirectory() || !isLibraryClass(name)) {
+            continue;
+          }
+          byte[] classBytes;
+          try (InputStream in = zipFile.getInputStream(entry)) {
+            classBytes = IOUtils.toByteArray(in);
+          }
+          long signature;
+          try {
+            signature = getClassSignature(classBytes);
+          } catch (RuntimeException e) {
+            System.err.println("Could not read class " + name + " of " + libraryName);
+            continue;
+          }
+          String packagePath = getPackagePath(name);
+          packageLibraries.putIfAbsent(packagePath, libraryIndex);
+          packageSignatures
+              .computeIfAbsent(packagePath, path -> new LinkedHashSet<>())
+              .add(signature);
+        }
+      }
+    }
+
+    Map<String, PackageFingerprint> packages = new HashMap<>();
+    for (Map.Entry<String, Integer> packageLibrary : packageLibraries.entrySet()) {
+      long[] signatures =
+          packageSignatures.get(packageLibrary.getKey()).stream()
+              .mapToLong(Long::longValue)
+              .sorted()
+              .toArray();
+      packages.put(
+          packageLibrary.getKey(), new PackageFingerprint(packageLibrary.getValue(), signatures));
+    }
+    return new LibraryFingerprints(libraryNames, packages);
+  }
+
+  /**
+   * Builds a database from all JAR files of a directory and its subdirectories.
+   *
+   * @param jarDirectory The {@link Path} of the directory holding the reference JAR files.
+   * @return The built {@link LibraryFingerprints}.
+   * @throws IOException If the directory or one of the JAR files can not be read.
+   */
+  public static LibraryFingerprints build(Path jarDirectory) throws IOException {
+    List<File> jarFiles =
+        ReadFilesFromDirectory.getSpecificFilesFromDirectory(jarDirectory, ".jar");
+    jarFiles.sort(null);
+    return build(jarFiles);
+  }
+
+  /**
+   * Writes the database in the format read by {@link #load(InputStream)}. Packages are written in
+   * the order of their paths, so the same reference JAR files always produce the same database.
+   *
+   * @param output The {@link OutputStream} to write the database to.
+   * @throws IOException If the database can not be written.
+   */
+  public void write(OutputStream output) throws IOException {
+    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(output));
+    out.writeInt(MAGIC);
+    out.writeInt(FORMAT_VERSION);
+    out.writeInt(libraryNames.size());
+    for (String libraryName : libraryNames) {
+      out.writeUTF(libraryName);
+    }
+    out.writeInt(packages.size());
+    for (Map.Entry<String, PackageFingerprint> entry : new TreeMap<>(packages).entrySet()) {
+      out.writeUTF(entry.getKey());
+      out.writeInt(entry.getValue().libraryIndex);
+      out.writeInt(entry.getValue().signatures.length);
+      for (long signature : entry.getValue().signatures) {
+        out.writeLong(signature);
+      }
+    }
+    out.flush();
+  }
+
+  /**
+   * Finds the packages of an application which are bundled copies of known libraries. A package
+   * is known if at least {@value #MATCH_THRESHOLD_PERCENT} percent of its classes match the
+   * signatures of the same package of a known library, which allows for other versions of the
+   * library. Whether a single class of a known package may be skipped is decided by {@link
+   * #containsClass(String, long)}.
+   *
+   * @param packageSignatures A {@link Map} of package paths, e.g. "com/google/gson/", to the
+   *     signatures of the application's classes in the package.
+   * @return A {@link Map} of the known package paths to the names of their libraries.
+   */
+  public Map<String, String> findLibraryPackages(Map<String, List<Long>> packageSignatures) {
+    Map<String, String> libraryPackages = new TreeMap<>();
+    for (Map.Entry<String, List<Long>> entry : packageSignatures.entrySet()) {
+      PackageFingerprint fingerprint = packages.get(entry.getKey());
+      if (fingerprint == null || entry.getValue().isEmpty()) {
+        continue;
+      }
+      long matchCount =
+          entry.getValue().stream()
+              .filter(signature -> Arrays.binarySearch(fingerprint.signatures, signature) >= 0)
+              .count();
+      if (matchCount * 100 >= (long) MATCH_THRESHOLD_PERCENT * entry.getValue().size()) {
+        libraryPackages.put(entry.getKey(), libraryNames.get(fingerprint.libraryIndex));
+      }
+    }
+    return libraryPackages;
+  }
+
+  /**
+   * @param packagePath A package path, e.g. "com/google/gson/".
+   * @param signature The signature of a class of the package, see {@link
+   *     #getClassSignature(byte[])}.
+   * @return true if the class matches a class of the package of a known library, false otherwise.
+   */
+  public boolean containsClass(String packagePath, long signature) {
+    PackageFingerprint fingerprint = packages.get(packagePath);
+    return fingerprint != null && Arrays.binarySearch(fingerprint.signatures, signature) >= 0;
+  }
+
+  /**
+   * @param packagePath A package path, e.g. "com/google/gson/".
+   * @return true if the database holds the package of a known library, false otherwise.
+   */
+  public boolean containsPackage(String packagePath) {
+    return packages.containsKey(packagePath);
+  }
+
+  /**
+   * @return The number of packages of known libraries in the database.
+   */
+  public int getPackageCount() {
+    return packages.size();
+  }
+
+  /**
+   * @return The names of the known libraries in the database.
+   */
+  public List<String> getLibraryNames() {
+    return libraryNames;
+  }
+
+  /**
+   * Creates the signature of a class from its declaration, leaving out synthetic members which
+   * are added by the compiler and the DEX conversion.
+   *
+   * @param classBytes The bytes of the class file.
+   * @return The first 64 bits of the SHA-256 hash of the class declaration.
+   */
+  public static long getClassSignature(byte[] classBytes) {
+    List<String> members = new ArrayList<>();
+    StringBuilder declaration = new StringBuilder();
+    new ClassReader(classBytes)
+        .accept(
+            new ClassVisitor(Opcodes.ASM9) {
+              @Override
+              public void visit(
+                  int version,
+                  int access,
+                  String name,
+                  String signature,
+                  String superName,
+                  String[] interfaces) {
+                declaration.append(name).append(' ').append(superName);
+                List<String> sortedInterfaces =
+                    interfaces == null ? new ArrayList<>() : new ArrayList<>(List.of(interfaces));
+                sortedInterfaces.sort(null);
+                sortedInterfaces.forEach(type -> declaration.append(' ').append(type));
+              }
+
+              @Override
+              public FieldVisitor visitField(
+                  int access, String name, String descriptor, String signature, Object value) {
+                if ((access & Opcodes.ACC_SYNTHETIC) == 0) {
+                  members.add("F " + name + " " + descriptor);
+                }
+                return null;
+              }
+
+              @Override
+              public MethodVisitor visitMethod(
+                  int access,
+                  String name,
+                  String descriptor,
+                  String signature,
+                  String[] exceptions) {
+                if ((access & (Opcodes.ACC_SYNTHETIC | Opcodes.ACC_BRIDGE)) == 0) {
+                  members.add("M " + name + descriptor);
+                }
+                return null;
+              }
+            },
+            ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+    members.sort(null);
+    members.forEach(member -> declaration.append('\n').append(member));
+
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e.getMessage());
+    }
+    byte[] hash = digest.digest(declaration.toString().getBytes(StandardCharsets.UTF_8));
+    return ByteBuffer.wrap(hash).getLong();
+  }
+
+  /**
+   * @param classPath The path of a class file, e.g. "com/google/gson/Gson.class".
+   * @return The path of the class file's package, e.g. "com/google/gson/".
+   */
+  public static String getPackagePath(String classPath) {
+    return classPath.substring(0, classPath.lastIndexOf('/') + 1);
+  }
+
+  /**
+   * @param entryName The name of an entry of a reference JAR file.
+   * @return true if the entry is a class of the library, false for versioned classes of multi
+   *     release JAR files and module or package descriptors.
+   */
+  private static boolean isLibraryClass(String entryName) {
+    return entryName.endsWith(CLASS_EXTENSION)
+        && !entryName.startsWith("META-INF/")
+        && !entryName.endsWith("module-info.class")
+        && !entryName.endsWith("package-info.class");
+  }
+
+  /** The library of a package and the sorted signatures of its classes. */
+  private static class PackageFingerprint {
+    private final int libraryIndex;
+    private final long[] signatures;
+
+    private PackageFingerprint(int libraryIndex, long[] signatures) {
+      this.libraryIndex = libraryIndex;
+      this.signatures = signatures;
+    }
+  }
+}
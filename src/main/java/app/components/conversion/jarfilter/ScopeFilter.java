@@ -0,0 +1,319 @@
+package app.components.conversion.jarfilter;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import org.w3c.dom.Element;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+/**
+ * Decides which classes of an application are converted and analyzed. The scope is defined by
+ * include and exclude package globs, which are compiled into a trie of package name segments, so a
+ * class is checked in time proportional to the depth of its package.
+ *
+ * <p>Every glob matches a package and all of its subpackages, e.g. "com.example" matches
+ * "com.example.ui.MainActivity". A "*" segment matches any single package name, e.g.
+ * "com.*.ads". The deepest glob matching the package of a class decides, an exclude glob wins over
+ * an include glob of the same depth. Classes matched by no glob are in scope unless include globs
+ * are given. The packages "android" and "androidx" are always excluded and generated classes, such
+ * as {@code R}, {@code R$*} and {@code BuildConfig}, are never in scope.
+ *
+ * <p>In first-party mode the package declared in the AndroidManifest.xml is included, so that only
+ * the application's own code is analyzed and bundled SDKs are left out. If the code of the
+ * application lies in another package than the declared one, first-party mode is dropped again by
+ * {@link #checkFirstPartyScope(Collection)}.
+ */
+public class ScopeFilter {
+
+  private static final List<String> DEFAULT_EXCLUDE_GLOBS = Arrays.asList("android", "androidx");
+  private static final String WILDCARD = "*";
+  private static final List<String> includeGlobs = new ArrayList<>();
+  private static final List<String> excludeGlobs = new ArrayList<>();
+  private static final Set<String> manifestPackages = new LinkedHashSet<>();
+  private static boolean isFirstPartyOnly = false;
+  private static volatile ScopeFilter instance;
+  private final Node root = new Node();
+  private final boolean hasIncludes;
+
+  /**
+   * Compiles package globs into a scope filter.
+   *
+   * @param includes The globs of packages in scope. If empty, every package is in scope which is
+   *     not excluded.
+   * @param excludes The globs of packages out of scope.
+   */
+  public ScopeFilter(List<String> includes, List<String> excludes) {
+    includes.forEach(glob -> addGlob(glob, true));
+    excludes.forEach(glob -> addGlob(glob, false));
+    hasIncludes = !includes.isEmpty();
+  }
+
+  /**
+   * Checks whether a class, source file or archive entry lies in scope.
+   *
+   * @param path The path of the class file or source file relative to the root of its package
+   *     hierarchy, e.g. "com/example/MainActivity.class".
+   * @return true if the path should be converted and analyzed, false otherwise.
+   */
+  public boolean isInScope(String path) {
+    int nameIndex = path.lastIndexOf('/');
+    if (isGeneratedClass(path.substring(nameIndex + 1))) {
+      return false;
+    }
+    String[] segments = nameIndex <= 0 ? new String[0] : path.substring(0, nameIndex).split("/");
+    int rule = findRule(root, segments, 0);
+    if (rule < 0) {
+      return !hasIncludes;
+    }
+    return rule % 2 == 0;
+  }
+
+  /**
+   * Returns the scope filter of the current configuration, compiling it on first use.
+   *
+   * @return The current {@link ScopeFilter}.
+   */
+  public static ScopeFilter getInstance() {
+    ScopeFilter scopeFilter = instance;
+    if (scopeFilter == null) {
+      synchronized (ScopeFilter.class) {
+        if (instance == null) {
+          List<String> includes = new ArrayList<>(includeGlobs);
+          if (isFirstPartyOnly) {
+            includes.addAll(manifestPackages);
+          }
+          List<String> excludes = new ArrayList<>(DEFAULT_EXCLUDE_GLOBS);
+          excludes.addAll(excludeGlobs);
+          instance = new ScopeFilter(includes, excludes);
+        }
+        scopeFilter = instance;
+      }
+    }
+    return scopeFilter;
+  }
+
+  /**
+   * @param globs Comma separated globs of packages to include, e.g. "com.example,org.*.app".
+   */
+  public static synchronized void addIncludeGlobs(String globs) {
+    includeGlobs.addAll(splitGlobs(globs));
+    instance = null;
+  }
+
+  /**
+   * @param globs Comma separated globs of packages to exclude, e.g. "com.google,io.*.sdk".
+   */
+  public static synchronized void addExcludeGlobs(String globs) {
+    excludeGlobs.addAll(splitGlobs(globs));
+    instance = null;
+  }
+
+  /**
+   * @param firstPartyOnly Flag indicating whether only the package declared in the
+   *     AndroidManifest.xml and the included packages should be analyzed.
+   */
+  public static synchronized void setFirstPartyOnly(boolean firstPartyOnly) {
+    isFirstPartyOnly = firstPartyOnly;
+    instance = null;
+  }
+
+  /**
+   * Reads the application packages declared in converted AndroidManifest.xml files. In first-party
+   * mode they are added to the included packages.
+   *
+   * @param manifests A {@link List} of converted AndroidManifest.xml contents.
+   */
+  public static synchronized void setManifests(List<String> manifests) {
+    List<String> packages = new ArrayList<>();
+    for (String manifest : manifests) {
+      packages.add(readManifestPackage(manifest));
+    }
+    setManifestPackages(packages);
+  }
+
+  /**
+   * Sets the application packages declared in the AndroidManifest.xml files, e.g. when they were
+   * read from binary manifests. In first-party mode they are added to the included packages.
+   *
+   * @param packages A {@link List} of the package attribute values, which may be null.
+   */
+  public static synchronized void setManifestPackages(List<String> packages) {
+    manifestPackages.clear();
+    for (String manifestPackage : packages) {
+      if (manifestPackage != null && !manifestPackage.isEmpty()) {
+        manifestPackages.add(manifestPackage);
+      }
+    }
+    instance = null;
+    if (isFirstPartyOnly) {
+      if (manifestPackages.isEmpty()) {
+        System.err.println("No application package found in the manifest, analyzing all packages");
+      } else {
+        System.out.println(
+            "Analyzing the application packages " + String.join(", ", manifestPackages) + " only");
+      }
+    }
+  }
+
+  /**
+   * @return true if only the application packages and the included packages are analyzed.
+   */
+  public static synchronized boolean isFirstPartyOnly() {
+    return isFirstPartyOnly;
+  }
+
+  /**
+   * Drops the application packages from the scope if none of the classes of the application lie
+   * in scope with them, e.g. because the package declared in the AndroidManifest.xml differs from
+   * the package of the code. Otherwise every class would be left out of the analysis.
+   *
+   * @param classPaths The paths of all classes or source files of the application, e.g.
+   *     "com/example/MainActivity.class".
+   */
+  public static synchronized void checkFirstPartyScope(Collection<String> classPaths) {
+    if (!isFirstPartyOnly || manifestPackages.isEmpty()) {
+      return;
+    }
+    ScopeFilter scopeFilter = getInstance();
+    for (String classPath : classPaths) {
+      if (scopeFilter.isInScope(classPath)) {
+        return;
+      }
+    }
+    System.err.println(
+        "No classes found in the application packages "
+            + String.join(", ", manifestPackages)
+            + ", analyzing all packages");
+    manifestPackages.clear();
+    instance = null;
+  }
+
+  /**
+   * @return A description of the scope options, which changes whenever a different set of classes
+   *     may be analyzed, e.g. "include=[com.example];exclude=[];firstparty=false".
+   */
+  public static synchronized String getOptions() {
+    return "include="
+        + includeGlobs
+        + ";exclude="
+        + excludeGlobs
+        + ";firstparty="
+        + isFirstPartyOnly;
+  }
+
+  /** Restores the default scope, which only excludes the android packages. */
+  public static synchronized void reset() {
+    includeGlobs.clear();
+    excludeGlobs.clear();
+    manifestPackages.clear();
+    isFirstPartyOnly = false;
+    instance = null;
+  }
+
+  /**
+   * @param manifest The content of a converted AndroidManifest.xml.
+   * @return The value of the package attribute of the manifest element, or null if the manifest
+   *     can not be read.
+   */
+  private static String readManifestPackage(String manifest) {
+    try {
+      /* Manifests of untrusted APKs must neither declare a DTD nor refer to external entities */
+      DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+      factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+      factory.setFeature("http://xml.org/sax/features/external-general-entities", false);
+      factory.setFeature("http://xml.org/sax/features/external-parameter-entities", false);
+      factory.setXIncludeAware(false);
+      factory.setExpandEntityReferences(false);
+      Element manifestElement =
+          factory
+              .newDocumentBuilder()
+              .parse(new InputSource(new StringReader(manifest)))
+              .getDocumentElement();
+      return manifestElement.getAttribute("package");
+    } catch (ParserConfigurationException | SAXException | IOException e) {
+      System.err.println("Could not read the application package of a manifest: " + e.getMessage());
+      return null;
+    }
+  }
+
+  private static List<String> splitGlobs(String globs) {
+    List<String> globList = new ArrayList<>();
+    for (String glob : globs.split(",")) {
+      if (!glob.trim().isEmpty()) {
+        globList.add(glob.trim());
+      }
+    }
+    return globList;
+  }
+
+  /**
+   * Adds a glob to the trie. Trailing "*" and "**" segments are dropped, since every glob already
+   * matches all subpackages.
+   *
+   * @param glob The package glob, with segments separated by '.' or '/'.
+   * @param isIncluded true for an include glob, false for an exclude glob.
+   */
+  private void addGlob(String glob, boolean isIncluded) {
+    List<String> segments = new ArrayList<>(Arrays.asList(glob.split("[./]")));
+    segments.removeIf(String::isEmpty);
+    while (!segments.isEmpty()
+        && (segments.get(segments.size() - 1).equals(WILDCARD)
+            || segments.get(segments.size() - 1).equals("**"))) {
+      segments.remove(segments.size() - 1);
+    }
+    Node node = root;
+    for (String segment : segments) {
+      node = node.children.computeIfAbsent(segment, key -> new Node());
+    }
+    node.isIncluded = node.isIncluded == null ? isIncluded : node.isIncluded && isIncluded;
+  }
+
+  /**
+   * Finds the deepest glob matching a package.
+   *
+   * @param node The current {@link Node} of the trie.
+   * @param segments The segments of the package.
+   * @param index The index of the segment matched by the children of {@code node}.
+   * @return The depth of the deepest matching glob times two, plus one for an exclude glob, or -1
+   *     if no glob matches.
+   */
+  private static int findRule(Node node, String[] segments, int index) {
+    int rule = node.isIncluded == null ? -1 : index * 2 + (node.isIncluded ? 0 : 1);
+    if (index < segments.length) {
+      Node child = node.children.get(segments[index]);
+      if (child != null) {
+        rule = Math.max(rule, findRule(child, segments, index + 1));
+      }
+      Node wildcard = node.children.get(WILDCARD);
+      if (wildcard != null) {
+        rule = Math.max(rule, findRule(wildcard, segments, index + 1));
+      }
+    }
+    return rule;
+  }
+
+  /**
+   * @param fileName The name of a class or source file, e.g. "R$string.class".
+   * @return true if the file holds a class generated by the Android build, false otherwise.
+   */
+  private static boolean isGeneratedClass(String fileName) {
+    String className = fileName.replaceFirst("\\.(class|java)$", "");
+    return className.equals("R") || className.startsWith("R$") || className.equals("BuildConfig");
+  }
+
+  /** A package name segment of the trie. */
+  private static class Node {
+    private final Map<String, Node> children = new HashMap<>();
+    private Boolean isIncluded;
+  }
+}
@@ -0,0 +1,304 @@
+package app.components.conversion.unzip;
+
+import app.utils.FileHashing;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads an APK file once through a memory mapping, which feeds the SHA-256 digest of the file, the
+ * index of its ZIP central directory and the binary AndroidManifest.xml at its root. The digest is
+ * handed to a listener as soon as it is computed, e.g. to search the database for previous results
+ * while the central directory is still indexed. Later stages read entries through the index from
+ * the same mapping, so the APK is not read from disk a second time.
+ *
+ * <p>ZIP64 archives and files over 2 GB are only hashed, their entries are not indexed. Offsets and
+ * sizes of the central directory are checked against the size of the file, and an entry is never
+ * inflated beyond its recorded size or {@link #MAX_INFLATED_SIZE}.
+ */
+public class ApkIngestion {
+
+  private static final int EOCD_SIGNATURE = 0x06054b50;
+  private static final int CENTRAL_DIRECTORY_SIGNATURE = 0x02014b50;
+  private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+  private static final int EOCD_SIZE = 22;
+  private static final int MAX_COMMENT_SIZE = 0xFFFF;
+  private static final int STORED = 0;
+  private static final int DEFLATED = 8;
+  private static final long MAX_CHUNK_SIZE = Integer.MAX_VALUE;
+  private static final long MAX_INFLATED_SIZE = 256L * 1024 * 1024;
+  private static final int MAX_PRESIZE = 8 * 1024 * 1024;
+
+  private final Path apkPath;
+  private final String hash;
+  private final ByteBuffer archive;
+  private final Map<String, Entry> entries = new LinkedHashMap<>();
+  private byte[] manifest;
+
+  private ApkIngestion(Path apkPath, String hash, ByteBuffer archive) {
+    this.apkPath = apkPath;
+    this.hash = hash;
+    this.archive = archive;
+  }
+
+  /**
+   * Reads an APK file once. Its SHA-256 digest is computed over the memory-mapped file and passed
+   * to {@param hashListener}, then the central directory is indexed and the AndroidManifest.xml at
+   * the root of the archive is inflated.
+   *
+   * @param apkPath The {@link Path} of the APK file.
+   * @param hashListener A {@link Consumer} receiving the SHA-256 hash of the file as soon as it is
+   *     computed, or null.
+   * @return The {@link ApkIngestion} holding the hash, the index and the manifest of the APK.
+   * @throws IOException If the file can not be read.
+   */
+  public static ApkIngestion ingest(Path apkPath, Consumer<String> hashListener)
+      throws IOException {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IOException("Algorithm: SHA-256 is unsupported");
+    }
+
+    ByteBuffer archive = null;
+    try (FileChannel channel = FileChannel.open(apkPath, StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size <= MAX_CHUNK_SIZE) {
+        archive = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        archive.order(ByteOrder.LITTLE_ENDIAN);
+        digest.update(archive.duplicate());
+      } else {
+        for (long position = 0; position < size; position += MAX_CHUNK_SIZE) {
+          digest.update(
+              channel.map(
+                  FileChannel.MapMode.READ_ONLY,
+                  position,
+                  Math.min(MAX_CHUNK_SIZE, size - position)));
+        }
+      }
+    }
+    ApkIngestion ingestion =
+        new ApkIngestion(apkPath, FileHashing.bytesToHex(digest.digest()), archive);
+    if (hashListener != null) {
+      hashListener.accept(ingestion.hash);
+    }
+
+    if (archive == null) {
+      System.err.println("APK " + apkPath + " is too large to be indexed, skipping...");
+      return ingestion;
+    }
+    try {
+      ingestion.indexCentralDirectory();
+      ByteBuffer manifestBuffer = ingestion.getEntry("AndroidManifest.xml");
+      if (manifestBuffer != null) {
+        ingestion.manifest = new byte[manifestBuffer.remaining()];
+        manifestBuffer.get(ingestion.manifest);
+      }
+    } catch (IOException | RuntimeException e) {
+      ingestion.entries.clear();
+      System.err.println("Could not index the entries of " + apkPath + ": " + e.getMessage());
+    }
+    return ingestion;
+  }
+
+  /**
+   * Finds the end of central directory record, which is followed by the archive comment, and reads
+   * the name, compression method, sizes and local header offset of every entry.
+   *
+   * @throws IOException If the archive has no central directory, is a ZIP64 archive or a record
+   *     lies outside of the archive.
+   */
+  private void indexCentralDirectory() throws IOException {
+    int eocdOffset = -1;
+    int lowestOffset = Math.max(0, archive.capacity() - EOCD_SIZE - MAX_COMMENT_SIZE);
+    for (int offset = archive.capacity() - EOCD_SIZE; offset >= lowestOffset; offset--) {
+      if (archive.getInt(offset) == EOCD_SIGNATURE) {
+        eocdOffset = offset;
+        break;
+      }
+    }
+    if (eocdOffset < 0) {
+      throw new IOException("no end of central directory record found");
+    }
+    int entryCount = Short.toUnsignedInt(archive.getShort(eocdOffset + 10));
+    long directoryOffset = Integer.toUnsignedLong(archive.getInt(eocdOffset + 16));
+    if (entryCount == 0xFFFF || directoryOffset == 0xFFFFFFFFL) {
+      throw new IOException("ZIP64 archives are not indexed");
+    }
+
+    int offset = (int) directoryOffset;
+    for (int i = 0; i < entryCount; i++) {
+      if (!isInArchive(offset, 46) || archive.getInt(offset) != CENTRAL_DIRECTORY_SIGNATURE) {
+        throw new IOException("malformed central directory");
+      }
+      int nameLength = Short.toUnsignedInt(archive.getShort(offset + 28));
+      int extraLength = Short.toUnsignedInt(archive.getShort(offset + 30));
+      int commentLength = Short.toUnsignedInt(archive.getShort(offset + 32));
+      if (!isInArchive(offset + 46L, nameLength)) {
+        throw new IOException("malformed central directory");
+      }
+      byte[] nameBytes = new byte[nameLength];
+      archive.duplicate().position(offset + 46).get(nameBytes);
+      String name = new String(nameBytes, StandardCharsets.UTF_8);
+      if (!name.endsWith("/")) {
+        entries.put(
+            name,
+            new Entry(
+                Short.toUnsignedInt(archive.getShort(offset + 10)),
+                Integer.toUnsignedLong(archive.getInt(offset + 20)),
+                Integer.toUnsignedLong(archive.getInt(offset + 24)),
+                Integer.toUnsignedLong(archive.getInt(offset + 42))));
+      }
+      offset += 46 + nameLength + extraLength + commentLength;
+    }
+  }
+
+  /**
+   * Reads an entry through the index. A stored entry is returned as a read-only view of the mapped
+   * APK without copying it, a deflated entry is inflated into memory.
+   *
+   * @param entryName The name of the entry, e.g. "resources.arsc".
+   * @return A {@link ByteBuffer} of the content of the entry, or null if the APK has no such entry.
+   * @throws IOException If the entry is malformed, lies outside of the archive, inflates to more
+   *     than its recorded size or uses an unsupported compression method.
+   */
+  public ByteBuffer getEntry(String entryName) throws IOException {
+    Entry entry = entries.get(entryName);
+    if (entry == null) {
+      return null;
+    }
+    if (!isInArchive(entry.localHeaderOffset, 30)
+        || archive.getInt((int) entry.localHeaderOffset) != LOCAL_HEADER_SIGNATURE) {
+      throw new IOException("Malformed local header of " + entryName);
+    }
+    int headerOffset = (int) entry.localHeaderOffset;
+    long dataOffset =
+        headerOffset
+            + 30L
+            + Short.toUnsignedInt(archive.getShort(headerOffset + 26))
+            + Short.toUnsignedInt(archive.getShort(headerOffset + 28));
+    if (!isInArchive(dataOffset, entry.compressedSize)) {
+      throw new IOException("Data of " + entryName + " lies outside of the archive");
+    }
+    ByteBuffer data =
+        archive
+            .duplicate()
+            .position((int) dataOffset)
+            .limit((int) (dataOffset + entry.compressedSize));
+
+    switch (entry.method) {
+      case STORED:
+        return data.slice().asReadOnlyBuffer();
+      case DEFLATED:
+        if (entry.size > MAX_INFLATED_SIZE) {
+          throw new IOException("Inflated size of " + entryName + " exceeds the limit");
+        }
+        return ByteBuffer.wrap(inflate(data, entry.size));
+      default:
+        throw new IOException("Unsupported compression method of " + entryName);
+    }
+  }
+
+  /**
+   * @param offset The offset of a region of the archive.
+   * @param length The length of the region.
+   * @return true if the region lies within the mapped archive.
+   */
+  private boolean isInArchive(long offset, long length) {
+    return offset >= 0 && length >= 0 && offset + length <= archive.capacity();
+  }
+
+  /**
+   * Inflates a deflated entry, which is never allowed to grow beyond its recorded size.
+   *
+   * @param data The {@link ByteBuffer} of the compressed data.
+   * @param size The size of the entry recorded in the central directory.
+   * @return The inflated content of the entry.
+   * @throws IOException If the data is malformed or inflates to more than {@param size} bytes.
+   */
+  private static byte[] inflate(ByteBuffer data, long size) throws IOException {
+    byte[] compressed = new byte[data.remaining()];
+    data.get(compressed);
+    Inflater inflater = new Inflater(true);
+    try {
+      inflater.setInput(compressed);
+      ByteArrayOutputStream out =
+          new ByteArrayOutputStream((int) Math.max(Math.min(size, MAX_PRESIZE), 32));
+      byte[] buffer = new byte[8192];
+      while (!inflater.finished()) {
+        int count = inflater.inflate(buffer);
+        if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          throw new IOException("Truncated deflated entry");
+        }
+        if (out.size() + (long) count > size) {
+          throw new IOException("Deflated entry exceeds its recorded size");
+        }
+        out.write(buffer, 0, count);
+      }
+      return out.toByteArray();
+    } catch (DataFormatException e) {
+      throw new IOException("Malformed deflated entry", e);
+    } finally {
+      inflater.end();
+    }
+  }
+
+  /**
+   * @return The {@link Path} of the ingested APK file.
+   */
+  public Path getApkPath() {
+    return apkPath;
+  }
+
+  /**
+   * @return The SHA-256 hash of the APK file.
+   */
+  public String getHash() {
+    return hash;
+  }
+
+  /**
+   * @return The names of all file entries in the order of the central directory, empty if the
+   *     archive could not be indexed.
+   */
+  public Set<String> getEntryNames() {
+    return Collections.unmodifiableSet(entries.keySet());
+  }
+
+  /**
+   * @return The inflated binary AndroidManifest.xml at the root of the APK, or null if it has none.
+   */
+  public byte[] getManifest() {
+    return manifest;
+  }
+
+  /** The location and compression of an entry, as recorded in the central directory. */
+  private static class Entry {
+    private final int method;
+    private final long compressedSize;
+    private final long size;
+    private final long localHeaderOffset;
+
+    private Entry(int method, long compressedSize, long size, long localHeaderOffset) {
+      this.method = method;
+      this.compressedSize = compressedSize;
+      this.size = size;
+      this.localHeaderOffset = localHeaderOffset;
+    }
+  }
+}
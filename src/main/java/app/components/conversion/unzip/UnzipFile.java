@@ -1,11 +1,15 @@
 package app.components.conversion.unzip;
 
 import app.utils.ReadFilesFromDirectory;
+import app.utils.ThreadPoolManager;
 import java.io.*;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.Enumeration;
 import java.util.List;
+import java.util.function.Predicate;
 import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
 import org.apache.commons.compress.archivers.zip.ZipFile;
 import org.apache.commons.compress.utils.IOUtils;
@@ -23,6 +27,39 @@ public class UnzipFile {
    * @throws IOException If there's an issue accessing or manipulating the file.
    */
   public static Path unzip(String apkFilePath, String outputPath) throws IOException {
+    try {
+      return unzip(apkFilePath, outputPath, entryName -> true, false);
+    } catch (InterruptedException e) {
+      /* Only a multithreaded extraction can be interrupted */
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException(e.getMessage());
+    }
+  }
+
+  /**
+   * Extracts only the entries of an APK which are accepted by {@param entryFilter}, e.g. the DEX
+   * files and manifests the conversion process reads, while images, media assets and native
+   * libraries are never written. The APK files nested inside an XAPK are always extracted and
+   * filtered the same way.
+   *
+   * <p>If {@param isMultiThreadingOn} is true, the entries are split into batches of about equal
+   * size, which are extracted in parallel, each over its own {@link ZipFile} handle. The nested
+   * APKs of an XAPK are then extracted in parallel as well.
+   *
+   * @param apkFilePath Full system path to the APK file to be unzipped.
+   * @param outputPath A {@link String} where a directory with unzipped files will be created.
+   * @param entryFilter A {@link Predicate} accepting the names of the entries to extract.
+   * @param isMultiThreadingOn Flag indicating whether multithreading should be used.
+   * @return A {@link Path} where the APK content has been extracted.
+   * @throws IOException If there's an issue accessing or manipulating the file.
+   * @throws InterruptedException If the thread executing the extraction is interrupted.
+   */
+  public static Path unzip(
+      String apkFilePath,
+      String outputPath,
+      Predicate<String> entryFilter,
+      boolean isMultiThreadingOn)
+      throws IOException, InterruptedException {
     File apkFile = new File(apkFilePath);
 
     if (!apkFile.exists()) {
@@ -36,51 +73,154 @@ public class UnzipFile {
     if (!destDir.exists() && !destDir.mkdirs()) {
       throw new IOException("Could not create destination directory: " + destDir.getAbsolutePath());
     }
+    boolean isXapk = apkFilePath.toLowerCase().endsWith(".xapk");
 
-    // Open the APK file as a ZIP file to read its content.
+    // Open the APK file as a ZIP file to select the items to extract.
+    List<ZipArchiveEntry> selectedEntries = new ArrayList<>();
+    int entryCount = 0;
     try (ZipFile zipFile = new ZipFile(apkFile)) {
-      // Go through all the items inside the ZIP file.
       Enumeration<ZipArchiveEntry> entries = zipFile.getEntries();
 
       while (entries.hasMoreElements()) {
         ZipArchiveEntry entry = entries.nextElement();
+        if (entry.isDirectory()) {
+          continue;
+        }
+        entryCount++;
+        String name = entry.getName();
+        if (entryFilter.test(name) || (isXapk && name.toLowerCase().endsWith(".apk"))) {
+          selectedEntries.add(entry);
+        }
+      }
 
-        // If the item is not a directory, extract it.
-        if (!entry.isDirectory()) {
-          File entryDestination = new File(destDir, entry.getName());
-          // Create directory for this file if it doesn't exist.
-          File parent = entryDestination.getParentFile();
-          if (!parent.exists() && !parent.mkdirs()) {
-            throw new IOException("Couldn't create directory: " + parent.getAbsolutePath());
-          }
-
-          // Actually extract the file's content.
-          try (InputStream in = zipFile.getInputStream(entry);
-              OutputStream out = Files.newOutputStream(entryDestination.toPath())) {
-            IOUtils.copy(in, out);
-          } catch (IOException e) {
-            System.err.println(
-                "An error ocurred while unzipping file: "
-                    + entry.getName()
-                    + " - "
-                    + e.getMessage()
-                    + ", skipping...");
-          }
+      if (!isMultiThreadingOn || selectedEntries.size() < 2) {
+        for (ZipArchiveEntry entry : selectedEntries) {
+          extractEntry(zipFile, entry, destDir);
         }
       }
     } catch (IOException e) {
       System.err.println("An error occured during unzipping:");
       throw e;
     }
+    if (isMultiThreadingOn && selectedEntries.size() >= 2) {
+      extractInParallel(apkFile, selectedEntries, destDir);
+    }
+    if (selectedEntries.size() < entryCount) {
+      System.out.println(
+          "Extracted "
+              + selectedEntries.size()
+              + " of "
+              + entryCount
+              + " entries of "
+              + apkFileName
+              + ", the others are not read by the analysis");
+    }
+
     // if xapk is provided unzips all APK files inside to the same temp folder
-    if (apkFilePath.toLowerCase().endsWith(".xapk")) {
+    if (isXapk) {
       List<File> apkList =
           ReadFilesFromDirectory.getSpecificFilesFromDirectory(destDir.toPath(), ".apk");
-      for (File apk : apkList) {
-        unzip(apk.toString(), destDir.toString());
+      if (isMultiThreadingOn && apkList.size() > 1) {
+        ThreadPoolManager.getInstance().initializeFixedThreadPool(apkList.size());
+        ThreadPoolManager.getInstance()
+            .executeConversionTasks(apkList, apk -> unzipNestedApk(apk, destDir, entryFilter));
+      } else {
+        for (File apk : apkList) {
+          unzip(apk.toString(), destDir.toString(), entryFilter, false);
+        }
       }
     }
     // Return the path of the directory where we extracted everything.
     return destDir.toPath();
   }
+
+  /**
+   * Splits the selected entries into one batch per thread, largest entries first so that the
+   * batches are of about equal size, and extracts every batch over its own {@link ZipFile} handle.
+   *
+   * @param apkFile The APK file to extract.
+   * @param selectedEntries The {@link ZipArchiveEntry} objects to extract.
+   * @param destDir The directory to extract the entries to.
+   * @throws InterruptedException If interrupted while initializing the thread pool.
+   */
+  private static void extractInParallel(
+      File apkFile, List<ZipArchiveEntry> selectedEntries, File destDir)
+      throws InterruptedException {
+    int batchCount =
+        Math.max(
+            1, Math.min(selectedEntries.size(), Runtime.getRuntime().availableProcessors() / 2));
+    List<List<String>> batches = new ArrayList<>();
+    long[] batchSizes = new long[batchCount];
+    for (int i = 0; i < batchCount; i++) {
+      batches.add(new ArrayList<>());
+    }
+    selectedEntries.sort(Comparator.comparingLong(ZipArchiveEntry::getSize).reversed());
+    for (ZipArchiveEntry entry : selectedEntries) {
+      int smallest = 0;
+      for (int i = 1; i < batchCount; i++) {
+        if (batchSizes[i] < batchSizes[smallest]) {
+          smallest = i;
+        }
+      }
+      batches.get(smallest).add(entry.getName());
+      batchSizes[smallest] += Math.max(entry.getSize(), 0);
+    }
+
+    ThreadPoolManager.getInstance().initializeFixedThreadPool(batchCount);
+    ThreadPoolManager.getInstance()
+        .executeConversionTasks(batches, batch -> extractBatch(apkFile, batch, destDir));
+  }
+
+  private static void extractBatch(File apkFile, List<String> entryNames, File destDir) {
+    try (ZipFile zipFile = new ZipFile(apkFile)) {
+      for (String entryName : entryNames) {
+        extractEntry(zipFile, zipFile.getEntry(entryName), destDir);
+      }
+    } catch (IOException e) {
+      System.err.println(
+          "An error occured during unzipping " + apkFile + " - " + e.getMessage() + ", skipping");
+    }
+  }
+
+  private static void unzipNestedApk(File apk, File destDir, Predicate<String> entryFilter) {
+    try {
+      unzip(apk.toString(), destDir.toString(), entryFilter, false);
+    } catch (IOException | InterruptedException e) {
+      System.err.println("Could not unzip nested APK " + apk + ", skipping...");
+    }
+  }
+
+  /**
+   * Extracts a single entry of an archive. Errors while writing the entry are printed and the entry
+   * is skipped.
+   *
+   * @param zipFile The {@link ZipFile} the entry belongs to.
+   * @param entry The {@link ZipArchiveEntry} to extract.
+   * @param destDir The directory to extract the entry to.
+   * @throws IOException If the directory of the entry can not be created.
+   */
+  private static void extractEntry(ZipFile zipFile, ZipArchiveEntry entry, File destDir)
+      throws IOException {
+    File entryDestination = new File(destDir, entry.getName());
+    // Create directory for this file if it doesn't exist, other threads may create it as well.
+    File parent = entryDestination.getParentFile();
+    try {
+      Files.createDirectories(parent.toPath());
+    } catch (IOException e) {
+      throw new IOException("Couldn't create directory: " + parent.getAbsolutePath(), e);
+    }
+
+    // Actually extract the file's content.
+    try (InputStream in = zipFile.getInputStream(entry);
+        OutputStream out = Files.newOutputStream(entryDestination.toPath())) {
+      IOUtils.copy(in, out);
+    } catch (IOException e) {
+      System.err.println(
+          "An error ocurred while unzipping file: "
+              + entry.getName()
+              + " - "
+              + e.getMessage()
+              + ", skipping...");
+    }
+  }
 }
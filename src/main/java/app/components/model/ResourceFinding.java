@@ -0,0 +1,67 @@
+package app.components.model;
+
+import java.util.Objects;
+
+/**
+ * Represents a dangerous setting found in a binary XML resource of the application, such as the
+ * network security configuration or the paths shared by a FileProvider. Holds the name and danger
+ * level of the detected pattern, the path of the resource file and the element it was found in.
+ */
+public class ResourceFinding {
+
+  /** The name of the detected pattern, one of the resource pattern names of {@link XMLFileInfo}. */
+  private final String patternName;
+
+  /** The danger level of the finding, "Danger", "Medium" or "Low". */
+  private final String dangerLevel;
+
+  /** The path of the resource file inside the APK, e.g. "res/xml/file_paths.xml". */
+  private final String resourcePath;
+
+  /** The element the setting was found in, e.g. {@code <root-path path="">}. */
+  private final String element;
+
+  public ResourceFinding(
+      String patternName, String dangerLevel, String resourcePath, String element) {
+    this.patternName = patternName;
+    this.dangerLevel = dangerLevel;
+    this.resourcePath = resourcePath;
+    this.element = element;
+  }
+
+  public String getPatternName() {
+    return patternName;
+  }
+
+  public String getDangerLevel() {
+    return dangerLevel;
+  }
+
+  public String getResourcePath() {
+    return resourcePath;
+  }
+
+  public String getElement() {
+    return element;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) return true;
+    if (obj == null || getClass() != obj.getClass()) return false;
+    ResourceFinding that = (ResourceFinding) obj;
+    return Objects.equals(patternName, that.patternName)
+        && Objects.equals(resourcePath, that.resourcePath)
+        && Objects.equals(element, that.element);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(patternName, resourcePath, element);
+  }
+
+  @Override
+  public String toString() {
+    return patternName + " in " + resourcePath + ": " + element;
+  }
+}
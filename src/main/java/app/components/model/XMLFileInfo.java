@@ -1,17 +1,25 @@
 package app.components.model;
 
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 
 public class XMLFileInfo {
   private Set<PermissionItem> permissionItems = new HashSet<>();
   private boolean isAppDebuggable, isBackupAllowed, usesGrantUriProviders;
   private Set<ExpComponent> expComponents = new HashSet<>();
+  private Set<ResourceFinding> resourceFindings = new HashSet<>();
+  private Set<String> metaDataValues = new HashSet<>();
 
   public static final String DEBUGGABLE_PNAME = "Enabled android:debuggable property";
   public static final String EXPORTED_PNAME = "Use of exported components";
   public static final String BACKUP_PNAME = "Enabled android:allowBackup property";
   public static final String URIPROVIDER_PNAME = "Insecure Content Providers";
+  public static final String CLEARTEXT_PNAME = "Cleartext traffic permitted";
+  public static final String USER_CERTIFICATES_PNAME = "Trusted user certificates";
+  public static final String FILE_PROVIDER_PATHS_PNAME = "Broad FileProvider paths";
 
   public Set<PermissionItem> getPermissionItems() {
     return permissionItems;
@@ -52,4 +60,40 @@ public class XMLFileInfo {
   public void setExpComponents(Set<ExpComponent> expComponents) {
     this.expComponents = expComponents;
   }
+
+  public Set<ResourceFinding> getResourceFindings() {
+    return resourceFindings;
+  }
+
+  public void setResourceFindings(Set<ResourceFinding> resourceFindings) {
+    this.resourceFindings = resourceFindings;
+  }
+
+  /**
+   * @return The android:value attributes of the meta-data elements of the manifests, which may be
+   *     references to resources, e.g. "@7F140001".
+   */
+  public Set<String> getMetaDataValues() {
+    return metaDataValues;
+  }
+
+  public void setMetaDataValues(Set<String> metaDataValues) {
+    this.metaDataValues = metaDataValues;
+  }
+
+  /**
+   * @return The names of the patterns detected in the XML resources, each mapped to the highest
+   *     danger level it was found with.
+   */
+  public Map<String, String> getResourcePatterns() {
+    List<String> dangerLevels = List.of("Low", "Medium", "Danger");
+    Map<String, String> resourcePatterns = new TreeMap<>();
+    for (ResourceFinding finding : resourceFindings) {
+      resourcePatterns.merge(
+          finding.getPatternName(),
+          finding.getDangerLevel(),
+          (a, b) -> dangerLevels.indexOf(a) >= dangerLevels.indexOf(b) ? a : b);
+    }
+    return resourcePatterns;
+  }
 }
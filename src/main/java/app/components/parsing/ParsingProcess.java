@@ -2,25 +2,38 @@ package app.components.parsing;
 
 import app.components.conversion.ConversionProcess;
 import app.components.conversion.classconverter.ClassConverter;
+import app.components.conversion.dexconverter.DexPrefilter;
+import app.components.conversion.jarfilter.JarFilter;
+import app.components.conversion.jarfilter.ScopeFilter;
 import app.components.model.FileInfo;
 import app.components.model.XMLFileInfo;
+import app.components.parsing.javaparsing.addressparsing.FileAnalyzer;
+import app.components.parsing.javaparsing.codeparsing.CallSiteIndex;
 import app.components.parsing.javaparsing.codeparsing.CodeParser;
 import app.components.parsing.javaparsing.codeparsing.PatternDetector;
 import app.components.parsing.javaparsing.detectors.IpDetector;
+import app.components.parsing.xmlparsing.ResourceTable;
 import app.components.parsing.xmlparsing.RiskAssigner;
 import app.components.parsing.xmlparsing.XMLParser;
 import app.components.ui.CommandUI;
 import app.database.databaseFetch.DatabaseFetchAnalysis;
+import app.utils.FileHashing;
 import app.utils.ReadDataFromJSON;
 import app.utils.ReadFilesFromDirectory;
 import app.utils.Timer;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * This class handles the parsing of XML files and Java code files, assessing potential risks and
@@ -31,9 +44,12 @@ public class ParsingProcess {
   private static IpDetector ipDetector = new IpDetector();
   private static XMLParser xmlParser = new XMLParser(xmlFileInfo);
   private static RiskAssigner riskAssigner = new RiskAssigner();
+  private static ResourceTable resourceTable;
   private static Timer timer = new Timer();
   private static Optional<List<String>> convertedXmlStrings;
   private static List<File> javaFileList;
+  private static Map<Integer, String> patternFingerprints = new HashMap<>();
+  private static Set<Integer> unchangedPatternIds = new HashSet<>();
 
   /**
    * Starts the parsing process for XML and Java files located in a specified directory. This method
@@ -51,8 +67,17 @@ public class ParsingProcess {
     timer.start();
 
     fillXmlStringList(convertedDir);
+    if (convertedDir != null) {
+      /* The application package is otherwise read by the conversion process */
+      convertedXmlStrings.ifPresent(ScopeFilter::setManifests);
+      loadResourceTable(convertedDir);
+    }
+    xmlParser.setResourceTable(resourceTable);
 
-    if (convertedXmlStrings.isPresent() && !convertedXmlStrings.get().isEmpty()) {
+    if (convertedDir == null && ConversionProcess.getParsedManifestCount() > 0) {
+      /* The binary manifests were already parsed while the APK was read */
+      riskAssigner.assignRiskLevel(xmlFileInfo.getPermissionItems());
+    } else if (convertedXmlStrings.isPresent() && !convertedXmlStrings.get().isEmpty()) {
       xmlParser.initializeXMLParsing(convertedXmlStrings.get());
 
       riskAssigner.assignRiskLevel(xmlFileInfo.getPermissionItems());
@@ -60,7 +85,46 @@ public class ParsingProcess {
       System.err.println("No converted XML strings available for parsing, skipping...");
     }
 
-    /* Retrieve dangerous patterns from JSON or Database */
+    if (convertedDir == null && ConversionProcess.isTriageOn()) {
+      /* Only the string constants of the DEX files are analyzed by a triage scan */
+      System.out.println("\nAnalyzing string constants of the DEX files...");
+      CodeParser.processSkippedSources();
+    } else if (convertedDir == null && ConversionProcess.isSourceStreamed()) {
+      /* Java sources were already analyzed while they were decompiled */
+      System.out.println("\nJava files were analyzed during the conversion, skipping...");
+    } else {
+      if (convertedDir != null || !DexPrefilter.isEnabled()) {
+        /* The patterns are otherwise loaded by the conversion process to select the classes */
+        loadPatternDetectors();
+      }
+      parseJavaFiles(convertedDir);
+    }
+
+    /* Meta-data values often hold hosts, or refer to the string resources holding them */
+    List<String> metaDataValues = new ArrayList<>(xmlFileInfo.getMetaDataValues());
+    CodeParser.getFileInfoList()
+        .addAll(
+            FileAnalyzer.processStrings(
+                Collections.singletonMap(new File("AndroidManifest.xml"), metaDataValues),
+                resourceTable));
+
+    // Checks blacklisted Ips
+    for (FileInfo fileInfo : CodeParser.getFileInfoList()) {
+      ipDetector.checkFileIps(fileInfo);
+    }
+    Timer.printDuration("Total parsing and analysis process", timer.stop());
+    System.out.println("====================================================");
+  }
+
+  /**
+   * Retrieves the dangerous patterns from the JSON file provided by the user or from the database
+   * and passes them to the {@code CodeParser}. The fingerprints of the database patterns are kept,
+   * and during an incremental analysis only the patterns which were added or modified since the APK
+   * was last analyzed are passed. The fingerprints cover the scope and prefilter options as well,
+   * since the results of a pattern depend on the analyzed classes, so every pattern is evaluated
+   * again once these options change.
+   */
+  public static void loadPatternDetectors() {
     if (CommandUI.getJsonPatternsPath() != null) {
       System.out.println("\nReading dangerous patterns from JSON...");
       List<PatternDetector> patternDetectors =
@@ -70,27 +134,156 @@ public class ParsingProcess {
       System.out.println("\nReading dangerous patterns from Database...");
 
       List<PatternDetector> patternDetectors = DatabaseFetchAnalysis.fetchPatternsAndDetectors();
+      patternFingerprints.clear();
+      unchangedPatternIds.clear();
+      String analysisOptions = getAnalysisOptions();
+      for (PatternDetector patternDetector : patternDetectors) {
+        patternFingerprints.put(
+            patternDetector.getPatternID(),
+            getFingerprint(patternDetector.getFingerprint(), analysisOptions));
+      }
+      if (CommandUI.isIncrementalAnalysis()) {
+        patternDetectors =
+            selectChangedPatterns(
+                patternDetectors,
+                DatabaseFetchAnalysis.fetchEvaluatedPatterns(CommandUI.getFileHash()));
+      }
       CodeParser.setPatternDetectors(patternDetectors);
     }
+  }
+
+  /**
+   * @return A description of the options which decide the analyzed classes, i.e. -include,
+   *     -exclude, -firstparty, -skiplibs, -dexprefilter and -bytecode.
+   */
+  private static String getAnalysisOptions() {
+    return ScopeFilter.getOptions()
+        + ";"
+        + JarFilter.getOptions()
+        + ";dexprefilter="
+        + DexPrefilter.isEnabled()
+        + ";bytecode="
+        + DexPrefilter.isBytecodeMatchingOn();
+  }
+
+  /**
+   * @param patternFingerprint The fingerprint of the definition of a pattern.
+   * @param analysisOptions The description of the options which decide the analyzed classes.
+   * @return The SHA-256 hash of the pattern fingerprint and the options.
+   */
+  private static String getFingerprint(String patternFingerprint, String analysisOptions) {
+    try {
+      return FileHashing.generateHashFromString(
+          patternFingerprint + "\n" + analysisOptions, "SHA-256");
+    } catch (IOException e) {
+      throw new IllegalStateException(e.getMessage());
+    }
+  }
+
+  /**
+   * Selects the patterns whose fingerprint differs from the one the APK was last analyzed with,
+   * which are the new and the modified patterns. The IDs of the other patterns are kept, so that
+   * their stored results are not deleted.
+   *
+   * @param patternDetectors The patterns of the database.
+   * @param evaluatedPatterns The fingerprints of the patterns the APK was last analyzed with.
+   * @return A list of the patterns which have to be evaluated.
+   */
+  private static List<PatternDetector> selectChangedPatterns(
+      List<PatternDetector> patternDetectors, Map<Integer, String> evaluatedPatterns) {
+    List<PatternDetector> changedPatterns = new ArrayList<>();
+    for (PatternDetector patternDetector : patternDetectors) {
+      Integer patternID = patternDetector.getPatternID();
+      if (patternFingerprints.get(patternID).equals(evaluatedPatterns.get(patternID))) {
+        unchangedPatternIds.add(patternID);
+      } else {
+        changedPatterns.add(patternDetector);
+      }
+    }
+    System.out.println(
+        "Evaluating "
+            + changedPatterns.size()
+            + " new or modified patterns, results of "
+            + unchangedPatternIds.size()
+            + " unchanged patterns are kept.");
+    return changedPatterns;
+  }
 
+  /**
+   * Parses the java files of the conversion output or of the directory provided by the user. If
+   * the in-memory conversion was used, its sources are parsed instead of files on disk. Files on
+   * disk are indexed by a {@link CallSiteIndex}, so that a later analysis with changed patterns
+   * only parses the files the patterns may match. The index is kept in the directory of the result
+   * cache if one is used, otherwise in {@link CallSiteIndex#DEFAULT_CACHE_DIRECTORY}.
+   *
+   * @param convertedDir The directory path where the Java files are located. If null, uses the
+   *     output of the conversion process.
+   * @throws IOException if an I/O error occurs during file reading or parsing.
+   */
+  private static void parseJavaFiles(Path convertedDir) throws IOException {
     /* Retrieve all java files from the output folder */
     System.out.println("\nParsing java files...\n");
-    if (convertedDir == null) {
-      javaFileList =
-          ReadFilesFromDirectory.getSpecificFilesFromDirectory(
-              ConversionProcess.getOutputPath().resolve(ClassConverter.getOutputFolderName()),
-              ".java");
+    if (convertedDir == null && ConversionProcess.getInMemorySources().isPresent()) {
+      /* Source code of the in-memory conversion was never written to the output folder */
+      System.out.println(CodeParser.ParseJavaSources(ConversionProcess.getInMemorySources().get()));
     } else {
-      javaFileList = ReadFilesFromDirectory.getSpecificFilesFromDirectory(convertedDir, ".java");
-    }
-    CodeParser.ParseJavaFiles(javaFileList);
+      Path javaDir =
+          convertedDir == null
+              ? ConversionProcess.getOutputPath().resolve(ClassConverter.getOutputFolderName())
+              : convertedDir;
+      if (convertedDir != null && ScopeFilter.isFirstPartyOnly()) {
+        /* The classes of the conversion process are already checked before their conversion */
+        List<String> sourcePaths = new ArrayList<>();
+        for (File javaFile :
+            ReadFilesFromDirectory.getSpecificFilesFromDirectory(javaDir, ".java")) {
+          sourcePaths.add(
+              javaDir.relativize(javaFile.toPath()).toString().replace(File.separatorChar, '/'));
+        }
+        ScopeFilter.checkFirstPartyScope(sourcePaths);
+      }
+      /* Classes outside of the analyzed scope are skipped again, e.g. for the -analyze flag */
+      ScopeFilter scopeFilter = ScopeFilter.getInstance();
+      try {
+        javaFileList =
+            ReadFilesFromDirectory.getSpecificFilesFromDirectory(
+                javaDir,
+                ".java",
+                path ->
+                    scopeFilter.isInScope(
+                        javaDir.relativize(path).toString().replace(File.separatorChar, '/')));
+      } catch (NoSuchFileException e) {
+        if (convertedDir != null || !DexPrefilter.isEnabled()) {
+          throw e;
+        }
+        /* None of the classes were selected, the strings of the skipped ones are still analyzed */
+        System.out.println("No classes were selected by the DEX prefilter.");
+        javaFileList = new ArrayList<>();
+      }
 
-    // Checks blacklisted Ips
-    for (FileInfo fileInfo : CodeParser.getFileInfoList()) {
-      ipDetector.checkFileIps(fileInfo);
+      /* Files which none of the patterns can match are skipped by their index entries */
+      Path indexDirectory =
+          CodeParser.getResultCacheDirectory() != null
+              ? CodeParser.getResultCacheDirectory().resolve("callsites")
+              : CallSiteIndex.DEFAULT_CACHE_DIRECTORY;
+      CallSiteIndex callSiteIndex = CallSiteIndex.load(javaDir, indexDirectory);
+      CodeParser.setCallSiteIndex(callSiteIndex);
+      try {
+        System.out.println(CodeParser.ParseJavaFiles(javaFileList));
+      } finally {
+        CodeParser.setCallSiteIndex(null);
+      }
+      if (callSiteIndex.getReusedCount() > 0) {
+        System.out.println(
+            "Reused the call-site index of "
+                + callSiteIndex.getReusedCount()
+                + " unchanged files.");
+      }
+      try {
+        callSiteIndex.save();
+      } catch (IOException e) {
+        System.err.println("Could not save the call-site index: " + e.getMessage());
+      }
     }
-    Timer.printDuration("Total parsing and analysis process", timer.stop());
-    System.out.println("====================================================");
   }
 
   /**
@@ -123,6 +316,63 @@ public class ParsingProcess {
     }
   }
 
+  /**
+   * Memory-maps the resources.arsc file of an unzipped APK or of a directory chosen for the
+   * analysis, preferring the table of the base APK of an XAPK, see {@link
+   * ResourceTable#openInDirectory(Path)}. Resource references are left unresolved if the directory
+   * holds no table.
+   *
+   * @param directory The directory holding the unzipped files.
+   */
+  public static void loadResourceTable(Path directory) {
+    try {
+      resourceTable = ResourceTable.openInDirectory(directory);
+    } catch (IOException e) {
+      System.err.println("Could not read the resource table of " + directory + ", skipping...");
+    }
+  }
+
+  /**
+   * @return A map of the IDs of the loaded database patterns to the fingerprints of their
+   *     definitions and of the options which decide the analyzed classes.
+   */
+  public static Map<Integer, String> getPatternFingerprints() {
+    return patternFingerprints;
+  }
+
+  /**
+   * @return The IDs of the patterns which were not evaluated again during an incremental analysis,
+   *     because they did not change since the APK was last analyzed.
+   */
+  public static Set<Integer> getUnchangedPatternIds() {
+    return unchangedPatternIds;
+  }
+
+  /**
+   * Discards the results of the parsed XML files, so that another analysis of the same application
+   * starts from scratch.
+   */
+  public static void reset() {
+    xmlFileInfo = new XMLFileInfo();
+    xmlParser = new XMLParser(xmlFileInfo);
+    resourceTable = null;
+  }
+
+  /**
+   * @param table The {@link ResourceTable} of the analyzed APK, which references of the manifests
+   *     and of the string analysis are resolved with, or null if the APK has none.
+   */
+  public static void setResourceTable(ResourceTable table) {
+    resourceTable = table;
+  }
+
+  /**
+   * @return The {@link ResourceTable} of the analyzed APK, or null if none was read.
+   */
+  public static ResourceTable getResourceTable() {
+    return resourceTable;
+  }
+
   /**
    * @return A {@code XMLFileInfo} object which stores data about parsed XML files.
    */
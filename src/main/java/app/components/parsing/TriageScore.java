@@ -0,0 +1,131 @@
+package app.components.parsing;
+
+import app.components.model.DangerousPattern;
+import app.components.model.FileInfo;
+import app.components.model.PermissionItem;
+import app.components.model.XMLFileInfo;
+import app.components.parsing.javaparsing.codeparsing.PatternDetector;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Scores the preliminary results of a triage scan, which reads the manifests and the DEX files of
+ * an APK without decompiling it. The score sums the weights of the manifest dangers, the settings
+ * found in the XML resources, the high risk permissions, the blacklisted IP addresses, the patterns
+ * detected on bytecode and the patterns which may be present, so that only APKs with a high score
+ * have to be analyzed in depth.
+ *
+ * <p>Every pattern is counted once, no matter in how many files it was found. Patterns which may
+ * be present count half of a detected pattern of the same danger level, since the DEX references
+ * only show that the methods and types of the pattern are used.
+ */
+public class TriageScore {
+  public static final int DANGER_WEIGHT = 10;
+  public static final int MEDIUM_WEIGHT = 5;
+  public static final int LOW_WEIGHT = 2;
+  public static final int HIGH_PERMISSION_WEIGHT = 3;
+  public static final int BLACKLISTED_IP_WEIGHT = 10;
+
+  private static List<PatternDetector> possiblePatterns = new ArrayList<>();
+
+  /**
+   * Calculates the triage score of the analyzed APK.
+   *
+   * @param xmlFileInfo The {@link XMLFileInfo} of the parsed manifests.
+   * @param detectedPatterns The {@link DangerousPattern} objects detected on bytecode.
+   * @param possiblePatterns The {@link PatternDetector} objects of the patterns which may be
+   *     present, but can only be detected on decompiled code.
+   * @param fileInfoList The {@link FileInfo} objects of the analyzed string constants.
+   * @return The triage score, 0 if nothing was found.
+   */
+  public static int calculate(
+      XMLFileInfo xmlFileInfo,
+      List<DangerousPattern> detectedPatterns,
+      List<PatternDetector> possiblePatterns,
+      List<FileInfo> fileInfoList) {
+    int score = 0;
+    if (!xmlFileInfo.getExpComponents().isEmpty()) {
+      score += DANGER_WEIGHT;
+    }
+    if (xmlFileInfo.isAppDebuggable()) {
+      score += DANGER_WEIGHT;
+    }
+    if (xmlFileInfo.usesGrantUriProviders()) {
+      score += MEDIUM_WEIGHT;
+    }
+    if (xmlFileInfo.isBackupAllowed()) {
+      score += MEDIUM_WEIGHT;
+    }
+    for (PermissionItem item : xmlFileInfo.getPermissionItems()) {
+      if ("High".equals(item.getPermRiskLevel())) {
+        score += HIGH_PERMISSION_WEIGHT;
+      }
+    }
+    for (String dangerLevel : xmlFileInfo.getResourcePatterns().values()) {
+      score += getWeight(dangerLevel);
+    }
+    for (FileInfo fileInfo : fileInfoList) {
+      score += BLACKLISTED_IP_WEIGHT * fileInfo.getBlacklistedIPs().size();
+    }
+
+    Map<String, String> patternLevels = new HashMap<>();
+    for (DangerousPattern pattern : detectedPatterns) {
+      patternLevels.put(pattern.getPatternName(), pattern.getDangerLevel());
+    }
+    for (String dangerLevel : patternLevels.values()) {
+      score += getWeight(dangerLevel);
+    }
+    for (PatternDetector patternDetector : possiblePatterns) {
+      if (!patternLevels.containsKey(patternDetector.getName())) {
+        score += getWeight(patternDetector.getDangerLevel()) / 2;
+      }
+    }
+    return score;
+  }
+
+  /**
+   * Calculates the triage score from the results of the parsing process.
+   *
+   * @param detectedPatterns The {@link DangerousPattern} objects detected on bytecode.
+   * @param fileInfoList The {@link FileInfo} objects of the analyzed string constants.
+   * @return The triage score, 0 if nothing was found.
+   */
+  public static int calculate(
+      List<DangerousPattern> detectedPatterns, List<FileInfo> fileInfoList) {
+    return calculate(
+        ParsingProcess.getXMLInfoObject(), detectedPatterns, possiblePatterns, fileInfoList);
+  }
+
+  private static int getWeight(String dangerLevel) {
+    if (dangerLevel == null) {
+      return 0;
+    }
+    switch (dangerLevel) {
+      case "Danger":
+        return DANGER_WEIGHT;
+      case "Medium":
+        return MEDIUM_WEIGHT;
+      case "Low":
+        return LOW_WEIGHT;
+      default:
+        return 0;
+    }
+  }
+
+  /**
+   * @param patternDetectors The {@link PatternDetector} objects of the patterns which may be
+   *     present according to the DEX references, but can only be detected on decompiled code.
+   */
+  public static void setPossiblePatterns(List<PatternDetector> patternDetectors) {
+    possiblePatterns = patternDetectors;
+  }
+
+  /**
+   * @return The {@link PatternDetector} objects of the patterns which may be present.
+   */
+  public static List<PatternDetector> getPossiblePatterns() {
+    return possiblePatterns;
+  }
+}
@@ -1,6 +1,7 @@
 package app.components.parsing.javaparsing.addressparsing;
 
 import app.components.model.FileInfo;
+import app.components.parsing.xmlparsing.ResourceTable;
 import java.io.*;
 import java.util.ArrayList;
 import java.util.HashSet;
@@ -32,6 +33,23 @@ public class FileAnalyzer {
    * @throws IllegalArgumentException If the input map is null.
    */
   public static List<FileInfo> processStrings(Map<File, List<String>> fileToStringsMap) {
+    return processStrings(fileToStringsMap, null);
+  }
+
+  /**
+   * Processes a map of files to lists of strings like {@link #processStrings(Map)}, but first
+   * resolves the strings which refer to resources, e.g. "@7F140001" as a meta-data value of a
+   * manifest, so that the domain names and IP addresses of string resources are found.
+   *
+   * @param fileToStringsMap A map where each key is a {@link File} object and the value is a list
+   *     of strings.
+   * @param resourceTable The {@link ResourceTable} to resolve references with, or null.
+   * @return A list of {@link FileInfo} objects, each representing a file and the extracted
+   *     information.
+   * @throws IllegalArgumentException If the input map is null.
+   */
+  public static List<FileInfo> processStrings(
+      Map<File, List<String>> fileToStringsMap, ResourceTable resourceTable) {
 
     if (fileToStringsMap == null) {
       throw new IllegalArgumentException("Input map is null");
@@ -51,6 +69,9 @@ public class FileAnalyzer {
       Set<String> validIPv6s = new HashSet<>();
       // Use the 3 level approach
       for (String str : strings) {
+        if (resourceTable != null) {
+          str = resourceTable.resolve(str);
+        }
         if (domainPattern.matcher(str).matches() && TLDValidator.isValidTLD(str)) {
           validDomains.add(str);
         } else if (inetAddressValidator.isValidInet4Address(str) && !str.equals("...")) {
@@ -0,0 +1,381 @@
+package app.components.parsing.javaparsing.codeparsing;
+
+import app.components.model.DangerousPattern;
+import app.components.model.FileInfo;
+import app.utils.DataFlowGraphGenerator;
+import app.utils.DiskCache;
+import app.utils.DotToImage;
+import app.utils.FileHashing;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * An on-disk cache of the analysis results of java files, shared between the analyzed APKs and
+ * repeated analyses of the same directory. Every entry is keyed by the SHA-256 hash of the pattern
+ * set and the content of a file, and holds the dangerous patterns detected in the file, its string
+ * literals and the addresses extracted from them. Files with a cached result are answered without
+ * being parsed.
+ *
+ * <p>The analysis of a file only depends on its own content, since the pattern and dataflow
+ * detectors never look beyond the compilation unit. The cache is bounded by the total size of its
+ * entries and can be used by several threads at once, see {@link DiskCache}.
+ */
+public class AnalysisResultCache {
+
+  private static final String ENTRY_EXTENSION = ".bin";
+  private static final int FORMAT_VERSION = 1;
+  private final DiskCache diskCache;
+
+  /**
+   * Opens the cache stored in a directory, creating the directory if it does not exist yet.
+   *
+   * @param directory The {@link Path} of the cache directory.
+   * @param maxSize The maximum total size of the cached entries in bytes.
+   * @throws IOException If the directory can not be created or read.
+   */
+  public AnalysisResultCache(Path directory, long maxSize) throws IOException {
+    this.diskCache = new DiskCache(directory, maxSize, ENTRY_EXTENSION);
+  }
+
+  /**
+   * Creates a fingerprint of all pattern definitions, see {@link PatternDetector#getFingerprint()}.
+   *
+   * @param patternDetectors The {@link PatternDetector} objects files are analyzed with.
+   * @return The SHA-256 hash of the pattern set.
+   */
+  public static String getPatternSetFingerprint(List<PatternDetector> patternDetectors) {
+    MessageDigest digest = createDigest();
+    for (PatternDetector patternDetector : patternDetectors) {
+      digest.update(patternDetector.getFingerprint().getBytes(StandardCharsets.UTF_8));
+    }
+    return FileHashing.bytesToHex(digest.digest());
+  }
+
+  /**
+   * @param patternSetFingerprint The fingerprint created by {@link
+   *     #getPatternSetFingerprint(List)}.
+   * @param content The content of a java file.
+   * @return The key of the analysis result of the content.
+   */
+  public String getKey(String patternSetFingerprint, byte[] content) {
+    MessageDigest digest = createDigest();
+    digest.update(
+        (FORMAT_VERSION + "\n" + patternSetFingerprint + "\n").getBytes(StandardCharsets.UTF_8));
+    digest.update(content);
+    return FileHashing.bytesToHex(digest.digest());
+  }
+
+  /**
+   * @param key The key created by {@link #getKey(String, byte[])}.
+   * @return The cached {@link FileResult}, or null if the content was not analyzed yet.
+   */
+  public FileResult get(String key) {
+    byte[] entry = diskCache.get(key);
+    if (entry == null) {
+      return null;
+    }
+    try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(entry))) {
+      return FileResult.read(in);
+    } catch (IOException e) {
+      System.err.println("Could not read analysis result cache entry " + key + ": " + e);
+      return null;
+    }
+  }
+
+  /**
+   * @param key The key created by {@link #getKey(String, byte[])}.
+   * @param result The {@link FileResult} of the analyzed content.
+   */
+  public void put(String key, FileResult result) {
+    ByteArrayOutputStream entry = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(entry)) {
+      result.write(out);
+    } catch (IOException e) {
+      System.err.println("Could not write analysis result cache entry " + key + ": " + e);
+      return;
+    }
+    diskCache.put(key, entry.toByteArray());
+  }
+
+  /**
+   * Removes the least recently used entries until the cache is within its size bound.
+   *
+   * @throws IOException If the cache directory can not be read.
+   */
+  public void evict() throws IOException {
+    diskCache.evict();
+  }
+
+  /**
+   * @return A summary of the cache hits since the cache was opened.
+   */
+  public String getStatistics() {
+    int hitCount = diskCache.getHitCount();
+    return String.format(
+        "Analysis result cache hit rate: %.1f%% (%d of %d files)",
+        diskCache.getHitRate(), hitCount, hitCount + diskCache.getMissCount());
+  }
+
+  private static MessageDigest createDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e.getMessage());
+    }
+  }
+
+  /**
+   * The analysis result of a single java file. It is independent of the file's path, so the same
+   * result can answer identical files of different APKs.
+   */
+  public static class FileResult {
+    private final List<CachedPattern> patterns = new ArrayList<>();
+    private final List<String> strings;
+    private final Set<String> domains = new LinkedHashSet<>();
+    private final Set<String> ipv4Addresses = new LinkedHashSet<>();
+    private final Set<String> ipv6Addresses = new LinkedHashSet<>();
+
+    /**
+     * @param dangerousPatterns The {@link DangerousPattern} objects detected in the file.
+     * @param strings The string literals of the file.
+     * @param fileInfos The {@link FileInfo} of the addresses extracted from {@code strings}, if
+     *     any were found.
+     */
+    public FileResult(
+        List<DangerousPattern> dangerousPatterns, List<String> strings, List<FileInfo> fileInfos) {
+      for (DangerousPattern dangerousPattern : dangerousPatterns) {
+        patterns.add(new CachedPattern(dangerousPattern));
+      }
+      this.strings = strings;
+      for (FileInfo fileInfo : fileInfos) {
+        domains.addAll(fileInfo.getDomains());
+        ipv4Addresses.addAll(fileInfo.getIpv4Addresses());
+        ipv6Addresses.addAll(fileInfo.getIpv6Addresses());
+      }
+    }
+
+    private FileResult(List<String> strings) {
+      this.strings = strings;
+    }
+
+    /**
+     * Creates the detected patterns for a file, rendering the dataflow graphs of dataflow
+     * patterns again.
+     *
+     * @param file The {@link File} the patterns are reported for.
+     * @return A list of the {@link DangerousPattern} objects detected in the file.
+     */
+    public List<DangerousPattern> createDangerousPatterns(File file) {
+      List<DangerousPattern> dangerousPatterns = new ArrayList<>();
+      for (CachedPattern pattern : patterns) {
+        dangerousPatterns.add(pattern.createDangerousPattern(file));
+      }
+      return dangerousPatterns;
+    }
+
+    /**
+     * @param file The {@link File} the addresses are reported for.
+     * @return A list holding the {@link FileInfo} of the extracted addresses, or an empty list if
+     *     the file contains none.
+     */
+    public List<FileInfo> createFileInfos(File file) {
+      List<FileInfo> fileInfos = new ArrayList<>();
+      if (!domains.isEmpty() || !ipv4Addresses.isEmpty() || !ipv6Addresses.isEmpty()) {
+        FileInfo fileInfo = new FileInfo(file);
+        domains.forEach(fileInfo::addDomainName);
+        ipv4Addresses.forEach(fileInfo::addIpv4Address);
+        ipv6Addresses.forEach(fileInfo::addIpv6Address);
+        fileInfos.add(fileInfo);
+      }
+      return fileInfos;
+    }
+
+    public List<String> getStrings() {
+      return strings;
+    }
+
+    private void write(DataOutputStream out) throws IOException {
+      out.writeInt(FORMAT_VERSION);
+      out.writeInt(patterns.size());
+      for (CachedPattern pattern : patterns) {
+        pattern.write(out);
+      }
+      writeStrings(out, strings);
+      writeStrings(out, domains);
+      writeStrings(out, ipv4Addresses);
+      writeStrings(out, ipv6Addresses);
+    }
+
+    private static FileResult read(DataInputStream in) throws IOException {
+      if (in.readInt() != FORMAT_VERSION) {
+        throw new IOException("Unsupported entry format");
+      }
+      int patternCount = in.readInt();
+      List<CachedPattern> patterns = new ArrayList<>();
+      for (int i = 0; i < patternCount; i++) {
+        patterns.add(CachedPattern.read(in));
+      }
+      FileResult result = new FileResult(readStrings(in));
+      result.patterns.addAll(patterns);
+      result.domains.addAll(readStrings(in));
+      result.ipv4Addresses.addAll(readStrings(in));
+      result.ipv6Addresses.addAll(readStrings(in));
+      return result;
+    }
+  }
+
+  /** The path independent data of a detected {@link DangerousPattern}. */
+  private static class CachedPattern {
+    private String patternName;
+    private String codeSnippet;
+    private boolean isDataFlowEnabled;
+    private boolean hasDataflowGraph;
+    private String description;
+    private String dangerLevel;
+    private Integer patternId;
+    private List<String> methods;
+    private List<String> variables;
+    private List<String> edges;
+
+    private CachedPattern() {}
+
+    private CachedPattern(DangerousPattern dangerousPattern) {
+      patternName = dangerousPattern.getPatternName();
+      codeSnippet = dangerousPattern.getCodeSnippet();
+      isDataFlowEnabled = Boolean.TRUE.equals(dangerousPattern.isDataFlowEnabled());
+      hasDataflowGraph = dangerousPattern.getDataflowGraphPath() != null;
+      description = dangerousPattern.getDescription();
+      dangerLevel = dangerousPattern.getDangerLevel();
+      patternId = dangerousPattern.getPatternId();
+      DataFlowGraphGenerator graph = dangerousPattern.getDataFlowGraphGenerator();
+      if (graph != null) {
+        methods = graph.getMethods();
+        variables = graph.getVariables();
+        edges = graph.getEdges();
+      }
+    }
+
+    private DangerousPattern createDangerousPattern(File file) {
+      DataFlowGraphGenerator graph = null;
+      if (methods != null) {
+        graph = new DataFlowGraphGenerator();
+        for (String method : methods) {
+          graph.addMethod(method, "");
+        }
+        for (String variable : variables) {
+          graph.addVariable(variable, "");
+        }
+        for (String edge : edges) {
+          int arrowIndex = edge.indexOf(" -> ");
+          graph.addEdge(edge.substring(0, arrowIndex), edge.substring(arrowIndex + 4), "");
+        }
+      }
+      String dataflowGraphPath = null;
+      if (hasDataflowGraph) {
+        dataflowGraphPath = "";
+        try {
+          dataflowGraphPath = DotToImage.convert(graph.generateDotGraph());
+        } catch (Exception e) {
+          System.err.println("Error while converting dataflow graph: " + e.getMessage());
+        }
+      }
+      return new DangerousPattern(
+          patternName,
+          codeSnippet,
+          dataflowGraphPath,
+          isDataFlowEnabled,
+          file,
+          description,
+          dangerLevel,
+          patternId,
+          graph);
+    }
+
+    private void write(DataOutputStream out) throws IOException {
+      writeString(out, patternName);
+      writeString(out, codeSnippet);
+      out.writeBoolean(isDataFlowEnabled);
+      out.writeBoolean(hasDataflowGraph && methods != null);
+      writeString(out, description);
+      writeString(out, dangerLevel);
+      out.writeBoolean(patternId != null);
+      out.writeInt(patternId != null ? patternId : 0);
+      out.writeBoolean(methods != null);
+      if (methods != null) {
+        writeStrings(out, methods);
+        writeStrings(out, variables);
+        writeStrings(out, edges);
+      }
+    }
+
+    private static CachedPattern read(DataInputStream in) throws IOException {
+      CachedPattern pattern = new CachedPattern();
+      pattern.patternName = readString(in);
+      pattern.codeSnippet = readString(in);
+      pattern.isDataFlowEnabled = in.readBoolean();
+      pattern.hasDataflowGraph = in.readBoolean();
+      pattern.description = readString(in);
+      pattern.dangerLevel = readString(in);
+      boolean hasPatternId = in.readBoolean();
+      int patternId = in.readInt();
+      pattern.patternId = hasPatternId ? patternId : null;
+      if (in.readBoolean()) {
+        pattern.methods = readStrings(in);
+        pattern.variables = readStrings(in);
+        pattern.edges = readStrings(in);
+      }
+      return pattern;
+    }
+  }
+
+  private static void writeStrings(DataOutputStream out, Collection<String> strings)
+      throws IOException {
+    out.writeInt(strings.size());
+    for (String string : strings) {
+      writeString(out, string);
+    }
+  }
+
+  private static List<String> readStrings(DataInputStream in) throws IOException {
+    int count = in.readInt();
+    List<String> strings = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      strings.add(readString(in));
+    }
+    return strings;
+  }
+
+  /** Writes a nullable string, since {@link DataOutputStream#writeUTF} is limited to 64 KB. */
+  private static void writeString(DataOutputStream out, String string) throws IOException {
+    if (string == null) {
+      out.writeInt(-1);
+      return;
+    }
+    byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    int length = in.readInt();
+    if (length < 0) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
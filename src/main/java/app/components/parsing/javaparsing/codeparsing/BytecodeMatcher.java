@@ -0,0 +1,144 @@
+package app.components.parsing.javaparsing.codeparsing;
+
+import app.components.model.DangerousPattern;
+import app.components.parsing.javaparsing.detectors.BytecodeMethod;
+import app.components.parsing.javaparsing.detectors.Detector;
+import app.components.parsing.javaparsing.detectors.MethodCallDetector;
+import app.components.parsing.javaparsing.detectors.ObjectCreationDetector;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Detects patterns in bytecode instead of decompiled source code. A pattern is detected on bytecode
+ * if data flow is disabled and all of its detectors support it, see {@link
+ * Detector#isBytecodeDetector()}, which are detectors of method calls and object creations without
+ * argument conditions. Such detectors only need the invoke and new-instance instructions, which are
+ * visible without decompiling.
+ *
+ * <p>The methods of a source file are checked the same way {@link PatternDetector} checks its
+ * AST: every detector is checked in order and the pattern is detected as soon as the required
+ * number of detectors found a match. The code snippet of a detected pattern names the class and
+ * method every detector matched in, since no source code is available.
+ */
+public class BytecodeMatcher {
+
+  private final List<PatternDetector> bytecodePatterns = new ArrayList<>();
+
+  /**
+   * @param patternDetectors A {@link List} of {@link PatternDetector} objects, of which the ones
+   *     that can be detected on bytecode are kept.
+   */
+  public BytecodeMatcher(List<PatternDetector> patternDetectors) {
+    for (PatternDetector patternDetector : patternDetectors) {
+      if (isBytecodePattern(patternDetector)) {
+        bytecodePatterns.add(patternDetector);
+      }
+    }
+  }
+
+  /**
+   * @param patternDetector A {@link PatternDetector}.
+   * @return true if the pattern can be detected on bytecode, false if it needs the AST.
+   */
+  public static boolean isBytecodePattern(PatternDetector patternDetector) {
+    return !patternDetector.isDataFlowEnabled()
+        && !patternDetector.getDetectors().isEmpty()
+        && patternDetector.getDetectors().stream().allMatch(Detector::isBytecodeDetector);
+  }
+
+  /**
+   * @return The {@link PatternDetector} objects of the patterns detected on bytecode.
+   */
+  public List<PatternDetector> getBytecodePatterns() {
+    return bytecodePatterns;
+  }
+
+  /**
+   * Detects the patterns in the methods of a source file. Detected patterns are marked as found.
+   *
+   * @param sourceFile The {@link File} the methods would be decompiled into.
+   * @param methods The {@link BytecodeMethod} objects of all classes of the source file.
+   * @return A {@link List} of the detected {@link DangerousPattern} objects.
+   */
+  public List<DangerousPattern> match(File sourceFile, List<? extends BytecodeMethod> methods) {
+    List<DangerousPattern> dangerousPatterns = new ArrayList<>();
+    for (PatternDetector patternDetector : bytecodePatterns) {
+      Set<String> matchLines = new LinkedHashSet<>();
+      int state = 0;
+      for (Detector detector : patternDetector.getDetectors()) {
+        BytecodeMethod method = findMatch(detector, methods);
+        if (method == null) {
+          continue;
+        }
+        matchLines.add(
+            "// " + method.getClassName() + "." + method.getName() + "() " + describe(detector));
+        state++;
+        if (state == patternDetector.getRequiredState()) {
+          dangerousPatterns.add(createDangerousPattern(patternDetector, sourceFile, matchLines));
+          patternDetector.setPatternFound(true);
+          break;
+        }
+      }
+    }
+    return dangerousPatterns;
+  }
+
+  private static BytecodeMethod findMatch(
+      Detector detector, List<? extends BytecodeMethod> methods) {
+    for (BytecodeMethod method : methods) {
+      if (detector.matches(method)) {
+        return method;
+      }
+    }
+    return null;
+  }
+
+  private static String describe(Detector detector) {
+    if (detector instanceof MethodCallDetector) {
+      return "calls " + ((MethodCallDetector) detector).getMethodToDetect() + "()";
+    }
+    return "creates new " + ((ObjectCreationDetector) detector).getTypeToDetect() + "()";
+  }
+
+  /**
+   * Creates the result of a pattern detected on bytecode and prints it like {@link
+   * PatternDetector#printResults()} does.
+   *
+   * @param patternDetector The {@link PatternDetector} of the detected pattern.
+   * @param sourceFile The {@link File} the matching classes would be decompiled into.
+   * @param matchLines One line for every match, naming the class and method.
+   * @return The {@link DangerousPattern} of the detection.
+   */
+  private static DangerousPattern createDangerousPattern(
+      PatternDetector patternDetector, File sourceFile, Set<String> matchLines) {
+    String path = sourceFile.getPath().replace(File.separatorChar, '/');
+    int packageIndex = path.lastIndexOf('/');
+    String codeSnippet =
+        (packageIndex > 0 ? "package " + path.substring(0, packageIndex).replace('/', '.') : "")
+            + "\n\n"
+            + String.join("\n", matchLines)
+            + "\n";
+    System.out.println(
+        "\n -- Dangerous pattern \""
+            + patternDetector.getName()
+            + "\" was found in the bytecode of "
+            + path
+            + " --\n\n"
+            + codeSnippet);
+    System.out.println(
+        "===================================================================================");
+    return new DangerousPattern(
+        patternDetector.getName(),
+        codeSnippet,
+        null,
+        false,
+        sourceFile,
+        patternDetector.getDescription(),
+        patternDetector.getDangerLevel(),
+        patternDetector.getPatternID(),
+        null);
+  }
+}
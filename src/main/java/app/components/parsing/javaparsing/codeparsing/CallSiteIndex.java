@@ -0,0 +1,419 @@
+package app.components.parsing.javaparsing.codeparsing;
+
+import app.components.parsing.javaparsing.detectors.Detector;
+import app.components.parsing.javaparsing.detectors.MethodArgumentDetector;
+import app.components.parsing.javaparsing.detectors.MethodCallDetector;
+import app.components.parsing.javaparsing.detectors.ObjectCreationDetector;
+import app.components.parsing.javaparsing.detectors.StringLiteralScanner;
+import app.utils.FileHashing;
+import com.github.javaparser.utils.StringEscapeUtils;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Persistent index of the method calls, object creations and string literals of the java files in
+ * a directory, so that changed patterns can be evaluated without parsing every file again.
+ *
+ * <p>Every file is indexed by a single scan of its tokens: the names of the identifiers followed
+ * by a parenthesis, the types following "new", its string literals and which of them are passed
+ * as arguments, and a Bloom filter of all of its identifiers. Arguments are kept unescaped, the
+ * way the parser hands them to the pattern detectors. The scan over-approximates what the
+ * parser would find, so a file whose entry can not match a pattern can not contain it either. Its
+ * pattern analysis is skipped, and its string literals are taken from the index without reading
+ * the file at all.
+ *
+ * <p>The index is stored as a binary file in a cache directory, named by the hash of the path of
+ * the indexed directory, so the analyzed directory itself is never written to. An entry is reused
+ * as long as the size and the modification time of its file are unchanged, and the entries of
+ * deleted files are dropped when the index is saved.
+ */
+public class CallSiteIndex {
+
+  /** The cache directory of the indexes, unless another one is chosen. */
+  public static final Path DEFAULT_CACHE_DIRECTORY =
+      Paths.get(System.getProperty("java.io.tmpdir"), "SuSCallSiteIndex");
+
+  private static final int MAGIC = 0x53755349;
+  private static final int VERSION = 2;
+  private final Path directory;
+  private final Path indexFile;
+  private final Map<String, FileEntry> entries = new ConcurrentHashMap<>();
+  private final AtomicInteger reusedCount = new AtomicInteger();
+  private volatile boolean isModified = false;
+
+  private CallSiteIndex(Path directory, Path indexFile) {
+    this.directory = directory;
+    this.indexFile = indexFile;
+  }
+
+  /**
+   * Loads the index of a directory from a cache directory. If there is no index yet or it can not
+   * be read, an empty index is returned.
+   *
+   * @param directory The directory holding the java files.
+   * @param cacheDirectory The directory the index is stored in.
+   * @return The {@link CallSiteIndex} of the directory.
+   */
+  public static CallSiteIndex load(Path directory, Path cacheDirectory) {
+    String directoryPath = directory.toAbsolutePath().normalize().toString();
+    String indexName;
+    try {
+      indexName = FileHashing.generateHashFromString(directoryPath, "SHA-256");
+    } catch (IOException e) {
+      indexName = Integer.toHexString(directoryPath.hashCode());
+    }
+    Path indexFile = cacheDirectory.resolve("callSiteIndex-" + indexName + ".bin");
+    CallSiteIndex index = new CallSiteIndex(directory, indexFile);
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile)))) {
+      if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+        System.err.println("Ignoring call-site index of an unknown format: " + indexFile);
+        return index;
+      }
+      int entryCount = in.readInt();
+      for (int i = 0; i < entryCount; i++) {
+        String path = readString(in);
+        index.entries.put(path, FileEntry.read(in));
+      }
+    } catch (NoSuchFileException e) {
+      // the directory was not indexed yet
+    } catch (IOException e) {
+      System.err.println("Could not read call-site index " + indexFile + ": " + e.getMessage());
+      index.entries.clear();
+    }
+    return index;
+  }
+
+  /**
+   * Saves the index to its cache directory, if any entry was added since it was loaded or any
+   * indexed file was deleted. The entries of deleted files are dropped.
+   *
+   * @throws IOException If the index file could not be written.
+   */
+  public void save() throws IOException {
+    if (entries.keySet().removeIf(key -> !Files.exists(directory.resolve(key)))) {
+      isModified = true;
+    }
+    if (!isModified) {
+      return;
+    }
+    Files.createDirectories(indexFile.getParent());
+    Path tempFile = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+    try (DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(entries.size());
+      for (Map.Entry<String, FileEntry> entry : entries.entrySet()) {
+        writeString(out, entry.getKey());
+        entry.getValue().write(out);
+      }
+    }
+    Files.move(tempFile, indexFile, StandardCopyOption.REPLACE_EXISTING);
+    isModified = false;
+  }
+
+  /**
+   * Returns the entry of a file, if the file was not changed since it was indexed.
+   *
+   * @param file A java file of the indexed directory.
+   * @return The {@link FileEntry} of the file, or null if it has to be indexed again.
+   */
+  public FileEntry get(File file) {
+    FileEntry entry = entries.get(getKey(file));
+    if (entry == null
+        || entry.size != file.length()
+        || entry.lastModified != file.lastModified()) {
+      return null;
+    }
+    reusedCount.incrementAndGet();
+    return entry;
+  }
+
+  /**
+   * Indexes the content of a file, replacing its previous entry.
+   *
+   * @param file A java file of the indexed directory.
+   * @param content The content of the file.
+   * @return The new {@link FileEntry} of the file.
+   */
+  public FileEntry add(File file, byte[] content) {
+    FileEntry entry = FileEntry.scan(new String(content, StandardCharsets.UTF_8));
+    entry.size = content.length;
+    entry.lastModified = file.lastModified();
+    entries.put(getKey(file), entry);
+    isModified = true;
+    return entry;
+  }
+
+  /**
+   * @return The number of entries which were reused since the index was loaded.
+   */
+  public int getReusedCount() {
+    return reusedCount.get();
+  }
+
+  private String getKey(File file) {
+    Path path = file.toPath().toAbsolutePath().normalize();
+    Path base = directory.toAbsolutePath().normalize();
+    return (path.startsWith(base) ? base.relativize(path) : path).toString().replace('\\', '/');
+  }
+
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    byte[] bytes = new byte[in.readInt()];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static void writeStrings(DataOutputStream out, Collection<String> values)
+      throws IOException {
+    out.writeInt(values.size());
+    for (String value : values) {
+      writeString(out, value);
+    }
+  }
+
+  private static void readStrings(DataInputStream in, Collection<String> values)
+      throws IOException {
+    int count = in.readInt();
+    for (int i = 0; i < count; i++) {
+      values.add(readString(in));
+    }
+  }
+
+  /** The indexed tokens of a single java file. */
+  public static class FileEntry {
+    private long size, lastModified;
+    private final Set<String> calledMethods = new HashSet<>();
+    private final Set<String> createdTypes = new HashSet<>();
+    private final List<String> strings = new ArrayList<>();
+    private final Set<String> argumentStrings = new HashSet<>();
+    private BloomFilter identifiers;
+
+    /**
+     * Indexes java source code by a single scan of its tokens.
+     *
+     * @param source The java source code.
+     * @return The {@link FileEntry} of the source.
+     */
+    static FileEntry scan(String source) {
+      FileEntry entry = new FileEntry();
+      Set<String> identifiers = new HashSet<>();
+      StringLiteralScanner.scanTokens(
+          source,
+          new StringLiteralScanner.TokenVisitor() {
+            private String identifier;
+            private boolean isTypeExpected, isInTypeName, isArgumentPosition;
+
+            @Override
+            public void visitStringLiteral(String value) {
+              entry.strings.add(value);
+              if (isArgumentPosition) {
+                entry.argumentStrings.add(unescape(value));
+              }
+              identifier = null;
+              isTypeExpected = isInTypeName = isArgumentPosition = false;
+            }
+
+            @Override
+            public void visitIdentifier(String name) {
+              identifiers.add(name);
+              // every part of a qualified name after "new" may be the simple name of the type
+              if (isTypeExpected) {
+                entry.createdTypes.add(name);
+              }
+              identifier = name;
+              isInTypeName = isTypeExpected;
+              isTypeExpected = "new".equals(name);
+              isArgumentPosition = false;
+            }
+
+            @Override
+            public void visitOther(char firstChar) {
+              if (firstChar == '(' && identifier != null) {
+                entry.calledMethods.add(identifier);
+              }
+              identifier = null;
+              isTypeExpected = isInTypeName && firstChar == '.';
+              isInTypeName = false;
+              isArgumentPosition = firstChar == '(' || firstChar == ',';
+            }
+          });
+      entry.identifiers = new BloomFilter(identifiers);
+      return entry;
+    }
+
+    /**
+     * @param value The value of a string literal as written in the source, e.g. "a\\tb".
+     * @return The value with its escape sequences resolved, or {@param value} if they are invalid.
+     */
+    private static String unescape(String value) {
+      try {
+        return StringEscapeUtils.unescapeJava(value);
+      } catch (IllegalArgumentException e) {
+        return value;
+      }
+    }
+
+    /**
+     * Checks whether a pattern may be detected in the file, i.e. whether at least as many of its
+     * detectors as required may find a match.
+     *
+     * @param patternDetector The {@link PatternDetector} of the pattern.
+     * @return false if the pattern can not be detected in the file, true otherwise.
+     */
+    public boolean mayMatch(PatternDetector patternDetector) {
+      int matchingDetectorCount = 0;
+      for (Detector detector : patternDetector.getDetectors()) {
+        if (mayMatch(detector)) {
+          matchingDetectorCount++;
+        }
+      }
+      return matchingDetectorCount >= patternDetector.getRequiredState();
+    }
+
+    /**
+     * @param patternDetectors A {@link List} of {@link PatternDetector} objects.
+     * @return true if any of the patterns may be detected in the file, false otherwise.
+     */
+    public boolean mayMatch(List<PatternDetector> patternDetectors) {
+      for (PatternDetector patternDetector : patternDetectors) {
+        if (mayMatch(patternDetector)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    private boolean mayMatch(Detector detector) {
+      if (detector instanceof MethodCallDetector) {
+        String methodName = ((MethodCallDetector) detector).getMethodToDetect();
+        if (!identifiers.mightContain(methodName) || !calledMethods.contains(methodName)) {
+          return false;
+        }
+        if (detector instanceof MethodArgumentDetector) {
+          MethodArgumentDetector argumentDetector = (MethodArgumentDetector) detector;
+          return argumentStrings.stream().anyMatch(argumentDetector::isArgumentMatch);
+        }
+        return true;
+      } else if (detector instanceof ObjectCreationDetector) {
+        String typeName =
+            TokenPrefilter.getSimpleTypeName(((ObjectCreationDetector) detector).getTypeToDetect());
+        return identifiers.mightContain(typeName) && createdTypes.contains(typeName);
+      }
+      return true;
+    }
+
+    /**
+     * @return The values of all string literals of the file, in source order.
+     */
+    public List<String> getStrings() {
+      return Collections.unmodifiableList(strings);
+    }
+
+    private void write(DataOutputStream out) throws IOException {
+      out.writeLong(size);
+      out.writeLong(lastModified);
+      writeStrings(out, calledMethods);
+      writeStrings(out, createdTypes);
+      writeStrings(out, strings);
+      writeStrings(out, argumentStrings);
+      identifiers.write(out);
+    }
+
+    private static FileEntry read(DataInputStream in) throws IOException {
+      FileEntry entry = new FileEntry();
+      entry.size = in.readLong();
+      entry.lastModified = in.readLong();
+      readStrings(in, entry.calledMethods);
+      readStrings(in, entry.createdTypes);
+      readStrings(in, entry.strings);
+      readStrings(in, entry.argumentStrings);
+      entry.identifiers = BloomFilter.read(in);
+      return entry;
+    }
+  }
+
+  /**
+   * Bloom filter of the identifiers of a file, with about 10 bits and 3 hash functions per
+   * identifier. The hashes are derived from {@link String#hashCode()}, which is the same on every
+   * JVM, so a stored filter stays valid.
+   */
+  private static class BloomFilter {
+    private static final int HASH_COUNT = 3;
+    private final BitSet bits;
+    private final int bitCount;
+
+    private BloomFilter(Set<String> values) {
+      this.bitCount = Math.max(64, values.size() * 10);
+      this.bits = new BitSet(bitCount);
+      for (String value : values) {
+        int hash = value.hashCode();
+        int step = Integer.rotateLeft(hash, 16) | 1;
+        for (int i = 0; i < HASH_COUNT; i++) {
+          bits.set(Math.floorMod(hash + i * step, bitCount));
+        }
+      }
+    }
+
+    private BloomFilter(BitSet bits, int bitCount) {
+      this.bits = bits;
+      this.bitCount = bitCount;
+    }
+
+    private boolean mightContain(String value) {
+      int hash = value.hashCode();
+      int step = Integer.rotateLeft(hash, 16) | 1;
+      for (int i = 0; i < HASH_COUNT; i++) {
+        if (!bits.get(Math.floorMod(hash + i * step, bitCount))) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private void write(DataOutputStream out) throws IOException {
+      long[] words = bits.toLongArray();
+      out.writeInt(bitCount);
+      out.writeInt(words.length);
+      for (long word : words) {
+        out.writeLong(word);
+      }
+    }
+
+    private static BloomFilter read(DataInputStream in) throws IOException {
+      int bitCount = in.readInt();
+      long[] words = new long[in.readInt()];
+      for (int i = 0; i < words.length; i++) {
+        words[i] = in.readLong();
+      }
+      return new BloomFilter(BitSet.valueOf(words), bitCount);
+    }
+  }
+}
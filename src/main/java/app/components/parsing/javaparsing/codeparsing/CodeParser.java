@@ -4,16 +4,31 @@ import app.components.model.DangerousPattern;
 import app.components.model.FileInfo;
 import app.components.parsing.javaparsing.addressparsing.FileAnalyzer;
 import app.components.parsing.javaparsing.detectors.LiteralExpressionDetector;
+import app.components.parsing.javaparsing.detectors.StringLiteralScanner;
+import app.utils.ThreadPoolManager;
+import com.github.javaparser.JavaParser;
 import com.github.javaparser.ParseProblemException;
+import com.github.javaparser.ParseResult;
 import com.github.javaparser.StaticJavaParser;
 import com.github.javaparser.ast.CompilationUnit;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
  * Detector class for parsing java files and looking for dangerous patterns, ips, domains
@@ -24,13 +39,29 @@ import java.util.Map;
  */
 public class CodeParser {
 
+  private static final long MAX_RESULT_CACHE_SIZE = 512L * 1024 * 1024;
   private static CompilationUnit AST;
-  private static int fileCount = 0, fileparsingErrorCount = 0;
+  private static int fileCount = 0, fileparsingErrorCount = 0, skippedFileCount = 0;
   private static List<FileInfo> fileInfoList = new ArrayList<>();
   private static List<DangerousPattern> detectedPatterns = new ArrayList<>();
   private static List<PatternDetector> patternDetectors;
+  private static List<PatternDetector> allPatternDetectors;
+  private static PatternMatcher patternMatcher;
+  private static TokenPrefilter tokenPrefilter;
+  private static CallSiteIndex callSiteIndex;
+  private static Map<File, List<String>> sourceToStringsMap = new HashMap<>();
+  private static boolean isMultiThreadingOn = false;
+  private static AnalysisResultCache analysisResultCache;
+  private static Path resultCacheDirectory;
+  private static String patternSetFingerprint;
+  private static List<FileInfo> extractedFileInfos = new ArrayList<>();
+  private static Map<File, List<String>> skippedSourceStrings = new HashMap<>();
 
   public static String ParseJavaFiles(List<File> files) throws IOException {
+    if (isMultiThreadingOn && files.size() > 1) {
+      return parseJavaFilesInParallel(files);
+    }
+
     Map<File, List<String>> fileToStringsMap = new HashMap<>();
 
     for (File file : files) {
@@ -41,21 +72,21 @@ public class CodeParser {
       }
 
       try {
-        AST = StaticJavaParser.parse(file);
-        for (PatternDetector patternDetector : patternDetectors) {
-          patternDetector.detect(AST, file);
-
-          if (patternDetector.getDangerousPattern() != null) {
-            detectedPatterns.add(patternDetector.getDangerousPattern());
-          }
+        CallSiteIndex.FileEntry indexEntry = getIndexEntry(file, callSiteIndex);
+        if (indexEntry != null && !indexEntry.mayMatch(patternDetectors)) {
+          skippedFileCount++;
+          fileToStringsMap.put(file, indexEntry.getStrings());
+          continue;
         }
-
-        // Extracting literal expressions from source code
-        LiteralExpressionDetector detector = new LiteralExpressionDetector();
-        detector.visit(AST, null);
-        fileToStringsMap.put(file, detector.getStrings());
-
-      } catch (FileNotFoundException e) {
+        byte[] content = Files.readAllBytes(file.toPath());
+        if (indexEntry != null || mayMatch(file, content, getTokenPrefilter(), callSiteIndex)) {
+          analyzeContent(file, content, fileToStringsMap);
+        } else {
+          skippedFileCount++;
+          fileToStringsMap.put(
+              file, StringLiteralScanner.scan(new String(content, StandardCharsets.UTF_8)));
+        }
+      } catch (IOException e) {
         fileparsingErrorCount++;
         // System.err.println("File not found: " + file.getAbsolutePath());
       } catch (ParseProblemException e) {
@@ -64,17 +95,425 @@ public class CodeParser {
       }
     }
 
+    processStrings(fileToStringsMap);
+
+    return getSummary();
+  }
+
+  /**
+   * Parses and analyzes java files on all threads of the {@link ThreadPoolManager}. Every thread
+   * uses its own {@link JavaParser} and its own copies of the pattern detectors, because neither
+   * of them is thread-safe. The largest files are scheduled first so that no single large file is
+   * left running at the end. Results and printed output of every file are kept apart and merged in
+   * the order of {@code files} afterwards, so the outcome is the same as for sequential parsing.
+   *
+   * @param files A {@link List} of java files to parse.
+   * @return A summary of the number of parsed files and parsing errors.
+   * @throws IOException If the thread pool could not be initialized.
+   */
+  private static String parseJavaFilesInParallel(List<File> files) throws IOException {
+    TokenPrefilter prefilter = getTokenPrefilter();
+    ThreadLocal<JavaParser> javaParser = ThreadLocal.withInitial(JavaParser::new);
+    ThreadLocal<PatternMatcher> threadPatternMatcher =
+        ThreadLocal.withInitial(
+            () ->
+                new PatternMatcher(
+                    patternDetectors.stream()
+                        .map(PatternDetector::copy)
+                        .collect(Collectors.toList())));
+    FileAnalysis[] fileAnalyses = new FileAnalysis[files.size()];
+
+    Comparator<Integer> bySize = Comparator.comparingLong(index -> files.get(index).length());
+    List<Integer> largestFirst =
+        IntStream.range(0, files.size())
+            .boxed()
+            .sorted(bySize.reversed())
+            .collect(Collectors.toList());
+
+    try {
+      ThreadPoolManager.getInstance().initializeWorkStealingPool();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while initializing the thread pool", e);
+    }
+    ThreadPoolManager.getInstance()
+        .executeConversionTasks(
+            largestFirst,
+            index ->
+                fileAnalyses[index] =
+                    analyzeFile(
+                        files.get(index),
+                        prefilter,
+                        callSiteIndex,
+                        javaParser.get(),
+                        threadPatternMatcher.get()));
+
+    Map<File, List<String>> fileToStringsMap = new HashMap<>();
+    for (int i = 0; i < files.size(); i++) {
+      FileAnalysis fileAnalysis = fileAnalyses[i];
+      fileCount++;
+      if (fileAnalysis == null || !fileAnalysis.isParsed) {
+        fileparsingErrorCount++;
+        continue;
+      }
+      if (fileAnalysis.isSkipped) {
+        skippedFileCount++;
+      }
+      System.out.print(fileAnalysis.output);
+      detectedPatterns.addAll(fileAnalysis.dangerousPatterns);
+      markPatternsFound(fileAnalysis.dangerousPatterns);
+      if (fileAnalysis.fileInfos != null) {
+        extractedFileInfos.addAll(fileAnalysis.fileInfos);
+      } else {
+        fileToStringsMap.put(files.get(i), fileAnalysis.strings);
+      }
+    }
+
+    processStrings(fileToStringsMap);
+
+    return getSummary();
+  }
+
+  /**
+   * Parses and analyzes a single java file without touching any shared state, so it can run on
+   * several threads at once.
+   *
+   * @param file The java {@link File} to analyze.
+   * @param prefilter The {@link TokenPrefilter} deciding whether the file needs to be parsed.
+   * @param index The {@link CallSiteIndex} deciding whether the file needs to be parsed instead of
+   *     {@code prefilter}, or null.
+   * @param javaParser The {@link JavaParser} of the current thread.
+   * @param threadPatternMatcher The {@link PatternMatcher} of the current thread.
+   * @return The {@link FileAnalysis} holding the results of the file.
+   */
+  private static FileAnalysis analyzeFile(
+      File file,
+      TokenPrefilter prefilter,
+      CallSiteIndex index,
+      JavaParser javaParser,
+      PatternMatcher threadPatternMatcher) {
+    FileAnalysis fileAnalysis = new FileAnalysis();
+    CallSiteIndex.FileEntry indexEntry = getIndexEntry(file, index);
+    if (indexEntry != null && !indexEntry.mayMatch(patternDetectors)) {
+      fileAnalysis.strings = indexEntry.getStrings();
+      fileAnalysis.isSkipped = true;
+      fileAnalysis.isParsed = true;
+      return fileAnalysis;
+    }
+    byte[] content;
+    try {
+      content = Files.readAllBytes(file.toPath());
+    } catch (IOException e) {
+      return fileAnalysis;
+    }
+    if (indexEntry == null && !mayMatch(file, content, prefilter, index)) {
+      fileAnalysis.strings = StringLiteralScanner.scan(new String(content, StandardCharsets.UTF_8));
+      fileAnalysis.isSkipped = true;
+      fileAnalysis.isParsed = true;
+      return fileAnalysis;
+    }
+
+    String cacheKey = null;
+    if (analysisResultCache != null) {
+      cacheKey = analysisResultCache.getKey(getPatternSetFingerprint(), content);
+      AnalysisResultCache.FileResult result = analysisResultCache.get(cacheKey);
+      if (result != null) {
+        fileAnalysis.dangerousPatterns = result.createDangerousPatterns(file);
+        fileAnalysis.fileInfos = result.createFileInfos(file);
+        fileAnalysis.isParsed = true;
+        return fileAnalysis;
+      }
+    }
+
+    ParseResult<CompilationUnit> parseResult = javaParser.parse(new ByteArrayInputStream(content));
+    if (!parseResult.isSuccessful() || !parseResult.getResult().isPresent()) {
+      return fileAnalysis;
+    }
+    CompilationUnit compilationUnit = parseResult.getResult().get();
+
+    ByteArrayOutputStream outputBuffer = new ByteArrayOutputStream();
+    PrintStream output = new PrintStream(outputBuffer);
+    List<PatternDetector> threadPatternDetectors = threadPatternMatcher.getPatternDetectors();
+    threadPatternDetectors.forEach(patternDetector -> patternDetector.setOutput(output));
+    threadPatternMatcher.match(compilationUnit, file);
+    for (PatternDetector patternDetector : threadPatternDetectors) {
+      if (patternDetector.getDangerousPattern() != null) {
+        fileAnalysis.dangerousPatterns.add(patternDetector.getDangerousPattern());
+      }
+      patternDetector.setOutput(null);
+    }
+    output.flush();
+
+    LiteralExpressionDetector detector = new LiteralExpressionDetector();
+    detector.visit(compilationUnit, null);
+    fileAnalysis.strings = detector.getStrings();
+    fileAnalysis.output = outputBuffer.toString();
+    fileAnalysis.isParsed = true;
+    if (cacheKey != null) {
+      fileAnalysis.fileInfos =
+          storeResult(cacheKey, file, fileAnalysis.dangerousPatterns, fileAnalysis.strings);
+    }
+    return fileAnalysis;
+  }
+
+  /**
+   * Parses java source code which is held in memory instead of files on disk. The {@link File}
+   * keys are only used to name the source of detected patterns and addresses and do not need to
+   * exist.
+   *
+   * <p>The map may be empty if the DEX prefilter selected no classes, the strings of the sources
+   * added by {@link #addSkippedSources(Map)} are analyzed nonetheless.
+   *
+   * @param sources A {@link Map} of source file paths to their java source code.
+   * @return A summary of the number of parsed files and parsing errors.
+   */
+  public static String ParseJavaSources(Map<File, String> sources) {
+    for (Map.Entry<File, String> source : sources.entrySet()) {
+      parseJavaSource(source.getKey(), source.getValue());
+    }
+
+    return finishJavaSourceParsing();
+  }
+
+  /**
+   * Parses and analyzes a single java source held in memory. The string literals of the source are
+   * kept until {@link #finishJavaSourceParsing()} is called, the source itself is not referenced
+   * after this method returns.
+   *
+   * @param file The path of the source file, it does not need to exist on disk.
+   * @param source The java source code.
+   */
+  public static void parseJavaSource(File file, String source) {
+    fileCount++;
+    if (!getTokenPrefilter().mayMatch(source)) {
+      skippedFileCount++;
+      sourceToStringsMap.put(file, StringLiteralScanner.scan(source));
+      return;
+    }
+    try {
+      if (analysisResultCache != null) {
+        analyzeContent(file, source.getBytes(StandardCharsets.UTF_8), sourceToStringsMap);
+      } else {
+        analyzeCompilationUnit(StaticJavaParser.parse(source), file, sourceToStringsMap);
+      }
+    } catch (ParseProblemException e) {
+      fileparsingErrorCount++;
+    }
+  }
+
+  /**
+   * Finishes the parsing of sources passed to {@link #parseJavaSource(File, String)} by collecting
+   * the addresses of their string literals.
+   *
+   * @return A summary of the number of parsed files and parsing errors.
+   */
+  public static String finishJavaSourceParsing() {
+    processStrings(sourceToStringsMap);
+    sourceToStringsMap = new HashMap<>();
+
+    return getSummary();
+  }
+
+  /**
+   * Returns the index entry of an unchanged file. If none of the patterns can match the entry,
+   * neither does the content of the file have to be read, nor does it have to be parsed.
+   *
+   * @param file The java {@link File} to analyze.
+   * @param index The {@link CallSiteIndex} of the analyzed files, or null.
+   * @return The {@link CallSiteIndex.FileEntry} of the file, or null if the file has to be read.
+   */
+  private static CallSiteIndex.FileEntry getIndexEntry(File file, CallSiteIndex index) {
+    return index == null ? null : index.get(file);
+  }
+
+  /**
+   * Decides whether the content of a file which is not indexed yet needs to be parsed. If a {@link
+   * CallSiteIndex} is used, the file is indexed and parsed only if any pattern may match its entry,
+   * otherwise the prefilter decides.
+   *
+   * @param file The java {@link File} to analyze.
+   * @param content The content of the file.
+   * @param prefilter The {@link TokenPrefilter} of the current pattern detectors.
+   * @param index The {@link CallSiteIndex} of the analyzed files, or null.
+   * @return true if the file may match a pattern, false otherwise.
+   */
+  private static boolean mayMatch(
+      File file, byte[] content, TokenPrefilter prefilter, CallSiteIndex index) {
+    if (index == null) {
+      return prefilter.mayMatch(content);
+    }
+    return index.add(file, content).mayMatch(patternDetectors);
+  }
+
+  /**
+   * Returns the pattern prefilter for the current pattern detectors, creating it on first use.
+   *
+   * @return The {@link TokenPrefilter} of the current pattern detectors.
+   */
+  private static synchronized TokenPrefilter getTokenPrefilter() {
+    if (tokenPrefilter == null) {
+      tokenPrefilter = TokenPrefilter.create(patternDetectors);
+    }
+    return tokenPrefilter;
+  }
+
+  /**
+   * Returns the fingerprint of the current pattern detectors, creating it on first use.
+   *
+   * @return The fingerprint the keys of the {@link AnalysisResultCache} are created with.
+   */
+  private static synchronized String getPatternSetFingerprint() {
+    if (patternSetFingerprint == null) {
+      patternSetFingerprint = AnalysisResultCache.getPatternSetFingerprint(patternDetectors);
+    }
+    return patternSetFingerprint;
+  }
+
+  /**
+   * Analyzes the content of a file which has to be parsed. If the same content was analyzed with
+   * the same patterns before, the result is taken from the {@link AnalysisResultCache} instead.
+   *
+   * @param file The {@link File} the content was read from.
+   * @param content The content of the file.
+   * @param fileToStringsMap A {@link Map} the string literals of the file are added to, if their
+   *     addresses are not extracted yet.
+   */
+  private static void analyzeContent(
+      File file, byte[] content, Map<File, List<String>> fileToStringsMap) {
+    if (analysisResultCache == null) {
+      analyzeCompilationUnit(
+          StaticJavaParser.parse(new ByteArrayInputStream(content)), file, fileToStringsMap);
+      return;
+    }
+    String cacheKey = analysisResultCache.getKey(getPatternSetFingerprint(), content);
+    AnalysisResultCache.FileResult result = analysisResultCache.get(cacheKey);
+    if (result != null) {
+      List<DangerousPattern> dangerousPatterns = result.createDangerousPatterns(file);
+      detectedPatterns.addAll(dangerousPatterns);
+      markPatternsFound(dangerousPatterns);
+      extractedFileInfos.addAll(result.createFileInfos(file));
+      return;
+    }
+
+    int detectedPatternCount = detectedPatterns.size();
+    analyzeCompilationUnit(
+        StaticJavaParser.parse(new ByteArrayInputStream(content)), file, fileToStringsMap);
+    List<DangerousPattern> dangerousPatterns =
+        detectedPatterns.subList(detectedPatternCount, detectedPatterns.size());
+    extractedFileInfos.addAll(
+        storeResult(cacheKey, file, dangerousPatterns, fileToStringsMap.remove(file)));
+  }
+
+  /**
+   * Extracts the addresses of an analyzed file and stores its result in the {@link
+   * AnalysisResultCache}.
+   *
+   * @param cacheKey The key of the file's content.
+   * @param file The analyzed {@link File}.
+   * @param dangerousPatterns The {@link DangerousPattern} objects detected in the file.
+   * @param strings The string literals of the file.
+   * @return A list holding the {@link FileInfo} of the file's addresses, if any were found.
+   */
+  private static List<FileInfo> storeResult(
+      String cacheKey, File file, List<DangerousPattern> dangerousPatterns, List<String> strings) {
+    List<FileInfo> fileInfos = FileAnalyzer.processStrings(Collections.singletonMap(file, strings));
+    analysisResultCache.put(
+        cacheKey, new AnalysisResultCache.FileResult(dangerousPatterns, strings, fileInfos));
+    return fileInfos;
+  }
+
+  /**
+   * Marks the pattern detectors of patterns which were detected without them, either by a copy on
+   * another thread or in a cached analysis result, so that they are reported as found.
+   *
+   * @param dangerousPatterns The detected {@link DangerousPattern} objects.
+   */
+  private static void markPatternsFound(List<DangerousPattern> dangerousPatterns) {
+    for (DangerousPattern dangerousPattern : dangerousPatterns) {
+      for (PatternDetector patternDetector : patternDetectors) {
+        if (patternDetector.getName().equals(dangerousPattern.getPatternName())
+            && Objects.equals(patternDetector.getPatternId(), dangerousPattern.getPatternId())) {
+          patternDetector.setPatternFound(true);
+        }
+      }
+    }
+  }
+
+  /**
+   * @return A summary of the number of parsed files, parsing errors and files of which the pattern
+   *     analysis was skipped.
+   */
+  private static String getSummary() {
+    return "\nParsed "
+        + fileCount
+        + " files with "
+        + fileparsingErrorCount
+        + " errors."
+        + "\nSkipped the pattern analysis of "
+        + skippedFileCount
+        + " files which contain none of the detected methods or types."
+        + (analysisResultCache != null ? "\n" + analysisResultCache.getStatistics() : "");
+  }
+
+  /**
+   * Runs all pattern detectors on a parsed compilation unit and collects its string literals.
+   *
+   * @param compilationUnit The parsed {@link CompilationUnit}.
+   * @param file The {@link File} the compilation unit was parsed from.
+   * @param fileToStringsMap A {@link Map} the string literals of the file are added to.
+   */
+  private static void analyzeCompilationUnit(
+      CompilationUnit compilationUnit, File file, Map<File, List<String>> fileToStringsMap) {
+    AST = compilationUnit;
+    if (patternMatcher == null) {
+      patternMatcher = new PatternMatcher(patternDetectors);
+    }
+    patternMatcher.match(AST, file);
+    for (PatternDetector patternDetector : patternDetectors) {
+      if (patternDetector.getDangerousPattern() != null) {
+        detectedPatterns.add(patternDetector.getDangerousPattern());
+      }
+    }
+
+    // Extracting literal expressions from source code
+    LiteralExpressionDetector detector = new LiteralExpressionDetector();
+    detector.visit(AST, null);
+    fileToStringsMap.put(file, detector.getStrings());
+  }
+
+  /**
+   * Collects domains, ipv4 and ipv6 addresses from the string literals of all parsed files and of
+   * the sources added by {@link #addSkippedSources(Map)}. The addresses of files answered from or
+   * stored in the {@link AnalysisResultCache} are already extracted and only added to the result,
+   * afterwards the cache is shrunk to its size bound.
+   *
+   * @param fileToStringsMap A {@link Map} of files to their string literals.
+   */
+  private static void processStrings(Map<File, List<String>> fileToStringsMap) {
+    if (!skippedSourceStrings.isEmpty()) {
+      fileToStringsMap = new HashMap<>(fileToStringsMap);
+      fileToStringsMap.putAll(skippedSourceStrings);
+      skippedSourceStrings = new HashMap<>();
+    }
     try {
       // Collecting domains, ipv4 and ipv6 adresses from java source code string
       // literals
       fileInfoList = FileAnalyzer.processStrings(fileToStringsMap);
+      fileInfoList.addAll(extractedFileInfos);
 
     } catch (Exception e) {
       fileparsingErrorCount++;
       System.err.println("An error occurred during file analysis: " + e.getMessage());
     }
+    extractedFileInfos = new ArrayList<>();
 
-    return "\nParsed " + fileCount + " files with " + fileparsingErrorCount + " errors.";
+    if (analysisResultCache != null) {
+      try {
+        analysisResultCache.evict();
+      } catch (IOException e) {
+        System.err.println("An error occurred evicting analysis result cache entries: " + e);
+      }
+    }
   }
 
   public static List<FileInfo> getFileInfoList() {
@@ -89,16 +528,134 @@ public class CodeParser {
     return fileCount;
   }
 
+  /**
+   * @return The number of files which were not analyzed for dangerous patterns, because they
+   *     contain none of the methods or types the pattern detectors look for.
+   */
+  public static int getSkippedFileCount() {
+    return skippedFileCount;
+  }
+
   public static int getFileParsingErrorCount() {
     return fileparsingErrorCount;
   }
 
+  /**
+   * Counts sources as parsing errors whose analysis failed with an unexpected error, or which never
+   * reached the analysis, e.g. because the {@link StreamingCodeParser} stopped.
+   *
+   * @param failedCount The number of sources whose analysis failed, they are already counted.
+   * @param lostCount The number of sources which were never analyzed.
+   */
+  static void addParsingErrors(int failedCount, int lostCount) {
+    fileCount += lostCount;
+    fileparsingErrorCount += failedCount + lostCount;
+  }
+
   public static void reset() {
     AST = null;
     fileCount = 0;
     fileparsingErrorCount = 0;
+    skippedFileCount = 0;
     fileInfoList.clear();
     detectedPatterns.clear();
+    sourceToStringsMap.clear();
+    extractedFileInfos.clear();
+    skippedSourceStrings.clear();
+  }
+
+  /**
+   * Adds the patterns which were already detected on bytecode by a {@link BytecodeMatcher}. Their
+   * pattern detectors are still reported by {@link #getPatternDetectors()}, but not run on the
+   * parsed java files anymore.
+   *
+   * @param bytecodePatterns The {@link PatternDetector} objects of the patterns detected on
+   *     bytecode.
+   * @param dangerousPatterns The {@link DangerousPattern} objects detected on bytecode.
+   */
+  public static void addBytecodeResults(
+      List<PatternDetector> bytecodePatterns, List<DangerousPattern> dangerousPatterns) {
+    List<PatternDetector> sourcePatterns = new ArrayList<>(patternDetectors);
+    sourcePatterns.removeAll(bytecodePatterns);
+    patternDetectors = sourcePatterns;
+    patternMatcher = null;
+    tokenPrefilter = null;
+    patternSetFingerprint = null;
+    detectedPatterns.addAll(dangerousPatterns);
+  }
+
+  /**
+   * @return The {@link PatternDetector} objects run on the parsed java files, which are all loaded
+   *     patterns except the ones detected on bytecode.
+   */
+  public static List<PatternDetector> getSourcePatternDetectors() {
+    return patternDetectors;
+  }
+
+  /**
+   * Adds the string literals of sources which were not decompiled, because none of the patterns
+   * can be detected in them. The sources are counted as skipped files and their strings are
+   * analyzed together with the strings of the next parsed files. When sources are streamed, this
+   * must only be called after {@link StreamingCodeParser#awaitCompletion()}, since the counters
+   * are not synchronized with the consumer thread.
+   *
+   * @param sourceStrings A {@link Map} of source files to their string literals.
+   */
+  public static void addSkippedSources(Map<File, List<String>> sourceStrings) {
+    fileCount += sourceStrings.size();
+    skippedFileCount += sourceStrings.size();
+    skippedSourceStrings.putAll(sourceStrings);
+  }
+
+  /**
+   * Collects domains, ipv4 and ipv6 addresses from the string literals added by {@link
+   * #addSkippedSources(Map)}, for an analysis in which no java file is parsed.
+   */
+  public static void processSkippedSources() {
+    processStrings(new HashMap<>());
+  }
+
+  /**
+   * @param multiThreading Flag indicating whether java files should be analyzed on several threads.
+   */
+  public static void setMultiThreading(boolean multiThreading) {
+    isMultiThreadingOn = multiThreading;
+  }
+
+  /**
+   * Sets the index used to decide which java files need to be parsed by {@link
+   * #ParseJavaFiles(List)}. Files missing from the index or changed since they were indexed are
+   * added to it.
+   *
+   * @param index The {@link CallSiteIndex} of the java files, or null to decide by the prefilter.
+   */
+  public static void setCallSiteIndex(CallSiteIndex index) {
+    callSiteIndex = index;
+  }
+
+  /**
+   * Sets the directory of the {@link AnalysisResultCache}. Files with the same content as a file
+   * analyzed before with the same patterns are not parsed again, but answered from the cache. The
+   * least recently used entries are removed once the cache exceeds {@link #MAX_RESULT_CACHE_SIZE}
+   * bytes.
+   *
+   * @param cacheDirectory The {@link Path} of the cache directory, or null to analyze every file.
+   * @throws IOException If the cache directory can not be created or read.
+   */
+  public static void setResultCacheDirectory(Path cacheDirectory) throws IOException {
+    analysisResultCache =
+        cacheDirectory == null
+            ? null
+            : new AnalysisResultCache(cacheDirectory, MAX_RESULT_CACHE_SIZE);
+    resultCacheDirectory = cacheDirectory;
+  }
+
+  /**
+   * @return The {@link Path} of the directory of the {@link AnalysisResultCache}, or null if no
+   *     results are cached.
+   */
+  public static Path getResultCacheDirectory() {
+    return resultCacheDirectory;
   }
 
   /**
@@ -106,7 +663,7 @@ public class CodeParser {
    *     patterns.
    */
   public static List<PatternDetector> getPatternDetectors() {
-    return patternDetectors;
+    return allPatternDetectors;
   }
 
   /**
@@ -115,5 +672,19 @@ public class CodeParser {
    */
   public static void setPatternDetectors(List<PatternDetector> patternDetectorsList) {
     patternDetectors = patternDetectorsList;
+    allPatternDetectors = patternDetectorsList;
+    patternMatcher = null;
+    tokenPrefilter = null;
+    patternSetFingerprint = null;
+  }
+
+  /** The results of analyzing a single java file on one of the analysis threads. */
+  private static class FileAnalysis {
+    private boolean isParsed = false;
+    private boolean isSkipped = false;
+    private List<DangerousPattern> dangerousPatterns = new ArrayList<>();
+    private List<String> strings = new ArrayList<>();
+    private List<FileInfo> fileInfos;
+    private String output = "";
   }
 }
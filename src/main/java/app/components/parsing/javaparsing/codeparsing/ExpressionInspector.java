@@ -13,6 +13,7 @@ import com.github.javaparser.ast.expr.MethodCallExpr;
 import com.github.javaparser.ast.expr.NameExpr;
 import com.github.javaparser.ast.expr.StringLiteralExpr;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -120,7 +121,7 @@ public class ExpressionInspector {
    *     list of variables, false otherwise
    */
   public static boolean checkMethodCallForSpecificArguments(
-      MethodCallExpr methodCall, List<String> variables) {
+      MethodCallExpr methodCall, Collection<String> variables) {
     for (Expression argument : methodCall.getArguments()) {
       if (argument.isNameExpr() && variables.contains(argument.toString())) {
         return true;
@@ -6,13 +6,17 @@ import app.components.parsing.javaparsing.detectors.Detector;
 import app.components.parsing.javaparsing.detectors.MethodCallDetector;
 import app.utils.DataFlowGraphGenerator;
 import app.utils.DotToImage;
+import app.utils.FileHashing;
 import com.github.javaparser.ast.CompilationUnit;
 import com.github.javaparser.ast.body.MethodDeclaration;
 import com.github.javaparser.ast.expr.Expression;
 import com.github.javaparser.ast.expr.MethodCallExpr;
 import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Tracks the detection of specified pattern within an Abstract Syntax Tree (AST) using a collection
@@ -37,6 +41,7 @@ public class PatternDetector {
   private String dangerLevel;
   private Integer patternID;
   private List<MethodDeclaration> methodDeclarations = new ArrayList<>();
+  private PrintStream output;
 
   public PatternDetector(String patternName, Integer patternID) {
     this.patternName = patternName;
@@ -72,6 +77,24 @@ public class PatternDetector {
     this.patternID = patternID;
   }
 
+  /**
+   * Creates a new pattern detector with the same pattern and copies of all its detectors, but
+   * without any detection state. Pattern detectors are not thread-safe, so every thread analyzing
+   * files has to use its own copy.
+   *
+   * @return A copy of this pattern detector.
+   */
+  public PatternDetector copy() {
+    PatternDetector copy =
+        new PatternDetector(
+            patternName, requiredState, isDataFlowEnabled, description, dangerLevel, patternID);
+    copy.isPatternFound = isPatternFound;
+    for (Detector detector : detectors) {
+      copy.addDetector(detector.copy(copy));
+    }
+    return copy;
+  }
+
   public void execute() {
     // remove all comments from AST
     AST.getAllComments().forEach(comment -> comment.remove());
@@ -92,8 +115,9 @@ public class PatternDetector {
 
       // check if Last detector is not MethodCallDetector
       if (!(detectors.get(detectors.size() - 1) instanceof MethodCallDetector)) {
-        System.out.println(
-            "Advanced dataFlow is enabled, but Last detector is not MethodCallDetector, dataflow will not be checked between passed methods!");
+        getOutput()
+            .println(
+                "Advanced dataFlow is enabled, but Last detector is not MethodCallDetector, dataflow will not be checked between passed methods!");
         printResults();
         dangerousPattern =
             new DangerousPattern(
@@ -126,7 +150,7 @@ public class PatternDetector {
 
           dataflowGraphPath = DotToImage.convert(dataFlowGraphGenerator.generateDotGraph());
         } catch (Exception e) {
-          System.out.println("Error while converting dataflow graph: " + e.getMessage());
+          getOutput().println("Error while converting dataflow graph: " + e.getMessage());
         }
 
         // convert list of methodDeclarations to string
@@ -167,14 +191,15 @@ public class PatternDetector {
   }
 
   public void printResults() {
-    System.out.println(
+    PrintStream out = getOutput();
+    out.println(
         "\n -- Dangerous pattern \""
             + patternName
             + "\" was found in this code snippet using "
             + (isDataFlowFound ? "advanced dataFlow" : "basic")
             + " detector --\n");
     if (isDataFlowFound) {
-      System.out.println(
+      out.println(
           "\n| DataFlow path between methods \""
               + startExpr.getNameAsString()
               + "\" and \""
@@ -184,12 +209,12 @@ public class PatternDetector {
       // Print dataFlow path between methods in functional style
       dataFlowPath.forEach(
           (expr) -> {
-            System.out.println("|-> " + expr);
+            out.println("|-> " + expr);
           });
     }
 
-    System.out.println("\n" + AST.toString());
-    System.out.println(
+    out.println("\n" + AST.toString());
+    out.println(
         "===================================================================================");
   }
 
@@ -206,13 +231,25 @@ public class PatternDetector {
   }
 
   public void detect(CompilationUnit AST, File currentFile) {
+    detect(AST, currentFile, detector -> detector.detect(AST));
+  }
+
+  /**
+   * Resets the detection state and lets {@code detection} run every detector in order, e.g. by
+   * applying matches that were already found by a {@link PatternMatcher}.
+   *
+   * @param AST The {@link CompilationUnit} to detect the pattern in.
+   * @param currentFile The {@link File} the compilation unit was parsed from.
+   * @param detection A {@link Consumer} running the detection of a single detector.
+   */
+  public void detect(CompilationUnit AST, File currentFile, Consumer<Detector> detection) {
     this.currentFile = currentFile;
     resetDetectors();
     this.currentState = 0;
     for (Detector detector : detectors) {
       this.AST = AST;
       detector.reset();
-      detector.detect(AST);
+      detection.accept(detector);
     }
   }
 
@@ -255,10 +292,22 @@ public class PatternDetector {
     return isPatternFound;
   }
 
+  /**
+   * @param patternFound Flag indicating whether the pattern was found in any analyzed file, also
+   *     if it was detected by a copy of this detector or taken from a cached analysis result.
+   */
+  public void setPatternFound(boolean patternFound) {
+    isPatternFound = patternFound;
+  }
+
   public void updateDataFlowPath(Expression expr) {
     dataFlowPath.add(expr);
   }
 
+  public List<Expression> getDataFlowPath() {
+    return dataFlowPath;
+  }
+
   public Integer getPatternID() {
     return patternID;
   }
@@ -283,14 +332,38 @@ public class PatternDetector {
     this.currentFile = currentFile;
   }
 
+  /**
+   * @param output The {@link PrintStream} detection results are printed to, or null to print them
+   *     to {@code System.out}.
+   */
+  public void setOutput(PrintStream output) {
+    this.output = output;
+  }
+
+  private PrintStream getOutput() {
+    return output != null ? output : System.out;
+  }
+
   public DangerousPattern getDangerousPattern() {
     return dangerousPattern;
   }
 
+  public MethodDeclaration getMethodDeclaration() {
+    return methodDeclaration;
+  }
+
   public void setMethodDeclaration(MethodDeclaration methodDeclaration) {
     this.methodDeclaration = methodDeclaration;
   }
 
+  public String getDescription() {
+    return description;
+  }
+
+  public String getDangerLevel() {
+    return dangerLevel;
+  }
+
   public Integer getPatternId() {
     return patternID;
   }
@@ -299,6 +372,25 @@ public class PatternDetector {
     return dataFlowGraphGenerator;
   }
 
+  /**
+   * Creates a fingerprint of the pattern definition: its name, required state, dataflow option,
+   * description, risk level and the configuration of its detectors in order. Results stored for a
+   * pattern stay valid as long as its fingerprint does not change.
+   *
+   * @return The SHA-256 hash of the pattern definition.
+   */
+  public String getFingerprint() {
+    StringBuilder definition = new StringBuilder(toString());
+    for (Detector detector : detectors) {
+      definition.append('\n').append(detector);
+    }
+    try {
+      return FileHashing.generateHashFromString(definition.toString(), "SHA-256");
+    } catch (IOException e) {
+      throw new IllegalStateException(e.getMessage());
+    }
+  }
+
   @Override
   public String toString() {
     return "PatternDetector{"
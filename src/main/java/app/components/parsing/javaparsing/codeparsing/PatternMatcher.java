@@ -0,0 +1,179 @@
+package app.components.parsing.javaparsing.codeparsing;
+
+import app.components.parsing.javaparsing.codeparsing.dataflow.TaintAnalysis;
+import app.components.parsing.javaparsing.detectors.Detector;
+import app.components.parsing.javaparsing.detectors.MethodCallDetector;
+import app.components.parsing.javaparsing.detectors.ObjectCreationDetector;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.expr.Expression;
+import com.github.javaparser.ast.expr.MethodCallExpr;
+import com.github.javaparser.ast.expr.ObjectCreationExpr;
+import com.github.javaparser.ast.visitor.VoidVisitorAdapter;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Runs all loaded pattern detectors on a compilation unit with a single traversal of its AST.
+ *
+ * <p>The detectors of all patterns are compiled into a dispatch table keyed by method name and
+ * created type. While the AST is visited once, every method call and object creation is only
+ * checked against the detectors interested in it, and the first match of each detector is recorded.
+ * Afterwards the matches are applied to every {@link PatternDetector} in the same order as their
+ * own traversals would have found them, so the detected patterns do not change.
+ *
+ * <p>A detector whose method name matches a call, but whose other conditions do not, skips the
+ * rest of that call the same way its own traversal does. Detectors of unknown types still traverse
+ * the AST on their own.
+ *
+ * <p>The method pairs of all dataflow-enabled patterns are registered on the compilation unit, so
+ * the {@link TaintAnalysis} answers them with a single propagation instead of one per pattern.
+ */
+public class PatternMatcher {
+
+  private final List<PatternDetector> patternDetectors;
+  private final Map<String, List<MethodCallDetector>> methodCallDetectors = new HashMap<>();
+  private final Map<String, List<ObjectCreationDetector>> objectCreationDetectors =
+      new HashMap<>();
+  private final Set<TaintAnalysis.Query> dataFlowQueries = new LinkedHashSet<>();
+
+  /**
+   * @param patternDetectors A {@link List} of {@link PatternDetector} objects to compile into the
+   *     dispatch table.
+   */
+  public PatternMatcher(List<PatternDetector> patternDetectors) {
+    this.patternDetectors = patternDetectors;
+    for (PatternDetector patternDetector : patternDetectors) {
+      for (Detector detector : patternDetector.getDetectors()) {
+        if (detector instanceof MethodCallDetector) {
+          MethodCallDetector methodCallDetector = (MethodCallDetector) detector;
+          methodCallDetectors
+              .computeIfAbsent(methodCallDetector.getMethodToDetect(), key -> new ArrayList<>())
+              .add(methodCallDetector);
+        } else if (detector instanceof ObjectCreationDetector) {
+          ObjectCreationDetector objectCreationDetector = (ObjectCreationDetector) detector;
+          objectCreationDetectors
+              .computeIfAbsent(objectCreationDetector.getTypeToDetect(), key -> new ArrayList<>())
+              .add(objectCreationDetector);
+        }
+      }
+      addDataFlowQuery(patternDetector);
+    }
+  }
+
+  /**
+   * Adds the pair of methods a dataflow-enabled pattern checks the data flow between.
+   *
+   * @param patternDetector The {@link PatternDetector} to add the pair of.
+   */
+  private void addDataFlowQuery(PatternDetector patternDetector) {
+    List<Detector> detectors = patternDetector.getDetectors();
+    if (!patternDetector.isDataFlowEnabled()
+        || detectors.isEmpty()
+        || !(detectors.get(0) instanceof MethodCallDetector)
+        || !(detectors.get(detectors.size() - 1) instanceof MethodCallDetector)) {
+      return;
+    }
+    dataFlowQueries.add(
+        new TaintAnalysis.Query(
+            ((MethodCallDetector) detectors.get(0)).getMethodToDetect(),
+            ((MethodCallDetector) detectors.get(detectors.size() - 1)).getMethodToDetect()));
+  }
+
+  /**
+   * Detects all patterns in a compilation unit. The results are kept by every {@link
+   * PatternDetector}, same as after {@link PatternDetector#detect(CompilationUnit, File)}.
+   *
+   * @param AST The {@link CompilationUnit} to detect patterns in.
+   * @param file The {@link File} the compilation unit was parsed from.
+   */
+  public void match(CompilationUnit AST, File file) {
+    MatchVisitor matchVisitor = new MatchVisitor();
+    matchVisitor.visit(AST, null);
+    if (!dataFlowQueries.isEmpty()) {
+      TaintAnalysis.setQueries(AST, dataFlowQueries);
+    }
+
+    for (PatternDetector patternDetector : patternDetectors) {
+      patternDetector.detect(
+          AST, file, detector -> applyMatch(detector, matchVisitor.matches.get(detector), AST));
+    }
+  }
+
+  /**
+   * @return The {@link PatternDetector} objects this matcher was compiled from.
+   */
+  public List<PatternDetector> getPatternDetectors() {
+    return patternDetectors;
+  }
+
+  /**
+   * Applies the recorded match of a single detector, if there is any.
+   *
+   * @param detector The {@link Detector} to apply the match to.
+   * @param match The first expression matched by {@code detector}, or null.
+   * @param AST The {@link CompilationUnit} detectors of unknown types traverse on their own.
+   */
+  private static void applyMatch(Detector detector, Expression match, CompilationUnit AST) {
+    if (detector instanceof MethodCallDetector) {
+      if (match != null) {
+        ((MethodCallDetector) detector).applyMatch((MethodCallExpr) match);
+      }
+    } else if (detector instanceof ObjectCreationDetector) {
+      if (match != null) {
+        ((ObjectCreationDetector) detector).applyMatch((ObjectCreationExpr) match);
+      }
+    } else {
+      detector.detect(AST);
+    }
+  }
+
+  /** Visits the AST once and records the first match of every detector in the dispatch table. */
+  private class MatchVisitor extends VoidVisitorAdapter<Void> {
+    private final Map<Detector, Expression> matches = new IdentityHashMap<>();
+    private final Set<Detector> skippingDetectors =
+        Collections.newSetFromMap(new IdentityHashMap<>());
+
+    @Override
+    public void visit(MethodCallExpr expr, Void arg) {
+      List<MethodCallDetector> candidates = methodCallDetectors.get(expr.getNameAsString());
+      if (candidates == null) {
+        super.visit(expr, arg);
+        return;
+      }
+
+      List<MethodCallDetector> skippedHere = new ArrayList<>();
+      for (MethodCallDetector detector : candidates) {
+        if (matches.containsKey(detector) || skippingDetectors.contains(detector)) {
+          continue;
+        }
+        if (detector.isMatch(expr)) {
+          matches.put(detector, expr);
+        } else {
+          skippingDetectors.add(detector);
+          skippedHere.add(detector);
+        }
+      }
+      super.visit(expr, arg);
+      skippingDetectors.removeAll(skippedHere);
+    }
+
+    @Override
+    public void visit(ObjectCreationExpr expr, Void arg) {
+      List<ObjectCreationDetector> candidates =
+          objectCreationDetectors.get(expr.getType().asString());
+      if (candidates != null) {
+        for (ObjectCreationDetector detector : candidates) {
+          matches.putIfAbsent(detector, expr);
+        }
+      }
+      super.visit(expr, arg);
+    }
+  }
+}
@@ -0,0 +1,145 @@
+package app.components.parsing.javaparsing.codeparsing;
+
+import java.io.File;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Analyzes decompiled java sources while the decompilation of other classes is still running.
+ * Producers hand over sources with {@link #submit(File, String)}, which blocks when the bounded
+ * queue is full, so decompilation can not run ahead of the analysis and fill up the memory. A
+ * single consumer thread passes every source to {@link CodeParser#parseJavaSource(File, String)}
+ * and releases it afterwards, because the pattern detectors of {@link CodeParser} are not
+ * thread-safe.
+ *
+ * <p>A source whose analysis fails, or which can not be handed over because the consumer thread
+ * stopped, is counted as a parsing error. Producers only wait for free space as long as the
+ * consumer thread is alive, so they never block forever.
+ */
+public class StreamingCodeParser implements Runnable {
+
+  private static final int QUEUE_CAPACITY = 128;
+  private static final long OFFER_TIMEOUT_MILLIS = 100;
+  private static final SourceUnit END_OF_STREAM = new SourceUnit(null, null);
+  private final BlockingQueue<SourceUnit> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+  private final Thread consumerThread = new Thread(this, "streaming-code-parser");
+  private final AtomicInteger lostCount = new AtomicInteger();
+  private int failedCount = 0;
+  private boolean isCompleted = false;
+
+  /** Starts the consumer thread. */
+  public void start() {
+    consumerThread.start();
+  }
+
+  /**
+   * Adds a decompiled source to the analysis queue, waiting for free space if the queue is full. An
+   * interrupt does not drop the source, the interrupt status is restored once it is queued.
+   *
+   * @param file The path of the source file, it does not need to exist on disk.
+   * @param source The java source code.
+   */
+  public void submit(File file, String source) {
+    if (!enqueue(new SourceUnit(file, source))) {
+      lostCount.incrementAndGet();
+      System.err.println("Streaming analysis has stopped, " + file + " is not analyzed");
+    }
+  }
+
+  /**
+   * Signals that no more sources will be submitted and waits until all queued sources are
+   * analyzed. Afterwards the consumer thread no longer uses {@link CodeParser}, so results of other
+   * stages can safely be added before {@link #finish()} is called. Calling it again has no effect.
+   *
+   * @throws InterruptedException If interrupted while waiting for the consumer thread.
+   */
+  public void awaitCompletion() throws InterruptedException {
+    if (isCompleted) {
+      return;
+    }
+    enqueue(END_OF_STREAM);
+    consumerThread.join();
+    /* Sources queued after the consumer thread stopped were never analyzed */
+    for (SourceUnit sourceUnit : queue) {
+      if (sourceUnit != END_OF_STREAM) {
+        lostCount.incrementAndGet();
+      }
+    }
+    queue.clear();
+    CodeParser.addParsingErrors(failedCount, lostCount.get());
+    isCompleted = true;
+  }
+
+  /**
+   * Waits until all queued sources are analyzed, unless {@link #awaitCompletion()} was already
+   * called, and finishes the parsing with {@link CodeParser#finishJavaSourceParsing()}.
+   *
+   * @return A summary of the number of parsed files and parsing errors.
+   * @throws InterruptedException If interrupted while waiting for the consumer thread.
+   */
+  public String finish() throws InterruptedException {
+    awaitCompletion();
+    return CodeParser.finishJavaSourceParsing();
+  }
+
+  /**
+   * Adds a unit to the queue, waiting for free space as long as the consumer thread is alive.
+   *
+   * @param sourceUnit The {@link SourceUnit} to queue.
+   * @return true if the unit was queued, false if the consumer thread has stopped.
+   */
+  private boolean enqueue(SourceUnit sourceUnit) {
+    boolean isInterrupted = false;
+    try {
+      while (consumerThread.isAlive()) {
+        try {
+          if (queue.offer(sourceUnit, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+            return true;
+          }
+        } catch (InterruptedException e) {
+          isInterrupted = true;
+        }
+      }
+      return false;
+    } finally {
+      if (isInterrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  @Override
+  public void run() {
+    try {
+      while (true) {
+        SourceUnit sourceUnit = queue.take();
+        if (sourceUnit == END_OF_STREAM) {
+          return;
+        }
+        try {
+          CodeParser.parseJavaSource(sourceUnit.file, sourceUnit.source);
+        } catch (Throwable e) {
+          // keep consuming, e.g. after a StackOverflowError on a deeply nested source
+          failedCount++;
+          System.err.println("An error occurred analyzing " + sourceUnit.file + ": " + e);
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      System.err.println("Streaming analysis was interrupted, results may be incomplete");
+    }
+  }
+
+  /** A single decompiled source waiting for its analysis. */
+  private static class SourceUnit {
+    private final File file;
+    private final String source;
+
+    private SourceUnit(File file, String source) {
+      this.file = file;
+      this.source = source;
+    }
+  }
+}
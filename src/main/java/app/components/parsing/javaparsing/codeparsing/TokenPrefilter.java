@@ -0,0 +1,172 @@
+package app.components.parsing.javaparsing.codeparsing;
+
+import app.components.parsing.javaparsing.detectors.Detector;
+import app.components.parsing.javaparsing.detectors.MethodCallDetector;
+import app.components.parsing.javaparsing.detectors.ObjectCreationDetector;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+
+/**
+ * Decides from the raw content of a java file whether any of the loaded pattern detectors could
+ * match it, before the file is parsed.
+ *
+ * <p>All method names and created types of the detectors are compiled into an Aho-Corasick
+ * automaton, which scans the content in a single pass. A file in which none of these tokens occur
+ * can not contain a detected method call or object creation, so its pattern analysis can be
+ * skipped. Tokens may also match inside longer identifiers, strings or comments, which only leads
+ * to files being analyzed without need. If a detector of an unknown type is loaded, every file is
+ * passed on.
+ */
+public class TokenPrefilter {
+
+  private static final int ALPHABET_SIZE = 128;
+  private final int[][] transitions;
+  private final boolean[] isAccepting;
+  private final boolean isPassingAll;
+
+  private TokenPrefilter(List<String> tokens, boolean isPassingAll) {
+    this.isPassingAll = isPassingAll;
+
+    List<int[]> trie = new ArrayList<>();
+    List<Boolean> accepting = new ArrayList<>();
+    trie.add(new int[ALPHABET_SIZE]);
+    accepting.add(false);
+    for (String token : tokens) {
+      int state = 0;
+      for (char c : token.toCharArray()) {
+        if (trie.get(state)[c] == 0) {
+          trie.get(state)[c] = trie.size();
+          trie.add(new int[ALPHABET_SIZE]);
+          accepting.add(false);
+        }
+        state = trie.get(state)[c];
+      }
+      accepting.set(state, true);
+    }
+
+    transitions = trie.toArray(new int[0][]);
+    isAccepting = new boolean[transitions.length];
+    for (int state = 0; state < isAccepting.length; state++) {
+      isAccepting[state] = accepting.get(state);
+    }
+    buildFailureTransitions();
+  }
+
+  /**
+   * Creates a prefilter for the method names and created types of the given pattern detectors.
+   *
+   * @param patternDetectors A {@link List} of {@link PatternDetector} objects.
+   * @return A {@link TokenPrefilter} for the tokens of all detectors.
+   */
+  public static TokenPrefilter create(List<PatternDetector> patternDetectors) {
+    Set<String> tokens = new LinkedHashSet<>();
+    boolean isPassingAll = false;
+    for (PatternDetector patternDetector : patternDetectors) {
+      for (Detector detector : patternDetector.getDetectors()) {
+        String token = null;
+        if (detector instanceof MethodCallDetector) {
+          token = ((MethodCallDetector) detector).getMethodToDetect();
+        } else if (detector instanceof ObjectCreationDetector) {
+          token = getSimpleTypeName(((ObjectCreationDetector) detector).getTypeToDetect());
+        }
+        if (token == null || token.isEmpty() || !isAscii(token)) {
+          isPassingAll = true;
+        } else {
+          tokens.add(token);
+        }
+      }
+    }
+    return new TokenPrefilter(new ArrayList<>(tokens), isPassingAll);
+  }
+
+  /**
+   * Checks whether the raw bytes of a java file contain any of the tokens.
+   *
+   * @param content The bytes of the java file.
+   * @return true if the file may match a pattern detector, false if it can not match any.
+   */
+  public boolean mayMatch(byte[] content) {
+    if (isPassingAll) {
+      return true;
+    }
+    int state = 0;
+    for (byte b : content) {
+      state = b >= 0 ? transitions[state][b] : 0;
+      if (isAccepting[state]) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Checks whether java source code contains any of the tokens.
+   *
+   * @param content The java source code.
+   * @return true if the source may match a pattern detector, false if it can not match any.
+   */
+  public boolean mayMatch(CharSequence content) {
+    if (isPassingAll) {
+      return true;
+    }
+    int state = 0;
+    for (int i = 0; i < content.length(); i++) {
+      char c = content.charAt(i);
+      state = c < ALPHABET_SIZE ? transitions[state][c] : 0;
+      if (isAccepting[state]) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Turns the trie into a complete automaton by pointing every missing transition to the state
+   * the longest matching suffix leads to, visiting the states in breadth-first order.
+   */
+  private void buildFailureTransitions() {
+    int[] failure = new int[transitions.length];
+    Queue<Integer> queue = new ArrayDeque<>();
+    for (int c = 0; c < ALPHABET_SIZE; c++) {
+      if (transitions[0][c] != 0) {
+        queue.add(transitions[0][c]);
+      }
+    }
+    while (!queue.isEmpty()) {
+      int state = queue.poll();
+      isAccepting[state] |= isAccepting[failure[state]];
+      for (int c = 0; c < ALPHABET_SIZE; c++) {
+        int next = transitions[state][c];
+        if (next != 0) {
+          failure[next] = transitions[failure[state]][c];
+          queue.add(next);
+        } else {
+          transitions[state][c] = transitions[failure[state]][c];
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the simple name of a type, e.g. "Random" for "java.util.Random<T>". The simple name is
+   * used as token, because the qualified name may be written with whitespace between its parts.
+   *
+   * @param typeName The type name of an {@link ObjectCreationDetector}.
+   * @return The simple name of the type.
+   */
+  public static String getSimpleTypeName(String typeName) {
+    int genericIndex = typeName.indexOf('<');
+    if (genericIndex >= 0) {
+      typeName = typeName.substring(0, genericIndex);
+    }
+    return typeName.substring(typeName.lastIndexOf('.') + 1).trim();
+  }
+
+  private static boolean isAscii(String token) {
+    return token.chars().allMatch(c -> c < ALPHABET_SIZE);
+  }
+}
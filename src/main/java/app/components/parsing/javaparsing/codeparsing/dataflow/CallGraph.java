@@ -0,0 +1,142 @@
+package app.components.parsing.javaparsing.codeparsing.dataflow;
+
+import app.components.parsing.javaparsing.codeparsing.dataflow.CompilationUnitFacts.ExpressionFacts;
+import app.components.parsing.javaparsing.codeparsing.dataflow.CompilationUnitFacts.MethodFacts;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import com.github.javaparser.ast.expr.Expression;
+import com.github.javaparser.ast.expr.MethodCallExpr;
+import com.github.javaparser.ast.expr.ThisExpr;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Call graph of the method declarations of a compilation unit.
+ *
+ * <p>Decompiled sources hold a top-level class together with all of its inner and anonymous
+ * classes, so helper methods data is passed through are declared in the same compilation unit as
+ * their callers. A method call is resolved to a declaration if it has no scope or is invoked on
+ * "this", and there is a single declaration with its name and number of arguments, preferring the
+ * ones declared in the same type as the call. Calls to methods declared in other compilation units
+ * are not resolved.
+ */
+public class CallGraph {
+
+  private final Map<String, List<MethodFacts>> declarations = new HashMap<>();
+  private final Map<MethodDeclaration, MethodFacts> methods = new IdentityHashMap<>();
+  private final Map<MethodCallExpr, MethodFacts> resolvedCalls = new IdentityHashMap<>();
+  private final Map<MethodFacts, List<MethodFacts>> callers = new IdentityHashMap<>();
+
+  CallGraph(CompilationUnitFacts facts) {
+    for (MethodFacts methodFacts : facts.getMethods()) {
+      declarations
+          .computeIfAbsent(
+              methodFacts.getMethodDeclaration().getNameAsString(), key -> new ArrayList<>())
+          .add(methodFacts);
+      methods.put(methodFacts.getMethodDeclaration(), methodFacts);
+    }
+    for (MethodFacts methodFacts : facts.getMethods()) {
+      for (ExpressionFacts expressionFacts : methodFacts.getExpressions()) {
+        if (!(expressionFacts.getExpression() instanceof MethodCallExpr)) {
+          continue;
+        }
+        MethodCallExpr methodCall = (MethodCallExpr) expressionFacts.getExpression();
+        MethodFacts callee = findDeclaration(methodCall);
+        if (callee != null) {
+          resolvedCalls.put(methodCall, callee);
+          List<MethodFacts> calleeCallers =
+              callers.computeIfAbsent(callee, key -> new ArrayList<>());
+          if (!calleeCallers.contains(methodFacts)) {
+            calleeCallers.add(methodFacts);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * @param methodCall A method call of the compilation unit.
+   * @return The {@link MethodFacts} of the declaration called, or null if the call is not
+   *     resolved.
+   */
+  public MethodFacts resolve(MethodCallExpr methodCall) {
+    return resolvedCalls.get(methodCall);
+  }
+
+  /**
+   * @param callee The {@link MethodFacts} of a method declaration.
+   * @return The method declarations with a resolved call to {@code callee}.
+   */
+  public List<MethodFacts> getCallers(MethodFacts callee) {
+    return callers.getOrDefault(callee, Collections.emptyList());
+  }
+
+  /**
+   * Finds the method declarations which call any of the methods, either themselves or through
+   * the resolved calls of their callees.
+   *
+   * @param methodNames The names of the called methods.
+   * @return A {@link Set} of the {@link MethodFacts} of the calling declarations.
+   */
+  public Set<MethodFacts> getTransitiveCallers(Collection<String> methodNames) {
+    Set<MethodFacts> transitiveCallers = Collections.newSetFromMap(new IdentityHashMap<>());
+    Deque<MethodFacts> pending = new ArrayDeque<>();
+    for (MethodFacts methodFacts : methods.values()) {
+      for (String methodName : methodNames) {
+        if (methodFacts.callsMethod(methodName) && transitiveCallers.add(methodFacts)) {
+          pending.add(methodFacts);
+        }
+      }
+    }
+    while (!pending.isEmpty()) {
+      for (MethodFacts caller : getCallers(pending.poll())) {
+        if (transitiveCallers.add(caller)) {
+          pending.add(caller);
+        }
+      }
+    }
+    return transitiveCallers;
+  }
+
+  private MethodFacts findDeclaration(MethodCallExpr methodCall) {
+    Optional<Expression> scope = methodCall.getScope();
+    if (scope.isPresent()
+        && !(scope.get() instanceof ThisExpr
+            && !scope.get().asThisExpr().getTypeName().isPresent())) {
+      return null;
+    }
+    List<MethodFacts> candidates = new ArrayList<>();
+    for (MethodFacts methodFacts :
+        declarations.getOrDefault(methodCall.getNameAsString(), Collections.emptyList())) {
+      if (acceptsArguments(methodFacts.getMethodDeclaration(), methodCall.getArguments().size())) {
+        candidates.add(methodFacts);
+      }
+    }
+    if (candidates.size() > 1) {
+      // overloads or methods of other types, only the ones of the calling type are left
+      TypeDeclaration<?> callingType = methodCall.findAncestor(TypeDeclaration.class).orElse(null);
+      candidates.removeIf(
+          candidate ->
+              candidate.getMethodDeclaration().findAncestor(TypeDeclaration.class).orElse(null)
+                  != callingType);
+    }
+    return candidates.size() == 1 ? candidates.get(0) : null;
+  }
+
+  private static boolean acceptsArguments(MethodDeclaration methodDeclaration, int argumentCount) {
+    int parameterCount = methodDeclaration.getParameters().size();
+    if (parameterCount > 0 && methodDeclaration.getParameter(parameterCount - 1).isVarArgs()) {
+      return argumentCount >= parameterCount - 1;
+    }
+    return argumentCount == parameterCount;
+  }
+}
@@ -0,0 +1,202 @@
+package app.components.parsing.javaparsing.codeparsing.dataflow;
+
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.DataKey;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.expr.AssignExpr;
+import com.github.javaparser.ast.expr.Expression;
+import com.github.javaparser.ast.expr.MethodCallExpr;
+import com.github.javaparser.ast.expr.NameExpr;
+import com.github.javaparser.ast.expr.VariableDeclarationExpr;
+import com.github.javaparser.ast.visitor.VoidVisitorAdapter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Data flow facts of a compilation unit which are shared by all dataflow-enabled patterns. The
+ * facts are computed once, the first time a pattern asks for them, and stored on the compilation
+ * unit itself, so analyzing N dataflow patterns in one file costs a single analysis.
+ *
+ * <p>For every method declaration the facts hold the assignments, variable declarations and method
+ * calls the data flow is tracked through, each with the variables it uses and the methods it calls.
+ * An expression which neither uses a variable of interest nor calls the method that starts the
+ * data flow can not carry data, so it does not need to be inspected.
+ */
+public class CompilationUnitFacts {
+
+  private static final DataKey<CompilationUnitFacts> FACTS_KEY =
+      new DataKey<CompilationUnitFacts>() {};
+  private final List<MethodFacts> methods = new ArrayList<>();
+  private final Map<String, List<MethodCallExpr>> callSites = new HashMap<>();
+  private CallGraph callGraph;
+
+  private CompilationUnitFacts(CompilationUnit AST) {
+    Map<Expression, ExpressionFacts> expressionFacts = new IdentityHashMap<>();
+    new VoidVisitorAdapter<Void>() {
+      @Override
+      public void visit(MethodDeclaration md, Void arg) {
+        // nested method declarations come first, same as in a post-order visit
+        super.visit(md, arg);
+        methods.add(new MethodFacts(md, expressionFacts));
+      }
+
+      @Override
+      public void visit(MethodCallExpr expr, Void arg) {
+        super.visit(expr, arg);
+        callSites.computeIfAbsent(expr.getNameAsString(), key -> new ArrayList<>()).add(expr);
+      }
+    }.visit(AST, null);
+  }
+
+  /**
+   * Returns the facts of a compilation unit, computing them if this is the first request.
+   *
+   * @param AST The {@link CompilationUnit} to get the facts for.
+   * @return The {@link CompilationUnitFacts} of {@code AST}.
+   */
+  public static CompilationUnitFacts of(CompilationUnit AST) {
+    if (!AST.containsData(FACTS_KEY)) {
+      AST.setData(FACTS_KEY, new CompilationUnitFacts(AST));
+    }
+    return AST.getData(FACTS_KEY);
+  }
+
+  /**
+   * @return The facts of all method declarations, nested declarations before their enclosing ones.
+   */
+  public List<MethodFacts> getMethods() {
+    return methods;
+  }
+
+  /**
+   * @param methodName The name of the called method.
+   * @return A {@link List} of all calls to methods named {@code methodName}.
+   */
+  public List<MethodCallExpr> getCallSites(String methodName) {
+    return callSites.getOrDefault(methodName, Collections.emptyList());
+  }
+
+  /**
+   * @return The {@link CallGraph} of the method declarations, built on the first request.
+   */
+  public CallGraph getCallGraph() {
+    if (callGraph == null) {
+      callGraph = new CallGraph(this);
+    }
+    return callGraph;
+  }
+
+  /** The data flow facts of a single method declaration. */
+  public static class MethodFacts {
+    private final MethodDeclaration methodDeclaration;
+    private final List<ExpressionFacts> expressions = new ArrayList<>();
+    private final Set<String> calledMethods = new HashSet<>();
+    private final boolean hasExpressions;
+    private ControlFlowGraph controlFlowGraph;
+
+    private MethodFacts(
+        MethodDeclaration methodDeclaration, Map<Expression, ExpressionFacts> expressionFacts) {
+      this.methodDeclaration = methodDeclaration;
+      List<Expression> allExpressions = methodDeclaration.findAll(Expression.class);
+      this.hasExpressions = !allExpressions.isEmpty();
+      for (Expression expr : allExpressions) {
+        if (expr instanceof AssignExpr
+            || expr instanceof VariableDeclarationExpr
+            || expr instanceof MethodCallExpr) {
+          // expressions of nested declarations are shared with the enclosing declaration
+          ExpressionFacts facts = expressionFacts.computeIfAbsent(expr, ExpressionFacts::new);
+          expressions.add(facts);
+          calledMethods.addAll(facts.calledMethods);
+        }
+      }
+    }
+
+    public MethodDeclaration getMethodDeclaration() {
+      return methodDeclaration;
+    }
+
+    /**
+     * @return The assignments, variable declarations and method calls of the method in pre-order,
+     *     including the ones of nested declarations.
+     */
+    public List<ExpressionFacts> getExpressions() {
+      return expressions;
+    }
+
+    /**
+     * @param methodName The name of a method.
+     * @return true if the method declaration calls a method named {@code methodName}.
+     */
+    public boolean callsMethod(String methodName) {
+      return calledMethods.contains(methodName);
+    }
+
+    /**
+     * @return true if the method declaration contains any expression at all.
+     */
+    public boolean hasExpressions() {
+      return hasExpressions;
+    }
+
+    /**
+     * @return The {@link ControlFlowGraph} of the method declaration, built on the first request.
+     */
+    public ControlFlowGraph getControlFlowGraph() {
+      if (controlFlowGraph == null) {
+        controlFlowGraph = ControlFlowGraph.build(methodDeclaration);
+      }
+      return controlFlowGraph;
+    }
+  }
+
+  /** The variables used and methods called by an assignment, declaration or method call. */
+  public static class ExpressionFacts {
+    private final Expression expression;
+    private final Set<String> usedVariables = new HashSet<>();
+    private final Set<String> calledMethods = new HashSet<>();
+
+    private ExpressionFacts(Expression expression) {
+      this.expression = expression;
+      for (NameExpr nameExpr : expression.findAll(NameExpr.class)) {
+        usedVariables.add(nameExpr.toString());
+      }
+      for (MethodCallExpr methodCall : expression.findAll(MethodCallExpr.class)) {
+        calledMethods.add(methodCall.getNameAsString());
+        // variables such as "this.field" are tracked by the string of the invoking scope
+        methodCall.getScope().ifPresent(scope -> usedVariables.add(scope.toString()));
+      }
+    }
+
+    public Expression getExpression() {
+      return expression;
+    }
+
+    /**
+     * Checks whether data may flow through this expression, i.e. whether it uses any of the
+     * variables of interest or calls the method starting the data flow.
+     *
+     * @param variablesOfInterest The variables currently carrying data.
+     * @param startMethodName The name of the method starting the data flow.
+     * @return false if the expression can not carry data, true otherwise.
+     */
+    public boolean mayCarryDataFlow(
+        Collection<String> variablesOfInterest, String startMethodName) {
+      if (calledMethods.contains(startMethodName)) {
+        return true;
+      }
+      for (String variable : usedVariables) {
+        if (variablesOfInterest.contains(variable)) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+}
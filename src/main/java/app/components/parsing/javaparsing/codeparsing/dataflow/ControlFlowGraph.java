@@ -0,0 +1,448 @@
+package app.components.parsing.javaparsing.codeparsing.dataflow;
+
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.BodyDeclaration;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.body.Parameter;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import com.github.javaparser.ast.body.VariableDeclarator;
+import com.github.javaparser.ast.expr.AssignExpr;
+import com.github.javaparser.ast.expr.Expression;
+import com.github.javaparser.ast.expr.MethodCallExpr;
+import com.github.javaparser.ast.expr.SimpleName;
+import com.github.javaparser.ast.stmt.BlockStmt;
+import com.github.javaparser.ast.stmt.BreakStmt;
+import com.github.javaparser.ast.stmt.ContinueStmt;
+import com.github.javaparser.ast.stmt.DoStmt;
+import com.github.javaparser.ast.stmt.EmptyStmt;
+import com.github.javaparser.ast.stmt.ExpressionStmt;
+import com.github.javaparser.ast.stmt.ForEachStmt;
+import com.github.javaparser.ast.stmt.ForStmt;
+import com.github.javaparser.ast.stmt.IfStmt;
+import com.github.javaparser.ast.stmt.LabeledStmt;
+import com.github.javaparser.ast.stmt.LocalClassDeclarationStmt;
+import com.github.javaparser.ast.stmt.LocalRecordDeclarationStmt;
+import com.github.javaparser.ast.stmt.ReturnStmt;
+import com.github.javaparser.ast.stmt.Statement;
+import com.github.javaparser.ast.stmt.SwitchEntry;
+import com.github.javaparser.ast.stmt.SwitchStmt;
+import com.github.javaparser.ast.stmt.SynchronizedStmt;
+import com.github.javaparser.ast.stmt.ThrowStmt;
+import com.github.javaparser.ast.stmt.TryStmt;
+import com.github.javaparser.ast.stmt.WhileStmt;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Statement level control-flow graph of a method declaration.
+ *
+ * <p>Every node holds the AST element evaluated when control reaches it: an expression, such as
+ * the expression of an expression statement or the condition of a loop, or a {@link ForEachStmt},
+ * whose node assigns the next element of the iterable to the loop variable. Nodes without an
+ * element only join control flow. Branches, loops, switch fallthrough, labeled and unlabeled
+ * break and continue statements are followed. Return and throw statements lead to the exit node,
+ * and every node of a try block may lead to each of its catch clauses. Local classes are not part
+ * of the graph, their methods are separate declarations.
+ */
+public class ControlFlowGraph {
+
+  /** The index of the node control enters the method through. */
+  public static final int ENTRY = 0;
+
+  /** The index of the node all paths leaving the method end in. */
+  public static final int EXIT = 1;
+
+  private final List<Node> elements = new ArrayList<>();
+  private final List<List<Integer>> successors = new ArrayList<>();
+  private final List<List<Node>> evaluatedNodes = new ArrayList<>();
+  private final Set<String> localVariables = new HashSet<>();
+
+  private ControlFlowGraph() {
+    addNode(null);
+    addNode(null);
+  }
+
+  /**
+   * Builds the control-flow graph of a method declaration.
+   *
+   * @param methodDeclaration The {@link MethodDeclaration} to build the graph for.
+   * @return The {@link ControlFlowGraph} of the method body, or a graph from entry to exit for
+   *     abstract methods.
+   */
+  public static ControlFlowGraph build(MethodDeclaration methodDeclaration) {
+    ControlFlowGraph graph = new ControlFlowGraph();
+    List<Integer> exits = Collections.singletonList(ENTRY);
+    if (methodDeclaration.getBody().isPresent()) {
+      exits = graph.new Builder().visit(methodDeclaration.getBody().get(), exits);
+    }
+    graph.link(exits, EXIT);
+    walk(
+        methodDeclaration,
+        node -> {
+          if (node instanceof Parameter) {
+            graph.localVariables.add(((Parameter) node).getNameAsString());
+          } else if (node instanceof VariableDeclarator) {
+            graph.localVariables.add(((VariableDeclarator) node).getNameAsString());
+          }
+        });
+    return graph;
+  }
+
+  /**
+   * Visits a node and its descendants in evaluation order, i.e. every node after its children,
+   * without entering the bodies of anonymous and local classes.
+   *
+   * @param node The node to visit.
+   * @param consumer The {@link Consumer} accepting the visited nodes.
+   */
+  public static void walk(Node node, Consumer<Node> consumer) {
+    for (Node child : node.getChildNodes()) {
+      if (!(child instanceof BodyDeclaration) && !(child instanceof TypeDeclaration)) {
+        walk(child, consumer);
+      }
+    }
+    consumer.accept(node);
+  }
+
+  /**
+   * @return The number of nodes of the graph.
+   */
+  public int size() {
+    return elements.size();
+  }
+
+  /**
+   * @param node The index of a node.
+   * @return The AST element evaluated by the node, or null if the node only joins control flow.
+   */
+  public Node getElement(int node) {
+    return elements.get(node);
+  }
+
+  /**
+   * @param node The index of a node.
+   * @return The indexes of the nodes control may pass to from {@code node}.
+   */
+  public List<Integer> getSuccessors(int node) {
+    return successors.get(node);
+  }
+
+  /**
+   * @param node The index of a node.
+   * @return The variable declarators, assignments and method calls evaluated by the node, in
+   *     evaluation order.
+   */
+  public List<Node> getEvaluatedNodes(int node) {
+    List<Node> evaluated = evaluatedNodes.get(node);
+    if (evaluated == null) {
+      List<Node> found = new ArrayList<>();
+      Node element = elements.get(node);
+      if (element instanceof ForEachStmt) {
+        // the body of the loop is not part of its head
+        element = ((ForEachStmt) element).getIterable();
+      }
+      if (element != null) {
+        walk(
+            element,
+            evaluatedNode -> {
+              if (evaluatedNode instanceof VariableDeclarator
+                  || evaluatedNode instanceof AssignExpr
+                  || evaluatedNode instanceof MethodCallExpr) {
+                found.add(evaluatedNode);
+              }
+            });
+      }
+      evaluated = found.isEmpty() ? Collections.emptyList() : found;
+      evaluatedNodes.set(node, evaluated);
+    }
+    return evaluated;
+  }
+
+  /**
+   * @return The names of the parameters and local variables of the method declaration, including
+   *     the ones of its lambda expressions.
+   */
+  public Set<String> getLocalVariables() {
+    return localVariables;
+  }
+
+  private int addNode(Node element) {
+    elements.add(element);
+    successors.add(new ArrayList<>());
+    evaluatedNodes.add(null);
+    return elements.size() - 1;
+  }
+
+  private void link(List<Integer> from, int to) {
+    for (int node : from) {
+      if (!successors.get(node).contains(to)) {
+        successors.get(node).add(to);
+      }
+    }
+  }
+
+  /** A loop, switch or labeled statement break and continue statements may jump out of. */
+  private static class JumpTarget {
+    private final String label;
+    private final boolean isLoop, isSwitch;
+    private final List<Integer> breaks = new ArrayList<>();
+    private final List<Integer> continues = new ArrayList<>();
+
+    private JumpTarget(String label, boolean isLoop, boolean isSwitch) {
+      this.label = label;
+      this.isLoop = isLoop;
+      this.isSwitch = isSwitch;
+    }
+  }
+
+  /**
+   * Adds the nodes of statements to the graph. Every visit method takes the nodes control enters
+   * the statement from and returns the nodes control leaves it through normally.
+   */
+  private class Builder {
+    private final Deque<JumpTarget> jumpTargets = new ArrayDeque<>();
+    private int catchingTryDepth = 0;
+    private String pendingLabel;
+
+    private List<Integer> visit(Statement stmt, List<Integer> preds) {
+      String label = pendingLabel;
+      pendingLabel = null;
+
+      if (stmt instanceof BlockStmt) {
+        for (Statement inner : ((BlockStmt) stmt).getStatements()) {
+          preds = visit(inner, preds);
+        }
+        return preds;
+      } else if (stmt instanceof ExpressionStmt) {
+        return sequence(((ExpressionStmt) stmt).getExpression(), preds);
+      } else if (stmt instanceof IfStmt) {
+        IfStmt ifStmt = (IfStmt) stmt;
+        List<Integer> condition = sequence(ifStmt.getCondition(), preds);
+        List<Integer> exits = new ArrayList<>(visit(ifStmt.getThenStmt(), condition));
+        exits.addAll(
+            ifStmt.getElseStmt().isPresent()
+                ? visit(ifStmt.getElseStmt().get(), condition)
+                : condition);
+        return exits;
+      } else if (stmt instanceof WhileStmt) {
+        WhileStmt whileStmt = (WhileStmt) stmt;
+        int condition = addNode(whileStmt.getCondition());
+        link(preds, condition);
+        JumpTarget target = enterLoop(label);
+        link(visit(whileStmt.getBody(), List.of(condition)), condition);
+        return exitLoop(target, condition, List.of(condition));
+      } else if (stmt instanceof DoStmt) {
+        DoStmt doStmt = (DoStmt) stmt;
+        int bodyEntry = addNode(null);
+        link(preds, bodyEntry);
+        JumpTarget target = enterLoop(label);
+        List<Integer> bodyExits = new ArrayList<>(visit(doStmt.getBody(), List.of(bodyEntry)));
+        bodyExits.addAll(target.continues);
+        int condition = addNode(doStmt.getCondition());
+        link(bodyExits, condition);
+        link(List.of(condition), bodyEntry);
+        target.continues.clear();
+        return exitLoop(target, condition, List.of(condition));
+      } else if (stmt instanceof ForStmt) {
+        return visitFor((ForStmt) stmt, label, preds);
+      } else if (stmt instanceof ForEachStmt) {
+        ForEachStmt forEachStmt = (ForEachStmt) stmt;
+        int head = addNode(forEachStmt);
+        link(preds, head);
+        JumpTarget target = enterLoop(label);
+        link(visit(forEachStmt.getBody(), List.of(head)), head);
+        return exitLoop(target, head, List.of(head));
+      } else if (stmt instanceof SwitchStmt) {
+        return visitSwitch((SwitchStmt) stmt, label, preds);
+      } else if (stmt instanceof TryStmt) {
+        return visitTry((TryStmt) stmt, preds);
+      } else if (stmt instanceof LabeledStmt) {
+        return visitLabeled((LabeledStmt) stmt, preds);
+      } else if (stmt instanceof SynchronizedStmt) {
+        SynchronizedStmt synchronizedStmt = (SynchronizedStmt) stmt;
+        List<Integer> lock = sequence(synchronizedStmt.getExpression(), preds);
+        return visit(synchronizedStmt.getBody(), lock);
+      } else if (stmt instanceof BreakStmt) {
+        String targetLabel = ((BreakStmt) stmt).getLabel().map(SimpleName::asString).orElse(null);
+        JumpTarget target = findJumpTarget(targetLabel, false);
+        if (target != null) {
+          target.breaks.addAll(preds);
+        }
+        return Collections.emptyList();
+      } else if (stmt instanceof ContinueStmt) {
+        String targetLabel =
+            ((ContinueStmt) stmt).getLabel().map(SimpleName::asString).orElse(null);
+        JumpTarget target = findJumpTarget(targetLabel, true);
+        if (target != null) {
+          target.continues.addAll(preds);
+        }
+        return Collections.emptyList();
+      } else if (stmt instanceof ReturnStmt) {
+        ReturnStmt returnStmt = (ReturnStmt) stmt;
+        link(
+            returnStmt.getExpression().isPresent()
+                ? sequence(returnStmt.getExpression().get(), preds)
+                : preds,
+            EXIT);
+        return Collections.emptyList();
+      } else if (stmt instanceof ThrowStmt) {
+        List<Integer> thrown = sequence(((ThrowStmt) stmt).getExpression(), preds);
+        if (catchingTryDepth == 0) {
+          link(thrown, EXIT);
+        }
+        return Collections.emptyList();
+      } else if (stmt instanceof EmptyStmt
+          || stmt instanceof LocalClassDeclarationStmt
+          || stmt instanceof LocalRecordDeclarationStmt) {
+        return preds;
+      }
+      // any other statement is evaluated as a whole
+      return sequence(stmt, preds);
+    }
+
+    private List<Integer> visitLabeled(LabeledStmt labeledStmt, List<Integer> preds) {
+      Statement stmt = labeledStmt.getStatement();
+      if (stmt instanceof WhileStmt
+          || stmt instanceof DoStmt
+          || stmt instanceof ForStmt
+          || stmt instanceof ForEachStmt
+          || stmt instanceof SwitchStmt) {
+        // the label is taken over by the loop or switch statement
+        pendingLabel = labeledStmt.getLabel().asString();
+        return visit(stmt, preds);
+      }
+      JumpTarget target = new JumpTarget(labeledStmt.getLabel().asString(), false, false);
+      jumpTargets.push(target);
+      List<Integer> exits = new ArrayList<>(visit(stmt, preds));
+      jumpTargets.pop();
+      exits.addAll(target.breaks);
+      return exits;
+    }
+
+    private List<Integer> visitFor(ForStmt forStmt, String label, List<Integer> preds) {
+      for (Expression initialization : forStmt.getInitialization()) {
+        preds = sequence(initialization, preds);
+      }
+      int condition = addNode(forStmt.getCompare().orElse(null));
+      link(preds, condition);
+      JumpTarget target = enterLoop(label);
+      List<Integer> updates = new ArrayList<>(visit(forStmt.getBody(), List.of(condition)));
+      updates.addAll(target.continues);
+      target.continues.clear();
+      for (Expression update : forStmt.getUpdate()) {
+        updates = sequence(update, updates);
+      }
+      link(updates, condition);
+      // a loop without a condition is only left through break statements
+      return exitLoop(
+          target,
+          condition,
+          forStmt.getCompare().isPresent() ? List.of(condition) : Collections.emptyList());
+    }
+
+    private List<Integer> visitSwitch(SwitchStmt switchStmt, String label, List<Integer> preds) {
+      List<Integer> selector = sequence(switchStmt.getSelector(), preds);
+      JumpTarget target = new JumpTarget(label, false, true);
+      jumpTargets.push(target);
+      List<Integer> exits = new ArrayList<>();
+      List<Integer> fallthrough = Collections.emptyList();
+      boolean hasDefault = false;
+      for (SwitchEntry entry : switchStmt.getEntries()) {
+        hasDefault |= entry.getLabels().isEmpty();
+        List<Integer> entryPreds = new ArrayList<>(selector);
+        entryPreds.addAll(fallthrough);
+        for (Statement inner : entry.getStatements()) {
+          entryPreds = visit(inner, entryPreds);
+        }
+        if (entry.getType() == SwitchEntry.Type.STATEMENT_GROUP) {
+          fallthrough = entryPreds;
+        } else {
+          // arrow labeled entries never fall through
+          exits.addAll(entryPreds);
+          fallthrough = Collections.emptyList();
+        }
+      }
+      jumpTargets.pop();
+      exits.addAll(fallthrough);
+      exits.addAll(target.breaks);
+      if (!hasDefault) {
+        exits.addAll(selector);
+      }
+      return exits;
+    }
+
+    private List<Integer> visitTry(TryStmt tryStmt, List<Integer> preds) {
+      for (Expression resource : tryStmt.getResources()) {
+        preds = sequence(resource, preds);
+      }
+
+      List<Integer> catchHeads = new ArrayList<>();
+      for (int i = 0; i < tryStmt.getCatchClauses().size(); i++) {
+        catchHeads.add(addNode(null));
+      }
+      int firstTryNode = size();
+      if (!catchHeads.isEmpty()) {
+        catchingTryDepth++;
+      }
+      List<Integer> exits = new ArrayList<>(visit(tryStmt.getTryBlock(), preds));
+      if (!catchHeads.isEmpty()) {
+        catchingTryDepth--;
+        // any node of the try block may throw before or after it is evaluated
+        List<Integer> throwing = new ArrayList<>(preds);
+        for (int node = firstTryNode; node < size(); node++) {
+          throwing.add(node);
+        }
+        for (int catchHead : catchHeads) {
+          link(throwing, catchHead);
+        }
+      }
+      for (int i = 0; i < catchHeads.size(); i++) {
+        exits.addAll(
+            visit(tryStmt.getCatchClauses().get(i).getBody(), List.of(catchHeads.get(i))));
+      }
+
+      if (tryStmt.getFinallyBlock().isPresent()) {
+        return visit(tryStmt.getFinallyBlock().get(), exits);
+      }
+      return exits;
+    }
+
+    /** Adds a node evaluating an element after the given nodes. */
+    private List<Integer> sequence(Node element, List<Integer> preds) {
+      int node = addNode(element);
+      link(preds, node);
+      return List.of(node);
+    }
+
+    private JumpTarget enterLoop(String label) {
+      JumpTarget target = new JumpTarget(label, true, false);
+      jumpTargets.push(target);
+      return target;
+    }
+
+    private List<Integer> exitLoop(JumpTarget target, int continueNode, List<Integer> exits) {
+      jumpTargets.pop();
+      link(target.continues, continueNode);
+      List<Integer> loopExits = new ArrayList<>(exits);
+      loopExits.addAll(target.breaks);
+      return loopExits;
+    }
+
+    private JumpTarget findJumpTarget(String label, boolean isContinue) {
+      for (JumpTarget target : jumpTargets) {
+        if (label == null
+            ? target.isLoop || (target.isSwitch && !isContinue)
+            : label.equals(target.label)) {
+          return target;
+        }
+      }
+      return null;
+    }
+  }
+}
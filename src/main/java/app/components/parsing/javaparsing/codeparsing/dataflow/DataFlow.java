@@ -3,12 +3,17 @@ package app.components.parsing.javaparsing.codeparsing.dataflow;
 import app.components.parsing.javaparsing.codeparsing.PatternDetector;
 import app.components.parsing.javaparsing.detectors.BetweenTwoMethodsDetector;
 import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.MethodDeclaration;
 import com.github.javaparser.ast.expr.Expression;
 import com.github.javaparser.ast.expr.MethodCallExpr;
+import java.util.Optional;
 
 public class DataFlow {
   /**
-   * Checks if there is data flow between two methods
+   * Checks if there is data flow between two methods with a {@link TaintAnalysis}. The analysis
+   * answers the queries of all dataflow-enabled patterns of the compilation unit at once, so only
+   * the first pattern runs it. If the analysis fails on an unexpected AST, the data flow is checked
+   * by the {@link BetweenTwoMethodsDetector}.
    *
    * @param AST Abstract Syntax Tree of the source code
    * @param startExpr The starting expression of the data flow
@@ -29,7 +34,26 @@ public class DataFlow {
       return false;
     }
 
+    try {
+      Optional<DataFlowResult> result =
+          TaintAnalysis.getResult(
+              AST,
+              new TaintAnalysis.Query(startExpr.getNameAsString(), endExpr.getNameAsString()));
+      result.ifPresent(dataFlowResult -> dataFlowResult.applyTo(patternDetector));
+      return result.isPresent();
+    } catch (RuntimeException e) {
+      System.err.println(
+          "Error while analyzing dataflow between \""
+              + startExpr.getNameAsString()
+              + "\" and \""
+              + endExpr.getNameAsString()
+              + "\", falling back to the basic dataflow check: "
+              + e.getMessage());
+    }
+
     if (isDirectArgument(startExpr, endExpr)) {
+      patternDetector.setMethodDeclaration(
+          endExpr.findAncestor(MethodDeclaration.class).orElse(null));
       return true;
     }
 
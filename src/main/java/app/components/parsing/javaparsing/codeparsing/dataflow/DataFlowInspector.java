@@ -9,7 +9,7 @@ import com.github.javaparser.ast.expr.Expression;
 import com.github.javaparser.ast.expr.MethodCallExpr;
 import com.github.javaparser.ast.expr.NameExpr;
 import com.github.javaparser.ast.expr.VariableDeclarationExpr;
-import java.util.List;
+import java.util.Collection;
 import java.util.Optional;
 
 /**
@@ -30,7 +30,7 @@ public class DataFlowInspector {
   public static Optional<String> checkAssignExpressionDataFlow(
       AssignExpr assignExpr,
       MethodCallExpr startExpr,
-      List<String> variablesOfInterest,
+      Collection<String> variablesOfInterest,
       DataFlowGraphGenerator dataFlowGraphGenerator) {
     // Right side of the expression: Variable's name or Method Call Expression
     Expression right = assignExpr.getValue();
@@ -119,7 +119,7 @@ public class DataFlowInspector {
   public static Optional<String> checkVariableDelacartionExpressionDataFlow(
       VariableDeclarationExpr variableDeclarationExpr,
       MethodCallExpr startExpr,
-      List<String> variablesOfInterest,
+      Collection<String> variablesOfInterest,
       DataFlowGraphGenerator dataFlowGraphGenerator) {
     for (VariableDeclarator variableDeclarator : variableDeclarationExpr.getVariables()) {
       // Left side: Variable's name
@@ -201,7 +201,7 @@ public class DataFlowInspector {
   public static boolean checkDataFlow(
       MethodCallExpr currentExpr,
       MethodCallExpr targetExpr,
-      List<String> variablesOfInterest,
+      Collection<String> variablesOfInterest,
       DataFlowGraphGenerator dataFlowGraphGenerator) {
 
     if (ExpressionInspector.checkIfTwoMethodsAreEqual(currentExpr, targetExpr)) {
@@ -0,0 +1,132 @@
+package app.components.parsing.javaparsing.codeparsing.dataflow;
+
+import app.components.parsing.javaparsing.codeparsing.PatternDetector;
+import app.utils.DataFlowGraphGenerator;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.expr.Expression;
+import com.github.javaparser.ast.expr.MethodCallExpr;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The data flow found between two methods: the expressions data flows through, the method
+ * declaration it ends in, and the edges of its graph.
+ */
+public class DataFlowResult {
+
+  private final String startMethodName, endMethodName;
+  private final MethodDeclaration methodDeclaration;
+  private final List<Expression> path = new ArrayList<>();
+  private final List<Step> steps = new ArrayList<>();
+
+  DataFlowResult(
+      String startMethodName, String endMethodName, MethodDeclaration methodDeclaration) {
+    this.startMethodName = startMethodName;
+    this.endMethodName = endMethodName;
+    this.methodDeclaration = methodDeclaration;
+  }
+
+  /**
+   * Adds a step to the data flow.
+   *
+   * @param expression The expression data flows through.
+   * @param variable The variable the data flows into, or null if it flows into the ending method.
+   * @param isFromStart true if the data comes from the starting method.
+   * @param fromVariables The variables the data comes from.
+   */
+  void addStep(
+      Expression expression, String variable, boolean isFromStart, List<String> fromVariables) {
+    path.add(expression);
+    steps.add(new Step(variable, false, isFromStart, fromVariables));
+  }
+
+  /**
+   * Adds the call of a method declaration which passes the data on to the ending method.
+   *
+   * @param call The call of the method declaration.
+   * @param sink The call of the ending method in the called declaration, or in its callees.
+   * @param isFromStart true if the data comes from the starting method.
+   * @param fromVariables The variables the data comes from.
+   */
+  void addCallStep(
+      MethodCallExpr call, MethodCallExpr sink, boolean isFromStart, List<String> fromVariables) {
+    path.add(call);
+    steps.add(new Step(call.getNameAsString(), true, isFromStart, fromVariables));
+    path.add(sink);
+    steps.add(new Step(null, false, false, List.of(call.getNameAsString())));
+  }
+
+  public List<Expression> getPath() {
+    return path;
+  }
+
+  public MethodDeclaration getMethodDeclaration() {
+    return methodDeclaration;
+  }
+
+  /**
+   * Passes the data flow path, a new graph of it and the method declaration it ends in to a
+   * pattern detector, so every pattern found gets its own graph.
+   *
+   * @param patternDetector The {@link PatternDetector} the data flow was found for.
+   */
+  public void applyTo(PatternDetector patternDetector) {
+    path.forEach(patternDetector::updateDataFlowPath);
+    patternDetector.setDataFlowGraphGenerator(generateGraph());
+    patternDetector.setMethodDeclaration(methodDeclaration);
+  }
+
+  /**
+   * @return A new {@link DataFlowGraphGenerator} with the methods, variables and edges of the data
+   *     flow.
+   */
+  public DataFlowGraphGenerator generateGraph() {
+    DataFlowGraphGenerator dataFlowGraphGenerator = new DataFlowGraphGenerator();
+    Set<String> methods = new HashSet<>();
+    for (Step step : steps) {
+      String to = step.variable;
+      if (to == null) {
+        to = endMethodName;
+        addMethod(dataFlowGraphGenerator, methods, endMethodName);
+      } else if (step.isCall) {
+        addMethod(dataFlowGraphGenerator, methods, to);
+      } else {
+        dataFlowGraphGenerator.addVariable(to, to);
+      }
+      if (step.isFromStart) {
+        addMethod(dataFlowGraphGenerator, methods, startMethodName);
+        dataFlowGraphGenerator.addEdge(startMethodName, to, "");
+      }
+      for (String fromVariable : step.fromVariables) {
+        dataFlowGraphGenerator.addEdge(fromVariable, to, "");
+      }
+    }
+    return dataFlowGraphGenerator;
+  }
+
+  private static void addMethod(
+      DataFlowGraphGenerator dataFlowGraphGenerator, Set<String> methods, String method) {
+    if (methods.add(method)) {
+      dataFlowGraphGenerator.addMethod(method, method + "()");
+    }
+  }
+
+  /**
+   * A single edge set of the data flow graph, into a variable, a called method declaration or the
+   * ending method.
+   */
+  private static class Step {
+    private final String variable;
+    private final boolean isCall, isFromStart;
+    private final List<String> fromVariables;
+
+    private Step(String variable, boolean isCall, boolean isFromStart, List<String> fromVariables) {
+      this.variable = variable;
+      this.isCall = isCall;
+      this.isFromStart = isFromStart;
+      this.fromVariables = fromVariables;
+    }
+  }
+}
@@ -0,0 +1,869 @@
+package app.components.parsing.javaparsing.codeparsing.dataflow;
+
+import app.components.parsing.javaparsing.codeparsing.dataflow.CompilationUnitFacts.MethodFacts;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.DataKey;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.Parameter;
+import com.github.javaparser.ast.body.VariableDeclarator;
+import com.github.javaparser.ast.expr.ArrayAccessExpr;
+import com.github.javaparser.ast.expr.ArrayCreationExpr;
+import com.github.javaparser.ast.expr.ArrayInitializerExpr;
+import com.github.javaparser.ast.expr.AssignExpr;
+import com.github.javaparser.ast.expr.BinaryExpr;
+import com.github.javaparser.ast.expr.CastExpr;
+import com.github.javaparser.ast.expr.ConditionalExpr;
+import com.github.javaparser.ast.expr.EnclosedExpr;
+import com.github.javaparser.ast.expr.Expression;
+import com.github.javaparser.ast.expr.FieldAccessExpr;
+import com.github.javaparser.ast.expr.MethodCallExpr;
+import com.github.javaparser.ast.expr.NameExpr;
+import com.github.javaparser.ast.expr.ObjectCreationExpr;
+import com.github.javaparser.ast.expr.ThisExpr;
+import com.github.javaparser.ast.expr.UnaryExpr;
+import com.github.javaparser.ast.expr.VariableDeclarationExpr;
+import com.github.javaparser.ast.stmt.ForEachStmt;
+import com.github.javaparser.ast.stmt.ReturnStmt;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Checks if there is data flow between pairs of methods by running a taint analysis on the {@link
+ * ControlFlowGraph} of every method declaration which may contain the data flow.
+ *
+ * <p>All pairs of a compilation unit are answered by a single propagation. A taint fact is a
+ * variable together with the {@link Query} whose starting method its data comes from, so a variable
+ * tainted by {@code getIntent()} is tracked once for every query starting with it. The facts
+ * holding before every node are kept in a {@link BitSet}, and a node is visited again only if the
+ * facts flowing into it grow, until a fixpoint is reached. Data flows through assignments,
+ * declarations, string concatenation, casts, conditional expressions and method calls with a
+ * tainted scope or argument, and assigning an untainted value to a variable removes its taint. A
+ * query is answered as soon as a value tainted for it reaches an argument of its ending method,
+ * and the analysis stops once all queries are answered.
+ *
+ * <p>Fields are tracked across method declarations: every field tainted in one method declaration
+ * is tainted at the start of all method declarations analyzed after it.
+ *
+ * <p>Data is also tracked through the method declarations of the compilation unit which are called
+ * by the analyzed ones, as resolved by its {@link CallGraph}. The first time a declaration is
+ * called, its taint summary is computed and memoized: which parameters flow into its return value
+ * or into an argument of an ending method, and which queries its return value is tainted for by
+ * its own calls of starting methods. A call of the declaration applies the summary instead of
+ * analyzing the declaration again, so every declaration is analyzed at most once for its summary.
+ * Calls of a declaration whose summary is still being computed, i.e. recursive calls, are treated
+ * like calls of unknown methods.
+ */
+public class TaintAnalysis {
+
+  private static final DataKey<Collection<Query>> QUERIES_KEY =
+      new DataKey<Collection<Query>>() {};
+  private static final DataKey<Map<Query, Optional<DataFlowResult>>> RESULTS_KEY =
+      new DataKey<Map<Query, Optional<DataFlowResult>>>() {};
+
+  private final List<Query> queries;
+  private final int queryCount;
+  private final Map<String, BitSet> startQueries = new HashMap<>();
+  private final Map<String, BitSet> endQueries = new HashMap<>();
+  private final BitSet activeQueries = new BitSet();
+  private final DataFlowResult[] results;
+  private final Map<String, Definition[]> fieldDefinitions = new LinkedHashMap<>();
+  private final Map<MethodFacts, MethodSummary> summaries = new IdentityHashMap<>();
+  private int fieldFactCount = 0;
+  private CallGraph callGraph;
+  private Set<MethodFacts> sourceCallers;
+
+  /**
+   * @param queries The pairs of methods to check the data flow between.
+   */
+  public TaintAnalysis(List<Query> queries) {
+    this.queries = queries;
+    this.queryCount = queries.size();
+    this.results = new DataFlowResult[queryCount];
+    for (int query = 0; query < queryCount; query++) {
+      startQueries
+          .computeIfAbsent(queries.get(query).getStartMethodName(), key -> new BitSet())
+          .set(query);
+      endQueries
+          .computeIfAbsent(queries.get(query).getEndMethodName(), key -> new BitSet())
+          .set(query);
+    }
+  }
+
+  /**
+   * Sets the queries of all dataflow-enabled patterns of a compilation unit. The first time the
+   * result of a query is requested, all of them are answered together.
+   *
+   * @param AST The {@link CompilationUnit} the patterns are detected in.
+   * @param queries The {@link Query} objects of all dataflow-enabled patterns.
+   */
+  public static void setQueries(CompilationUnit AST, Collection<Query> queries) {
+    AST.setData(QUERIES_KEY, queries);
+  }
+
+  /**
+   * Returns the data flow between a pair of methods in a compilation unit. If the query has not
+   * been answered yet, it is answered together with all queries set by {@link
+   * #setQueries(CompilationUnit, Collection)}, and the results are kept on the compilation unit.
+   *
+   * @param AST The {@link CompilationUnit} to check the data flow in.
+   * @param query The {@link Query} to answer.
+   * @return The {@link DataFlowResult}, or an empty {@link Optional} if there is no data flow.
+   */
+  public static Optional<DataFlowResult> getResult(CompilationUnit AST, Query query) {
+    if (!AST.containsData(RESULTS_KEY)) {
+      AST.setData(RESULTS_KEY, new HashMap<>());
+    }
+    Map<Query, Optional<DataFlowResult>> results = AST.getData(RESULTS_KEY);
+    if (!results.containsKey(query)) {
+      Set<Query> pending = new LinkedHashSet<>();
+      pending.add(query);
+      if (AST.containsData(QUERIES_KEY)) {
+        pending.addAll(AST.getData(QUERIES_KEY));
+      }
+      pending.removeAll(results.keySet());
+      results.putAll(new TaintAnalysis(new ArrayList<>(pending)).analyze(AST));
+    }
+    return results.get(query);
+  }
+
+  /**
+   * Checks if there is data flow between the pairs of methods.
+   *
+   * @param AST Abstract Syntax Tree of the source code
+   * @return The {@link DataFlowResult} of every {@link Query}, empty if there is no data flow.
+   */
+  public Map<Query, Optional<DataFlowResult>> analyze(CompilationUnit AST) {
+    CompilationUnitFacts facts = CompilationUnitFacts.of(AST);
+    for (int query = 0; query < queryCount; query++) {
+      Query pair = queries.get(query);
+      if (!facts.getCallSites(pair.getStartMethodName()).isEmpty()
+          && !facts.getCallSites(pair.getEndMethodName()).isEmpty()) {
+        activeQueries.set(query);
+      }
+    }
+
+    if (activeQueries.isEmpty()) {
+      return getAnswers();
+    }
+    callGraph = facts.getCallGraph();
+    sourceCallers = callGraph.getTransitiveCallers(getActiveMethodNames(startQueries));
+    Set<MethodFacts> sinkCallers = callGraph.getTransitiveCallers(getActiveMethodNames(endQueries));
+
+    // analyze the method declarations again while they taint new fields
+    Map<MethodFacts, Integer> analyzedFieldCounts = new IdentityHashMap<>();
+    boolean isFieldTainted = true;
+    while (isFieldTainted) {
+      isFieldTainted = false;
+      for (MethodFacts methodFacts : facts.getMethods()) {
+        if (!sourceCallers.contains(methodFacts)
+            && (fieldFactCount == 0 || !sinkCallers.contains(methodFacts))) {
+          // neither can data flow start in the method declaration, nor reach an ending method
+          continue;
+        }
+        Integer analyzedFieldCount = analyzedFieldCounts.put(methodFacts, fieldFactCount);
+        if (analyzedFieldCount != null && analyzedFieldCount == fieldFactCount) {
+          continue;
+        }
+        int fieldCount = fieldFactCount;
+        new MethodAnalysis(methodFacts, null).run();
+        if (activeQueries.isEmpty()) {
+          break;
+        }
+        isFieldTainted |= fieldFactCount > fieldCount;
+      }
+    }
+    return getAnswers();
+  }
+
+  private Map<Query, Optional<DataFlowResult>> getAnswers() {
+    Map<Query, Optional<DataFlowResult>> answers = new HashMap<>();
+    for (int query = 0; query < queryCount; query++) {
+      answers.put(queries.get(query), Optional.ofNullable(results[query]));
+    }
+    return answers;
+  }
+
+  private List<String> getActiveMethodNames(Map<String, BitSet> methodQueries) {
+    List<String> methodNames = new ArrayList<>();
+    methodQueries.forEach(
+        (methodName, methodQueryBits) -> {
+          if (methodQueryBits.intersects(activeQueries)) {
+            methodNames.add(methodName);
+          }
+        });
+    return methodNames;
+  }
+
+  /**
+   * Returns the taint summary of a method declaration, computing it on the first request.
+   *
+   * @param callee The {@link MethodFacts} of the called declaration.
+   * @return The {@link MethodSummary}, or null while it is being computed.
+   */
+  private MethodSummary getSummary(MethodFacts callee) {
+    if (summaries.containsKey(callee)) {
+      return summaries.get(callee);
+    }
+    MethodSummary summary = new MethodSummary();
+    if (!callee.getMethodDeclaration().getParameters().isEmpty()
+        || sourceCallers.contains(callee)) {
+      summaries.put(callee, null);
+      new MethodAnalysis(callee, summary).run();
+    }
+    summaries.put(callee, summary);
+    return summary;
+  }
+
+  /** A pair of methods to check the data flow between. */
+  public static class Query {
+    private final String startMethodName, endMethodName;
+
+    /**
+     * @param startMethodName The name of the method starting the data flow.
+     * @param endMethodName The name of the method potentially receiving the data.
+     */
+    public Query(String startMethodName, String endMethodName) {
+      this.startMethodName = startMethodName;
+      this.endMethodName = endMethodName;
+    }
+
+    public String getStartMethodName() {
+      return startMethodName;
+    }
+
+    public String getEndMethodName() {
+      return endMethodName;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof Query)) {
+        return false;
+      }
+      Query query = (Query) obj;
+      return startMethodName.equals(query.startMethodName)
+          && endMethodName.equals(query.endMethodName);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(startMethodName, endMethodName);
+    }
+
+    @Override
+    public String toString() {
+      return startMethodName + " -> " + endMethodName;
+    }
+  }
+
+  /**
+   * The taint summary of a method declaration, independent of the values it is called with.
+   * Parameters are numbered by their position.
+   */
+  private static class MethodSummary {
+    private final BitSet returnQueries = new BitSet();
+    private final BitSet returnedParameters = new BitSet();
+    private final Map<Integer, Map<Integer, MethodCallExpr>> parameterSinks = new HashMap<>();
+
+    private void addSink(int parameter, int query, MethodCallExpr sink) {
+      parameterSinks.computeIfAbsent(parameter, key -> new HashMap<>()).putIfAbsent(query, sink);
+    }
+  }
+
+  /**
+   * The first definition of a taint fact, i.e. the expression which tainted the variable and the
+   * variables or the starting method its data came from.
+   */
+  private static class Definition {
+    private final Expression expression;
+    private final Origin origin;
+
+    private Definition(Expression expression, Origin origin) {
+      this.expression = expression;
+      this.origin = origin;
+    }
+  }
+
+  /**
+   * The labels an expression is tainted by: the queries whose starting method it calls, and the
+   * labels of the tainted variables it uses.
+   */
+  private static class Origin {
+    private final BitSet startQueries = new BitSet();
+    private final Map<String, BitSet> variables = new LinkedHashMap<>();
+
+    private BitSet getLabels() {
+      BitSet labels = (BitSet) startQueries.clone();
+      variables.values().forEach(labels::or);
+      return labels;
+    }
+
+    private List<String> getVariables(int query) {
+      List<String> queryVariables = new ArrayList<>();
+      variables.forEach(
+          (variable, labels) -> {
+            if (labels.get(query)) {
+              queryVariables.add(variable);
+            }
+          });
+      return queryVariables;
+    }
+  }
+
+  /**
+   * The taint analysis of a single method declaration. The facts are labeled by the queries whose
+   * data they carry, and when a summary is computed, also by the parameters whose data they carry.
+   */
+  private class MethodAnalysis {
+    private final MethodFacts methodFacts;
+    private final MethodSummary summary;
+    private final ControlFlowGraph graph;
+    private final int labelCount;
+    private final BitSet activeLabels;
+    private final Map<String, Integer> variableIds = new HashMap<>();
+    private final List<String> variables = new ArrayList<>();
+    private final Map<Integer, Definition> definitions = new LinkedHashMap<>();
+
+    /**
+     * @param methodFacts The {@link MethodFacts} of the analyzed declaration.
+     * @param summary The {@link MethodSummary} to compute, or null to answer the queries.
+     */
+    private MethodAnalysis(MethodFacts methodFacts, MethodSummary summary) {
+      this.methodFacts = methodFacts;
+      this.summary = summary;
+      this.graph = methodFacts.getControlFlowGraph();
+      if (summary == null) {
+        this.labelCount = queryCount;
+        this.activeLabels = activeQueries;
+      } else {
+        this.labelCount = queryCount + methodFacts.getMethodDeclaration().getParameters().size();
+        this.activeLabels = (BitSet) activeQueries.clone();
+        this.activeLabels.set(queryCount, labelCount);
+      }
+    }
+
+    /** Runs the worklist algorithm until a fixpoint is reached or all queries are answered. */
+    private void run() {
+      BitSet[] taintedBefore = new BitSet[graph.size()];
+      Deque<Integer> worklist = new ArrayDeque<>();
+      boolean[] isQueued = new boolean[graph.size()];
+      BitSet entryTainted = summary == null ? getFieldFacts() : getParameterFacts();
+      if (!entryTainted.isEmpty()) {
+        taintedBefore[ControlFlowGraph.ENTRY] = entryTainted;
+        worklist.add(ControlFlowGraph.ENTRY);
+        isQueued[ControlFlowGraph.ENTRY] = true;
+      }
+      // taint may also start without any taint facts in the nodes calling a starting method
+      for (int node = 0; node < graph.size(); node++) {
+        if (!isQueued[node] && callsStartMethod(node)) {
+          taintedBefore[node] = new BitSet();
+          worklist.add(node);
+          isQueued[node] = true;
+        }
+      }
+
+      while (!worklist.isEmpty()) {
+        int node = worklist.poll();
+        isQueued[node] = false;
+        BitSet tainted = taintedBefore[node];
+        if (tainted.isEmpty() && !callsStartMethod(node)) {
+          // no variables are tainted after the node, which does not need to be passed on
+          continue;
+        }
+        tainted = (BitSet) tainted.clone();
+        if (transfer(node, tainted)) {
+          return;
+        }
+        for (int successor : graph.getSuccessors(node)) {
+          BitSet successorTainted = taintedBefore[successor];
+          if (successorTainted == null) {
+            taintedBefore[successor] = (BitSet) tainted.clone();
+          } else if (isSubset(tainted, successorTainted)) {
+            continue;
+          } else {
+            successorTainted.or(tainted);
+          }
+          if (!isQueued[successor]) {
+            worklist.add(successor);
+            isQueued[successor] = true;
+          }
+        }
+      }
+    }
+
+    /**
+     * @return The taint facts of the fields tainted by the method declarations analyzed before.
+     */
+    private BitSet getFieldFacts() {
+      BitSet tainted = new BitSet();
+      for (Map.Entry<String, Definition[]> field : fieldDefinitions.entrySet()) {
+        int id = getVariableId(field.getKey());
+        for (int query = 0; query < queryCount; query++) {
+          if (field.getValue()[query] != null && activeQueries.get(query)) {
+            tainted.set(getFact(id, query));
+            definitions.put(getFact(id, query), field.getValue()[query]);
+          }
+        }
+      }
+      return tainted;
+    }
+
+    /**
+     * @return The taint facts of the parameters, every parameter labeled by its own position.
+     */
+    private BitSet getParameterFacts() {
+      BitSet tainted = new BitSet();
+      List<Parameter> parameters = methodFacts.getMethodDeclaration().getParameters();
+      for (int parameter = 0; parameter < parameters.size(); parameter++) {
+        int id = getVariableId(parameters.get(parameter).getNameAsString());
+        tainted.set(getFact(id, queryCount + parameter));
+      }
+      return tainted;
+    }
+
+    /**
+     * Updates the taint facts by the expressions of a node in evaluation order.
+     *
+     * @param node The index of the node.
+     * @param tainted The taint facts before the node, updated to the ones after it.
+     * @return true if all queries are answered, false otherwise.
+     */
+    private boolean transfer(int node, BitSet tainted) {
+      Node element = graph.getElement(node);
+      if (element instanceof ForEachStmt) {
+        // the loop variable is declared by the head of the loop, after the iterable
+        ForEachStmt forEachStmt = (ForEachStmt) element;
+        if (transfer(graph.getEvaluatedNodes(node), tainted)) {
+          return true;
+        }
+        Origin origin = getOrigin(forEachStmt.getIterable(), tainted);
+        for (VariableDeclarator variable : forEachStmt.getVariable().getVariables()) {
+          define(variable.getNameAsString(), forEachStmt.getVariable(), origin, true, tainted);
+        }
+        return false;
+      }
+      if (transfer(graph.getEvaluatedNodes(node), tainted)) {
+        return true;
+      }
+      if (summary != null
+          && element instanceof Expression
+          && element.getParentNode().filter(parent -> parent instanceof ReturnStmt).isPresent()) {
+        BitSet labels = getOrigin((Expression) element, tainted).getLabels();
+        summary.returnQueries.or(labels.get(0, queryCount));
+        summary.returnedParameters.or(labels.get(queryCount, labelCount));
+      }
+      return false;
+    }
+
+    private boolean transfer(List<Node> evaluatedNodes, BitSet tainted) {
+      for (Node node : evaluatedNodes) {
+        if (node instanceof VariableDeclarator) {
+          VariableDeclarator variable = (VariableDeclarator) node;
+          Origin origin =
+              variable.getInitializer().map(init -> getOrigin(init, tainted)).orElse(new Origin());
+          Expression definition =
+              variable
+                  .getParentNode()
+                  .filter(parent -> parent instanceof VariableDeclarationExpr)
+                  .map(parent -> (Expression) parent)
+                  .orElse(variable.getInitializer().orElse(null));
+          define(variable.getNameAsString(), definition, origin, true, tainted);
+        } else if (node instanceof AssignExpr) {
+          transferAssignment((AssignExpr) node, tainted);
+        } else if (node instanceof MethodCallExpr && checkSink((MethodCallExpr) node, tainted)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    private void transferAssignment(AssignExpr assignExpr, BitSet tainted) {
+      Expression target = assignExpr.getTarget();
+      boolean isArrayElement = target instanceof ArrayAccessExpr;
+      String variable = getVariable(isArrayElement ? target.asArrayAccessExpr().getName() : target);
+      if (variable != null) {
+        // the variable is overwritten, only a single element of an array is
+        boolean isOverwritten =
+            assignExpr.getOperator() == AssignExpr.Operator.ASSIGN && !isArrayElement;
+        Origin origin = getOrigin(assignExpr.getValue(), tainted);
+        define(variable, assignExpr, origin, isOverwritten, tainted);
+      }
+    }
+
+    /**
+     * Checks whether tainted arguments reach an ending method, either by a call of the ending
+     * method itself or by a call of a declaration whose summary passes them on to one.
+     *
+     * @param methodCall A method call.
+     * @param tainted The taint facts before the call.
+     * @return true if all queries are answered, false otherwise.
+     */
+    private boolean checkSink(MethodCallExpr methodCall, BitSet tainted) {
+      BitSet sinkQueries = endQueries.get(methodCall.getNameAsString());
+      if (sinkQueries != null) {
+        for (Expression argument : methodCall.getArguments()) {
+          if (reachSink(getOrigin(argument, tainted), sinkQueries, methodCall, null)) {
+            return true;
+          }
+        }
+        return false;
+      }
+
+      MethodFacts callee = callGraph.resolve(methodCall);
+      MethodSummary calleeSummary = callee == null ? null : getSummary(callee);
+      if (calleeSummary == null || calleeSummary.parameterSinks.isEmpty()) {
+        return false;
+      }
+      int parameterCount = callee.getMethodDeclaration().getParameters().size();
+      for (int argument = 0; argument < methodCall.getArguments().size(); argument++) {
+        Map<Integer, MethodCallExpr> sinks =
+            calleeSummary.parameterSinks.get(Math.min(argument, parameterCount - 1));
+        if (sinks == null) {
+          continue;
+        }
+        BitSet parameterQueries = new BitSet();
+        sinks.keySet().forEach(parameterQueries::set);
+        Origin origin = getOrigin(methodCall.getArgument(argument), tainted);
+        if (reachSink(origin, parameterQueries, methodCall, sinks)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    /**
+     * Answers the queries a value reaching an ending method is tainted for, or adds the parameters
+     * it is tainted by to the sinks of the summary.
+     *
+     * @param origin The {@link Origin} of the value.
+     * @param sinkQueries The queries ending with the method the value reaches.
+     * @param methodCall The call the value is passed to.
+     * @param sinks The calls of ending methods of each query the called declaration passes the
+     *     value to, or null if {@code methodCall} calls the ending method itself.
+     * @return true if all queries are answered, false otherwise.
+     */
+    private boolean reachSink(
+        Origin origin,
+        BitSet sinkQueries,
+        MethodCallExpr methodCall,
+        Map<Integer, MethodCallExpr> sinks) {
+      BitSet labels = origin.getLabels();
+      if (summary != null) {
+        for (int label = labels.nextSetBit(queryCount);
+            label >= 0;
+            label = labels.nextSetBit(label + 1)) {
+          for (int query = sinkQueries.nextSetBit(0);
+              query >= 0;
+              query = sinkQueries.nextSetBit(query + 1)) {
+            summary.addSink(
+                label - queryCount, query, sinks == null ? methodCall : sinks.get(query));
+          }
+        }
+        return false;
+      }
+
+      labels.and(sinkQueries);
+      labels.and(activeQueries);
+      for (int query = labels.nextSetBit(0); query >= 0; query = labels.nextSetBit(query + 1)) {
+        MethodCallExpr calleeSink = sinks == null ? null : sinks.get(query);
+        results[query] = createResult(query, methodCall, calleeSink, origin);
+        activeQueries.clear(query);
+      }
+      return activeQueries.isEmpty();
+    }
+
+    /**
+     * Taints a variable for the labels its assigned value is tainted for, and remembers the first
+     * expression which tainted it for each of them.
+     *
+     * @param variable The variable.
+     * @param expression The expression assigning the variable.
+     * @param origin The {@link Origin} of the assigned value.
+     * @param isOverwritten true if the taint facts of the previous value are removed.
+     * @param tainted The taint facts to update.
+     */
+    private void define(
+        String variable,
+        Expression expression,
+        Origin origin,
+        boolean isOverwritten,
+        BitSet tainted) {
+      int id = getVariableId(variable);
+      if (isOverwritten) {
+        tainted.clear(getFact(id, 0), getFact(id + 1, 0));
+      }
+      BitSet labels = origin.getLabels();
+      labels.and(activeLabels);
+      for (int label = labels.nextSetBit(0); label >= 0; label = labels.nextSetBit(label + 1)) {
+        int fact = getFact(id, label);
+        tainted.set(fact);
+        if (definitions.containsKey(fact)) {
+          continue;
+        }
+        Definition definition = new Definition(expression, origin);
+        definitions.put(fact, definition);
+        if (summary == null && !isLocalVariable(variable)) {
+          Definition[] fieldDefinition =
+              fieldDefinitions.computeIfAbsent(variable, key -> new Definition[queryCount]);
+          if (fieldDefinition[label] == null) {
+            fieldDefinition[label] = definition;
+            fieldFactCount++;
+          }
+        }
+      }
+    }
+
+    /**
+     * Collects the tainted variables and starting methods the value of an expression may come
+     * from.
+     *
+     * @param expr The expression.
+     * @param tainted The taint facts.
+     * @return The {@link Origin} of the value.
+     */
+    private Origin getOrigin(Expression expr, BitSet tainted) {
+      Origin origin = new Origin();
+      collectOrigin(expr, tainted, origin);
+      return origin;
+    }
+
+    private void collectOrigin(Expression expr, BitSet tainted, Origin origin) {
+      if (expr instanceof NameExpr || expr instanceof FieldAccessExpr) {
+        String variable = getVariable(expr);
+        BitSet labels = variable == null ? new BitSet() : getLabels(variable, tainted);
+        if (!labels.isEmpty()) {
+          origin.variables.computeIfAbsent(variable, key -> new BitSet()).or(labels);
+        }
+        if (expr instanceof FieldAccessExpr && !labels.equals(activeLabels)) {
+          collectOrigin(expr.asFieldAccessExpr().getScope(), tainted, origin);
+        }
+      } else if (expr instanceof MethodCallExpr) {
+        collectCallOrigin(expr.asMethodCallExpr(), tainted, origin);
+      } else if (expr instanceof ObjectCreationExpr) {
+        expr.asObjectCreationExpr()
+            .getArguments()
+            .forEach(argument -> collectOrigin(argument, tainted, origin));
+      } else if (expr instanceof ArrayAccessExpr) {
+        collectOrigin(expr.asArrayAccessExpr().getName(), tainted, origin);
+      } else if (expr instanceof ArrayCreationExpr) {
+        expr.asArrayCreationExpr()
+            .getInitializer()
+            .ifPresent(initializer -> collectOrigin(initializer, tainted, origin));
+      } else if (expr instanceof ArrayInitializerExpr) {
+        expr.asArrayInitializerExpr()
+            .getValues()
+            .forEach(value -> collectOrigin(value, tainted, origin));
+      } else if (expr instanceof CastExpr) {
+        collectOrigin(expr.asCastExpr().getExpression(), tainted, origin);
+      } else if (expr instanceof EnclosedExpr) {
+        collectOrigin(expr.asEnclosedExpr().getInner(), tainted, origin);
+      } else if (expr instanceof UnaryExpr) {
+        collectOrigin(expr.asUnaryExpr().getExpression(), tainted, origin);
+      } else if (expr instanceof BinaryExpr && isValueOperator(expr.asBinaryExpr())) {
+        collectOrigin(expr.asBinaryExpr().getLeft(), tainted, origin);
+        collectOrigin(expr.asBinaryExpr().getRight(), tainted, origin);
+      } else if (expr instanceof ConditionalExpr) {
+        collectOrigin(expr.asConditionalExpr().getThenExpr(), tainted, origin);
+        collectOrigin(expr.asConditionalExpr().getElseExpr(), tainted, origin);
+      } else if (expr instanceof AssignExpr) {
+        collectOrigin(expr.asAssignExpr().getValue(), tainted, origin);
+        if (expr.asAssignExpr().getOperator() != AssignExpr.Operator.ASSIGN) {
+          collectOrigin(expr.asAssignExpr().getTarget(), tainted, origin);
+        }
+      }
+    }
+
+    /**
+     * Collects the origin of the value returned by a method call. The value of a declaration of
+     * the compilation unit comes from the arguments and starting methods its summary returns, the
+     * value of any other method from its scope and all of its arguments.
+     */
+    private void collectCallOrigin(MethodCallExpr methodCall, BitSet tainted, Origin origin) {
+      BitSet methodQueries = startQueries.get(methodCall.getNameAsString());
+      if (methodQueries != null) {
+        origin.startQueries.or(methodQueries);
+      } else {
+        MethodFacts callee = callGraph.resolve(methodCall);
+        MethodSummary calleeSummary = callee == null ? null : getSummary(callee);
+        if (calleeSummary != null) {
+          origin.startQueries.or(calleeSummary.returnQueries);
+          int parameterCount = callee.getMethodDeclaration().getParameters().size();
+          for (int argument = 0; argument < methodCall.getArguments().size(); argument++) {
+            if (calleeSummary.returnedParameters.get(Math.min(argument, parameterCount - 1))) {
+              collectOrigin(methodCall.getArgument(argument), tainted, origin);
+            }
+          }
+          return;
+        }
+      }
+      methodCall.getScope().ifPresent(scope -> collectOrigin(scope, tainted, origin));
+      methodCall.getArguments().forEach(argument -> collectOrigin(argument, tainted, origin));
+    }
+
+    /**
+     * Creates the result of an answered query from the definitions of the variables its data
+     * flowed through, in the order they were tainted.
+     *
+     * @param query The answered query.
+     * @param sinkExpr The call the tainted value is passed to.
+     * @param calleeSink The call of the ending method the called declaration passes the value to,
+     *     or null if {@code sinkExpr} calls the ending method itself.
+     * @param sinkOrigin The {@link Origin} of the tainted value.
+     * @return The {@link DataFlowResult} of the query.
+     */
+    private DataFlowResult createResult(
+        int query, MethodCallExpr sinkExpr, MethodCallExpr calleeSink, Origin sinkOrigin) {
+      Set<String> pathVariables = new HashSet<>();
+      Deque<String> pending = new ArrayDeque<>(sinkOrigin.getVariables(query));
+      while (!pending.isEmpty()) {
+        String variable = pending.poll();
+        Definition definition = definitions.get(getFact(getVariableId(variable), query));
+        if (pathVariables.add(variable) && definition != null) {
+          pending.addAll(definition.origin.getVariables(query));
+        }
+      }
+
+      DataFlowResult result =
+          new DataFlowResult(
+              queries.get(query).getStartMethodName(),
+              queries.get(query).getEndMethodName(),
+              methodFacts.getMethodDeclaration());
+      for (Map.Entry<Integer, Definition> entry : definitions.entrySet()) {
+        String variable = variables.get(entry.getKey() / labelCount);
+        if (entry.getKey() % labelCount == query && pathVariables.contains(variable)) {
+          Origin origin = entry.getValue().origin;
+          result.addStep(
+              entry.getValue().expression,
+              variable,
+              origin.startQueries.get(query),
+              origin.getVariables(query));
+        }
+      }
+      boolean isFromStart = sinkOrigin.startQueries.get(query);
+      if (calleeSink == null) {
+        result.addStep(sinkExpr, null, isFromStart, sinkOrigin.getVariables(query));
+      } else {
+        result.addCallStep(sinkExpr, calleeSink, isFromStart, sinkOrigin.getVariables(query));
+      }
+      return result;
+    }
+
+    /**
+     * @return The labels a variable is tainted by.
+     */
+    private BitSet getLabels(String variable, BitSet tainted) {
+      Integer id = variableIds.get(variable);
+      return id == null ? new BitSet() : tainted.get(getFact(id, 0), getFact(id + 1, 0));
+    }
+
+    private boolean isSubset(BitSet subset, BitSet set) {
+      for (int id = subset.nextSetBit(0); id >= 0; id = subset.nextSetBit(id + 1)) {
+        if (!set.get(id)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private int getFact(int variableId, int label) {
+      return variableId * labelCount + label;
+    }
+
+    private int getVariableId(String variable) {
+      Integer id = variableIds.get(variable);
+      if (id == null) {
+        id = variables.size();
+        variableIds.put(variable, id);
+        variables.add(variable);
+      }
+      return id;
+    }
+
+    private boolean isLocalVariable(String variable) {
+      int scopeEnd = variable.indexOf('.');
+      return graph
+          .getLocalVariables()
+          .contains(scopeEnd < 0 ? variable : variable.substring(0, scopeEnd));
+    }
+
+    /**
+     * @return true if the node calls a starting method, or a declaration of the compilation unit
+     *     whose return value is tainted by one.
+     */
+    private boolean callsStartMethod(int node) {
+      for (Node evaluated : graph.getEvaluatedNodes(node)) {
+        if (!(evaluated instanceof MethodCallExpr)) {
+          continue;
+        }
+        MethodCallExpr methodCall = (MethodCallExpr) evaluated;
+        BitSet methodQueries = startQueries.get(methodCall.getNameAsString());
+        if (methodQueries != null && methodQueries.intersects(activeQueries)) {
+          return true;
+        }
+        MethodFacts callee = callGraph.resolve(methodCall);
+        if (methodQueries == null && callee != null && sourceCallers.contains(callee)) {
+          MethodSummary calleeSummary = getSummary(callee);
+          if (calleeSummary != null && calleeSummary.returnQueries.intersects(activeQueries)) {
+            return true;
+          }
+        }
+      }
+      return false;
+    }
+  }
+
+  /**
+   * Returns the variable an expression refers to. Fields accessed through "this" are named the
+   * same as fields accessed by their simple name.
+   *
+   * @param expr The expression.
+   * @return The name of the variable, or null if the expression is not a variable.
+   */
+  private static String getVariable(Expression expr) {
+    if (expr instanceof NameExpr) {
+      return expr.asNameExpr().getNameAsString();
+    } else if (expr instanceof FieldAccessExpr) {
+      FieldAccessExpr fieldAccess = expr.asFieldAccessExpr();
+      if (fieldAccess.getScope() instanceof ThisExpr
+          && !fieldAccess.getScope().asThisExpr().getTypeName().isPresent()) {
+        return fieldAccess.getNameAsString();
+      }
+      String scope = getVariable(fieldAccess.getScope());
+      return scope == null ? null : scope + "." + fieldAccess.getNameAsString();
+    }
+    return null;
+  }
+
+  /**
+   * @return false for comparisons and logical operators, whose boolean result does not carry the
+   *     data of their operands, true otherwise.
+   */
+  private static boolean isValueOperator(BinaryExpr binaryExpr) {
+    switch (binaryExpr.getOperator()) {
+      case OR:
+      case AND:
+      case EQUALS:
+      case NOT_EQUALS:
+      case LESS:
+      case GREATER:
+      case LESS_EQUALS:
+      case GREATER_EQUALS:
+        return false;
+      default:
+        return true;
+    }
+  }
+}
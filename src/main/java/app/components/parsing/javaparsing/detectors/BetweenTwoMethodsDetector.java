@@ -1,6 +1,9 @@
 package app.components.parsing.javaparsing.detectors;
 
 import app.components.parsing.javaparsing.codeparsing.PatternDetector;
+import app.components.parsing.javaparsing.codeparsing.dataflow.CompilationUnitFacts;
+import app.components.parsing.javaparsing.codeparsing.dataflow.CompilationUnitFacts.ExpressionFacts;
+import app.components.parsing.javaparsing.codeparsing.dataflow.CompilationUnitFacts.MethodFacts;
 import app.components.parsing.javaparsing.codeparsing.dataflow.DataFlowInspector;
 import app.utils.DataFlowGraphGenerator;
 import com.github.javaparser.ast.CompilationUnit;
@@ -9,15 +12,17 @@ import com.github.javaparser.ast.expr.AssignExpr;
 import com.github.javaparser.ast.expr.Expression;
 import com.github.javaparser.ast.expr.MethodCallExpr;
 import com.github.javaparser.ast.expr.VariableDeclarationExpr;
-import com.github.javaparser.ast.visitor.VoidVisitorAdapter;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.LinkedHashSet;
+import java.util.Set;
 
-/** Checks if there is data flow between two methods */
-public class BetweenTwoMethodsDetector extends VoidVisitorAdapter<Void> {
+/**
+ * Checks if there is data flow between two methods, using the {@link CompilationUnitFacts} shared
+ * by all patterns of a compilation unit.
+ */
+public class BetweenTwoMethodsDetector {
 
   private MethodCallExpr startExpr, endExpr;
-  private final List<String> variablesOfInterest = new ArrayList<>();
+  private final Set<String> variablesOfInterest = new LinkedHashSet<>();
   private boolean dataFlowFound, debug = false;
   private PatternDetector patternDetector;
   private DataFlowGraphGenerator dataFlowGraphGenerator = new DataFlowGraphGenerator();
@@ -46,54 +51,61 @@ public class BetweenTwoMethodsDetector extends VoidVisitorAdapter<Void> {
   }
 
   /**
-   * Visits the method declaration and checks if there is data flow between the two methods.
+   * Inspects the assignments, variable declarations and method calls of a method declaration in
+   * order and tracks the variables data flows into. The variables of interest are kept across
+   * method declarations. Expressions which can not carry data are skipped without inspection.
    *
-   * @param md The method declaration to be checked
-   * @param arg
+   * @param methodFacts The {@link MethodFacts} of the method declaration to be checked.
    */
-  @Override
-  public void visit(MethodDeclaration md, Void arg) {
-    super.visit(md, arg);
+  private void inspectMethod(MethodFacts methodFacts) {
+    MethodDeclaration md = methodFacts.getMethodDeclaration();
+    String startMethodName = startExpr.getNameAsString();
+    if (variablesOfInterest.isEmpty() && !methodFacts.callsMethod(startMethodName)) {
+      // no data flow has started yet and it can not start in this method declaration
+      return;
+    }
 
-    md.findAll(Expression.class)
-        .forEach(
-            expr -> {
-              if (expr instanceof AssignExpr) {
-                DataFlowInspector.checkAssignExpressionDataFlow(
-                        (AssignExpr) expr, startExpr, variablesOfInterest, dataFlowGraphGenerator)
-                    .ifPresent(
-                        (expression) -> {
-                          variablesOfInterest.add(expression);
-                          patternDetector.updateDataFlowPath(expr);
-                        });
-              } else if (expr instanceof VariableDeclarationExpr) {
-                DataFlowInspector.checkVariableDelacartionExpressionDataFlow(
-                        (VariableDeclarationExpr) expr,
-                        startExpr,
-                        variablesOfInterest,
-                        dataFlowGraphGenerator)
-                    .ifPresent(
-                        (expression) -> {
-                          variablesOfInterest.add(expression);
-                          patternDetector.updateDataFlowPath(expr);
-                        });
-              } else if (expr instanceof MethodCallExpr) {
-                if (DataFlowInspector.checkDataFlow(
-                    (MethodCallExpr) expr, endExpr, variablesOfInterest, dataFlowGraphGenerator)) {
-                  dataFlowFound = true;
+    for (ExpressionFacts expressionFacts : methodFacts.getExpressions()) {
+      if (!expressionFacts.mayCarryDataFlow(variablesOfInterest, startMethodName)) {
+        continue;
+      }
+      Expression expr = expressionFacts.getExpression();
+      if (expr instanceof AssignExpr) {
+        DataFlowInspector.checkAssignExpressionDataFlow(
+                (AssignExpr) expr, startExpr, variablesOfInterest, dataFlowGraphGenerator)
+            .ifPresent(
+                (expression) -> {
+                  variablesOfInterest.add(expression);
+                  patternDetector.updateDataFlowPath(expr);
+                });
+      } else if (expr instanceof VariableDeclarationExpr) {
+        DataFlowInspector.checkVariableDelacartionExpressionDataFlow(
+                (VariableDeclarationExpr) expr,
+                startExpr,
+                variablesOfInterest,
+                dataFlowGraphGenerator)
+            .ifPresent(
+                (expression) -> {
+                  variablesOfInterest.add(expression);
                   patternDetector.updateDataFlowPath(expr);
-                }
-              }
-              if (debug) {
-                System.out.println(
-                    "Current iteration variablesOfInterest: " + variablesOfInterest.toString());
-              }
-              if (dataFlowFound) {
-                // save the method declaration in which the data flow was found
-                methodDeclaration = md;
-                return;
-              }
-            });
+                });
+      } else if (expr instanceof MethodCallExpr) {
+        if (DataFlowInspector.checkDataFlow(
+            (MethodCallExpr) expr, endExpr, variablesOfInterest, dataFlowGraphGenerator)) {
+          dataFlowFound = true;
+          patternDetector.updateDataFlowPath(expr);
+        }
+      }
+      if (debug) {
+        System.out.println(
+            "Current iteration variablesOfInterest: " + variablesOfInterest.toString());
+      }
+    }
+
+    if (dataFlowFound && methodFacts.hasExpressions()) {
+      // save the method declaration in which the data flow was found
+      methodDeclaration = md;
+    }
   }
 
   /**
@@ -103,7 +115,13 @@ public class BetweenTwoMethodsDetector extends VoidVisitorAdapter<Void> {
    * @return true if there is data flow between the two methods, false otherwise
    */
   public boolean checkDataFlow(CompilationUnit AST) {
-    this.visit(AST, null);
+    CompilationUnitFacts facts = CompilationUnitFacts.of(AST);
+    if (facts.getCallSites(startExpr.getNameAsString()).isEmpty()) {
+      return false;
+    }
+    for (MethodFacts methodFacts : facts.getMethods()) {
+      inspectMethod(methodFacts);
+    }
     if (dataFlowFound) {
       patternDetector.setDataFlowGraphGenerator(dataFlowGraphGenerator);
       patternDetector.setMethodDeclaration(methodDeclaration);
@@ -0,0 +1,32 @@
+package app.components.parsing.javaparsing.detectors;
+
+import java.util.Set;
+
+/**
+ * A method read from bytecode instead of decompiled source code. It only tells which methods are
+ * invoked and which types are created by the instructions of the method, which is enough to
+ * evaluate detectors that do not depend on arguments or data flow.
+ */
+public interface BytecodeMethod {
+
+  /**
+   * @return The binary name of the class declaring the method, e.g. "com.example.Main$1".
+   */
+  String getClassName();
+
+  /**
+   * @return The name of the method, e.g. "onCreate".
+   */
+  String getName();
+
+  /**
+   * @return The names of all methods invoked by the method.
+   */
+  Set<String> getInvokedMethods();
+
+  /**
+   * @return The binary names of all types the method creates instances of, e.g.
+   *     "java.util.Random".
+   */
+  Set<String> getCreatedTypes();
+}
@@ -1,5 +1,6 @@
 package app.components.parsing.javaparsing.detectors;
 
+import app.components.parsing.javaparsing.codeparsing.PatternDetector;
 import com.github.javaparser.ast.CompilationUnit;
 import com.github.javaparser.ast.expr.Expression;
 
@@ -9,4 +10,31 @@ public interface Detector {
   Expression getDetectedExpression();
 
   void reset();
+
+  /**
+   * Creates a new detector with the same configuration, but without any detection state.
+   *
+   * @param patternDetector The {@link PatternDetector} the new detector reports to.
+   * @return A copy of this detector.
+   */
+  Detector copy(PatternDetector patternDetector);
+
+  /**
+   * @return true if the detector can be evaluated on bytecode by {@link #matches(BytecodeMethod)},
+   *     so the source code does not have to be decompiled, false if it needs the AST.
+   */
+  default boolean isBytecodeDetector() {
+    return false;
+  }
+
+  /**
+   * Checks whether the bytecode of a method contains what the detector looks for, without changing
+   * any detection state. Only supported if {@link #isBytecodeDetector()} is true.
+   *
+   * @param method The {@link BytecodeMethod} to check.
+   * @return true if the method matches the detector, false otherwise.
+   */
+  default boolean matches(BytecodeMethod method) {
+    return false;
+  }
 }
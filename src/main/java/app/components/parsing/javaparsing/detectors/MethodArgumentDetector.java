@@ -23,6 +23,25 @@ public class MethodArgumentDetector extends MethodCallDetector {
     this.exactMatch = exactMatch;
   }
 
+  @Override
+  public MethodArgumentDetector copy(PatternDetector patternDetector) {
+    return new MethodArgumentDetector(
+        getMethodToDetect(), argumentPattern, exactMatch, patternDetector);
+  }
+
+  @Override
+  public boolean isMatch(MethodCallExpr expr) {
+    return isArgumentDetected(expr);
+  }
+
+  /**
+   * @return false, since the string literal arguments of a call are only known from the AST.
+   */
+  @Override
+  public boolean isBytecodeDetector() {
+    return false;
+  }
+
   /**
    * Handles the detected method call expression. If the method has argument of interest of, it
    * calls the super method to handle it. Otherwise, it continues traversing AST(Abstract syntax
@@ -52,20 +71,25 @@ public class MethodArgumentDetector extends MethodCallDetector {
             .filter(Expression::isStringLiteralExpr)
             .map(argument -> argument.asStringLiteralExpr().asString());
 
-    /*
-     * Check if any of the string arguments match the pattern
-     * If 'exactMatch' is true, use 'equals', otherwise use 'startsWith'
-     */
-    boolean isMatchFound =
-        stringArguments.anyMatch(
-            argumentValue ->
-                exactMatch
-                    ? argumentValue.equals(argumentPattern)
-                    : argumentValue.startsWith(argumentPattern));
+    // Check if any of the string arguments match the pattern
+    boolean isMatchFound = stringArguments.anyMatch(this::isArgumentMatch);
 
     return isMatchFound;
   }
 
+  /**
+   * Checks if the value of a string literal argument matches the argument pattern. If 'exactMatch'
+   * is true, the value has to equal the pattern, otherwise it has to start with it.
+   *
+   * @param argumentValue The value of a string literal argument.
+   * @return true if the value matches the argument pattern, false otherwise
+   */
+  public boolean isArgumentMatch(String argumentValue) {
+    return exactMatch
+        ? argumentValue.equals(argumentPattern)
+        : argumentValue.startsWith(argumentPattern);
+  }
+
   @Override
   public String toString() {
 
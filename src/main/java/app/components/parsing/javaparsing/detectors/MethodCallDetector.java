@@ -1,6 +1,7 @@
 package app.components.parsing.javaparsing.detectors;
 
 import app.components.parsing.javaparsing.codeparsing.PatternDetector;
+import app.components.parsing.javaparsing.codeparsing.PatternMatcher;
 import com.github.javaparser.ast.CompilationUnit;
 import com.github.javaparser.ast.body.MethodDeclaration;
 import com.github.javaparser.ast.expr.Expression;
@@ -34,6 +35,11 @@ public class MethodCallDetector extends VoidVisitorAdapter<Void> implements Dete
     isMethodDetected = false;
   }
 
+  @Override
+  public MethodCallDetector copy(PatternDetector patternDetector) {
+    return new MethodCallDetector(methodToDetect, patternDetector);
+  }
+
   /**
    * Initiates the detection process on the provided AST. It starts the visitation process which
    * continues until the entire tree has been traversed and all relevant method call expressions
@@ -68,6 +74,44 @@ public class MethodCallDetector extends VoidVisitorAdapter<Void> implements Dete
     super.visit(expr, arg);
   }
 
+  /**
+   * @return The name of the method this detector looks for.
+   */
+  public String getMethodToDetect() {
+    return methodToDetect;
+  }
+
+  /**
+   * Checks whether a method call with the name of {@link #getMethodToDetect()} is detected by this
+   * detector, without changing any detection state.
+   *
+   * @param expr A method call expression with the name of {@link #getMethodToDetect()}.
+   * @return true if the method call is detected, false otherwise.
+   */
+  public boolean isMatch(MethodCallExpr expr) {
+    return true;
+  }
+
+  /**
+   * Handles a method call which was found by {@link PatternMatcher} instead of by a traversal of
+   * this detector, the same way as if the traversal had found it.
+   *
+   * @param expr The detected method call expression.
+   */
+  public void applyMatch(MethodCallExpr expr) {
+    handleDetectedMethod(expr);
+  }
+
+  @Override
+  public boolean isBytecodeDetector() {
+    return true;
+  }
+
+  @Override
+  public boolean matches(BytecodeMethod method) {
+    return method.getInvokedMethods().contains(methodToDetect);
+  }
+
   private boolean isMethodDetected(MethodCallExpr expr) {
     return expr.getNameAsString().equals(methodToDetect);
   }
@@ -1,6 +1,7 @@
 package app.components.parsing.javaparsing.detectors;
 
 import app.components.parsing.javaparsing.codeparsing.PatternDetector;
+import app.components.parsing.javaparsing.codeparsing.PatternMatcher;
 import com.github.javaparser.ast.CompilationUnit;
 import com.github.javaparser.ast.body.MethodDeclaration;
 import com.github.javaparser.ast.expr.Expression;
@@ -31,6 +32,11 @@ public class ObjectCreationDetector extends VoidVisitorAdapter<Void> implements
     isObjectCreationDetected = false;
   }
 
+  @Override
+  public ObjectCreationDetector copy(PatternDetector patternDetector) {
+    return new ObjectCreationDetector(typeToDetect, patternDetector);
+  }
+
   /**
    * Initiates the detection process on the provided AST. It starts the visitation process which
    * continues until the entire tree has been traversed and all relevant object creation expressions
@@ -60,24 +66,62 @@ public class ObjectCreationDetector extends VoidVisitorAdapter<Void> implements
     }
 
     if (isObjectDetected(expr)) {
-      patternDetector.incrementState();
+      applyMatch(expr);
+      return; // early exit because the target object creation was found
+    }
+    super.visit(expr, arg);
+  }
 
-      // get the parent method declaration in which expr exists
-      @SuppressWarnings("unchecked")
-      Optional<MethodDeclaration> parentMethod = expr.findAncestor(MethodDeclaration.class);
-      if (parentMethod.isPresent()) {
-        patternDetector.addMethodDeclaration(parentMethod.get());
-      }
+  /**
+   * @return The type name of the objects this detector looks for.
+   */
+  public String getTypeToDetect() {
+    return typeToDetect;
+  }
+
+  /**
+   * Handles an object creation which was found by {@link PatternMatcher} instead of by a traversal
+   * of this detector, the same way as if the traversal had found it.
+   *
+   * @param expr The detected object creation expression.
+   */
+  public void applyMatch(ObjectCreationExpr expr) {
+    patternDetector.incrementState();
+
+    // get the parent method declaration in which expr exists
+    @SuppressWarnings("unchecked")
+    Optional<MethodDeclaration> parentMethod = expr.findAncestor(MethodDeclaration.class);
+    if (parentMethod.isPresent()) {
+      patternDetector.addMethodDeclaration(parentMethod.get());
+    }
+
+    isObjectCreationDetected = true;
+    detectedObjectCreation = expr;
+
+    if (patternDetector.isRequiredState()) {
+      patternDetector.execute();
+    }
+  }
 
-      isObjectCreationDetected = true;
-      detectedObjectCreation = expr;
+  @Override
+  public boolean isBytecodeDetector() {
+    return true;
+  }
 
-      if (patternDetector.isRequiredState()) {
-        patternDetector.execute();
+  /**
+   * Matches a created type of the bytecode against the type name as it would appear in the source
+   * code, which is either the qualified name or a name qualified by some of its outer packages or
+   * classes, e.g. "java.util.Random", "Random" or "Map.Entry".
+   */
+  @Override
+  public boolean matches(BytecodeMethod method) {
+    for (String createdType : method.getCreatedTypes()) {
+      String typeName = createdType.replace('$', '.');
+      if (typeName.equals(typeToDetect) || typeName.endsWith("." + typeToDetect)) {
+        return true;
       }
-      return; // early exit because the target object creation was found
     }
-    super.visit(expr, arg);
+    return false;
   }
 
   private boolean isObjectDetected(ObjectCreationExpr expr) {
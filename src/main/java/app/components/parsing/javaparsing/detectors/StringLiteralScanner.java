@@ -0,0 +1,164 @@
+package app.components.parsing.javaparsing.detectors;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Extracts string literals from java source code without parsing it. This is a cheaper
+ * alternative to {@link LiteralExpressionDetector} for files which are not analyzed for dangerous
+ * patterns. Same as {@link LiteralExpressionDetector}, the literals are returned with their escape
+ * sequences as written in the source, and text blocks, character literals and comments are
+ * ignored.
+ */
+public class StringLiteralScanner {
+
+  /**
+   * Scans java source code for string literals.
+   *
+   * @param source The java source code.
+   * @return A {@link List} of the values of all string literals.
+   */
+  public static List<String> scan(CharSequence source) {
+    List<String> strings = new ArrayList<>();
+    scanTokens(
+        source,
+        new TokenVisitor() {
+          @Override
+          public void visitStringLiteral(String value) {
+            strings.add(value);
+          }
+        });
+    return strings;
+  }
+
+  /**
+   * Scans java source code for its tokens, skipping whitespace and comments. String literals are
+   * passed on the same way as by {@link #scan(CharSequence)}, identifiers by their name, and every
+   * other token, such as a separator, an operator, a number, a character literal or a text block,
+   * by its first character.
+   *
+   * @param source The java source code.
+   * @param visitor The {@link TokenVisitor} receiving the tokens in source order.
+   */
+  public static void scanTokens(CharSequence source, TokenVisitor visitor) {
+    int length = source.length();
+    int i = 0;
+    while (i < length) {
+      char c = source.charAt(i);
+      if (c == '/' && i + 1 < length && source.charAt(i + 1) == '/') {
+        i = skipToLineEnd(source, i + 2);
+      } else if (c == '/' && i + 1 < length && source.charAt(i + 1) == '*') {
+        i = skipBlockComment(source, i + 2);
+      } else if (c == '"' && isTextBlockStart(source, i)) {
+        visitor.visitOther(c);
+        i = skipTextBlock(source, i + 3);
+      } else if (c == '"') {
+        int end = findClosingQuote(source, i + 1, '"');
+        if (end < 0) {
+          visitor.visitOther(c);
+          i = skipToLineEnd(source, i + 1);
+        } else {
+          visitor.visitStringLiteral(source.subSequence(i + 1, end).toString());
+          i = end + 1;
+        }
+      } else if (c == '\'') {
+        visitor.visitOther(c);
+        int end = findClosingQuote(source, i + 1, '\'');
+        i = end < 0 ? skipToLineEnd(source, i + 1) : end + 1;
+      } else if (Character.isJavaIdentifierPart(c) && !Character.isIdentifierIgnorable(c)) {
+        int end = i + 1;
+        while (end < length && Character.isJavaIdentifierPart(source.charAt(end))) {
+          end++;
+        }
+        if (Character.isJavaIdentifierStart(c)) {
+          visitor.visitIdentifier(source.subSequence(i, end).toString());
+        } else {
+          visitor.visitOther(c);
+        }
+        i = end;
+      } else {
+        if (!Character.isWhitespace(c)) {
+          visitor.visitOther(c);
+        }
+        i++;
+      }
+    }
+  }
+
+  /** Receives the tokens of java source code in source order. */
+  public interface TokenVisitor {
+
+    /**
+     * @param value The value of a string literal with its escape sequences as written.
+     */
+    default void visitStringLiteral(String value) {}
+
+    /**
+     * @param identifier The name of an identifier or keyword.
+     */
+    default void visitIdentifier(String identifier) {}
+
+    /**
+     * @param firstChar The first character of any other token.
+     */
+    default void visitOther(char firstChar) {}
+  }
+
+  private static int skipToLineEnd(CharSequence source, int i) {
+    while (i < source.length() && source.charAt(i) != '\n' && source.charAt(i) != '\r') {
+      i++;
+    }
+    return i;
+  }
+
+  private static int skipBlockComment(CharSequence source, int i) {
+    while (i + 1 < source.length()) {
+      if (source.charAt(i) == '*' && source.charAt(i + 1) == '/') {
+        return i + 2;
+      }
+      i++;
+    }
+    return source.length();
+  }
+
+  private static boolean isTextBlockStart(CharSequence source, int i) {
+    return i + 2 < source.length() && source.charAt(i + 1) == '"' && source.charAt(i + 2) == '"';
+  }
+
+  private static int skipTextBlock(CharSequence source, int i) {
+    while (i + 2 < source.length()) {
+      if (source.charAt(i) == '\\') {
+        i += 2;
+      } else if (isTextBlockStart(source, i)) {
+        return i + 3;
+      } else {
+        i++;
+      }
+    }
+    return source.length();
+  }
+
+  /**
+   * Finds the closing quote of a string or character literal, skipping escaped characters.
+   *
+   * @param source The java source code.
+   * @param i The index of the first character after the opening quote.
+   * @param quote The quote character closing the literal.
+   * @return The index of the closing quote, or -1 if the literal is not closed on its line.
+   */
+  private static int findClosingQuote(CharSequence source, int i, char quote) {
+    while (i < source.length()) {
+      char c = source.charAt(i);
+      if (c == '\\') {
+        i += 2;
+      } else if (c == quote) {
+        return i;
+      } else if (c == '\n' || c == '\r') {
+        return -1;
+      } else {
+        i++;
+      }
+    }
+    return -1;
+  }
+}
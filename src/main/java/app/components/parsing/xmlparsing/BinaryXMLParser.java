@@ -0,0 +1,128 @@
+package app.components.parsing.xmlparsing;
+
+import app.components.model.ExpComponent;
+import app.components.model.PermissionItem;
+import app.components.model.XMLFileInfo;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Reads a binary AndroidManifest.xml, as it is stored inside an APK, and extracts the same
+ * attributes as {@link XMLParser} does from a converted manifest. The manifest is streamed by a
+ * {@link BinaryXMLReader} and every element is checked as soon as it is read, so no text XML and
+ * no DOM is created.
+ */
+public class BinaryXMLParser {
+
+  private static final int ATTR_NAME = 0x01010003;
+  private static final int ATTR_DEBUGGABLE = 0x0101000f;
+  private static final int ATTR_EXPORTED = 0x01010010;
+  private static final int ATTR_GRANT_URI_PERMISSIONS = 0x0101001b;
+  private static final int ATTR_VALUE = 0x01010024;
+  private static final int ATTR_ALLOW_BACKUP = 0x01010280;
+  private static final Set<String> COMPONENT_TAGS =
+      Set.of("activity", "service", "receiver", "provider");
+
+  private final XMLFileInfo xmlFileInfo;
+  private final ResourceTable resourceTable;
+
+  public BinaryXMLParser(XMLFileInfo xmlFileInfo) {
+    this(xmlFileInfo, null);
+  }
+
+  /**
+   * @param xmlFileInfo The {@link XMLFileInfo} the results are added to.
+   * @param resourceTable The {@link ResourceTable} of the APK to resolve references with, e.g. an
+   *     android:exported="@bool/..." attribute, or null.
+   */
+  public BinaryXMLParser(XMLFileInfo xmlFileInfo, ResourceTable resourceTable) {
+    this.xmlFileInfo = xmlFileInfo;
+    this.resourceTable = resourceTable;
+  }
+
+  /**
+   * Reads a binary manifest and adds its permissions, exported components and meta-data values to
+   * the {@code XMLFileInfo} object, while also setting the app's debuggable, backup and
+   * usesGrantUriProviders status if the manifest sets them to true.
+   *
+   * @param inputStream The {@link InputStream} of the binary AndroidManifest.xml.
+   * @return The value of the package attribute of the manifest element, or null if it is missing.
+   * @throws IOException If the stream can not be read or does not hold a binary XML file.
+   */
+  public String parse(InputStream inputStream) throws IOException {
+    Manifest manifest = new Manifest();
+    new BinaryXMLReader(resourceTable).read(inputStream, manifest);
+
+    xmlFileInfo.getPermissionItems().addAll(manifest.permissions);
+    xmlFileInfo.getExpComponents().addAll(manifest.exportedComponents);
+    xmlFileInfo.getMetaDataValues().addAll(manifest.metaDataValues);
+    if (manifest.isAppDebuggable) {
+      xmlFileInfo.setAppDebuggable(true);
+    }
+    if (manifest.isBackupAllowed) {
+      xmlFileInfo.setBackupAllowedValue(true);
+    }
+    if (manifest.usesGrantUriProviders) {
+      xmlFileInfo.setUsesGrantUriProviders(true);
+    }
+    return manifest.packageName;
+  }
+
+  /** The values found in a single manifest, which are only added once it was read completely. */
+  private static class Manifest implements BinaryXMLReader.Handler {
+    private final Set<PermissionItem> permissions = new HashSet<>();
+    private final Set<ExpComponent> exportedComponents = new HashSet<>();
+    private final Set<String> metaDataValues = new HashSet<>();
+    private String packageName;
+    private boolean isAppDebuggable;
+    private boolean isBackupAllowed;
+    private boolean usesGrantUriProviders;
+
+    /**
+     * Checks the attributes of an element the same way {@link XMLParser} checks the elements of the
+     * same name.
+     */
+    @Override
+    public boolean startElement(BinaryXMLReader.Element element) {
+      String tag = element.getTag();
+      String androidName = element.getAndroidAttribute(ATTR_NAME, "name");
+      switch (tag) {
+        case "manifest":
+          packageName = element.getAttribute("package");
+          break;
+        case "uses-permission":
+          if (!androidName.trim().isEmpty()) {
+            permissions.add(
+                new PermissionItem(androidName.replaceFirst("^android.permission.", "")));
+          }
+          break;
+        case "application":
+          isAppDebuggable |= isTrue(element, ATTR_DEBUGGABLE, "debuggable");
+          isBackupAllowed |= isTrue(element, ATTR_ALLOW_BACKUP, "allowBackup");
+          break;
+        case "provider":
+          usesGrantUriProviders |=
+              isTrue(element, ATTR_GRANT_URI_PERMISSIONS, "grantUriPermissions");
+          break;
+        case "meta-data":
+          String value = element.getAndroidAttribute(ATTR_VALUE, "value");
+          if (!value.trim().isEmpty()) {
+            metaDataValues.add(value);
+          }
+          break;
+        default:
+          break;
+      }
+      if (COMPONENT_TAGS.contains(tag) && isTrue(element, ATTR_EXPORTED, "exported")) {
+        exportedComponents.add(new ExpComponent(tag, androidName));
+      }
+      return true;
+    }
+
+    private static boolean isTrue(BinaryXMLReader.Element element, int resourceId, String name) {
+      return "true".equals(element.getAndroidAttribute(resourceId, name));
+    }
+  }
+}
@@ -0,0 +1,290 @@
+package app.components.parsing.xmlparsing;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streams the elements of a binary XML file, as the files compiled by aapt are stored inside an
+ * APK. The chunks are read one at a time and the start and end of every element is passed to a
+ * {@link Handler}, so no text XML and no DOM is created.
+ *
+ * <p>The string pool precedes all elements of a binary XML file, so every element can be handled
+ * as soon as it is read. Attribute values are decoded the way they appear in converted XML for
+ * strings and booleans. References to resources are resolved with the {@link ResourceTable} if
+ * one is given, and otherwise read as AXMLPrinter prints them, e.g. "@7F0F0001". Values of other
+ * types are not needed by any check and read as empty strings.
+ */
+public class BinaryXMLReader {
+
+  public static final String ANDROID_NAMESPACE = "http://schemas.android.com/apk/res/android";
+
+  private static final int RES_STRING_POOL_TYPE = 0x0001;
+  private static final int RES_XML_TYPE = 0x0003;
+  private static final int RES_XML_START_ELEMENT_TYPE = 0x0102;
+  private static final int RES_XML_END_ELEMENT_TYPE = 0x0103;
+  private static final int RES_XML_RESOURCE_MAP_TYPE = 0x0180;
+  private static final int UTF8_FLAG = 0x100;
+  private static final int TYPE_REFERENCE = 0x01;
+  private static final int TYPE_STRING = 0x03;
+  private static final int TYPE_DYNAMIC_REFERENCE = 0x07;
+  private static final int TYPE_INT_BOOLEAN = 0x12;
+  private static final int NO_INDEX = -1;
+
+  private final ResourceTable resourceTable;
+  private String[] strings = new String[0];
+  private int[] resourceIds = new int[0];
+
+  public BinaryXMLReader() {
+    this(null);
+  }
+
+  /**
+   * @param resourceTable The {@link ResourceTable} of the APK to resolve references with, or null.
+   */
+  public BinaryXMLReader(ResourceTable resourceTable) {
+    this.resourceTable = resourceTable;
+  }
+
+  /** Receives the elements of a binary XML file in document order. */
+  public interface Handler {
+    /**
+     * @param element The {@link Element} which was read.
+     * @return true to continue reading, false to stop reading the file, e.g. because its root
+     *     element shows that it is of no interest.
+     */
+    boolean startElement(Element element);
+
+    default void endElement(String tag) {}
+  }
+
+  /**
+   * Reads a binary XML file and passes its elements to the handler, until the handler stops the
+   * reading or the end of the file is reached.
+   *
+   * @param inputStream The {@link InputStream} of the binary XML file.
+   * @param handler The {@link Handler} of the elements.
+   * @throws IOException If the stream can not be read or does not hold a binary XML file.
+   */
+  public void read(InputStream inputStream, Handler handler) throws IOException {
+    DataInputStream in = new DataInputStream(inputStream);
+    ByteBuffer fileHeader = readChunkHeader(in);
+    if (fileHeader == null || fileHeader.getShort(0) != RES_XML_TYPE) {
+      throw new IOException("Not a binary XML file");
+    }
+    strings = new String[0];
+    resourceIds = new int[0];
+
+    ByteBuffer chunkHeader;
+    while ((chunkHeader = readChunkHeader(in)) != null) {
+      int type = chunkHeader.getShort(0) & 0xFFFF;
+      int size = chunkHeader.getInt(4);
+      if (size < 8) {
+        throw new IOException("Invalid chunk size " + size);
+      }
+      if (type == RES_STRING_POOL_TYPE) {
+        readStringPool(readChunk(in, chunkHeader, size));
+      } else if (type == RES_XML_RESOURCE_MAP_TYPE) {
+        readResourceMap(readChunk(in, chunkHeader, size));
+      } else if (type == RES_XML_START_ELEMENT_TYPE) {
+        if (!handler.startElement(readStartElement(readChunk(in, chunkHeader, size)))) {
+          return;
+        }
+      } else if (type == RES_XML_END_ELEMENT_TYPE) {
+        ByteBuffer chunk = readChunk(in, chunkHeader, size);
+        handler.endElement(getString(chunk.getInt((chunk.getShort(2) & 0xFFFF) + 4)));
+      } else {
+        /* Namespaces and text are not needed */
+        in.readFully(new byte[size - 8]);
+      }
+    }
+  }
+
+  /**
+   * @param chunk The start element chunk, including its header.
+   * @return The {@link Element} with the decoded attributes.
+   */
+  private Element readStartElement(ByteBuffer chunk) {
+    int extStart = chunk.getShort(2) & 0xFFFF;
+    Element element = new Element(getString(chunk.getInt(extStart + 4)));
+    int attributeStart = extStart + (chunk.getShort(extStart + 8) & 0xFFFF);
+    int attributeSize = chunk.getShort(extStart + 10) & 0xFFFF;
+    int attributeCount = chunk.getShort(extStart + 12) & 0xFFFF;
+
+    for (int i = 0; i < attributeCount; i++) {
+      int offset = attributeStart + i * attributeSize;
+      int name = chunk.getInt(offset + 4);
+      element.attributes.add(
+          new Attribute(
+              name >= 0 && name < resourceIds.length ? resourceIds[name] : 0,
+              getString(chunk.getInt(offset)),
+              getString(name),
+              getValue(
+                  chunk.getInt(offset + 8), chunk.get(offset + 15), chunk.getInt(offset + 16))));
+    }
+    return element;
+  }
+
+  private String getValue(int rawValue, byte dataType, int data) {
+    if (rawValue != NO_INDEX) {
+      return getString(rawValue);
+    } else if (dataType == TYPE_STRING) {
+      return getString(data);
+    } else if (dataType == TYPE_INT_BOOLEAN) {
+      return data != 0 ? "true" : "false";
+    } else if (dataType == TYPE_REFERENCE || dataType == TYPE_DYNAMIC_REFERENCE) {
+      String value = resourceTable != null ? resourceTable.getValue(data) : null;
+      return value != null ? value : ResourceTable.formatReference(data);
+    }
+    return "";
+  }
+
+  private String getString(int index) {
+    return index >= 0 && index < strings.length ? strings[index] : "";
+  }
+
+  /**
+   * Decodes all strings of a string pool chunk, which are either UTF-8 or UTF-16 encoded.
+   *
+   * @param chunk The string pool chunk, including its header.
+   */
+  private void readStringPool(ByteBuffer chunk) {
+    int stringCount = chunk.getInt(8);
+    boolean isUtf8 = (chunk.getInt(16) & UTF8_FLAG) != 0;
+    int stringsStart = chunk.getInt(20);
+    int offsetsStart = chunk.getShort(2) & 0xFFFF;
+    strings = new String[stringCount];
+    for (int i = 0; i < stringCount; i++) {
+      int position = stringsStart + chunk.getInt(offsetsStart + i * 4);
+      strings[i] = isUtf8 ? readUtf8(chunk, position) : readUtf16(chunk, position);
+    }
+  }
+
+  private static String readUtf8(ByteBuffer chunk, int position) {
+    /* The UTF-16 length precedes the UTF-8 length */
+    position += (chunk.get(position) & 0x80) != 0 ? 2 : 1;
+    int length = chunk.get(position) & 0xFF;
+    if ((length & 0x80) != 0) {
+      length = ((length & 0x7F) << 8) | (chunk.get(position + 1) & 0xFF);
+      position++;
+    }
+    position++;
+    return new String(chunk.array(), position, length, StandardCharsets.UTF_8);
+  }
+
+  private static String readUtf16(ByteBuffer chunk, int position) {
+    int length = chunk.getShort(position) & 0xFFFF;
+    if ((length & 0x8000) != 0) {
+      length = ((length & 0x7FFF) << 16) | (chunk.getShort(position + 2) & 0xFFFF);
+      position += 2;
+    }
+    position += 2;
+    return new String(chunk.array(), position, length * 2, StandardCharsets.UTF_16LE);
+  }
+
+  /**
+   * Reads the resource IDs of the attribute names, which are the first strings of the pool.
+   *
+   * @param chunk The resource map chunk, including its header.
+   */
+  private void readResourceMap(ByteBuffer chunk) {
+    int headerSize = chunk.getShort(2) & 0xFFFF;
+    resourceIds = new int[(chunk.capacity() - headerSize) / 4];
+    for (int i = 0; i < resourceIds.length; i++) {
+      resourceIds[i] = chunk.getInt(headerSize + i * 4);
+    }
+  }
+
+  /**
+   * @return The header of the next chunk, or null at the end of the stream.
+   */
+  private static ByteBuffer readChunkHeader(DataInputStream in) throws IOException {
+    byte[] header = new byte[8];
+    int firstByte = in.read();
+    if (firstByte == -1) {
+      return null;
+    }
+    header[0] = (byte) firstByte;
+    in.readFully(header, 1, 7);
+    return ByteBuffer.wrap(header).order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  /**
+   * @return The whole chunk of the given header, including the header.
+   */
+  private static ByteBuffer readChunk(DataInputStream in, ByteBuffer header, int size)
+      throws IOException {
+    byte[] bytes = new byte[size];
+    System.arraycopy(header.array(), 0, bytes, 0, 8);
+    in.readFully(bytes, 8, size - 8);
+    return ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  /** An element of a binary XML file with its decoded attributes. */
+  public static class Element {
+    private final String tag;
+    private final List<Attribute> attributes = new ArrayList<>();
+
+    private Element(String tag) {
+      this.tag = tag;
+    }
+
+    public String getTag() {
+      return tag;
+    }
+
+    /**
+     * Returns the value of an attribute of the android namespace. The attribute is recognized by
+     * its resource ID, since shrunk files may not keep the attribute names, and otherwise by its
+     * name.
+     *
+     * @param resourceId The resource ID of the attribute, e.g. 0x01010003 for android:name.
+     * @param name The name of the attribute without the namespace prefix, e.g. "name".
+     * @return The value of the attribute, or an empty string if the element does not have it.
+     */
+    public String getAndroidAttribute(int resourceId, String name) {
+      for (Attribute attribute : attributes) {
+        if (attribute.resourceId == resourceId
+            || (attribute.resourceId == 0
+                && ANDROID_NAMESPACE.equals(attribute.namespace)
+                && name.equals(attribute.name))) {
+          return attribute.value;
+        }
+      }
+      return "";
+    }
+
+    /**
+     * @param name The name of an attribute without a namespace, e.g. "package".
+     * @return The value of the attribute, or null if the element does not have it.
+     */
+    public String getAttribute(String name) {
+      for (Attribute attribute : attributes) {
+        if (attribute.namespace.isEmpty() && name.equals(attribute.name)) {
+          return attribute.value;
+        }
+      }
+      return null;
+    }
+  }
+
+  /** An attribute of an element, with the resource ID of its name or 0 if it has none. */
+  private static class Attribute {
+    private final int resourceId;
+    private final String namespace;
+    private final String name;
+    private final String value;
+
+    private Attribute(int resourceId, String namespace, String name, String value) {
+      this.resourceId = resourceId;
+      this.namespace = namespace;
+      this.name = name;
+      this.value = value;
+    }
+  }
+}
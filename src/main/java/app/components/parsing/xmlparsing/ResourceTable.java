@@ -0,0 +1,559 @@
+package app.components.parsing.xmlparsing;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Resolves resource IDs with the resources.arsc table of an APK, e.g. the @string and @bool
+ * references of manifest attributes or the @xml reference of the network security configuration.
+ *
+ * <p>The table of a large application is several megabytes in size, so it is memory-mapped and
+ * never parsed as a whole. Opening the table only walks the chunk headers and records where the
+ * string pools and the type chunks of every package start. An entry is read once its resource ID
+ * is resolved, and a string is only decoded when a resolved value refers to it. All reads use
+ * absolute positions of the buffer, so a table can be shared by several threads.
+ */
+public class ResourceTable {
+
+  private static final int RES_STRING_POOL_TYPE = 0x0001;
+  private static final int RES_TABLE_TYPE = 0x0002;
+  private static final int RES_TABLE_PACKAGE_TYPE = 0x0200;
+  private static final int RES_TABLE_TYPE_TYPE = 0x0201;
+  private static final int UTF8_FLAG = 0x100;
+  private static final int NO_ENTRY = 0xFFFFFFFF;
+  private static final int FLAG_SPARSE = 0x01;
+  private static final int FLAG_OFFSET16 = 0x02;
+  private static final int ENTRY_FLAG_COMPLEX = 0x0001;
+  private static final int ENTRY_FLAG_COMPACT = 0x0008;
+  private static final int TYPE_REFERENCE = 0x01;
+  private static final int TYPE_STRING = 0x03;
+  private static final int TYPE_DYNAMIC_REFERENCE = 0x07;
+  private static final int TYPE_INT_DEC = 0x10;
+  private static final int TYPE_INT_HEX = 0x11;
+  private static final int TYPE_INT_BOOLEAN = 0x12;
+  private static final int MAX_REFERENCE_DEPTH = 8;
+  /* References as printed by AXMLPrinter, e.g. @7F0F0001 or @android:01040000 */
+  private static final Pattern REFERENCE_PATTERN =
+      Pattern.compile("@(?:android:)?(?:0x)?([0-9A-Fa-f]{8})");
+
+  private final ByteBuffer buffer;
+  private StringPool valueStrings;
+  private final Map<Integer, Package> packages = new HashMap<>();
+  private final Map<String, Set<String>> filePaths = new ConcurrentHashMap<>();
+
+  /**
+   * Indexes a resource table held by a buffer.
+   *
+   * @param buffer The {@link ByteBuffer} of the whole resources.arsc file.
+   * @throws IOException If the buffer does not hold a resource table.
+   */
+  public ResourceTable(ByteBuffer buffer) throws IOException {
+    this.buffer = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    try {
+      index();
+    } catch (IndexOutOfBoundsException e) {
+      throw new IOException("Malformed resource table", e);
+    }
+  }
+
+  /**
+   * Memory-maps a resources.arsc file and indexes it.
+   *
+   * @param arscPath The {@link Path} of the resources.arsc file.
+   * @return The indexed {@link ResourceTable}.
+   * @throws IOException If the file can not be mapped or does not hold a resource table.
+   */
+  public static ResourceTable open(Path arscPath) throws IOException {
+    try (FileChannel channel = FileChannel.open(arscPath, StandardOpenOption.READ)) {
+      return new ResourceTable(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    }
+  }
+
+  /**
+   * Memory-maps a resources.arsc file which is stored uncompressed inside an APK, so that the
+   * table does not have to be extracted or copied.
+   *
+   * @param apkPath The {@link Path} of the APK.
+   * @param offset The offset of the table's data inside the APK.
+   * @param size The size of the table.
+   * @return The indexed {@link ResourceTable}.
+   * @throws IOException If the APK can not be mapped or the region does not hold a resource table.
+   */
+  public static ResourceTable open(Path apkPath, long offset, long size) throws IOException {
+    try (FileChannel channel = FileChannel.open(apkPath, StandardOpenOption.READ)) {
+      return new ResourceTable(channel.map(FileChannel.MapMode.READ_ONLY, offset, size));
+    }
+  }
+
+  /**
+   * Memory-maps the resources.arsc file of an unzipped APK or XAPK. The APKs of an XAPK are
+   * unzipped into directories named after them, and the table of the base APK is preferred over the
+   * tables of configuration splits, which only hold the resources of their configuration.
+   *
+   * @param directory The {@link Path} of the directory holding the unzipped files.
+   * @return The indexed {@link ResourceTable}, or null if the directory holds no resources.arsc.
+   * @throws IOException If the directory can not be read or the table is malformed.
+   */
+  public static ResourceTable openInDirectory(Path directory) throws IOException {
+    List<Path> arscPaths;
+    try (Stream<Path> paths = Files.walk(directory)) {
+      arscPaths =
+          paths
+              .filter(path -> path.getFileName().toString().equals("resources.arsc"))
+              .filter(Files::isRegularFile)
+              .sorted(
+                  Comparator.comparingInt((Path path) -> getSplitRank(directory, path))
+                      .thenComparing(Comparator.naturalOrder()))
+              .collect(Collectors.toList());
+    }
+    return arscPaths.isEmpty() ? null : open(arscPaths.get(0));
+  }
+
+  /**
+   * @param directory The directory holding the unzipped files.
+   * @param arscPath The path of a resources.arsc file inside {@param directory}.
+   * @return The rank of the table as given by {@link #getSplitRank(String)}.
+   */
+  private static int getSplitRank(Path directory, Path arscPath) {
+    Path relativePath = directory.relativize(arscPath);
+    if (relativePath.getNameCount() < 2) {
+      return 0;
+    }
+    return getSplitRank(relativePath.getName(relativePath.getNameCount() - 2).toString());
+  }
+
+  /**
+   * Ranks the APKs whose tables may be used, the table with the lowest rank is preferred.
+   *
+   * @param apkName The name of an APK of an XAPK without its extension, e.g. "base", or null for
+   *     the APK itself.
+   * @return 0 for the table of the APK itself, 1 for the table of the base APK of an XAPK, 3 for
+   *     the table of a configuration split and 2 for the table of any other APK of an XAPK.
+   */
+  public static int getSplitRank(String apkName) {
+    if (apkName == null) {
+      return 0;
+    }
+    if (apkName.equals("base")) {
+      return 1;
+    }
+    return apkName.startsWith("config.") || apkName.startsWith("split_") ? 3 : 2;
+  }
+
+  /**
+   * Records the positions of the string pools and type chunks. Only chunk headers are read.
+   */
+  private void index() throws IOException {
+    if (buffer.limit() < 12 || getShort(0) != RES_TABLE_TYPE) {
+      throw new IOException("Not a resource table");
+    }
+    int end = Math.min(buffer.getInt(4), buffer.limit());
+    int position = getShort(2);
+    while (position + 8 <= end) {
+      int type = getShort(position);
+      int size = buffer.getInt(position + 4);
+      if (size < 8) {
+        throw new IOException("Invalid chunk size " + size);
+      }
+      if (type == RES_STRING_POOL_TYPE && valueStrings == null) {
+        valueStrings = new StringPool(position);
+      } else if (type == RES_TABLE_PACKAGE_TYPE) {
+        indexPackage(position, Math.min(position + size, end));
+      }
+      position += size;
+    }
+    if (valueStrings == null) {
+      throw new IOException("Resource table without a string pool");
+    }
+  }
+
+  private void indexPackage(int start, int end) throws IOException {
+    Package resourcePackage =
+        new Package(
+            new StringPool(start + buffer.getInt(start + 268)),
+            new StringPool(start + buffer.getInt(start + 276)));
+    int position = start + getShort(start + 2);
+    while (position + 8 <= end) {
+      int size = buffer.getInt(position + 4);
+      if (size < 8) {
+        throw new IOException("Invalid chunk size " + size);
+      }
+      if (getShort(position) == RES_TABLE_TYPE_TYPE) {
+        resourcePackage
+            .typeChunks
+            .computeIfAbsent(buffer.get(position + 8) & 0xFF, id -> new ArrayList<>())
+            .add(position);
+      }
+      position += size;
+    }
+    packages.put(buffer.getInt(start + 8), resourcePackage);
+  }
+
+  /**
+   * Resolves a resource ID to its value in the default configuration, or in the first
+   * configuration defining it if there is no default value. References to other resources are
+   * followed.
+   *
+   * @param resourceId The resource ID, e.g. 0x7f0f0001.
+   * @return The value as it would appear in XML, e.g. "true", "https://example.com" or
+   *     "res/xml/network_security_config.xml" for file resources. Null if the resource is not part
+   *     of the table or its value is a style, an array or of a type which is not decoded.
+   */
+  public String getValue(int resourceId) {
+    try {
+      return getValue(resourceId, 0);
+    } catch (IndexOutOfBoundsException e) {
+      return null;
+    }
+  }
+
+  private String getValue(int resourceId, int depth) {
+    int entry = findEntry(resourceId);
+    if (entry < 0) {
+      return null;
+    }
+    int flags = getShort(entry + 2);
+    int dataType;
+    int data;
+    if ((flags & ENTRY_FLAG_COMPACT) != 0) {
+      dataType = flags >>> 8;
+      data = buffer.getInt(entry + 4);
+    } else if ((flags & ENTRY_FLAG_COMPLEX) != 0) {
+      return null;
+    } else {
+      int value = entry + getShort(entry);
+      dataType = buffer.get(value + 3) & 0xFF;
+      data = buffer.getInt(value + 4);
+    }
+
+    switch (dataType) {
+      case TYPE_STRING:
+        return valueStrings.get(data);
+      case TYPE_INT_BOOLEAN:
+        return data != 0 ? "true" : "false";
+      case TYPE_INT_DEC:
+        return Integer.toString(data);
+      case TYPE_INT_HEX:
+        return "0x" + Integer.toHexString(data);
+      case TYPE_REFERENCE:
+      case TYPE_DYNAMIC_REFERENCE:
+        return depth < MAX_REFERENCE_DEPTH ? getValue(data, depth + 1) : null;
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * @param resourceId The resource ID, e.g. 0x7f0f0001.
+   * @return The type and entry name of the resource, e.g. "xml/network_security_config", or null if
+   *     the resource is not part of the table.
+   */
+  public String getName(int resourceId) {
+    try {
+      Package resourcePackage = packages.get(resourceId >>> 24);
+      int entry = findEntry(resourceId);
+      if (entry < 0) {
+        return null;
+      }
+      int flags = getShort(entry + 2);
+      int key = (flags & ENTRY_FLAG_COMPACT) != 0 ? getShort(entry) : buffer.getInt(entry + 4);
+      return resourcePackage.typeStrings.get(((resourceId >>> 16) & 0xFF) - 1)
+          + "/"
+          + resourcePackage.keyStrings.get(key);
+    } catch (IndexOutOfBoundsException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Resolves a value if it is a reference to a resource of this table, as printed by AXMLPrinter,
+   * e.g. "@7F0F0001". Other values are returned unchanged.
+   *
+   * @param value An attribute value or string.
+   * @return The resolved value, or {@param value} if it is no reference or can not be resolved.
+   */
+  public String resolve(String value) {
+    if (value == null || !value.startsWith("@")) {
+      return value;
+    }
+    Matcher matcher = REFERENCE_PATTERN.matcher(value);
+    if (!matcher.matches()) {
+      return value;
+    }
+    String resolved = getValue(Integer.parseUnsignedInt(matcher.group(1), 16));
+    return resolved != null ? resolved : value;
+  }
+
+  /**
+   * Collects the file paths of all resources of a type, in any configuration. Only the type chunks
+   * of the type are read and the paths are kept for later calls.
+   *
+   * @param typeName The name of the resource type, e.g. "xml".
+   * @return The paths of the files inside the APK, e.g. "res/xml/file_paths.xml".
+   */
+  public Set<String> getFilePaths(String typeName) {
+    return filePaths.computeIfAbsent(typeName, this::readFilePaths);
+  }
+
+  private Set<String> readFilePaths(String typeName) {
+    Set<String> paths = new HashSet<>();
+    try {
+      for (Package resourcePackage : packages.values()) {
+        int typeId = resourcePackage.typeStrings.indexOf(typeName) + 1;
+        for (int chunk : resourcePackage.typeChunks.getOrDefault(typeId, List.of())) {
+          for (int entry : getEntries(chunk)) {
+            int flags = getShort(entry + 2);
+            if ((flags & ENTRY_FLAG_COMPACT) != 0) {
+              if (flags >>> 8 == TYPE_STRING) {
+                paths.add(valueStrings.get(buffer.getInt(entry + 4)));
+              }
+            } else if ((flags & ENTRY_FLAG_COMPLEX) == 0) {
+              int value = entry + getShort(entry);
+              if ((buffer.get(value + 3) & 0xFF) == TYPE_STRING) {
+                paths.add(valueStrings.get(buffer.getInt(value + 4)));
+              }
+            }
+          }
+        }
+      }
+    } catch (IndexOutOfBoundsException e) {
+      System.err.println("Could not read the " + typeName + " resources of the resource table");
+    }
+    return Collections.unmodifiableSet(paths);
+  }
+
+  /**
+   * Finds the entry of a resource, preferring the default configuration.
+   *
+   * @return The position of the entry, or -1 if no configuration defines the resource.
+   */
+  private int findEntry(int resourceId) {
+    Package resourcePackage = packages.get(resourceId >>> 24);
+    if (resourcePackage == null) {
+      return -1;
+    }
+    int entryIndex = resourceId & 0xFFFF;
+    int typeId = (resourceId >>> 16) & 0xFF;
+    int found = -1;
+    for (int chunk : resourcePackage.typeChunks.getOrDefault(typeId, List.of())) {
+      int entry = getEntry(chunk, entryIndex);
+      if (entry >= 0) {
+        if (isDefaultConfig(chunk)) {
+          return entry;
+        }
+        if (found < 0) {
+          found = entry;
+        }
+      }
+    }
+    return found;
+  }
+
+  /**
+   * @return The position of an entry of a type chunk, or -1 if the chunk does not define it.
+   */
+  private int getEntry(int chunk, int entryIndex) {
+    int flags = buffer.get(chunk + 9) & 0xFF;
+    int entryCount = buffer.getInt(chunk + 12);
+    int entriesStart = chunk + buffer.getInt(chunk + 16);
+    int offsets = chunk + getShort(chunk + 2);
+    int offset;
+    if ((flags & FLAG_SPARSE) != 0) {
+      /* Sparse entries are sorted pairs of the entry index and the offset divided by four */
+      offset = NO_ENTRY;
+      int low = 0;
+      int high = entryCount - 1;
+      while (low <= high) {
+        int middle = (low + high) >>> 1;
+        int index = getShort(offsets + middle * 4);
+        if (index < entryIndex) {
+          low = middle + 1;
+        } else if (index > entryIndex) {
+          high = middle - 1;
+        } else {
+          offset = getShort(offsets + middle * 4 + 2) * 4;
+          break;
+        }
+      }
+    } else if (entryIndex >= entryCount) {
+      return -1;
+    } else if ((flags & FLAG_OFFSET16) != 0) {
+      int shortOffset = getShort(offsets + entryIndex * 2);
+      offset = shortOffset == 0xFFFF ? NO_ENTRY : shortOffset * 4;
+    } else {
+      offset = buffer.getInt(offsets + entryIndex * 4);
+    }
+    return offset == NO_ENTRY ? -1 : entriesStart + offset;
+  }
+
+  /**
+   * @return The positions of all entries of a type chunk.
+   */
+  private List<Integer> getEntries(int chunk) {
+    List<Integer> entries = new ArrayList<>();
+    int flags = buffer.get(chunk + 9) & 0xFF;
+    int entryCount = buffer.getInt(chunk + 12);
+    int offsets = chunk + getShort(chunk + 2);
+    for (int i = 0; i < entryCount; i++) {
+      int entryIndex = (flags & FLAG_SPARSE) != 0 ? getShort(offsets + i * 4) : i;
+      int entry = getEntry(chunk, entryIndex);
+      if (entry >= 0) {
+        entries.add(entry);
+      }
+    }
+    return entries;
+  }
+
+  /**
+   * @return true if the configuration of a type chunk has no qualifier set.
+   */
+  private boolean isDefaultConfig(int chunk) {
+    int config = chunk + 20;
+    int configSize = buffer.getInt(config);
+    for (int i = 4; i < configSize; i++) {
+      if (buffer.get(config + i) != 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private int getShort(int position) {
+    return buffer.getShort(position) & 0xFFFF;
+  }
+
+  /**
+   * @param resourceId A resource ID.
+   * @return The reference to the resource as printed by AXMLPrinter, e.g. "@7F0F0001".
+   */
+  public static String formatReference(int resourceId) {
+    return String.format(
+        Locale.ROOT, "@%s%08X", resourceId >>> 24 == 1 ? "android:" : "", resourceId);
+  }
+
+  /** The type chunks and the type and key names of a package. */
+  private static class Package {
+    private final StringPool typeStrings;
+    private final StringPool keyStrings;
+    private final Map<Integer, List<Integer>> typeChunks = new HashMap<>();
+
+    private Package(StringPool typeStrings, StringPool keyStrings) {
+      this.typeStrings = typeStrings;
+      this.keyStrings = keyStrings;
+    }
+  }
+
+  /** A string pool of the table, whose strings are decoded on first use. */
+  private class StringPool {
+    private final int start;
+    private final long end;
+    private final int stringCount;
+    private final boolean isUtf8;
+    private final Map<Integer, String> strings = new ConcurrentHashMap<>();
+
+    private StringPool(int start) throws IOException {
+      if (getShort(start) != RES_STRING_POOL_TYPE) {
+        throw new IOException("Missing string pool at offset " + start);
+      }
+      this.start = start;
+      this.end = Math.min(start + Integer.toUnsignedLong(buffer.getInt(start + 4)), buffer.limit());
+      this.stringCount = buffer.getInt(start + 8);
+      this.isUtf8 = (buffer.getInt(start + 16) & UTF8_FLAG) != 0;
+    }
+
+    private String get(int index) {
+      if (index < 0 || index >= stringCount) {
+        return null;
+      }
+      return strings.computeIfAbsent(index, this::decode);
+    }
+
+    private int indexOf(String string) {
+      for (int i = 0; i < stringCount; i++) {
+        if (string.equals(get(i))) {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    /**
+     * Decodes a string of the pool. The offset and length of the string are checked against the
+     * bounds of the pool, so a malformed table never reads outside of it.
+     *
+     * @param index The index of the string.
+     * @return The decoded string, or null if it does not lie within the pool.
+     */
+    private String decode(int index) {
+      long offsets = start + (long) getShort(start + 2);
+      long offsetPosition = offsets + index * 4L;
+      if (!isInPool(start + 28L, 0) || !isInPool(offsetPosition, 4)) {
+        return null;
+      }
+      long stringPosition =
+          start
+              + Integer.toUnsignedLong(buffer.getInt(start + 20))
+              + Integer.toUnsignedLong(buffer.getInt((int) offsetPosition));
+      if (!isInPool(stringPosition, 4)) {
+        return null;
+      }
+      int position = (int) stringPosition;
+      int length;
+      if (isUtf8) {
+        /* The UTF-16 length precedes the UTF-8 length */
+        position += (buffer.get(position) & 0x80) != 0 ? 2 : 1;
+        length = buffer.get(position) & 0xFF;
+        if ((length & 0x80) != 0) {
+          length = ((length & 0x7F) << 8) | (buffer.get(position + 1) & 0xFF);
+          position++;
+        }
+        position++;
+      } else {
+        length = getShort(position);
+        if ((length & 0x8000) != 0) {
+          length = ((length & 0x7FFF) << 16) | getShort(position + 2);
+          position += 2;
+        }
+        position += 2;
+        length *= 2;
+      }
+      if (length < 0 || !isInPool(position, length)) {
+        return null;
+      }
+      byte[] bytes = new byte[length];
+      ByteBuffer slice = buffer.duplicate();
+      slice.position(position);
+      slice.get(bytes);
+      return new String(bytes, isUtf8 ? StandardCharsets.UTF_8 : StandardCharsets.UTF_16LE);
+    }
+
+    /**
+     * @param position The position of a region of the table.
+     * @param length The length of the region.
+     * @return true if the region lies within the string pool.
+     */
+    private boolean isInPool(long position, long length) {
+      return position >= start && length >= 0 && position + length <= end;
+    }
+  }
+}
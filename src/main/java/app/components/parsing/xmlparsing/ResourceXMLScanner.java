@@ -0,0 +1,193 @@
+package app.components.parsing.xmlparsing;
+
+import app.components.model.ResourceFinding;
+import app.components.model.XMLFileInfo;
+import app.utils.ThreadPoolManager;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+
+/**
+ * Scans the binary XML resources of an APK for dangerous settings. The resources are read straight
+ * from the archive entries by a {@link BinaryXMLReader}, so they are neither extracted nor
+ * converted to text. Only the files of the xml resource type are read, since the network security
+ * configuration and the paths of a FileProvider are the only resources checked, and a file is
+ * dropped as soon as its root element shows that it is neither of them.
+ *
+ * <p>The following settings are reported:
+ *
+ * <ul>
+ *   <li>Cleartext traffic permitted for all domains (Medium) or for some domains (Low).
+ *   <li>User installed certificates trusted outside of debug builds (Medium).
+ *   <li>A FileProvider sharing the root of the file system (Danger) or a whole storage directory
+ *       (Medium).
+ * </ul>
+ */
+public class ResourceXMLScanner {
+
+  /* Resources of the xml type, or any resource file if the resource paths were shortened */
+  private static final Pattern RULE_TARGET = Pattern.compile("res/(xml(-[^/]+)?/)?[^/]+\\.xml");
+  private static final Set<String> BROAD_PATHS = Set.of("", ".", "/");
+
+  /**
+   * @param entryName The name of an archive entry, e.g. "res/xml/file_paths.xml".
+   * @return true if the entry may hold a resource checked by the scanner.
+   */
+  public static boolean isRuleTarget(String entryName) {
+    return RULE_TARGET.matcher(entryName).matches();
+  }
+
+  /**
+   * Checks whether an entry may hold a resource checked by the scanner. If the {@link
+   * ResourceTable} of the APK is known, only the files of xml resources are targets, which also
+   * excludes layouts and drawables whose paths were shortened.
+   *
+   * @param entryName The name of an archive entry, e.g. "res/xml/file_paths.xml".
+   * @param resourceTable The {@link ResourceTable} of the APK, or null.
+   * @return true if the entry may hold a resource checked by the scanner.
+   */
+  public static boolean isRuleTarget(String entryName, ResourceTable resourceTable) {
+    if (resourceTable == null || resourceTable.getFilePaths("xml").isEmpty()) {
+      return isRuleTarget(entryName);
+    }
+    return resourceTable.getFilePaths("xml").contains(entryName);
+  }
+
+  /**
+   * Scans the given entries of an archive. If {@param isMultiThreadingOn} is true, the entries are
+   * decoded in parallel on a work-stealing pool of the {@link ThreadPoolManager}.
+   *
+   * @param zipFile The {@link ZipFile} the entries belong to.
+   * @param entries The {@link ZipArchiveEntry} objects of the resources to scan.
+   * @param resourceTable The {@link ResourceTable} to resolve references with, or null.
+   * @param isMultiThreadingOn Flag indicating whether multithreading should be used.
+   * @return The {@link ResourceFinding} objects of all scanned resources.
+   * @throws InterruptedException If interrupted while initializing the thread pool.
+   */
+  public static Set<ResourceFinding> scan(
+      ZipFile zipFile,
+      List<ZipArchiveEntry> entries,
+      ResourceTable resourceTable,
+      boolean isMultiThreadingOn)
+      throws InterruptedException {
+    if (!isMultiThreadingOn) {
+      Set<ResourceFinding> findings = new HashSet<>();
+      entries.forEach(entry -> findings.addAll(scanEntry(zipFile, entry, resourceTable)));
+      return findings;
+    }
+    Set<ResourceFinding> findings = ConcurrentHashMap.newKeySet();
+    ThreadPoolManager.getInstance().initializeWorkStealingPool();
+    ThreadPoolManager.getInstance()
+        .executeConversionTasks(
+            entries, entry -> findings.addAll(scanEntry(zipFile, entry, resourceTable)));
+    return findings;
+  }
+
+  private static List<ResourceFinding> scanEntry(
+      ZipFile zipFile, ZipArchiveEntry entry, ResourceTable resourceTable) {
+    try (InputStream in = zipFile.getInputStream(entry)) {
+      return scan(entry.getName(), in, resourceTable);
+    } catch (IOException | RuntimeException e) {
+      System.err.println("Could not parse binary XML file " + entry.getName() + ", skipping...");
+      return List.of();
+    }
+  }
+
+  /**
+   * Scans a single binary XML resource.
+   *
+   * @param resourcePath The path of the resource inside the APK.
+   * @param inputStream The {@link InputStream} of the binary XML file.
+   * @param resourceTable The {@link ResourceTable} to resolve references with, e.g. a
+   *     cleartextTrafficPermitted="@bool/..." attribute, or null.
+   * @return The {@link ResourceFinding} objects of the resource, empty if it is not checked.
+   * @throws IOException If the stream can not be read or does not hold a binary XML file.
+   */
+  public static List<ResourceFinding> scan(
+      String resourcePath, InputStream inputStream, ResourceTable resourceTable)
+      throws IOException {
+    Resource resource = new Resource(resourcePath);
+    new BinaryXMLReader(resourceTable).read(inputStream, resource);
+    return resource.findings;
+  }
+
+  /** Checks the elements of a single resource file, keeping track of their ancestors. */
+  private static class Resource implements BinaryXMLReader.Handler {
+    private final String resourcePath;
+    private final List<ResourceFinding> findings = new ArrayList<>();
+    private final Deque<String> openTags = new ArrayDeque<>();
+
+    private Resource(String resourcePath) {
+      this.resourcePath = resourcePath;
+    }
+
+    @Override
+    public boolean startElement(BinaryXMLReader.Element element) {
+      String tag = element.getTag();
+      if (openTags.isEmpty() && !"network-security-config".equals(tag) && !"paths".equals(tag)) {
+        return false;
+      }
+      openTags.push(tag);
+      if (openTags.contains("debug-overrides")) {
+        return true;
+      }
+
+      switch (tag) {
+        case "base-config":
+        case "domain-config":
+          if ("true".equals(element.getAttribute("cleartextTrafficPermitted"))) {
+            addFinding(
+                XMLFileInfo.CLEARTEXT_PNAME,
+                "base-config".equals(tag) ? "Medium" : "Low",
+                "<" + tag + " cleartextTrafficPermitted=\"true\">");
+          }
+          break;
+        case "certificates":
+          if ("user".equals(element.getAttribute("src"))) {
+            addFinding(
+                XMLFileInfo.USER_CERTIFICATES_PNAME, "Medium", "<certificates src=\"user\">");
+          }
+          break;
+        case "root-path":
+          addFinding(XMLFileInfo.FILE_PROVIDER_PATHS_PNAME, "Danger", describePath(element));
+          break;
+        default:
+          String path = element.getAttribute("path");
+          if (tag.endsWith("-path") && (path == null || BROAD_PATHS.contains(path.trim()))) {
+            addFinding(XMLFileInfo.FILE_PROVIDER_PATHS_PNAME, "Medium", describePath(element));
+          }
+          break;
+      }
+      return true;
+    }
+
+    @Override
+    public void endElement(String tag) {
+      openTags.poll();
+    }
+
+    private void addFinding(String patternName, String dangerLevel, String element) {
+      findings.add(new ResourceFinding(patternName, dangerLevel, resourcePath, element));
+    }
+
+    private static String describePath(BinaryXMLReader.Element element) {
+      String path = element.getAttribute("path");
+      return "<"
+          + element.getTag()
+          + " name=\""
+          + (element.getAttribute("name") != null ? element.getAttribute("name") : "")
+          + "\" path=\""
+          + (path != null ? path : "")
+          + "\">";
+    }
+  }
+}
@@ -32,11 +32,22 @@ public class XMLParser {
   private static final String APPLICATION_XML_TAG = "application";
   private static final String PROVIDER_XML_TAG = "provider";
   private XMLFileInfo xmlFileInfo;
+  private ResourceTable resourceTable;
 
   public XMLParser(XMLFileInfo xmlFileInfo) {
     this.xmlFileInfo = xmlFileInfo;
   }
 
+  /**
+   * Sets the resource table which references in attribute values are resolved with, e.g. an
+   * android:debuggable="@7F050000" attribute which refers to a boolean resource.
+   *
+   * @param resourceTable The {@link ResourceTable} of the APK, or null.
+   */
+  public void setResourceTable(ResourceTable resourceTable) {
+    this.resourceTable = resourceTable;
+  }
+
   /**
    * Initializes a {@link Document} that represents the parsed XML content, then calls {@Code
    * processXMLContent} to parse the content and fill in the {@code XMLFileInfo} object for each
@@ -81,6 +92,25 @@ public class XMLParser {
 
     Set<ExpComponent> expComponentList = xmlFileInfo.getExpComponents();
     expComponentList.addAll(parseExpComponentsToList());
+
+    NodeList metaDataNodes = doc.getElementsByTagName("meta-data");
+    for (int i = 0; i < metaDataNodes.getLength(); i++) {
+      String value = getAttributeValue((Element) metaDataNodes.item(i), "android:value");
+      if (!value.trim().isEmpty()) {
+        xmlFileInfo.getMetaDataValues().add(value);
+      }
+    }
+  }
+
+  /**
+   * @param element The {@link Element} to read the attribute of.
+   * @param attributeName The name of the attribute.
+   * @return The value of the attribute, resolved if it refers to a resource of the {@link
+   *     ResourceTable}, or an empty string if the element does not have the attribute.
+   */
+  private String getAttributeValue(Element element, String attributeName) {
+    String attributeValue = element.getAttribute(attributeName);
+    return resourceTable != null ? resourceTable.resolve(attributeValue) : attributeValue;
   }
 
   /**
@@ -124,7 +154,7 @@ public class XMLParser {
 
     for (int i = 0; i < applications.getLength(); i++) {
       Element element = (Element) applications.item(i);
-      String attributeValue = element.getAttribute(attributeName);
+      String attributeValue = getAttributeValue(element, attributeName);
 
       if ("true".equals(attributeValue)) {
         return true;
@@ -135,7 +165,7 @@ public class XMLParser {
   }
 
   private boolean usesGrantUriProviders() {
-    return isAttributeTrue(PROVIDER_XML_TAG, CHECK_GRANT_URI);
+    return isAttributeTrue(CHECK_GRANT_URI, PROVIDER_XML_TAG);
   }
 
   /**
@@ -181,7 +211,7 @@ public class XMLParser {
 
         if (node.getNodeType() == Node.ELEMENT_NODE) {
           Element element = (Element) node;
-          String exported = element.getAttribute(CHECK_EXPORTED);
+          String exported = getAttributeValue(element, CHECK_EXPORTED);
 
           if ("true".equals(exported)) {
             String androidName = element.getAttribute("android:name");
@@ -5,6 +5,7 @@ import app.components.model.DangerousPattern;
 import app.components.model.ExpComponent;
 import app.components.model.FileInfo;
 import app.components.model.PermissionItem;
+import app.components.model.ResourceFinding;
 import app.components.model.XMLFileInfo;
 import app.components.parsing.javaparsing.codeparsing.PatternDetector;
 import app.components.ui.CommandUI;
@@ -17,6 +18,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 
@@ -61,7 +63,10 @@ public class MDGenerator {
       String apkFileName = apkFile.getName();
       int lastDotIndex = apkFileName.lastIndexOf(".");
       this.baseName = apkFileName.substring(0, lastDotIndex);
-      this.filePath = ConversionProcess.getOutputPath() + File.separator + baseName + ".md";
+      /* A later deep analysis of the same APK must not overwrite the triage report */
+      String suffix = ConversionProcess.isTriageOn() ? "-triage" : "";
+      this.filePath =
+          ConversionProcess.getOutputPath() + File.separator + baseName + suffix + ".md";
     }
   }
 
@@ -100,6 +105,33 @@ public class MDGenerator {
     this.appendToMarkdownFile("# **" + appName + " Analysis**\n\n");
   }
 
+  /**
+   * Marks the report as the preliminary result of a triage scan and lists the patterns which may
+   * be present, but can only be confirmed by a deep analysis.
+   *
+   * @param score The triage score of the application.
+   * @param possiblePatterns The {@link PatternDetector} objects of the patterns which may be
+   *     present.
+   */
+  public void appendTriageSummary(int score, List<PatternDetector> possiblePatterns) {
+    this.appendToMarkdownFile("## Preliminary triage results\n");
+    this.appendToMarkdownFile(
+        "<p>These results come from a triage scan of the manifests and DEX files, no class was decompiled. Patterns were only detected if they can be detected on bytecode, domains and IP addresses were searched in the string constants of the DEX files. Run a deep analysis to confirm the patterns which may be present.</p>\n");
+    this.appendToMarkdownFile("<strong>Triage score: </strong>" + score + "\n");
+    if (!possiblePatterns.isEmpty()) {
+      this.appendToMarkdownFile(
+          "<table>\r\n"
+              + "<tr>\r\n"
+              + "    <th>Patterns which may be present</th>\r\n"
+              + "</tr>\r\n");
+      for (PatternDetector patternDetector : possiblePatterns) {
+        this.appendToMarkdownFile(
+            "<tr>\r\n" + "<td>" + patternDetector.getName() + "</td>\r\n" + "</tr>\r\n");
+      }
+      this.appendToMarkdownFile("</table>\r\n");
+    }
+  }
+
   public void appendLevelDescription(XMLFileInfo xmlFileInfo) {
     int perUndefined = 0;
     for (PermissionItem item : xmlFileInfo.getPermissionItems()) {
@@ -156,6 +188,17 @@ public class MDGenerator {
     if (xmlFileInfo.isBackupAllowed()) {
       patMedium++;
     }
+    for (String dangerLevel : xmlFileInfo.getResourcePatterns().values()) {
+      if (dangerLevel.equals("Danger")) {
+        patDanger++;
+      }
+      if (dangerLevel.equals("Medium")) {
+        patMedium++;
+      }
+      if (dangerLevel.equals("Low")) {
+        patLow++;
+      }
+    }
     for (PermissionItem item : xmlFileInfo.getPermissionItems()) {
       if (item.getPermRiskLevel().equals("High")) {
         perHigh++;
@@ -423,7 +466,7 @@ public class MDGenerator {
       this.appendToMarkdownFile(
           "<tr>\r\n" + "<td>" + XMLFileInfo.EXPORTED_PNAME + "</td>\r\n" + "</tr>");
     }
-    if (!xmlInfo.usesGrantUriProviders()) {
+    if (xmlInfo.usesGrantUriProviders()) {
       this.appendToMarkdownFile(
           "<tr>\r\n" + "<td>" + XMLFileInfo.URIPROVIDER_PNAME + "</td>\n" + "</tr>");
     }
@@ -435,10 +478,56 @@ public class MDGenerator {
       this.appendToMarkdownFile(
           "<tr>\r\n" + "<td>" + XMLFileInfo.BACKUP_PNAME + "</td>\n" + "</tr>");
     }
+    for (String patternName : xmlInfo.getResourcePatterns().keySet()) {
+      this.appendToMarkdownFile("<tr>\r\n" + "<td>" + patternName + "</td>\n" + "</tr>");
+    }
 
     this.appendToMarkdownFile("</table>\r\n");
   }
 
+  public void appendResourceFindings(XMLFileInfo xmlInfo) {
+    for (Map.Entry<String, String> resourcePattern : xmlInfo.getResourcePatterns().entrySet()) {
+      String patternName = resourcePattern.getKey();
+      String dangerLevel = resourcePattern.getValue();
+      String color = "#4eaa02";
+      if (dangerLevel.equals("Danger")) {
+        color = "red";
+      } else if (dangerLevel.equals("Medium")) {
+        color = "#FFD800";
+      }
+      this.appendToMarkdownFile("\n<div class=\"avoidBreak\">\n");
+      this.appendToMarkdownFile("<h3>" + patternName + "</h3>\n");
+      this.appendToMarkdownFile(
+          "<strong>Risk level: </strong> <span style=\"color: "
+              + color
+              + "\">"
+              + dangerLevel
+              + "</span>\n");
+      this.appendToMarkdownFile("<p>" + getResourcePatternDescription(patternName) + "</p>\n");
+      this.appendToMarkdownFile("#### Found in:\n");
+      for (ResourceFinding finding : xmlInfo.getResourceFindings()) {
+        if (finding.getPatternName().equals(patternName)) {
+          this.appendToMarkdownFile(
+              "- " + finding.getResourcePath() + ": `" + finding.getElement() + "`\n");
+        }
+      }
+      this.appendToMarkdownFile("</div>\n");
+    }
+  }
+
+  private static String getResourcePatternDescription(String patternName) {
+    switch (patternName) {
+      case XMLFileInfo.CLEARTEXT_PNAME:
+        return "The network security configuration permits cleartext HTTP traffic. Data sent without TLS can be read and modified by anyone on the network path, e.g. on a public Wi-Fi.";
+      case XMLFileInfo.USER_CERTIFICATES_PNAME:
+        return "The network security configuration trusts certificate authorities installed by the user. Anyone who convinces the user to install a certificate, or has access to the device, can intercept the TLS traffic of the application.";
+      case XMLFileInfo.FILE_PROVIDER_PATHS_PNAME:
+        return "The paths of a FileProvider share the root of the file system or a whole storage directory. Any file in these directories can be shared with other applications through a content URI, including files which were never meant to leave the application.";
+      default:
+        return "";
+    }
+  }
+
   public void appendImage(String imageName, String imageFilePath) {
     if (imageFilePath == null) {
       this.appendToMarkdownFile("\nPlease install `GraphViz` for dataflow graph generation\n");
@@ -1,8 +1,10 @@
 package app.components.resultsshowcase;
 
+import app.components.conversion.ConversionProcess;
 import app.components.model.DangerousPattern;
 import app.components.model.XMLFileInfo;
 import app.components.parsing.ParsingProcess;
+import app.components.parsing.TriageScore;
 import app.components.parsing.javaparsing.codeparsing.CodeParser;
 import app.components.parsing.javaparsing.codeparsing.PatternDetector;
 import app.components.ui.CommandUI;
@@ -56,6 +58,11 @@ public class Results {
       XMLFileInfo xmlInfo = ParsingProcess.getXMLInfoObject();
 
       mdgenerator.appendPageHeader(null);
+      if (ConversionProcess.isTriageOn()) {
+        mdgenerator.appendTriageSummary(
+            TriageScore.calculate(CodeParser.getDetectedPatterns(), CodeParser.getFileInfoList()),
+            TriageScore.getPossiblePatterns());
+      }
       mdgenerator.appendCollectedSummary(xmlInfo, CodeParser.getDetectedPatterns());
       mdgenerator.appendLevelDescription(xmlInfo);
       mdgenerator.appendPatternDetectionSummary(CodeParser.getPatternDetectors(), xmlInfo);
@@ -69,6 +76,15 @@ public class Results {
         if (detector.isPatternFound())
           System.out.println("Pattern " + detector.getName() + " was detected!");
       }
+      if (ConversionProcess.isTriageOn()) {
+        for (PatternDetector detector : TriageScore.getPossiblePatterns()) {
+          System.out.println("Pattern " + detector.getName() + " may be present");
+        }
+        System.out.println(
+            "Triage score: "
+                + TriageScore.calculate(
+                    CodeParser.getDetectedPatterns(), CodeParser.getFileInfoList()));
+      }
       System.out.println("====================================================");
       startResultsMdGen(mdgenerator, commandUI);
     }
@@ -101,6 +117,12 @@ public class Results {
       mdgenerator.appendAndroidAllowBackup();
       System.out.println(XMLFileInfo.BACKUP_PNAME + " was detected!");
     }
+    if (!xmlInfo.getResourceFindings().isEmpty()) {
+      mdgenerator.appendResourceFindings(xmlInfo);
+      for (String patternName : xmlInfo.getResourcePatterns().keySet()) {
+        System.out.println(patternName + " was detected!");
+      }
+    }
 
     if (isFetchedDatabaseDataTrue) {
       OutputSilencer.restoreOutput();
@@ -6,23 +6,35 @@
 package app.components.ui;
 
 import app.components.conversion.ConversionProcess;
+import app.components.conversion.classconverter.ClassConverter;
+import app.components.conversion.dexconverter.Dex2JarExecutor;
+import app.components.conversion.dexconverter.DexPrefilter;
+import app.components.conversion.jarfilter.JarFilter;
+import app.components.conversion.jarfilter.LibraryFingerprints;
+import app.components.conversion.jarfilter.ScopeFilter;
+import app.components.conversion.unzip.ApkIngestion;
 import app.components.parsing.ParsingProcess;
+import app.components.parsing.TriageScore;
+import app.components.parsing.javaparsing.codeparsing.CodeParser;
 import app.components.resultsshowcase.PDFConverter;
 import app.components.resultsshowcase.Results;
 import app.database.databaseFetch.DatabaseFetchAnalysis;
 import app.database.databaseInsert.InsertAnalysisResults;
 import app.utils.DeleteDir;
-import app.utils.FileHashing;
 import app.utils.OutputSilencer;
 import app.utils.ThreadPoolManager;
 import app.utils.Timer;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 
 public class CommandUI {
 
@@ -37,8 +49,11 @@ public class CommandUI {
   private static String jsonPatternsPath = null;
   private static String fileHash;
   private static Boolean forceAnalysis = false;
+  private static boolean isIncremental = false;
   private static Boolean hashExist = false;
   private static boolean isFetchDatabaseData = false;
+  private boolean isTriageOn = false;
+  private Integer triageThreshold = null;
   private Timer timer = new Timer();
 
   /**
@@ -61,6 +76,8 @@ public class CommandUI {
    * <p>If -analyze flag is used, the {@code ConversionProcess} is skipped and the {@code
    * ParsingProcess} executes with the provided directory as its input.
    *
+   * <p>If -triage flag is used, only a triage scan of the APK is run, see {@link #runTriage()}.
+   *
    * <p>If an error occurs it displays it's message and prompts the user with a choice to eather
    * keep the converted files or delete the created folder.
    *
@@ -142,11 +159,26 @@ public class CommandUI {
        * jsonPatternsPath as null, so only patterns from database will be loaded
        */
     }
-    if (jsonPatternsPath == null) {
+    CompletableFuture<Boolean> hashCheck = new CompletableFuture<>();
+    if (!isAnalysisSpecified) {
       try {
-        /* Create a hash from APK */
-        fileHash = FileHashing.generateHashFromFile(apkPath, "SHA-256");
-        if (DatabaseFetchAnalysis.checkIfHashExist(fileHash) & !forceAnalysis) {
+        /* The database is searched for the hash while the APK is still being indexed */
+        ApkIngestion apkIngestion =
+            ApkIngestion.ingest(
+                Paths.get(apkPath),
+                jsonPatternsPath == null
+                    ? hash ->
+                        hashCheck.completeAsync(() -> DatabaseFetchAnalysis.checkIfHashExist(hash))
+                    : null);
+        ConversionProcess.setIngestion(apkIngestion);
+        fileHash = apkIngestion.getHash();
+      } catch (IOException e) {
+        System.err.println("Error occurred while generating a hash from an APK: " + e.getMessage());
+      }
+    }
+    if (jsonPatternsPath == null && fileHash != null) {
+      try {
+        if (hashCheck.get() & !forceAnalysis) {
           hashExist = true;
           if (DatabaseFetchAnalysis.isHashDateOlder(fileHash)) {
             System.out.println(
@@ -158,20 +190,29 @@ public class CommandUI {
 
           askUserForResultsFromDatabase();
         }
-      } catch (IOException e) {
-        System.err.println("Error occurred while generating a hash from an APK: " + e.getMessage());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } catch (ExecutionException e) {
+        System.err.println(
+            "Error occurred while searching for hash in a database: " + e.getCause().getMessage());
       }
     }
 
-    if (isMultiThreadingOn == null && !isAnalysisSpecified) {
+    if (isMultiThreadingOn == null
+        && !isAnalysisSpecified
+        && (!isTriageOn || triageThreshold != null)) {
       System.out.println(
           "\nWould you like to use multi-threading to speed up the conversion process?\n(Takes up a lot of systems resources) (yes/no)"
               + "\r\n");
       askUserForMultiThreading();
     }
+    CodeParser.setMultiThreading(Boolean.TRUE.equals(isMultiThreadingOn));
 
     try {
       if (!isAnalysisSpecified) {
+        if (isTriageOn && !runTriage()) {
+          return;
+        }
         System.out.println(
             "Starting the conversion and analysis process, this may take a while...\n");
         timer.start();
@@ -190,6 +231,10 @@ public class CommandUI {
         /* Save analysis results into a database if custom json is not specified */
         if (jsonPatternsPath == null) {
           InsertAnalysisResults.insertResults();
+          /* Results of the unchanged patterns are only available from the database */
+          if (isIncrementalAnalysis()) {
+            isFetchDatabaseData = true;
+          }
         }
       } else {
         System.out.println("Starting the analysis process, this may take a while...\n");
@@ -217,6 +262,51 @@ public class CommandUI {
     }
   }
 
+  /**
+   * Runs a triage scan of the APK, which reads the manifests and DEX files without decompiling any
+   * class, and creates a report of its preliminary results. If a triage threshold is given and the
+   * triage score of the APK is over it, the results of the scan are discarded and the deep analysis
+   * follows.
+   *
+   * @return true if the deep analysis should follow, false otherwise.
+   * @throws IOException If an I/O error occurs during the scan.
+   * @throws InterruptedException If the thread executing the scan is interrupted.
+   */
+  private boolean runTriage() throws IOException, InterruptedException {
+    System.out.println("Starting the triage scan...\n");
+    timer.start();
+    if (!verbose) {
+      OutputSilencer.silenceOutput();
+    }
+    ConversionProcess.setTriage(true);
+    ConversionProcess.startConversion(apkPath, isMultiThreadingOn, outputPath);
+    ParsingProcess.startParsing(null);
+    if (!verbose) {
+      OutputSilencer.restoreOutput();
+    }
+    System.out.println(
+        "===================================================================================");
+    Timer.printDuration("Total process", timer.stop());
+    Results.createResults(this);
+
+    int score =
+        TriageScore.calculate(CodeParser.getDetectedPatterns(), CodeParser.getFileInfoList());
+    ConversionProcess.setTriage(false);
+    if (triageThreshold == null || score <= triageThreshold) {
+      return false;
+    }
+    System.out.println(
+        "\nTriage score "
+            + score
+            + " is over the threshold of "
+            + triageThreshold
+            + ", starting the deep analysis...\n");
+    ParsingProcess.reset();
+    CodeParser.reset();
+    DexPrefilter.reset();
+    return true;
+  }
+
   /**
    * Manages the user interface for specifying the output location of a PDF file. This method asks
    * the user to specify if they want to save the PDF to the desktop or to a custom path. It then
@@ -433,6 +523,120 @@ public class CommandUI {
         case "-forceAnalysis":
           forceAnalysis = true;
           break;
+        case "-incremental":
+          isIncremental = true;
+          break;
+        case "-classmt":
+          isMultiThreadingOn = true;
+          ClassConverter.setClassGranular(true);
+          System.out.println("Running with per-class multi-threaded decompilation\n");
+          break;
+        case "-inmemory":
+          ConversionProcess.setInMemory(true);
+          break;
+        case "-stream":
+          ConversionProcess.setStreaming(true);
+          break;
+        case "-d2jshell":
+          Dex2JarExecutor.setShellConversion(true);
+          break;
+        case "-cfrcache":
+          if (i + 1 < args.length) {
+            try {
+              ClassConverter.setCacheDirectory(Paths.get(args[i + 1]));
+            } catch (IOException e) {
+              throw new IllegalArgumentException("Expected a valid path after -cfrcache flag");
+            }
+            i++;
+          } else {
+            throw new IllegalArgumentException("Expected a path after -cfrcache flag");
+          }
+          break;
+        case "-resultcache":
+          if (i + 1 < args.length) {
+            try {
+              CodeParser.setResultCacheDirectory(Paths.get(args[i + 1]));
+            } catch (IOException e) {
+              throw new IllegalArgumentException("Expected a valid path after -resultcache flag");
+            }
+            i++;
+          } else {
+            throw new IllegalArgumentException("Expected a path after -resultcache flag");
+          }
+          break;
+        case "-include":
+          if (i + 1 < args.length) {
+            ScopeFilter.addIncludeGlobs(args[i + 1]);
+            i++;
+          } else {
+            throw new IllegalArgumentException("Expected package globs after -include flag");
+          }
+          break;
+        case "-exclude":
+          if (i + 1 < args.length) {
+            ScopeFilter.addExcludeGlobs(args[i + 1]);
+            i++;
+          } else {
+            throw new IllegalArgumentException("Expected package globs after -exclude flag");
+          }
+          break;
+        case "-firstparty":
+          ScopeFilter.setFirstPartyOnly(true);
+          break;
+        case "-dexprefilter":
+          DexPrefilter.setEnabled(true);
+          break;
+        case "-bytecode":
+          DexPrefilter.setEnabled(true);
+          DexPrefilter.setBytecodeMatching(true);
+          break;
+        case "-triage":
+          isTriageOn = true;
+          break;
+        case "-triagethreshold":
+          if (i + 1 < args.length) {
+            try {
+              triageThreshold = Integer.parseInt(args[i + 1]);
+            } catch (NumberFormatException e) {
+              throw new IllegalArgumentException(
+                  "Expected a score after -triagethreshold flag");
+            }
+            isTriageOn = true;
+            i++;
+          } else {
+            throw new IllegalArgumentException("Expected a score after -triagethreshold flag");
+          }
+          break;
+        case "-skiplibs":
+          try {
+            JarFilter.setLibraryFingerprints(LibraryFingerprints.loadDefault());
+          } catch (IOException e) {
+            throw new IllegalArgumentException(
+                "Could not load the library fingerprint database: " + e.getMessage());
+          }
+          break;
+        case "-libdb":
+          if (i + 1 < args.length) {
+            try (InputStream in = Files.newInputStream(Paths.get(args[i + 1]))) {
+              JarFilter.setLibraryFingerprints(LibraryFingerprints.load(in));
+            } catch (IOException e) {
+              throw new IllegalArgumentException(
+                  "Expected a valid library fingerprint database after -libdb flag");
+            }
+            i++;
+          } else {
+            throw new IllegalArgumentException("Expected a path after -libdb flag");
+          }
+          break;
+        case "-buildlibdb":
+          if (i + 2 < args.length) {
+            buildLibraryFingerprints(Paths.get(args[i + 1]), Paths.get(args[i + 2]));
+            System.exit(0);
+          } else {
+            throw new IllegalArgumentException(
+                "Expected a JAR directory and an output file after -buildlibdb flag");
+          }
+          break;
         case "-v":
           verbose = true;
           break;
@@ -458,6 +662,9 @@ public class CommandUI {
       }
     }
     if (isAnalysisSpecified) {
+      if (isTriageOn) {
+        throw new IllegalArgumentException("The -triage flag can not be used with -analyze");
+      }
       apkPath = null;
       outputPath = null;
       isMultiThreadingOn = null;
@@ -471,14 +678,75 @@ public class CommandUI {
             + "Usage: flag [options]\n\n\n"
             + "Options:\n\n"
             + "  <PathToAPK>              Path to the APK file location (No flag needed)\n\n"
-            + "  -mt                      Increases application conversion speed by utilizing available cores\n\n"
+            + "  -mt                      Increases application conversion and analysis speed by utilizing available cores\n\n"
             + "                           of the CPU (Warning - uses a lot of resources)\n\n"
             + "  -outdir <Directory>      Specify the directory to store output files\n\n"
             + "  -outpdf <OutputPDF>      Specify the path to the end result PDF\n\n"
             + "  -v                       Toggles verbose output of conversion and parsing processes from OFF to ON\n\n"
             + "  -json                    Allows the user to input a path to a json file with custom dangerous patterns\n\n"
             + "  -analyze                 Specify directory to analyze instead of an APK\n\n"
-            + "  -forceAnalysis           Force analysis of APK even if it exists in the database\n\n");
+            + "  -forceAnalysis           Force analysis of APK even if it exists in the database\n\n"
+            + "  -incremental             If the APK exists in the database, only evaluate patterns that were\n\n"
+            + "                           added or modified since, keeping the results of the others\n\n"
+            + "  -classmt                 Enables multi-threading and decompiles class files in per-package\n\n"
+            + "                           units that are spread over all used cores\n\n"
+            + "  -inmemory                Keeps converted files in memory, they are only written to disk\n\n"
+            + "                           if -outdir is specified\n\n"
+            + "  -stream                  Analyzes decompiled classes while the rest of the APK is still\n\n"
+            + "                           being decompiled, implies -inmemory\n\n"
+            + "  -d2jshell                Convert DEX files by running the d2j-dex2jar script instead of\n\n"
+            + "                           the in-process dex2jar library\n\n"
+            + "  -cfrcache <Directory>    Reuse decompiled classes of previous analyses stored in the directory,\n\n"
+            + "                           only classes missing from it are decompiled\n\n"
+            + "  -resultcache <Directory> Reuse analysis results of java files stored in the directory,\n\n"
+            + "                           only files with new content or changed patterns are parsed\n\n"
+            + "  -include <Globs>         Analyze only packages matching the comma separated globs,\n\n"
+            + "                           e.g. com.example,org.*.app\n\n"
+            + "  -exclude <Globs>         Skip packages matching the comma separated globs, e.g. com.google\n\n"
+            + "  -firstparty              Analyze only the application package declared in the manifest\n\n"
+            + "                           and the packages given with -include\n\n"
+            + "  -dexprefilter            Convert and decompile only classes which invoke a method or create\n\n"
+            + "                           a type of a pattern, only the strings of other classes are analyzed\n\n"
+            + "  -bytecode                Detect patterns without data flow and argument conditions on the\n\n"
+            + "                           bytecode instead of decompiled code, implies -dexprefilter\n\n"
+            + "  -triage                  Scan the manifests and DEX files without decompiling and create\n\n"
+            + "                           a preliminary report within seconds\n\n"
+            + "  -triagethreshold <Score> Run a triage scan and start the deep analysis only if the\n\n"
+            + "                           triage score is over the given score, implies -triage\n\n"
+            + "  -skiplibs                Skip the conversion and analysis of packages of known third party\n\n"
+            + "                           libraries found in the bundled library fingerprint database,\n\n"
+            + "                           only class declarations are compared, changes to method\n\n"
+            + "                           bodies of library classes are not detected\n\n"
+            + "  -libdb <File>            Skip packages of known libraries found in the given library\n\n"
+            + "                           fingerprint database instead of the bundled one\n\n"
+            + "  -buildlibdb <Directory> <File> Build a library fingerprint database from the JAR files\n\n"
+            + "                           in the directory, write it to the file and exit\n\n");
+  }
+
+  /**
+   * Builds a library fingerprint database from reference JAR files, see {@link
+   * LibraryFingerprints#build(Path)}.
+   *
+   * @param jarDirectory The {@link Path} of the directory holding the reference JAR files.
+   * @param outputFile The {@link Path} the database is written to.
+   * @throws IllegalArgumentException If the JAR files can not be read or the database can not be
+   *     written.
+   */
+  private void buildLibraryFingerprints(Path jarDirectory, Path outputFile) {
+    try (OutputStream out = Files.newOutputStream(outputFile)) {
+      LibraryFingerprints fingerprints = LibraryFingerprints.build(jarDirectory);
+      fingerprints.write(out);
+      System.out.println(
+          "Library fingerprint database with "
+              + fingerprints.getPackageCount()
+              + " packages of "
+              + fingerprints.getLibraryNames().size()
+              + " libraries written to "
+              + outputFile);
+    } catch (IOException e) {
+      throw new IllegalArgumentException(
+          "Could not build the library fingerprint database: " + e.getMessage());
+    }
   }
 
   /** Simple method that prints a welcome message to the user */
@@ -530,6 +798,14 @@ public class CommandUI {
     return hashExist;
   }
 
+  /**
+   * @return true if only the patterns added or modified since the APK was last analyzed are
+   *     evaluated, false otherwise.
+   */
+  public static boolean isIncrementalAnalysis() {
+    return isIncremental && hashExist && jsonPatternsPath == null;
+  }
+
   public static boolean getIsFetchDatabaseDataTrue() {
     return isFetchDatabaseData;
   }
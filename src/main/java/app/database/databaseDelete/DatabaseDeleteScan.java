@@ -6,11 +6,24 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 
 public class DatabaseDeleteScan {
   public static void deleteLastHashResult(String hash) {
-    List<Integer> detectedPatternIds = getDetectedPatternIds(hash);
+    deleteLastHashResult(hash, Collections.emptySet());
+  }
+
+  /**
+   * Deletes the previous results of an APK, except for the patterns detected by unchanged pattern
+   * definitions, which were not evaluated again.
+   *
+   * @param hash The hash of the APK.
+   * @param keptPatternIds The IDs of the patterns whose detected patterns are kept.
+   */
+  public static void deleteLastHashResult(String hash, Set<Integer> keptPatternIds) {
+    List<Integer> detectedPatternIds = getDetectedPatternIds(hash, keptPatternIds);
 
     for (Integer id : detectedPatternIds) {
       deleteFoundObjectData(id);
@@ -63,9 +76,10 @@ public class DatabaseDeleteScan {
     }
   }
 
-  private static List<Integer> getDetectedPatternIds(String hash) {
+  private static List<Integer> getDetectedPatternIds(String hash, Set<Integer> keptPatternIds) {
     List<Integer> ids = new ArrayList<>();
-    String selectQuery = "SELECT detectedpatternid FROM detectedPatterns WHERE hashvalue = ?";
+    String selectQuery =
+        "SELECT detectedpatternid, patternid FROM detectedPatterns WHERE hashvalue = ?";
 
     try (Connection connection = DatabaseConnection.connect();
         PreparedStatement preparedStatement = connection.prepareStatement(selectQuery)) {
@@ -74,7 +88,9 @@ public class DatabaseDeleteScan {
       ResultSet resultSet = preparedStatement.executeQuery();
 
       while (resultSet.next()) {
-        ids.add(resultSet.getInt("detectedpatternid"));
+        if (!keptPatternIds.contains(resultSet.getInt("patternid"))) {
+          ids.add(resultSet.getInt("detectedpatternid"));
+        }
       }
     } catch (SQLException e) {
       System.out.println("Error occurred while fetching data: " + e.getMessage());
@@ -14,6 +14,7 @@ import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class DatabaseFetchAnalysis {
   private static final String OBJ_CREATION_DET = "ObjectCreationDetector";
@@ -47,6 +48,9 @@ public class DatabaseFetchAnalysis {
   private static final String SELECT_IF_HASH_EXISTS =
       "SELECT COUNT(*) FROM hashes WHERE hashvalue = ?";
 
+  private static final String SELECT_EVALUATED_PATTERNS =
+      "SELECT PatternID, Fingerprint FROM EvaluatedPatterns WHERE HashValue = ?";
+
   public static List<PatternDetector> fetchPatternsAndDetectors() {
     List<PatternDetector> patternDetectorList = new ArrayList<>();
 
@@ -168,4 +172,32 @@ public class DatabaseFetchAnalysis {
     }
     return false;
   }
+
+  /**
+   * Fetches the fingerprints of the patterns the stored results of an APK were detected with. If
+   * the fingerprints were never stored, an empty map is returned, so that every pattern is
+   * evaluated again.
+   *
+   * @param hashValue The hash of the APK.
+   * @return A map of pattern IDs to the fingerprints of their definitions.
+   */
+  public static Map<Integer, String> fetchEvaluatedPatterns(String hashValue) {
+    Map<Integer, String> evaluatedPatterns = new HashMap<>();
+    try (Connection connection = DatabaseConnection.connect();
+        PreparedStatement preparedStatement =
+            connection.prepareStatement(SELECT_EVALUATED_PATTERNS)) {
+      preparedStatement.setString(1, hashValue);
+
+      ResultSet rs = preparedStatement.executeQuery();
+
+      while (rs.next()) {
+        evaluatedPatterns.put(rs.getInt("PatternID"), rs.getString("Fingerprint"));
+      }
+    } catch (SQLException e) {
+      System.out.println(
+          "Error occurred while fetching evaluated patterns, all patterns will be evaluated: "
+              + e.getMessage());
+    }
+    return evaluatedPatterns;
+  }
 }
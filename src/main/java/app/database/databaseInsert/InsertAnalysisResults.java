@@ -29,14 +29,16 @@ public class InsertAnalysisResults {
     if (!CommandUI.getHashExist()) {
       insertHashes(CommandUI.getFileHash(), CommandUI.getApkPath());
     } else {
-      // Delete all previous code parsing results assosiated with this hash and update
-      // hash date scanned
-      DatabaseDeleteScan.deleteLastHashResult(CommandUI.getFileHash());
+      // Delete all previous code parsing results assosiated with this hash, except for the ones
+      // of unchanged patterns which were not evaluated again, and update hash date scanned
+      DatabaseDeleteScan.deleteLastHashResult(
+          CommandUI.getFileHash(), ParsingProcess.getUnchangedPatternIds());
       updateDateCreated(CommandUI.getFileHash());
     }
 
     // It will insert all detected patterns, foundObjectData and edges
     insertDetectedPatterns(CodeParser.getDetectedPatterns(), CommandUI.getFileHash());
+    insertEvaluatedPatterns(ParsingProcess.getPatternFingerprints(), CommandUI.getFileHash());
 
     insertIPAddresses(CodeParser.getFileInfoList(), CommandUI.getFileHash());
     insertXMLDangers(ParsingProcess.getXMLInfoObject(), CommandUI.getFileHash());
@@ -180,6 +182,42 @@ public class InsertAnalysisResults {
     }
   }
 
+  /**
+   * Stores the fingerprints of the patterns the APK was analyzed with, replacing the previous ones.
+   * A later incremental analysis only evaluates the patterns whose fingerprint changed.
+   *
+   * @param patternFingerprints A map of pattern IDs to the fingerprints of their definitions.
+   * @param hash The hash of the APK.
+   */
+  private static void insertEvaluatedPatterns(
+      Map<Integer, String> patternFingerprints, String hash) {
+    final String createQuery =
+        "CREATE TABLE IF NOT EXISTS evaluatedpatterns (hashvalue VARCHAR(64) NOT NULL, patternid INT NOT NULL, fingerprint CHAR(64) NOT NULL, PRIMARY KEY (hashvalue, patternid))";
+    final String deleteQuery = "DELETE FROM evaluatedpatterns WHERE hashvalue = ?";
+    final String insertQuery =
+        "INSERT INTO evaluatedpatterns (hashvalue, patternid, fingerprint) VALUES (?, ?, ?)";
+
+    try (Connection connection = DatabaseConnection.connect();
+        Statement statement = connection.createStatement();
+        PreparedStatement deletePreparedStatement = connection.prepareStatement(deleteQuery);
+        PreparedStatement preparedStatement = connection.prepareStatement(insertQuery)) {
+
+      statement.executeUpdate(createQuery);
+      deletePreparedStatement.setString(1, hash);
+      deletePreparedStatement.executeUpdate();
+
+      for (Map.Entry<Integer, String> entry : patternFingerprints.entrySet()) {
+        preparedStatement.setString(1, hash);
+        preparedStatement.setInt(2, entry.getKey());
+        preparedStatement.setString(3, entry.getValue());
+
+        preparedStatement.executeUpdate();
+      }
+    } catch (SQLException e) {
+      System.out.println("Error occurred while inserting data: " + e.getMessage());
+    }
+  }
+
   private static void insertIPAddresses(List<FileInfo> fileInfoList, String hash) {
     final String insertQuery =
         "INSERT INTO ipaddresses (addressvalue, addresstype) VALUES (?, ?) ON CONFLICT (addressvalue) DO NOTHING";
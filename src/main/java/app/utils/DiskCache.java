@@ -0,0 +1,173 @@
+package app.utils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A size-bounded store of entries in a directory, which is shared between runs of the
+ * application. Every entry is a file named by its key, which callers derive from a hash of the
+ * content the entry was created from.
+ *
+ * <p>The modification time of an entry is updated whenever it is read, so {@link #evict()} removes
+ * the least recently used entries first. Entries are written to a temporary file and moved into
+ * place, so a single instance can be used by several threads at once and several processes can
+ * share the same directory.
+ */
+public class DiskCache {
+
+  private final Path directory;
+  private final long maxSize;
+  private final String extension;
+  private final AtomicLong size = new AtomicLong();
+  private final AtomicInteger hitCount = new AtomicInteger();
+  private final AtomicInteger missCount = new AtomicInteger();
+
+  /**
+   * Opens the cache stored in a directory, creating the directory if it does not exist yet.
+   *
+   * @param directory The {@link Path} of the cache directory.
+   * @param maxSize The maximum total size of the cached entries in bytes.
+   * @param extension The file extension of the entries, e.g. ".java".
+   * @throws IOException If the directory can not be created or read.
+   */
+  public DiskCache(Path directory, long maxSize, String extension) throws IOException {
+    this.directory = directory;
+    this.maxSize = maxSize;
+    this.extension = extension;
+    Files.createDirectories(directory);
+    for (Path entry : listEntries()) {
+      size.addAndGet(Files.size(entry));
+    }
+  }
+
+  /**
+   * Returns the content of an entry and marks it as recently used.
+   *
+   * @param key The key of the entry, at least two characters long.
+   * @return The content of the entry, or null if there is no entry for the key.
+   */
+  public byte[] get(String key) {
+    Path entry = getEntryPath(key);
+    try {
+      byte[] content = Files.readAllBytes(entry);
+      Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+      hitCount.incrementAndGet();
+      return content;
+    } catch (NoSuchFileException e) {
+      missCount.incrementAndGet();
+      return null;
+    } catch (IOException e) {
+      System.err.println("Could not read cache entry: " + entry);
+      missCount.incrementAndGet();
+      return null;
+    }
+  }
+
+  /**
+   * Stores an entry, replacing a previous entry with the same key.
+   *
+   * @param key The key of the entry, at least two characters long.
+   * @param content The content of the entry.
+   */
+  public void put(String key, byte[] content) {
+    Path entry = getEntryPath(key);
+    try {
+      Files.createDirectories(entry.getParent());
+      Path tempFile = Files.createTempFile(entry.getParent(), key, ".tmp");
+      Files.write(tempFile, content);
+      long replacedSize = Files.exists(entry) ? Files.size(entry) : 0;
+      Files.move(tempFile, entry, StandardCopyOption.REPLACE_EXISTING);
+      size.addAndGet(content.length - replacedSize);
+    } catch (IOException e) {
+      System.err.println("Could not write cache entry: " + entry);
+    }
+  }
+
+  /**
+   * Removes the least recently used entries until the total size of the cache is within its
+   * bound.
+   *
+   * @throws IOException If the cache directory can not be read.
+   */
+  public void evict() throws IOException {
+    if (size.get() <= maxSize) {
+      return;
+    }
+    List<Path> entries = listEntries();
+    Map<Path, FileTime> lastUsed = new HashMap<>();
+    long remainingSize = 0;
+    for (Path entry : entries) {
+      lastUsed.put(entry, Files.getLastModifiedTime(entry));
+      remainingSize += Files.size(entry);
+    }
+    entries.sort(Comparator.comparing(lastUsed::get));
+
+    for (int i = 0; i < entries.size() && remainingSize > maxSize; i++) {
+      long entrySize = Files.size(entries.get(i));
+      Files.deleteIfExists(entries.get(i));
+      remainingSize -= entrySize;
+    }
+    size.set(remainingSize);
+  }
+
+  /**
+   * @return The number of entries found since the cache was opened.
+   */
+  public int getHitCount() {
+    return hitCount.get();
+  }
+
+  /**
+   * @return The number of entries missing since the cache was opened.
+   */
+  public int getMissCount() {
+    return missCount.get();
+  }
+
+  /**
+   * @return The percentage of entries found since the cache was opened.
+   */
+  public double getHitRate() {
+    int lookupCount = hitCount.get() + missCount.get();
+    return lookupCount == 0 ? 0 : 100.0 * hitCount.get() / lookupCount;
+  }
+
+  /**
+   * @return The total size of the cached entries in bytes.
+   */
+  public long getSize() {
+    return size.get();
+  }
+
+  /**
+   * Returns the path of an entry. Entries are spread over subdirectories named by the first two
+   * characters of their key, so that no directory holds too many files.
+   *
+   * @param key The key of the entry.
+   * @return The {@link Path} of the entry file.
+   */
+  private Path getEntryPath(String key) {
+    return directory.resolve(key.substring(0, 2)).resolve(key + extension);
+  }
+
+  private List<Path> listEntries() throws IOException {
+    try (Stream<Path> paths = Files.walk(directory)) {
+      return paths
+          .filter(path -> path.getFileName().toString().endsWith(extension))
+          .filter(Files::isRegularFile)
+          .collect(Collectors.toList());
+    }
+  }
+}
@@ -8,34 +8,45 @@ import java.io.File;
 import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class DotToImage {
   private static final String PATH_TO_GRAPH_FOLDER =
       File.separator + "dataflow_graph" + File.separator;
-  private static String outputFilePath;
+  private static final AtomicInteger graphCount = new AtomicInteger();
 
   public static String convert(String dotString, String specifiedDir) {
-    outputFilePath = specifiedDir;
-    return startConversion(dotString);
+    return startConversion(dotString, specifiedDir);
   }
 
   public static String convert(String dotString) {
     String apkFilePath = CommandUI.getApkPath();
     if (apkFilePath == null) {
-      outputFilePath = CommandUI.analysisDirPath().toString() + PATH_TO_GRAPH_FOLDER;
-    } else {
-      outputFilePath = ConversionProcess.getOutputPath() + PATH_TO_GRAPH_FOLDER;
+      return startConversion(
+          dotString, CommandUI.analysisDirPath().toString() + PATH_TO_GRAPH_FOLDER);
     }
-    return startConversion(dotString);
+    return startConversion(dotString, ConversionProcess.getOutputPath() + PATH_TO_GRAPH_FOLDER);
   }
 
-  private static String startConversion(String dotString) {
+  /**
+   * Renders a dot graph to a PNG image. Graphs may be rendered by several analysis threads at once,
+   * so a running number is added to the timestamp to keep the image names unique and rendering
+   * itself is serialized.
+   *
+   * @param dotString The graph in the dot format.
+   * @param outputDirPath The path of the directory the image is written to.
+   * @return The path of the rendered image, or null if it could not be rendered.
+   */
+  private static String startConversion(String dotString, String outputDirPath) {
     try {
       String timeStamp = new SimpleDateFormat("yyyyMMdd_HHmmss").format(new Date());
-      outputFilePath = outputFilePath + timeStamp + ".png";
+      String outputFilePath =
+          outputDirPath + timeStamp + "_" + graphCount.incrementAndGet() + ".png";
 
       if (isGraphvizInstalled()) {
-        Graphviz.fromString(dotString).render(Format.PNG).toFile(new File(outputFilePath));
+        synchronized (DotToImage.class) {
+          Graphviz.fromString(dotString).render(Format.PNG).toFile(new File(outputFilePath));
+        }
       } else {
         System.err.println("Graphviz is not installed. Unable to render graph.");
         return null;
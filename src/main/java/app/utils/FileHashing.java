@@ -2,6 +2,7 @@ package app.utils;
 
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 
@@ -41,6 +42,24 @@ public class FileHashing {
     }
   }
 
+  /**
+   * Generates a hash from the UTF-8 bytes of a string using a specific algorithm.
+   *
+   * @param content the string to hash
+   * @param algorithm the hash algorithm to use ("SHA-256")
+   * @return the hash of the string
+   * @throws IOException if the algorithm is unsupported
+   */
+  public static String generateHashFromString(String content, String algorithm)
+      throws IOException {
+    try {
+      MessageDigest digest = MessageDigest.getInstance(algorithm);
+      return bytesToHex(digest.digest(content.getBytes(StandardCharsets.UTF_8)));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IOException("Algorithm: " + algorithm + " is unsupported");
+    }
+  }
+
   /**
    * Converts a byte array to a hexadecimal string. Reffers
    * https://www.baeldung.com/sha-256-hashing-java
@@ -48,7 +67,7 @@ public class FileHashing {
    * @param bytes the byte array to convert
    * @return the hexadecimal string
    */
-  private static String bytesToHex(byte[] bytes) {
+  public static String bytesToHex(byte[] bytes) {
     StringBuilder hexString = new StringBuilder();
     for (byte b : bytes) {
       String hex = Integer.toHexString(0xff & b);
@@ -6,6 +6,7 @@ import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.util.List;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -25,8 +26,25 @@ public class ReadFilesFromDirectory {
    */
   public static List<File> getSpecificFilesFromDirectory(Path directoryPath, String searchCriteria)
       throws IOException {
+    return getSpecificFilesFromDirectory(directoryPath, searchCriteria, path -> true);
+  }
+
+  /**
+   * Retrieves all specific files that match the provided criteria and filter in a specified
+   * directory and its subdirectories, see {@link #getSpecificFilesFromDirectory(Path, String)}.
+   *
+   * @param directoryPath A {@link Path} representing the root directory path
+   * @param searchCriteria A {@link String} representing the search criteria to look for
+   * @param filter A {@link Predicate} deciding whether a matching file is retrieved, e.g. whether
+   *     it lies in the analyzed scope
+   * @return A {@link List} of {@link File} objects representing files with specified criteria
+   * @throws IOException if an error ocurred during file retrieval
+   * @throws NoSuchFileException if no files were found with the given criteria
+   */
+  public static List<File> getSpecificFilesFromDirectory(
+      Path directoryPath, String searchCriteria, Predicate<Path> filter) throws IOException {
     try (Stream<Path> paths = Files.walk(directoryPath)) {
-      List<File> files = findSpecificFiles(paths, searchCriteria);
+      List<File> files = findSpecificFiles(paths.filter(filter), searchCriteria);
       if (files.isEmpty()) {
         throw new NoSuchFileException(
             "No files with extension " + searchCriteria + " found in " + directoryPath);
@@ -21,6 +21,7 @@ public class ThreadPoolManager {
   private ExecutorService executor;
   private static final int TIME_OUT_IN_MINUTES = 60;
   private int threadCount = 0;
+  private boolean isWorkStealing = false;
 
   /**
    * Private constructor for ThreadPoolManager. This constructor is private to prevent direct
@@ -43,6 +44,7 @@ public class ThreadPoolManager {
     }
     threadCount = Math.min(neededCores, coreCount);
     executor = Executors.newFixedThreadPool(threadCount);
+    isWorkStealing = false;
   }
 
   /**
@@ -56,7 +58,7 @@ public class ThreadPoolManager {
    * @param neededCores The number of threads required.
    */
   public void initializeFixedThreadPool(int neededCores) throws InterruptedException {
-    if (!isInitialized() || threadCount != neededCores) {
+    if (!isInitialized() || threadCount != neededCores || isWorkStealing) {
       if (isInitialized()) {
         this.shutdownExecutor();
       }
@@ -64,6 +66,30 @@ public class ThreadPoolManager {
     }
   }
 
+  /**
+   * Initializes or reinitializes the executor as a work-stealing pool. Unlike the fixed thread
+   * pool, the number of threads does not depend on the number of tasks, so many small tasks of
+   * uneven size are balanced over all threads. Same as for the fixed thread pool, half of the
+   * available processors are used to save resources.
+   *
+   * @throws InterruptedException if interrupted while shutting down the previous executor.
+   */
+  public void initializeWorkStealingPool() throws InterruptedException {
+    if (isInitialized() && isWorkStealing) {
+      return;
+    }
+    if (isInitialized()) {
+      this.shutdownExecutor();
+    }
+    int coreCount = Runtime.getRuntime().availableProcessors();
+    if (coreCount != 1) {
+      coreCount /= 2;
+    }
+    threadCount = coreCount;
+    executor = Executors.newWorkStealingPool(threadCount);
+    isWorkStealing = true;
+  }
+
   /**
    * Checks whether executor is initialized & not shut down
    *
@@ -0,0 +1,61 @@
+package app.components.classconverter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import app.components.conversion.classconverter.DecompilationCache;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class DecompilationCacheTest {
+
+  @Test
+  void testGetAndPut(@TempDir Path tempDir) throws IOException {
+    DecompilationCache cache = new DecompilationCache(tempDir, 1024, "CFR 0.152");
+    String key = cache.getKey(Arrays.asList(new byte[] {1, 2}, new byte[] {3}));
+
+    assertEquals(64, key.length());
+    assertNotEquals(key, cache.getKey(Arrays.asList(new byte[] {1}, new byte[] {2, 3})));
+    assertNotEquals(
+        key,
+        new DecompilationCache(tempDir, 1024, "CFR 0.151")
+            .getKey(Arrays.asList(new byte[] {1, 2}, new byte[] {3})));
+
+    assertNull(cache.get(key));
+    cache.put(key, "class Main {}");
+    assertEquals("class Main {}", cache.get(key));
+    assertEquals(1, cache.getHitCount());
+    assertEquals(1, cache.getMissCount());
+    assertEquals("Decompilation cache hit rate: 50.0% (1 of 2 classes)", cache.getStatistics());
+
+    // Entries are kept between cache instances
+    DecompilationCache reopenedCache = new DecompilationCache(tempDir, 1024, "CFR 0.152");
+    assertEquals("class Main {}".length(), reopenedCache.getSize());
+    assertEquals("class Main {}", reopenedCache.get(key));
+  }
+
+  @Test
+  void testEvictLeastRecentlyUsed(@TempDir Path tempDir) throws IOException {
+    DecompilationCache cache = new DecompilationCache(tempDir, 20, "CFR 0.152");
+    String first = cache.getKey(Collections.singletonList(new byte[] {1}));
+    String second = cache.getKey(Collections.singletonList(new byte[] {2}));
+    String third = cache.getKey(Collections.singletonList(new byte[] {3}));
+
+    cache.put(first, "0123456789");
+    cache.put(second, "0123456789");
+    tempDir.resolve(first.substring(0, 2)).resolve(first + ".java").toFile().setLastModified(0);
+    tempDir.resolve(second.substring(0, 2)).resolve(second + ".java").toFile().setLastModified(0);
+    // Reading the first entry makes the second one the least recently used
+    assertNotNull(cache.get(first));
+    cache.put(third, "0123456789");
+    cache.evict();
+
+    assertEquals(20, cache.getSize());
+    assertNotNull(cache.get(first));
+    assertNull(cache.get(second));
+    assertNotNull(cache.get(third));
+  }
+}
@@ -0,0 +1,77 @@
+package app.components.classconverter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import app.components.conversion.classconverter.InMemoryClassFileSource;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class InMemoryClassFileSourceTest {
+
+  @Test
+  void testTopLevelClassPaths(@TempDir Path tempDir) throws IOException {
+    File jarFile =
+        createJar(
+            tempDir, "com/example/Main.class", "com/example/Main$1.class", "a/b$c.class", "a/d");
+
+    InMemoryClassFileSource classFileSource = new InMemoryClassFileSource();
+    classFileSource.addJars(Arrays.asList(jarFile));
+
+    List<String> topLevelClassPaths = classFileSource.getTopLevelClassPaths();
+    assertEquals(3, classFileSource.size());
+    assertEquals(2, topLevelClassPaths.size());
+    assertTrue(topLevelClassPaths.contains("com/example/Main.class"));
+    assertTrue(topLevelClassPaths.contains("a/b$c.class"));
+  }
+
+  @Test
+  void testGetClassFileContent(@TempDir Path tempDir) throws IOException {
+    InMemoryClassFileSource classFileSource = new InMemoryClassFileSource();
+    classFileSource.addJars(Arrays.asList(createJar(tempDir, "com/example/Main.class")));
+
+    assertArrayEquals(
+        "com/example/Main.class".getBytes(),
+        classFileSource.getClassFileContent("com/example/Main.class").getFirst());
+    assertNotNull(classFileSource.getClassFileContent("java/lang/Object.class").getFirst());
+    assertThrows(
+        IOException.class, () -> classFileSource.getClassFileContent("com/example/None.class"));
+  }
+
+  @Test
+  void testGetClassFiles() {
+    InMemoryClassFileSource classFileSource = new InMemoryClassFileSource();
+    classFileSource.addClass("a/Main.class", new byte[] {1});
+    classFileSource.addClass("a/Main$2.class", new byte[] {3});
+    classFileSource.addClass("a/Main$1$1.class", new byte[] {4});
+    classFileSource.addClass("a/Main$1.class", new byte[] {2});
+    classFileSource.addClass("a/Other.class", new byte[] {5});
+
+    List<byte[]> classFiles = classFileSource.getClassFiles("a/Main.class");
+    assertEquals(4, classFiles.size());
+    assertArrayEquals(new byte[] {1}, classFiles.get(0));
+    assertArrayEquals(new byte[] {4}, classFiles.get(1));
+    assertArrayEquals(new byte[] {2}, classFiles.get(2));
+    assertArrayEquals(new byte[] {3}, classFiles.get(3));
+    assertEquals(1, classFileSource.getClassFiles("a/Other.class").size());
+  }
+
+  private File createJar(Path tempDir, String... entryNames) throws IOException {
+    File jarFile = tempDir.resolve("classes.jar").toFile();
+    try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(jarFile))) {
+      for (String entryName : entryNames) {
+        out.putNextEntry(new ZipEntry(entryName));
+        out.write(entryName.getBytes());
+        out.closeEntry();
+      }
+    }
+    return jarFile;
+  }
+}
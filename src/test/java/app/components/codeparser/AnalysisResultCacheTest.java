@@ -0,0 +1,59 @@
+package app.components.codeparser;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import app.components.model.DangerousPattern;
+import app.components.model.FileInfo;
+import app.components.parsing.javaparsing.codeparsing.AnalysisResultCache;
+import app.utils.DataFlowGraphGenerator;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class AnalysisResultCacheTest {
+
+  @Test
+  public void testGetAndPut(@TempDir Path tempDir) throws IOException {
+    AnalysisResultCache cache = new AnalysisResultCache(tempDir, Long.MAX_VALUE);
+    byte[] content = "class Main {}".getBytes(StandardCharsets.UTF_8);
+    String key = cache.getKey("patterns", content);
+    assertNotEquals(key, cache.getKey("changed patterns", content));
+    assertNull(cache.get(key));
+
+    DataFlowGraphGenerator graph = new DataFlowGraphGenerator();
+    graph.addMethod("getText", "");
+    graph.addVariable("query", "");
+    graph.addEdge("getText", "query", "");
+    DangerousPattern pattern =
+        new DangerousPattern(
+            "Raw query", "query()", null, false, new File("Old.java"), null, "Warning", 7, graph);
+    FileInfo fileInfo = new FileInfo(new File("Old.java"));
+    fileInfo.addDomainName("example.com");
+    cache.put(
+        key,
+        new AnalysisResultCache.FileResult(
+            List.of(pattern), List.of("example.com", "text"), List.of(fileInfo)));
+
+    AnalysisResultCache.FileResult result = cache.get(key);
+    assertNotNull(result);
+    assertEquals(List.of("example.com", "text"), result.getStrings());
+    File file = new File("New.java");
+    DangerousPattern cachedPattern = result.createDangerousPatterns(file).get(0);
+    assertEquals("Raw query", cachedPattern.getPatternName());
+    assertEquals("query()", cachedPattern.getCodeSnippet());
+    assertEquals(file, cachedPattern.getJavaFile());
+    assertNull(cachedPattern.getDescription());
+    assertNull(cachedPattern.getDataflowGraphPath());
+    assertEquals(Integer.valueOf(7), cachedPattern.getPatternId());
+    assertEquals(graph.getEdges(), cachedPattern.getDataFlowGraphGenerator().getEdges());
+    List<FileInfo> fileInfos = result.createFileInfos(file);
+    assertEquals(1, fileInfos.size());
+    assertEquals(file, fileInfos.get(0).getFile());
+    assertTrue(fileInfos.get(0).getDomains().contains("example.com"));
+    assertTrue(cache.getStatistics().contains("(1 of 2 files)"));
+  }
+}
@@ -0,0 +1,119 @@
+package app.components.codeparser;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import app.components.model.DangerousPattern;
+import app.components.parsing.javaparsing.codeparsing.BytecodeMatcher;
+import app.components.parsing.javaparsing.codeparsing.PatternDetector;
+import app.components.parsing.javaparsing.detectors.BytecodeMethod;
+import app.components.parsing.javaparsing.detectors.MethodArgumentDetector;
+import app.components.parsing.javaparsing.detectors.MethodCallDetector;
+import app.components.parsing.javaparsing.detectors.ObjectCreationDetector;
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+class BytecodeMatcherTest {
+
+  private final List<BytecodeMethod> methods =
+      Arrays.asList(
+          new Method(
+              "app.Crypto", "hash", Arrays.asList("getInstance", "digest"), "java.util.Random"),
+          new Method(
+              "app.Crypto$1", "run", Collections.singletonList("nextInt"), "java.util.Map$Entry"));
+
+  @Test
+  public void testIsBytecodePattern() {
+    PatternDetector calls = new PatternDetector("Calls", 1, false, "", "Warning");
+    calls.addDetector(new MethodCallDetector("getInstance", calls));
+    calls.addDetector(new ObjectCreationDetector("Random", calls));
+    PatternDetector dataFlow = new PatternDetector("DataFlow", 2, true, "", "Warning");
+    dataFlow.addDetector(new MethodCallDetector("getInstance", dataFlow));
+    dataFlow.addDetector(new MethodCallDetector("digest", dataFlow));
+    PatternDetector argument = new PatternDetector("Argument", 1, false, "", "Warning");
+    argument.addDetector(new MethodArgumentDetector("getInstance", "MD5", true, argument));
+
+    assertTrue(BytecodeMatcher.isBytecodePattern(calls));
+    assertFalse(BytecodeMatcher.isBytecodePattern(dataFlow));
+    assertFalse(BytecodeMatcher.isBytecodePattern(argument));
+    assertFalse(
+        BytecodeMatcher.isBytecodePattern(new PatternDetector("Empty", 0, false, "", "Warning")));
+    assertEquals(
+        Collections.singletonList(calls),
+        new BytecodeMatcher(Arrays.asList(calls, dataFlow, argument)).getBytecodePatterns());
+  }
+
+  @Test
+  public void testMatch() {
+    PatternDetector random = new PatternDetector("Random", 2, false, "Weak random", "Warning", 7);
+    random.addDetector(new MethodCallDetector("nextInt", random));
+    random.addDetector(new MethodCallDetector("setSeed", random));
+    random.addDetector(new ObjectCreationDetector("Random", random));
+    PatternDetector entry = new PatternDetector("Entry", 1, false, "", "Warning");
+    entry.addDetector(new ObjectCreationDetector("Map.Entry", entry));
+    PatternDetector qualified = new PatternDetector("Qualified", 1, false, "", "Warning");
+    qualified.addDetector(new ObjectCreationDetector("java.util.Random", qualified));
+    PatternDetector missing = new PatternDetector("Missing", 2, false, "", "Warning");
+    missing.addDetector(new MethodCallDetector("getInstance", missing));
+    missing.addDetector(new ObjectCreationDetector("SecureRandom", missing));
+
+    File sourceFile = new File("app/Crypto.java");
+    List<DangerousPattern> dangerousPatterns =
+        new BytecodeMatcher(Arrays.asList(random, entry, qualified, missing))
+            .match(sourceFile, methods);
+
+    assertEquals(3, dangerousPatterns.size());
+    DangerousPattern randomPattern = dangerousPatterns.get(0);
+    assertEquals("Random", randomPattern.getPatternName());
+    assertEquals(sourceFile, randomPattern.getJavaFile());
+    assertEquals(Integer.valueOf(7), randomPattern.getPatternId());
+    assertEquals(
+        "package app\n\n"
+            + "// app.Crypto$1.run() calls nextInt()\n"
+            + "// app.Crypto.hash() creates new Random()\n",
+        randomPattern.getCodeSnippet());
+    assertEquals("Entry", dangerousPatterns.get(1).getPatternName());
+    assertEquals("Qualified", dangerousPatterns.get(2).getPatternName());
+    assertTrue(random.isPatternFound());
+    assertFalse(missing.isPatternFound());
+  }
+
+  /** A {@link BytecodeMethod} with fixed references. */
+  private static class Method implements BytecodeMethod {
+    private final String className;
+    private final String name;
+    private final Set<String> invokedMethods;
+    private final Set<String> createdTypes;
+
+    private Method(String className, String name, List<String> invokedMethods, String createdType) {
+      this.className = className;
+      this.name = name;
+      this.invokedMethods = new HashSet<>(invokedMethods);
+      this.createdTypes = Collections.singleton(createdType);
+    }
+
+    @Override
+    public String getClassName() {
+      return className;
+    }
+
+    @Override
+    public String getName() {
+      return name;
+    }
+
+    @Override
+    public Set<String> getInvokedMethods() {
+      return invokedMethods;
+    }
+
+    @Override
+    public Set<String> getCreatedTypes() {
+      return createdTypes;
+    }
+  }
+}
@@ -0,0 +1,128 @@
+package app.components.codeparser;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import app.components.parsing.javaparsing.codeparsing.CallSiteIndex;
+import app.components.parsing.javaparsing.codeparsing.PatternDetector;
+import app.components.parsing.javaparsing.detectors.MethodArgumentDetector;
+import app.components.parsing.javaparsing.detectors.MethodCallDetector;
+import app.components.parsing.javaparsing.detectors.ObjectCreationDetector;
+import app.components.parsing.javaparsing.detectors.StringLiteralScanner;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CallSiteIndexTest {
+
+  private static final String SOURCE =
+      "package app;\n"
+          + "class Crypto {\n"
+          + "  // getRandom(\"comment\")\n"
+          + "  void hash() {\n"
+          + "    MessageDigest.getInstance (\"MD5\");\n"
+          + "    Object random = new java.util .Random();\n"
+          + "    log(\"SHA-256 is not used\" + 'x');\n"
+          + "  }\n"
+          + "}\n";
+
+  @Test
+  public void testMayMatch(@TempDir Path tempDir) throws IOException {
+    File file = writeFile(tempDir, "Crypto.java", SOURCE);
+    CallSiteIndex.FileEntry entry =
+        CallSiteIndex.load(tempDir, tempDir).add(file, SOURCE.getBytes(StandardCharsets.UTF_8));
+
+    assertTrue(entry.mayMatch(createPattern(1, new String[] {"getInstance", "MD5"})));
+    assertTrue(entry.mayMatch(createPattern(1, new String[] {"getInstance", "M"}, "getRandom")));
+    assertFalse(entry.mayMatch(createPattern(1, new String[] {"getInstance", "SHA-1"})));
+    assertFalse(entry.mayMatch(createPattern(2, new String[] {"getInstance", "MD5"}, "getRandom")));
+    assertFalse(entry.mayMatch(createPattern(1, null, "hashCode")));
+
+    PatternDetector random = new PatternDetector("Random", 1, false, "", "Warning");
+    random.addDetector(new ObjectCreationDetector("java.util.Random", random));
+    PatternDetector digest = new PatternDetector("Digest", 1, false, "", "Warning");
+    digest.addDetector(new ObjectCreationDetector("MessageDigest", digest));
+    assertTrue(entry.mayMatch(random));
+    assertFalse(entry.mayMatch(digest));
+    assertEquals(StringLiteralScanner.scan(SOURCE), entry.getStrings());
+  }
+
+  @Test
+  public void testSaveAndLoad(@TempDir Path tempDir) throws IOException {
+    Path sourceDir = Files.createDirectories(tempDir.resolve("sources"));
+    Path cacheDir = tempDir.resolve("cache");
+    File file = writeFile(sourceDir, "Crypto.java", SOURCE);
+    CallSiteIndex index = CallSiteIndex.load(sourceDir, cacheDir);
+    assertNull(index.get(file));
+    index.add(file, Files.readAllBytes(file.toPath()));
+    index.save();
+    try (Stream<Path> paths = Files.list(sourceDir)) {
+      assertEquals(1, paths.count());
+    }
+
+    CallSiteIndex loadedIndex = CallSiteIndex.load(sourceDir, cacheDir);
+    CallSiteIndex.FileEntry entry = loadedIndex.get(file);
+    assertNotNull(entry);
+    assertEquals(1, loadedIndex.getReusedCount());
+    assertTrue(entry.mayMatch(createPattern(1, new String[] {"getInstance", "MD5"})));
+    assertEquals(StringLiteralScanner.scan(SOURCE), entry.getStrings());
+
+    writeFile(sourceDir, "Crypto.java", SOURCE + "\n");
+    assertNull(CallSiteIndex.load(sourceDir, cacheDir).get(file));
+  }
+
+  @Test
+  public void testDeletedFilesArePruned(@TempDir Path tempDir) throws IOException {
+    File file = writeFile(tempDir, "Crypto.java", SOURCE);
+    long lastModified = file.lastModified();
+    CallSiteIndex index = CallSiteIndex.load(tempDir, tempDir.resolve("cache"));
+    index.add(file, Files.readAllBytes(file.toPath()));
+    index.save();
+
+    Files.delete(file.toPath());
+    CallSiteIndex.load(tempDir, tempDir.resolve("cache")).save();
+    writeFile(tempDir, "Crypto.java", SOURCE).setLastModified(lastModified);
+    assertNull(CallSiteIndex.load(tempDir, tempDir.resolve("cache")).get(file));
+  }
+
+  @Test
+  public void testEscapedArguments(@TempDir Path tempDir) throws IOException {
+    String source = "class Crypto {\n  Object cipher = Cipher.getInstance(\"AES\\\"ECB\");\n}\n";
+    File file = writeFile(tempDir, "Crypto.java", source);
+    CallSiteIndex.FileEntry entry =
+        CallSiteIndex.load(tempDir, tempDir).add(file, source.getBytes(StandardCharsets.UTF_8));
+
+    assertTrue(entry.mayMatch(createPattern(1, new String[] {"getInstance", "AES\"ECB"})));
+    assertFalse(entry.mayMatch(createPattern(1, new String[] {"getInstance", "AES\\"})));
+  }
+
+  /**
+   * Creates a pattern of a method argument detector and method call detectors.
+   *
+   * @param requiredState The number of detectors which have to match.
+   * @param methodArgument The method name and argument of the method argument detector, or null.
+   * @param methodNames The method names of the method call detectors.
+   */
+  private static PatternDetector createPattern(
+      int requiredState, String[] methodArgument, String... methodNames) {
+    PatternDetector pattern = new PatternDetector("test", requiredState, false, "", "Warning");
+    if (methodArgument != null) {
+      pattern.addDetector(
+          new MethodArgumentDetector(methodArgument[0], methodArgument[1], false, pattern));
+    }
+    for (String methodName : methodNames) {
+      pattern.addDetector(new MethodCallDetector(methodName, pattern));
+    }
+    return pattern;
+  }
+
+  private static File writeFile(Path tempDir, String name, String content) throws IOException {
+    Path path = tempDir.resolve(name);
+    Files.writeString(path, content);
+    return path.toFile();
+  }
+}
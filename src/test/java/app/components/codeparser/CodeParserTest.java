@@ -0,0 +1,215 @@
+package app.components.codeparser;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import app.components.model.DangerousPattern;
+import app.components.parsing.javaparsing.codeparsing.CodeParser;
+import app.components.parsing.javaparsing.codeparsing.StreamingCodeParser;
+import app.utils.ReadDataFromJSON;
+import app.utils.ThreadPoolManager;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CodeParserTest {
+  private String jsonPath = "src/main/resources/json/dangerousPatterns.json";
+  private Map<File, String> sources = new LinkedHashMap<>();
+
+  @BeforeEach
+  public void setUp() {
+    CodeParser.reset();
+    CodeParser.setPatternDetectors(new ReadDataFromJSON().readPatternDetectorsFromJSON(jsonPath));
+
+    sources.put(
+        new File("JavaSource/app/Database.java"),
+        "package app;\n"
+            + "class Database {\n"
+            + "  Cursor query(SQLiteDatabase database, String username) {\n"
+            + "    String sql = \"SELECT * FROM users WHERE name = \" + username;\n"
+            + "    return database.rawQuery(sql, null);\n"
+            + "  }\n"
+            + "}\n");
+    sources.put(
+        new File("JavaSource/app/Address.java"),
+        "package app;\n"
+            + "class Address {\n"
+            + "  String host = \"192.168.0.1\";\n"
+            + "  String domain = \"example.com\";\n"
+            + "}\n");
+    sources.put(
+        new File("JavaSource/app/Broken.java"),
+        "package app;\nclass Broken {\n  void query() { database.rawQuery(");
+  }
+
+  @AfterEach
+  public void tearDown() throws Exception {
+    CodeParser.reset();
+    CodeParser.setMultiThreading(false);
+    CodeParser.setResultCacheDirectory(null);
+    if (ThreadPoolManager.getInstance().isInitialized()) {
+      ThreadPoolManager.getInstance().shutdownExecutor();
+    }
+  }
+
+  @Test
+  public void testParseJavaSources() throws Exception {
+    CodeParser.ParseJavaSources(sources);
+
+    assertEquals(3, CodeParser.getFileCount());
+    assertEquals(1, CodeParser.getFileParsingErrorCount());
+    assertEquals(1, CodeParser.getSkippedFileCount());
+    assertEquals(List.of("Direct Use of SQL Queries rawQuery"), getDetectedPatternNames());
+    assertEquals(1, CodeParser.getFileInfoList().size());
+    assertTrue(CodeParser.getFileInfoList().get(0).getIpv4Addresses().contains("192.168.0.1"));
+  }
+
+  @Test
+  public void testParseEmptySelection() throws Exception {
+    CodeParser.addSkippedSources(
+        Map.of(new File("JavaSource/app/Address.java"), List.of("192.168.0.1")));
+
+    CodeParser.ParseJavaSources(new LinkedHashMap<>());
+    assertEquals(1, CodeParser.getFileCount());
+    assertEquals(1, CodeParser.getSkippedFileCount());
+    assertEquals(1, CodeParser.getFileInfoList().size());
+    assertTrue(CodeParser.getFileInfoList().get(0).getIpv4Addresses().contains("192.168.0.1"));
+
+    CodeParser.reset();
+    CodeParser.addSkippedSources(
+        Map.of(new File("JavaSource/app/Address.java"), List.of("192.168.0.1")));
+    CodeParser.ParseJavaFiles(new ArrayList<>());
+    assertEquals(1, CodeParser.getFileInfoList().size());
+  }
+
+  @Test
+  public void testStreamingCodeParser() throws Exception {
+    StreamingCodeParser streamingCodeParser = new StreamingCodeParser();
+    streamingCodeParser.start();
+    sources.forEach(streamingCodeParser::submit);
+    streamingCodeParser.finish();
+
+    assertEquals(3, CodeParser.getFileCount());
+    assertEquals(1, CodeParser.getFileParsingErrorCount());
+    assertEquals(List.of("Direct Use of SQL Queries rawQuery"), getDetectedPatternNames());
+    assertEquals(1, CodeParser.getFileInfoList().size());
+  }
+
+  @Test
+  public void testStreamingCodeParserWithSkippedSources() throws Exception {
+    StreamingCodeParser streamingCodeParser = new StreamingCodeParser();
+    streamingCodeParser.start();
+    sources.forEach(streamingCodeParser::submit);
+    streamingCodeParser.awaitCompletion();
+    CodeParser.addSkippedSources(
+        Map.of(new File("JavaSource/app/Address.java"), List.of("192.168.0.1")));
+    streamingCodeParser.finish();
+
+    assertEquals(4, CodeParser.getFileCount());
+    assertEquals(1, CodeParser.getFileParsingErrorCount());
+    assertTrue(
+        CodeParser.getFileInfoList().stream()
+            .anyMatch(fileInfo -> fileInfo.getIpv4Addresses().contains("192.168.0.1")));
+  }
+
+  @Test
+  public void testStreamingCodeParserSurvivesErrors() throws Exception {
+    StreamingCodeParser streamingCodeParser = new StreamingCodeParser();
+    streamingCodeParser.start();
+    /* Deeply nested expressions overflow the stack of the recursive descent parser */
+    streamingCodeParser.submit(
+        new File("JavaSource/app/Nested.java"),
+        "class Nested {\n  Object query = database.rawQuery("
+            + "(".repeat(200000)
+            + "1"
+            + ")".repeat(200000)
+            + ");\n}\n");
+    sources.forEach(streamingCodeParser::submit);
+    streamingCodeParser.finish();
+
+    assertEquals(4, CodeParser.getFileCount());
+    assertEquals(2, CodeParser.getFileParsingErrorCount());
+    assertEquals(List.of("Direct Use of SQL Queries rawQuery"), getDetectedPatternNames());
+  }
+
+  @Test
+  public void testStreamingCodeParserWithoutConsumer() throws Exception {
+    StreamingCodeParser streamingCodeParser = new StreamingCodeParser();
+    for (int i = 0; i < 200; i++) {
+      streamingCodeParser.submit(new File("JavaSource/app/C" + i + ".java"), "class C" + i + " {}");
+    }
+    streamingCodeParser.finish();
+
+    assertEquals(200, CodeParser.getFileCount());
+    assertEquals(200, CodeParser.getFileParsingErrorCount());
+  }
+
+  @Test
+  public void testParallelParseJavaFiles(@TempDir Path sourceDir) throws Exception {
+    List<File> files = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      for (Map.Entry<File, String> source : sources.entrySet()) {
+        Path file = sourceDir.resolve(i + source.getKey().getName());
+        Files.writeString(file, source.getValue().replace("class ", "class C" + i));
+        files.add(file.toFile());
+      }
+    }
+
+    String sequentialSummary = CodeParser.ParseJavaFiles(files);
+    List<File> sequentialFiles = getDetectedPatternFiles();
+    int sequentialFileInfoCount = CodeParser.getFileInfoList().size();
+
+    CodeParser.reset();
+    CodeParser.setMultiThreading(true);
+    String parallelSummary = CodeParser.ParseJavaFiles(files);
+
+    assertEquals(sequentialSummary, parallelSummary);
+    assertEquals(12, CodeParser.getFileCount());
+    assertEquals(4, CodeParser.getFileParsingErrorCount());
+    assertEquals(4, CodeParser.getSkippedFileCount());
+    assertEquals(4, sequentialFiles.size());
+    assertEquals(sequentialFiles, getDetectedPatternFiles());
+    assertEquals(sequentialFileInfoCount, CodeParser.getFileInfoList().size());
+  }
+
+  @Test
+  public void testResultCache(@TempDir Path tempDir) throws Exception {
+    CodeParser.setResultCacheDirectory(tempDir);
+    CodeParser.ParseJavaSources(sources);
+    List<String> detectedPatternNames = getDetectedPatternNames();
+    String fileInfos = CodeParser.getFileInfoList().toString();
+
+    CodeParser.reset();
+    CodeParser.setPatternDetectors(new ReadDataFromJSON().readPatternDetectorsFromJSON(jsonPath));
+    String summary = CodeParser.ParseJavaSources(sources);
+
+    assertTrue(summary.contains("Analysis result cache hit rate: 25.0% (1 of 4 files)"));
+    assertEquals(1, CodeParser.getFileParsingErrorCount());
+    assertEquals(detectedPatternNames, getDetectedPatternNames());
+    assertEquals(new File("JavaSource/app/Database.java"), getDetectedPatternFiles().get(0));
+    assertEquals(fileInfos, CodeParser.getFileInfoList().toString());
+    assertTrue(
+        CodeParser.getPatternDetectors().stream()
+            .anyMatch(patternDetector -> patternDetector.isPatternFound()));
+  }
+
+  private List<File> getDetectedPatternFiles() {
+    return CodeParser.getDetectedPatterns().stream()
+        .map(DangerousPattern::getJavaFile)
+        .collect(Collectors.toList());
+  }
+
+  private List<String> getDetectedPatternNames() {
+    return CodeParser.getDetectedPatterns().stream()
+        .map(DangerousPattern::getPatternName)
+        .collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,94 @@
+package app.components.codeparser;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import app.components.parsing.javaparsing.codeparsing.PatternDetector;
+import app.components.parsing.javaparsing.codeparsing.PatternMatcher;
+import app.components.parsing.javaparsing.detectors.Detector;
+import app.components.parsing.javaparsing.detectors.MethodArgumentDetector;
+import app.components.parsing.javaparsing.detectors.MethodCallDetector;
+import app.components.parsing.javaparsing.detectors.ObjectCreationDetector;
+import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+class PatternMatcherTest {
+  private String sourceCode =
+      "package app;\n"
+          + "class Crypto {\n"
+          + "  void hash(String value) {\n"
+          + "    Object digest = MessageDigest.getInstance(\"SHA-256\", getInstance(\"MD5\"));\n"
+          + "    Random random = new Random();\n"
+          + "    random.setSeed(System.currentTimeMillis());\n"
+          + "  }\n"
+          + "  void weakHash() {\n"
+          + "    MessageDigest.getInstance(\"MD5\");\n"
+          + "    new java.util.Random().nextInt();\n"
+          + "  }\n"
+          + "}\n";
+
+  @Test
+  public void testMatchesSameAsSeparateTraversals() {
+    List<PatternDetector> separateDetectors = createPatternDetectors();
+    CompilationUnit separateAST = StaticJavaParser.parse(sourceCode);
+    for (PatternDetector patternDetector : separateDetectors) {
+      patternDetector.detect(separateAST, new File("Crypto.java"));
+    }
+
+    List<PatternDetector> matchedDetectors = createPatternDetectors();
+    CompilationUnit matchedAST = StaticJavaParser.parse(sourceCode);
+    new PatternMatcher(matchedDetectors).match(matchedAST, new File("Crypto.java"));
+
+    assertEquals(
+        List.of("Weak Cryptographic Practices MD5", "Insecure Random Number Generation"),
+        getDetectedPatternNames(matchedDetectors));
+    assertEquals(
+        getDetectedPatternNames(separateDetectors), getDetectedPatternNames(matchedDetectors));
+    assertEquals(getDetectedLines(separateDetectors), getDetectedLines(matchedDetectors));
+  }
+
+  private List<PatternDetector> createPatternDetectors() {
+    List<PatternDetector> patternDetectors = new ArrayList<>();
+
+    PatternDetector weakHash =
+        new PatternDetector("Weak Cryptographic Practices MD5", 1, false, "", "Warning");
+    weakHash.addDetector(new MethodArgumentDetector("getInstance", "MD5", true, weakHash));
+    patternDetectors.add(weakHash);
+
+    PatternDetector random =
+        new PatternDetector("Insecure Random Number Generation", 1, false, "", "Warning");
+    random.addDetector(new ObjectCreationDetector("java.util.Random", random));
+    patternDetectors.add(random);
+
+    PatternDetector seededRandom = new PatternDetector("Seeded Random", 2, false, "", "Warning");
+    seededRandom.addDetector(new MethodCallDetector("setSeed", seededRandom));
+    seededRandom.addDetector(new ObjectCreationDetector("SecureRandom", seededRandom));
+    patternDetectors.add(seededRandom);
+
+    return patternDetectors;
+  }
+
+  private List<String> getDetectedPatternNames(List<PatternDetector> patternDetectors) {
+    return patternDetectors.stream()
+        .filter(patternDetector -> patternDetector.getDangerousPattern() != null)
+        .map(PatternDetector::getName)
+        .collect(Collectors.toList());
+  }
+
+  private List<Integer> getDetectedLines(List<PatternDetector> patternDetectors) {
+    List<Integer> lines = new ArrayList<>();
+    for (PatternDetector patternDetector : patternDetectors) {
+      for (Detector detector : patternDetector.getDetectors()) {
+        lines.add(
+            detector.getDetectedExpression() == null
+                ? -1
+                : detector.getDetectedExpression().getBegin().get().line);
+      }
+    }
+    return lines;
+  }
+}
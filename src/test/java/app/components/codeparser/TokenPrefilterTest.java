@@ -0,0 +1,51 @@
+package app.components.codeparser;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import app.components.parsing.javaparsing.codeparsing.PatternDetector;
+import app.components.parsing.javaparsing.codeparsing.TokenPrefilter;
+import app.components.parsing.javaparsing.detectors.LiteralExpressionDetector;
+import app.components.parsing.javaparsing.detectors.MethodArgumentDetector;
+import app.components.parsing.javaparsing.detectors.ObjectCreationDetector;
+import app.components.parsing.javaparsing.detectors.StringLiteralScanner;
+import com.github.javaparser.StaticJavaParser;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class TokenPrefilterTest {
+
+  @Test
+  public void testMayMatch() {
+    PatternDetector weakHash = new PatternDetector("MD5", 1, false, "", "Warning");
+    weakHash.addDetector(new MethodArgumentDetector("getInstance", "MD5", true, weakHash));
+    PatternDetector random = new PatternDetector("Random", 1, false, "", "Warning");
+    random.addDetector(new ObjectCreationDetector("java.util.Random", random));
+    TokenPrefilter prefilter = TokenPrefilter.create(List.of(weakHash, random));
+
+    assertTrue(prefilter.mayMatch("MessageDigest.getInstance(\"MD5\");"));
+    assertTrue(prefilter.mayMatch("new java.util .Random()".getBytes(StandardCharsets.UTF_8)));
+    assertTrue(prefilter.mayMatch("class A { void getInstanceName() {} }"));
+    assertFalse(prefilter.mayMatch("class A { String s = \"getInstancé\"; }"));
+    assertFalse(prefilter.mayMatch("new Rand0m()".getBytes(StandardCharsets.UTF_8)));
+  }
+
+  @Test
+  public void testStringLiteralScannerMatchesParser() {
+    String source =
+        "package app;\n"
+            + "class Literals {\n"
+            + "  // \"commented\"\n"
+            + "  /* \"also commented\" */\n"
+            + "  char quote = '\"';\n"
+            + "  String empty = \"\";\n"
+            + "  String escaped = \"say \\\"hi\\\" to 10.0.0.1\";\n"
+            + "  String host = \"example.com\" + 'x' + \"//not a comment\";\n"
+            + "}\n";
+
+    LiteralExpressionDetector detector = new LiteralExpressionDetector();
+    detector.visit(StaticJavaParser.parse(source), null);
+
+    assertEquals(detector.getStrings(), StringLiteralScanner.scan(source));
+  }
+}
@@ -1,13 +1,25 @@
 package app.components.dataflow;
 
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import app.components.parsing.javaparsing.codeparsing.PatternDetector;
+import app.components.parsing.javaparsing.codeparsing.dataflow.CallGraph;
+import app.components.parsing.javaparsing.codeparsing.dataflow.CompilationUnitFacts;
+import app.components.parsing.javaparsing.codeparsing.dataflow.ControlFlowGraph;
 import app.components.parsing.javaparsing.codeparsing.dataflow.DataFlow;
+import app.components.parsing.javaparsing.codeparsing.dataflow.DataFlowResult;
+import app.components.parsing.javaparsing.codeparsing.dataflow.TaintAnalysis;
 import com.github.javaparser.StaticJavaParser;
 import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.MethodDeclaration;
 import com.github.javaparser.ast.expr.MethodCallExpr;
+import java.util.List;
+import java.util.Optional;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -126,4 +138,329 @@ public class DataFlowTest {
 
     assertFalse(result);
   }
+
+  @Test
+  public void testFactsSharedBetweenPatterns() {
+    // Arrange
+    String sourceCode =
+        "class A {"
+            + "void main() {"
+            + "   Intent intent = getIntent();"
+            + "   String url = intent.getStringExtra(\"url\");"
+            + "   webview.loadUrl(url);"
+            + "}"
+            + "void other() {"
+            + "   webview.loadUrl(\"https://example.com\");"
+            + "}"
+            + "}";
+
+    CompilationUnit AST = StaticJavaParser.parse(sourceCode);
+    CompilationUnitFacts facts = CompilationUnitFacts.of(AST);
+
+    MethodCallExpr startExpr =
+        AST.findFirst(MethodCallExpr.class, m -> m.getNameAsString().equals("getIntent"))
+            .orElse(null);
+    MethodCallExpr loadUrlExpr =
+        AST.findFirst(MethodCallExpr.class, m -> m.getNameAsString().equals("loadUrl"))
+            .orElse(null);
+    MethodCallExpr extraExpr =
+        AST.findFirst(MethodCallExpr.class, m -> m.getNameAsString().equals("getStringExtra"))
+            .orElse(null);
+    PatternDetector otherPatternDetector =
+        new PatternDetector("other", 1, true, "Description of other pattern", "High");
+
+    boolean loadUrlResult =
+        dataFlow.checkDataFlowBetweenMethods(AST, startExpr, loadUrlExpr, patternDetector);
+    boolean extraResult =
+        dataFlow.checkDataFlowBetweenMethods(AST, extraExpr, loadUrlExpr, otherPatternDetector);
+
+    assertTrue(loadUrlResult);
+    assertTrue(extraResult);
+    assertSame(facts, CompilationUnitFacts.of(AST));
+    assertEquals(2, facts.getMethods().size());
+    assertEquals(2, facts.getCallSites("loadUrl").size());
+  }
+
+  @Test
+  public void testDataFlowThroughConcatenation() {
+    // Arrange
+    String sourceCode =
+        "class A {"
+            + "void main() {"
+            + "   String id = getIntent().getStringExtra(\"id\");"
+            + "   String query = \"SELECT * FROM users WHERE id = \" + id;"
+            + "   database.rawQuery(query, null);"
+            + "}"
+            + "}";
+
+    CompilationUnit AST = StaticJavaParser.parse(sourceCode);
+
+    MethodCallExpr startExpr =
+        AST.findFirst(MethodCallExpr.class, m -> m.getNameAsString().equals("getIntent"))
+            .orElse(null);
+    MethodCallExpr endExpr =
+        AST.findFirst(MethodCallExpr.class, m -> m.getNameAsString().equals("rawQuery"))
+            .orElse(null);
+
+    boolean result = dataFlow.checkDataFlowBetweenMethods(AST, startExpr, endExpr, patternDetector);
+
+    assertTrue(result);
+    assertEquals(3, patternDetector.getDataFlowPath().size());
+    assertEquals("main", patternDetector.getMethodDeclaration().getNameAsString());
+  }
+
+  @Test
+  public void testNoDataFlowAfterReassignment() {
+    // Arrange
+    String sourceCode =
+        "class A {"
+            + "void main() {"
+            + "   String url = getIntent().getDataString();"
+            + "   url = \"https://example.com\";"
+            + "   webview.loadUrl(url);"
+            + "}"
+            + "}";
+
+    CompilationUnit AST = StaticJavaParser.parse(sourceCode);
+
+    MethodCallExpr startExpr =
+        AST.findFirst(MethodCallExpr.class, m -> m.getNameAsString().equals("getIntent"))
+            .orElse(null);
+    MethodCallExpr endExpr =
+        AST.findFirst(MethodCallExpr.class, m -> m.getNameAsString().equals("loadUrl"))
+            .orElse(null);
+
+    boolean result = dataFlow.checkDataFlowBetweenMethods(AST, startExpr, endExpr, patternDetector);
+
+    assertFalse(result);
+  }
+
+  @Test
+  public void testDataFlowThroughLoopAndBranch() {
+    // Arrange
+    String sourceCode =
+        "class A {"
+            + "void main() {"
+            + "   String url = \"https://example.com\";"
+            + "   String next = \"\";"
+            + "   for (int i = 0; i < 2; i++) {"
+            + "     if (i > 0) {"
+            + "       webview.loadUrl(url);"
+            + "     } else {"
+            + "       url = next;"
+            + "     }"
+            + "     next = getIntent().getDataString();"
+            + "   }"
+            + "}"
+            + "}";
+
+    CompilationUnit AST = StaticJavaParser.parse(sourceCode);
+
+    MethodCallExpr startExpr =
+        AST.findFirst(MethodCallExpr.class, m -> m.getNameAsString().equals("getIntent"))
+            .orElse(null);
+    MethodCallExpr endExpr =
+        AST.findFirst(MethodCallExpr.class, m -> m.getNameAsString().equals("loadUrl"))
+            .orElse(null);
+
+    boolean result = dataFlow.checkDataFlowBetweenMethods(AST, startExpr, endExpr, patternDetector);
+
+    assertTrue(result);
+  }
+
+  @Test
+  public void testDataFlowThroughField() {
+    // Arrange
+    String sourceCode =
+        "class A {"
+            + "String url;"
+            + "void onCreate() {"
+            + "   this.url = getIntent().getDataString();"
+            + "}"
+            + "void onResume() {"
+            + "   webview.loadUrl(url);"
+            + "}"
+            + "}";
+
+    CompilationUnit AST = StaticJavaParser.parse(sourceCode);
+
+    MethodCallExpr startExpr =
+        AST.findFirst(MethodCallExpr.class, m -> m.getNameAsString().equals("getIntent"))
+            .orElse(null);
+    MethodCallExpr endExpr =
+        AST.findFirst(MethodCallExpr.class, m -> m.getNameAsString().equals("loadUrl"))
+            .orElse(null);
+
+    boolean result = dataFlow.checkDataFlowBetweenMethods(AST, startExpr, endExpr, patternDetector);
+
+    assertTrue(result);
+    assertEquals("onResume", patternDetector.getMethodDeclaration().getNameAsString());
+  }
+
+  @Test
+  public void testPatternsAnsweredByOneAnalysis() {
+    // Arrange
+    String sourceCode =
+        "class A {"
+            + "void main() {"
+            + "   String url = getIntent().getStringExtra(\"url\");"
+            + "   String query = \"SELECT * FROM t WHERE id = \" + url;"
+            + "   db.rawQuery(query, null);"
+            + "   webview.loadUrl(url);"
+            + "   Log.d(\"tag\", \"done\");"
+            + "}"
+            + "}";
+
+    CompilationUnit AST = StaticJavaParser.parse(sourceCode);
+    TaintAnalysis.Query loadUrlQuery = new TaintAnalysis.Query("getIntent", "loadUrl");
+    TaintAnalysis.Query rawQueryQuery = new TaintAnalysis.Query("getIntent", "rawQuery");
+    TaintAnalysis.Query logQuery = new TaintAnalysis.Query("getIntent", "d");
+    TaintAnalysis.setQueries(AST, List.of(loadUrlQuery, rawQueryQuery, logQuery));
+
+    Optional<DataFlowResult> loadUrlResult = TaintAnalysis.getResult(AST, loadUrlQuery);
+    Optional<DataFlowResult> rawQueryResult = TaintAnalysis.getResult(AST, rawQueryQuery);
+
+    assertTrue(loadUrlResult.isPresent());
+    assertTrue(rawQueryResult.isPresent());
+    assertFalse(TaintAnalysis.getResult(AST, logQuery).isPresent());
+    assertSame(rawQueryResult.get(), TaintAnalysis.getResult(AST, rawQueryQuery).get());
+    assertEquals(2, loadUrlResult.get().getPath().size());
+    assertEquals(3, rawQueryResult.get().getPath().size());
+    assertTrue(loadUrlResult.get().generateGraph().generateDotGraph().contains("loadUrl"));
+    assertFalse(loadUrlResult.get().generateGraph().generateDotGraph().contains("rawQuery"));
+  }
+
+  @Test
+  public void testDataFlowThroughHelperMethods() {
+    // Arrange
+    String sourceCode =
+        "class A {"
+            + "String readUrl() {"
+            + "   return getIntent().getStringExtra(\"url\");"
+            + "}"
+            + "void open(String target) {"
+            + "   webview.loadUrl(target);"
+            + "}"
+            + "void main() {"
+            + "   String url = readUrl();"
+            + "   open(\"https://\" + url);"
+            + "}"
+            + "}";
+
+    CompilationUnit AST = StaticJavaParser.parse(sourceCode);
+
+    MethodCallExpr startExpr =
+        AST.findFirst(MethodCallExpr.class, m -> m.getNameAsString().equals("getIntent"))
+            .orElse(null);
+    MethodCallExpr endExpr =
+        AST.findFirst(MethodCallExpr.class, m -> m.getNameAsString().equals("loadUrl"))
+            .orElse(null);
+
+    boolean result = dataFlow.checkDataFlowBetweenMethods(AST, startExpr, endExpr, patternDetector);
+
+    assertTrue(result);
+    assertEquals("main", patternDetector.getMethodDeclaration().getNameAsString());
+    assertEquals(
+        List.of("String url = readUrl()", "open(\"https://\" + url)", "webview.loadUrl(target)"),
+        patternDetector.getDataFlowPath().stream().map(Object::toString).collect(toList()));
+  }
+
+  @Test
+  public void testNoDataFlowThroughIgnoredParameter() {
+    // Arrange
+    String sourceCode =
+        "class A {"
+            + "String sanitize(String value) {"
+            + "   return \"https://example.com\";"
+            + "}"
+            + "void main() {"
+            + "   String url = sanitize(getIntent().getStringExtra(\"url\"));"
+            + "   webview.loadUrl(url);"
+            + "}"
+            + "}";
+
+    CompilationUnit AST = StaticJavaParser.parse(sourceCode);
+
+    MethodCallExpr startExpr =
+        AST.findFirst(MethodCallExpr.class, m -> m.getNameAsString().equals("getIntent"))
+            .orElse(null);
+    MethodCallExpr endExpr =
+        AST.findFirst(MethodCallExpr.class, m -> m.getNameAsString().equals("loadUrl"))
+            .orElse(null);
+
+    boolean result = dataFlow.checkDataFlowBetweenMethods(AST, startExpr, endExpr, patternDetector);
+
+    assertFalse(result);
+  }
+
+  @Test
+  public void testCallGraphResolvesCallsOfCompilationUnit() {
+    // Arrange
+    String sourceCode =
+        "class A {"
+            + "void log(String message) {}"
+            + "void log(String tag, String message) {}"
+            + "void main() {"
+            + "   log(\"a\");"
+            + "   this.log(\"a\", \"b\");"
+            + "   other.log(\"a\");"
+            + "}"
+            + "}";
+
+    CompilationUnit AST = StaticJavaParser.parse(sourceCode);
+    CallGraph callGraph = CompilationUnitFacts.of(AST).getCallGraph();
+    List<MethodCallExpr> calls = AST.findAll(MethodCallExpr.class);
+
+    assertEquals(1, callGraph.resolve(calls.get(0)).getMethodDeclaration().getParameters().size());
+    assertEquals(2, callGraph.resolve(calls.get(1)).getMethodDeclaration().getParameters().size());
+    assertNull(callGraph.resolve(calls.get(2)));
+    assertEquals(
+        "main",
+        callGraph
+            .getCallers(callGraph.resolve(calls.get(0)))
+            .get(0)
+            .getMethodDeclaration()
+            .getNameAsString());
+  }
+
+  @Test
+  public void testControlFlowGraphOfLoop() {
+    // Arrange
+    String sourceCode =
+        "class A {"
+            + "void main() {"
+            + "   while (hasNext()) {"
+            + "     if (skip()) continue;"
+            + "     if (stop()) break;"
+            + "     process();"
+            + "   }"
+            + "   done();"
+            + "}"
+            + "}";
+
+    CompilationUnit AST = StaticJavaParser.parse(sourceCode);
+    ControlFlowGraph graph =
+        ControlFlowGraph.build(AST.findFirst(MethodDeclaration.class).orElseThrow());
+
+    int condition = findNode(graph, "hasNext()");
+    int skip = findNode(graph, "skip()");
+    int stop = findNode(graph, "stop()");
+    int process = findNode(graph, "process()");
+    int done = findNode(graph, "done()");
+    assertEquals(List.of(condition), graph.getSuccessors(ControlFlowGraph.ENTRY));
+    assertTrue(graph.getSuccessors(skip).contains(condition));
+    assertTrue(graph.getSuccessors(stop).contains(done));
+    assertEquals(List.of(condition), graph.getSuccessors(process));
+    assertTrue(graph.getSuccessors(condition).contains(done));
+    assertEquals(List.of(ControlFlowGraph.EXIT), graph.getSuccessors(done));
+  }
+
+  private int findNode(ControlFlowGraph graph, String element) {
+    for (int node = 0; node < graph.size(); node++) {
+      if (graph.getElement(node) != null && graph.getElement(node).toString().equals(element)) {
+        return node;
+      }
+    }
+    return -1;
+  }
 }
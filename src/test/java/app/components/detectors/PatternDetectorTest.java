@@ -1,6 +1,7 @@
 package app.components.detectors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 
 import app.components.parsing.javaparsing.codeparsing.PatternDetector;
 import app.components.parsing.javaparsing.detectors.MethodArgumentDetector;
@@ -37,4 +38,20 @@ public class PatternDetectorTest {
     patternDetector.addDetector(new MethodCallDetector("getIntent", patternDetector));
     assertEquals(4, patternDetector.getDetectors().size(), "Pattern should have 4 detectors");
   }
+
+  @Test
+  public void testFingerprint() {
+    PatternDetector copy = patternDetector.copy();
+    assertEquals(64, patternDetector.getFingerprint().length());
+    assertEquals(patternDetector.getFingerprint(), copy.getFingerprint());
+
+    // Changing a detector argument changes the fingerprint
+    PatternDetector modified =
+        new PatternDetector(
+            patternName, requiredState, false, "Description of test pattern", "High");
+    modified.addDetector(new MethodCallDetector("getIntent", modified));
+    modified.addDetector(new MethodArgumentDetector("getQueryParameter", "uri", false, modified));
+    modified.addDetector(new MethodCallDetector("loadUrl", modified));
+    assertNotEquals(patternDetector.getFingerprint(), modified.getFingerprint());
+  }
 }
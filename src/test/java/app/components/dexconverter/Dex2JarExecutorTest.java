@@ -0,0 +1,64 @@
+package app.components.dexconverter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import app.components.conversion.dexconverter.Dex2JarExecutor;
+import app.components.conversion.dexconverter.DexClassTranslator;
+import app.components.conversion.unzip.UnzipFile;
+import app.utils.ReadFilesFromDirectory;
+import java.io.File;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class Dex2JarExecutorTest {
+
+  @Test
+  void testInProcessConversion(@TempDir Path tempDir) throws Exception {
+    Path apkPath = Paths.get("src/test/resources/apk/calc.apk");
+    Path unzippedPath = UnzipFile.unzip(apkPath.toString(), tempDir.toString());
+
+    Dex2JarExecutor.setShellConversion(false);
+    Dex2JarExecutor.convertToJar(unzippedPath, false);
+
+    List<File> jarFiles =
+        ReadFilesFromDirectory.getSpecificFilesFromDirectory(
+            Dex2JarExecutor.getOutputDir(), ".jar");
+    assertFalse(jarFiles.isEmpty(), "No JAR files were created from the DEX files");
+
+    for (File jarFile : jarFiles) {
+      try (ZipFile zipFile = new ZipFile(jarFile)) {
+        assertTrue(
+            zipFile.stream().anyMatch(entry -> entry.getName().endsWith(".class")),
+            "JAR file " + jarFile.getName() + " does not contain any class files");
+      }
+    }
+  }
+
+  @Test
+  void testInMemoryTranslation() throws Exception {
+    byte[] dexBytes;
+    try (ZipFile apkFile = new ZipFile("src/test/resources/apk/calc.apk");
+        InputStream in = apkFile.getInputStream(apkFile.getEntry("classes.dex"))) {
+      dexBytes = in.readAllBytes();
+    }
+
+    Map<String, byte[]> classFiles = new HashMap<>();
+    DexClassTranslator.translate(
+        dexBytes, classPath -> !classPath.startsWith("androidx/"), classFiles::put);
+
+    assertFalse(classFiles.isEmpty(), "No class files were translated from the DEX file");
+    for (Map.Entry<String, byte[]> classFile : classFiles.entrySet()) {
+      assertTrue(classFile.getKey().endsWith(".class"));
+      assertFalse(classFile.getKey().startsWith("androidx/"), "Filtered class was translated");
+      assertEquals(0xCAFEBABE, ByteBuffer.wrap(classFile.getValue()).getInt());
+    }
+  }
+}
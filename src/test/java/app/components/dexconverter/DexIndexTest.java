@@ -0,0 +1,226 @@
+package app.components.dexconverter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import app.components.conversion.dexconverter.DexClassTranslator;
+import app.components.conversion.dexconverter.DexIndex;
+import app.components.conversion.dexconverter.DexPrefilter;
+import app.components.parsing.javaparsing.codeparsing.PatternDetector;
+import app.components.parsing.javaparsing.detectors.MethodArgumentDetector;
+import app.components.parsing.javaparsing.detectors.MethodCallDetector;
+import app.components.parsing.javaparsing.detectors.ObjectCreationDetector;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.zip.ZipFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.MethodInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.TypeInsnNode;
+
+class DexIndexTest {
+
+  @AfterEach
+  void tearDown() {
+    DexPrefilter.setEnabled(false);
+    DexPrefilter.reset();
+  }
+
+  @Test
+  void testReadClassesMatchesTranslation() throws Exception {
+    byte[] dexBytes = readDex("classes.dex");
+    Map<String, DexIndex.ClassEntry> entries = new HashMap<>();
+    for (DexIndex.ClassEntry entry : DexIndex.wrap(dexBytes).readClasses()) {
+      assertTrue(entry.isComplete(), "Could not read " + entry.getClassPath());
+      entries.put(entry.getClassPath(), entry);
+    }
+    Map<String, byte[]> classFiles = new HashMap<>();
+    DexClassTranslator.translate(dexBytes, classPath -> true, classFiles::put);
+    assertFalse(entries.isEmpty());
+
+    int comparedClassCount = 0;
+    for (Map.Entry<String, byte[]> classFile : classFiles.entrySet()) {
+      DexIndex.ClassEntry entry = entries.get(classFile.getKey());
+      if (entry == null) {
+        continue;
+      }
+      ClassNode classNode = new ClassNode();
+      new ClassReader(classFile.getValue()).accept(classNode, 0);
+      Set<String> methodNames = new HashSet<>();
+      entry.getMethods().forEach(method -> methodNames.add(method.getName()));
+      for (MethodNode methodNode : classNode.methods) {
+        if (methodNode.name.startsWith("$d2j$")) {
+          // helpers generated by dex2jar, e.g. to decode array data
+          continue;
+        }
+        if (methodNode.instructions.size() > 0) {
+          assertTrue(methodNames.contains(methodNode.name), "Method " + methodNode.name);
+        }
+        methodNode.instructions.forEach(
+            instruction -> {
+              if (instruction instanceof MethodInsnNode) {
+                String name = ((MethodInsnNode) instruction).name;
+                assertTrue(
+                    name.startsWith("$d2j$") || entry.getInvokedMethods().contains(name),
+                    classFile.getKey() + " invokes " + name);
+              } else if (instruction instanceof TypeInsnNode
+                  && instruction.getOpcode() == Opcodes.NEW) {
+                String type = ((TypeInsnNode) instruction).desc;
+                String simpleName =
+                    type.substring(Math.max(type.lastIndexOf('/'), type.lastIndexOf('$')) + 1);
+                assertTrue(
+                    entry.getCreatedTypes().contains(simpleName),
+                    classFile.getKey() + " creates " + type);
+              }
+            });
+      }
+      comparedClassCount++;
+    }
+    assertTrue(comparedClassCount > 0, "No translated class was found in the index");
+  }
+
+  @Test
+  void testAnonymousClassesAreCreatedAsSuperTypes() throws Exception {
+    byte[] dexBytes = readDex("classes.dex");
+    Map<String, byte[]> classFiles = new HashMap<>();
+    DexClassTranslator.translate(dexBytes, classPath -> true, classFiles::put);
+
+    int anonymousClassCount = 0;
+    for (DexIndex.ClassEntry entry : DexIndex.wrap(dexBytes).readClasses()) {
+      for (DexIndex.MethodEntry method : entry.getMethods()) {
+        for (String createdType : method.getCreatedTypes()) {
+          byte[] classFile = classFiles.get(createdType.replace('.', '/') + ".class");
+          if (classFile == null || !createdType.matches(".*\\$[0-9]+")) {
+            continue;
+          }
+          ClassNode classNode = new ClassNode();
+          new ClassReader(classFile).accept(classNode, ClassReader.SKIP_CODE);
+          List<String> superTypes = new ArrayList<>(classNode.interfaces);
+          if (!"java/lang/Object".equals(classNode.superName)) {
+            superTypes.add(classNode.superName);
+          }
+          for (String superType : superTypes) {
+            assertTrue(
+                method.getCreatedTypes().contains(superType.replace('/', '.')),
+                method.getClassName() + " creates " + createdType + " as " + superType);
+          }
+          anonymousClassCount++;
+        }
+      }
+    }
+    assertTrue(anonymousClassCount > 0, "No anonymous class was created");
+  }
+
+  @Test
+  void testMapFile(@TempDir Path tempDir) throws Exception {
+    byte[] dexBytes = readDex("classes2.dex");
+    Path dexPath = tempDir.resolve("classes2.dex");
+    Files.write(dexPath, dexBytes);
+
+    assertEquals(
+        DexIndex.wrap(dexBytes).readClasses().size(), DexIndex.map(dexPath).readClasses().size());
+    assertEquals(
+        DexIndex.wrap(dexBytes).readClasses().stream()
+            .map(DexIndex.ClassEntry::getClassPath)
+            .collect(Collectors.toList()),
+        DexIndex.map(dexPath).readClassPaths());
+    assertThrows(Exception.class, () -> DexIndex.wrap(new byte[0x70]));
+  }
+
+  @Test
+  void testMalformedDex() throws Exception {
+    byte[] dexBytes = readDex("classes2.dex");
+    ByteBuffer dex = ByteBuffer.wrap(dexBytes).order(ByteOrder.LITTLE_ENDIAN);
+    /* The type of the first class definition points outside of the type_ids table */
+    dex.putInt(dex.getInt(0x64), 0x7FFFFFF0);
+
+    assertThrows(IOException.class, () -> DexIndex.wrap(dexBytes).readClasses());
+    DexPrefilter.setEnabled(true);
+    DexPrefilter.addDexBytes(dexBytes);
+    assertFalse(DexPrefilter.isIndexComplete());
+
+    dex.putInt(0x60, Integer.MAX_VALUE);
+    assertThrows(IOException.class, () -> DexIndex.wrap(dexBytes));
+  }
+
+  @Test
+  void testSelect() throws Exception {
+    DexPrefilter.setEnabled(true);
+    DexPrefilter.addDexBytes(readDex("classes.dex"));
+    DexPrefilter.addDexBytes(readDex("classes2.dex"));
+
+    PatternDetector unknown = new PatternDetector("Unknown", 1, false, "", "Warning");
+    unknown.addDetector(new MethodCallDetector("aMethodNoClassInvokes", unknown));
+    DexPrefilter.select(Collections.singletonList(unknown));
+    assertFalse(DexPrefilter.isSelected("androidx/activity/ComponentActivity$3.class"));
+    assertTrue(DexPrefilter.isSelected("META-INF/MANIFEST.MF"));
+    Map<String, List<String>> skippedSourceStrings = DexPrefilter.getSkippedSourceStrings();
+    assertTrue(skippedSourceStrings.containsKey("androidx/activity/ComponentActivity.java"));
+    assertFalse(skippedSourceStrings.containsKey("androidx/activity/ComponentActivity$3.java"));
+
+    PatternDetector view = new PatternDetector("View", 1, false, "", "Warning");
+    view.addDetector(new MethodCallDetector("peekDecorView", view));
+    DexPrefilter.select(Collections.singletonList(view));
+    assertTrue(DexPrefilter.isSelected("androidx/activity/ComponentActivity$3.class"));
+    assertTrue(DexPrefilter.isSelected("androidx/activity/ComponentActivity$4.class"));
+    assertFalse(
+        DexPrefilter.getSkippedSourceStrings()
+            .containsKey("androidx/activity/ComponentActivity.java"));
+
+    PatternDetector argument = new PatternDetector("Argument", 1, false, "", "Warning");
+    argument.addDetector(
+        new MethodArgumentDetector("peekDecorView", "no such argument", true, argument));
+    PatternDetector creation = new PatternDetector("Creation", 1, false, "", "Warning");
+    creation.addDetector(new ObjectCreationDetector("some.UnknownType", creation));
+    DexPrefilter.select(List.of(argument, creation));
+    assertFalse(DexPrefilter.isSelected("androidx/activity/ComponentActivity$3.class"));
+
+    DexPrefilter.setEnabled(false);
+    assertTrue(DexPrefilter.isSelected("androidx/activity/ComponentActivity$3.class"));
+    assertTrue(DexPrefilter.getSkippedSourceStrings().isEmpty());
+  }
+
+  @Test
+  void testPossiblePatterns() throws Exception {
+    DexPrefilter.addDexBytes(readDex("classes.dex"));
+
+    PatternDetector view = new PatternDetector("View", 1, false, "", "Warning");
+    view.addDetector(new MethodCallDetector("peekDecorView", view));
+    PatternDetector unknown = new PatternDetector("Unknown", 1, false, "", "Warning");
+    unknown.addDetector(new MethodCallDetector("aMethodNoClassInvokes", unknown));
+    assertEquals(
+        List.of(view), DexPrefilter.getPossiblePatterns(List.of(view, unknown), path -> true));
+    assertEquals(
+        List.of(view),
+        DexPrefilter.getPossiblePatterns(
+            List.of(view), path -> path.startsWith("androidx/activity/")));
+    assertTrue(
+        DexPrefilter.getPossiblePatterns(List.of(view), path -> path.startsWith("com/example/"))
+            .isEmpty());
+    assertTrue(
+        DexPrefilter.getSourceStrings().containsKey("androidx/activity/ComponentActivity.java"));
+  }
+
+  private static byte[] readDex(String name) throws Exception {
+    try (ZipFile apkFile = new ZipFile("src/test/resources/apk/calc.apk");
+        InputStream in = apkFile.getInputStream(apkFile.getEntry(name))) {
+      return in.readAllBytes();
+    }
+  }
+}
@@ -0,0 +1,142 @@
+package app.components.jarfilter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import app.components.conversion.classconverter.InMemoryClassFileSource;
+import app.components.conversion.jarfilter.JarFilter;
+import app.components.conversion.jarfilter.LibraryFingerprints;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.utils.IOUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class LibraryFingerprintsTest {
+
+  private static final String LIBRARY_PACKAGE = "app/components/conversion/jarfilter/";
+  private static final String[] LIBRARY_CLASSES = {
+    LIBRARY_PACKAGE + "JarFilter.class", LIBRARY_PACKAGE + "LibraryFingerprints.class"
+  };
+  private static final String DEX_PACKAGE = "app/components/conversion/dexconverter/";
+  private static final String[] DEX_PACKAGE_CLASSES = {
+    DEX_PACKAGE + "Dex2JarExecutor.class",
+    DEX_PACKAGE + "DexClassTranslator.class",
+    DEX_PACKAGE + "DexClassTranslator$1.class",
+    DEX_PACKAGE + "DexClassTranslator$TranslationExceptionHandler.class",
+    DEX_PACKAGE + "DexIndex.class",
+    DEX_PACKAGE + "DexIndex$ClassEntry.class",
+    DEX_PACKAGE + "DexIndex$Cursor.class",
+    DEX_PACKAGE + "DexIndex$MethodEntry.class",
+    DEX_PACKAGE + "DexPrefilter.class",
+    DEX_PACKAGE + "DexPrefilter$SourceEntry.class"
+  };
+  private static final String APP_CLASS = "app/components/jarfilter/LibraryFingerprintsTest.class";
+
+  @AfterEach
+  public void tearDown() {
+    JarFilter.setLibraryFingerprints(null);
+  }
+
+  @Test
+  public void testBuildWriteAndLoad(@TempDir Path tempDir) throws IOException {
+    LibraryFingerprints fingerprints = loadBuiltFingerprints(tempDir);
+    assertEquals(List.of("testlib-1.0"), fingerprints.getLibraryNames());
+    assertEquals(1, fingerprints.getPackageCount());
+
+    List<Long> signatures = new ArrayList<>();
+    for (String classPath : LIBRARY_CLASSES) {
+      signatures.add(LibraryFingerprints.getClassSignature(readClass(classPath)));
+    }
+    assertEquals(
+        Map.of(LIBRARY_PACKAGE, "testlib-1.0"),
+        fingerprints.findLibraryPackages(Map.of(LIBRARY_PACKAGE, signatures)));
+
+    signatures.add(LibraryFingerprints.getClassSignature(readClass(APP_CLASS)));
+    assertTrue(fingerprints.findLibraryPackages(Map.of(LIBRARY_PACKAGE, signatures)).isEmpty());
+    assertTrue(
+        fingerprints
+            .findLibraryPackages(Map.of("app/components/", signatures.subList(0, 1)))
+            .isEmpty());
+  }
+
+  @Test
+  public void testFilterLibraries(@TempDir Path tempDir) throws IOException {
+    JarFilter.setLibraryFingerprints(loadBuiltFingerprints(tempDir));
+    InMemoryClassFileSource classFileSource = new InMemoryClassFileSource();
+    for (String classPath : LIBRARY_CLASSES) {
+      classFileSource.addClass(classPath, readClass(classPath));
+    }
+    classFileSource.addClass(APP_CLASS, readClass(APP_CLASS));
+
+    JarFilter.filterLibraries(classFileSource);
+
+    assertEquals(List.of(APP_CLASS), classFileSource.getTopLevelClassPaths());
+  }
+
+  @Test
+  public void testFilterLibrariesKeepsPlantedClasses(@TempDir Path tempDir) throws IOException {
+    JarFilter.setLibraryFingerprints(loadBuiltFingerprints(tempDir, DEX_PACKAGE_CLASSES));
+    InMemoryClassFileSource classFileSource = new InMemoryClassFileSource();
+    for (String classPath : DEX_PACKAGE_CLASSES) {
+      classFileSource.addClass(classPath, readClass(classPath));
+    }
+    /* A class planted in the library package and a tampered nested class of a library class */
+    classFileSource.addClass(DEX_PACKAGE + "Evil.class", readClass(APP_CLASS));
+    classFileSource.addClass(DEX_PACKAGE + "DexIndex$Cursor.class", readClass(APP_CLASS));
+
+    JarFilter.filterLibraries(classFileSource);
+
+    assertEquals(
+        List.of(DEX_PACKAGE + "DexIndex.class", DEX_PACKAGE + "Evil.class"),
+        classFileSource.getTopLevelClassPaths().stream().sorted().collect(Collectors.toList()));
+    assertEquals(4, classFileSource.getClassFiles(DEX_PACKAGE + "DexIndex.class").size());
+    assertTrue(JarFilter.isSkippedLibrarySource(DEX_PACKAGE + "DexPrefilter.java"));
+    assertFalse(JarFilter.isSkippedLibrarySource(DEX_PACKAGE + "DexIndex.java"));
+    assertFalse(JarFilter.isSkippedLibrarySource(DEX_PACKAGE + "Evil.java"));
+  }
+
+  @Test
+  public void testLoadDefault() throws IOException {
+    LibraryFingerprints fingerprints = LibraryFingerprints.loadDefault();
+    assertTrue(fingerprints.getPackageCount() > 0);
+    assertFalse(fingerprints.getLibraryNames().isEmpty());
+  }
+
+  /** Builds a database of a reference JAR file holding the library classes. */
+  private static LibraryFingerprints loadBuiltFingerprints(Path tempDir) throws IOException {
+    return loadBuiltFingerprints(tempDir, LIBRARY_CLASSES);
+  }
+
+  private static LibraryFingerprints loadBuiltFingerprints(Path tempDir, String[] libraryClasses)
+      throws IOException {
+    File jarFile = tempDir.resolve("testlib-1.0.jar").toFile();
+    try (ZipArchiveOutputStream out = new ZipArchiveOutputStream(new FileOutputStream(jarFile))) {
+      for (String classPath : libraryClasses) {
+        out.putArchiveEntry(new ZipArchiveEntry(classPath));
+        out.write(readClass(classPath));
+        out.closeArchiveEntry();
+      }
+    }
+    ByteArrayOutputStream database = new ByteArrayOutputStream();
+    LibraryFingerprints.build(tempDir).write(database);
+    return LibraryFingerprints.load(new ByteArrayInputStream(database.toByteArray()));
+  }
+
+  private static byte[] readClass(String classPath) throws IOException {
+    try (InputStream in = LibraryFingerprintsTest.class.getResourceAsStream("/" + classPath)) {
+      return IOUtils.toByteArray(in);
+    }
+  }
+}
@@ -0,0 +1,98 @@
+package app.components.jarfilter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import app.components.conversion.jarfilter.JarFilter;
+import app.components.conversion.jarfilter.ScopeFilter;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class ScopeFilterTest {
+
+  @AfterEach
+  public void tearDown() {
+    ScopeFilter.reset();
+  }
+
+  @Test
+  public void testIsInScope() {
+    ScopeFilter scopeFilter =
+        new ScopeFilter(List.of("com.example", "org.*.app.*"), List.of("com.example.ads"));
+
+    assertTrue(scopeFilter.isInScope("com/example/MainActivity.class"));
+    assertTrue(scopeFilter.isInScope("com/example/ui/Login.java"));
+    assertTrue(scopeFilter.isInScope("org/acme/app/Main.class"));
+    assertFalse(scopeFilter.isInScope("org/acme/lib/Main.class"));
+    assertFalse(scopeFilter.isInScope("com/example/ads/Banner.class"));
+    assertFalse(scopeFilter.isInScope("com/examples/Main.class"));
+    assertFalse(scopeFilter.isInScope("Main.class"));
+    assertFalse(scopeFilter.isInScope("com/example/R.class"));
+    assertFalse(scopeFilter.isInScope("com/example/R$string.class"));
+    assertFalse(scopeFilter.isInScope("com/example/BuildConfig.java"));
+    assertTrue(scopeFilter.isInScope("com/example/Router.class"));
+
+    ScopeFilter excludeOnly = new ScopeFilter(List.of(), List.of("com.google"));
+    assertTrue(excludeOnly.isInScope("Main.class"));
+    assertTrue(excludeOnly.isInScope("com/example/Main.class"));
+    assertFalse(excludeOnly.isInScope("com/google/gson/Gson.class"));
+  }
+
+  @Test
+  public void testFirstPartyScope() {
+    assertTrue(JarFilter.isExcluded("androidx/core/app/ActivityCompat.class"));
+    assertFalse(JarFilter.isExcluded("com/google/gson/Gson.class"));
+
+    ScopeFilter.setFirstPartyOnly(true);
+    ScopeFilter.setManifests(
+        List.of(
+            "<manifest xmlns:android=\"http://schemas.android.com/apk/res/android\""
+                + " package=\"com.example.app\"><application/></manifest>"));
+    ScopeFilter.addIncludeGlobs("com.google.gson, ");
+
+    assertFalse(JarFilter.isExcluded("com/example/app/MainActivity.class"));
+    assertFalse(JarFilter.isExcluded("com/google/gson/Gson.class"));
+    assertTrue(JarFilter.isExcluded("com/squareup/okhttp3/OkHttpClient.class"));
+    assertTrue(JarFilter.isExcluded("android/support/v4/app/Fragment.class"));
+  }
+
+  @Test
+  public void testFirstPartyScopeWithoutApplicationClasses() {
+    ScopeFilter.setFirstPartyOnly(true);
+    ScopeFilter.setManifestPackages(List.of("com.example.app"));
+
+    ScopeFilter.checkFirstPartyScope(
+        List.of("com/example/app/R.class", "com/example/app/MainActivity.class"));
+    assertTrue(JarFilter.isExcluded("com/example/code/Main.class"));
+
+    ScopeFilter.checkFirstPartyScope(
+        List.of("com/example/app/R.class", "com/example/code/Main.class"));
+    assertFalse(JarFilter.isExcluded("com/example/code/Main.class"));
+    assertTrue(JarFilter.isExcluded("androidx/core/app/ActivityCompat.class"));
+  }
+
+  @Test
+  public void testManifestWithExternalEntity() {
+    ScopeFilter.setFirstPartyOnly(true);
+    ScopeFilter.setManifests(
+        List.of(
+            "<?xml version=\"1.0\"?>"
+                + "<!DOCTYPE manifest [<!ENTITY app SYSTEM \"file:///etc/hostname\">]>"
+                + "<manifest package=\"com.example.&app;\"><application/></manifest>"));
+
+    assertFalse(JarFilter.isExcluded("com/squareup/okhttp3/OkHttpClient.class"));
+  }
+
+  @Test
+  public void testOptions() {
+    String defaultOptions = ScopeFilter.getOptions();
+    ScopeFilter.addExcludeGlobs("com.google");
+    String excludeOptions = ScopeFilter.getOptions();
+    ScopeFilter.setFirstPartyOnly(true);
+
+    assertNotEquals(defaultOptions, excludeOptions);
+    assertNotEquals(excludeOptions, ScopeFilter.getOptions());
+    ScopeFilter.reset();
+    assertEquals(defaultOptions, ScopeFilter.getOptions());
+  }
+}
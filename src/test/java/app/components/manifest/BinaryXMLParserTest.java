@@ -0,0 +1,49 @@
+package app.components.manifest;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import app.components.conversion.xmlconverter.XMLConverter;
+import app.components.model.XMLFileInfo;
+import app.components.parsing.xmlparsing.BinaryXMLParser;
+import app.components.parsing.xmlparsing.XMLParser;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.zip.ZipFile;
+import org.junit.jupiter.api.Test;
+
+class BinaryXMLParserTest {
+
+  @Test
+  void testParseMatchesConvertedManifest() throws IOException {
+    byte[] manifestBytes;
+    try (ZipFile apkFile = new ZipFile("src/test/resources/apk/calc.apk");
+        InputStream in = apkFile.getInputStream(apkFile.getEntry("AndroidManifest.xml"))) {
+      manifestBytes = in.readAllBytes();
+    }
+    XMLFileInfo binaryInfo = new XMLFileInfo();
+    String packageName =
+        new BinaryXMLParser(binaryInfo).parse(new ByteArrayInputStream(manifestBytes));
+
+    String manifest = XMLConverter.convertToXmlString(new ByteArrayInputStream(manifestBytes));
+    XMLFileInfo textInfo = new XMLFileInfo();
+    new XMLParser(textInfo).initializeXMLParsing(Collections.singletonList(manifest));
+
+    assertTrue(manifest.contains("package=\"" + packageName + "\""));
+    assertFalse(binaryInfo.getPermissionItems().isEmpty());
+    assertEquals(textInfo.getPermissionItems(), binaryInfo.getPermissionItems());
+    assertFalse(binaryInfo.getExpComponents().isEmpty());
+    assertEquals(textInfo.getExpComponents(), binaryInfo.getExpComponents());
+    assertEquals(textInfo.isAppDebuggable(), binaryInfo.isAppDebuggable());
+    assertEquals(textInfo.isBackupAllowed(), binaryInfo.isBackupAllowed());
+    assertEquals(textInfo.usesGrantUriProviders(), binaryInfo.usesGrantUriProviders());
+  }
+
+  @Test
+  void testParseTextManifest() throws IOException {
+    try (InputStream in = getClass().getResourceAsStream("/xml/AndroidManifest.xml")) {
+      assertThrows(IOException.class, () -> new BinaryXMLParser(new XMLFileInfo()).parse(in));
+    }
+  }
+}
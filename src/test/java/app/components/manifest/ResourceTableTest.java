@@ -0,0 +1,142 @@
+package app.components.manifest;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import app.components.model.FileInfo;
+import app.components.parsing.javaparsing.addressparsing.FileAnalyzer;
+import app.components.parsing.xmlparsing.ResourceTable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.ZipFile;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ResourceTableTest {
+
+  private byte[] arscBytes;
+
+  @BeforeEach
+  void readTable() throws IOException {
+    try (ZipFile apkFile = new ZipFile("src/test/resources/apk/calc.apk");
+        InputStream in = apkFile.getInputStream(apkFile.getEntry("resources.arsc"))) {
+      arscBytes = in.readAllBytes();
+    }
+  }
+
+  @Test
+  void testGetValue() throws IOException {
+    ResourceTable resourceTable = new ResourceTable(ByteBuffer.wrap(arscBytes));
+
+    assertEquals("true", resourceTable.getValue(0x7f050000));
+    assertEquals("Navigate up", resourceTable.getValue(0x7f140001));
+    assertEquals("res/K5.xml", resourceTable.getValue(0x7f170001));
+    assertEquals("xml/backup_scheme", resourceTable.getName(0x7f170001));
+    assertNull(resourceTable.getValue(0x7f15ffff));
+    assertNull(resourceTable.getValue(0x01040000));
+  }
+
+  @Test
+  void testResolve() throws IOException {
+    ResourceTable resourceTable = new ResourceTable(ByteBuffer.wrap(arscBytes));
+
+    assertEquals("@7F050000", ResourceTable.formatReference(0x7f050000));
+    assertEquals("true", resourceTable.resolve("@7F050000"));
+    assertEquals("@android:01040000", resourceTable.resolve("@android:01040000"));
+    assertEquals("calculator.example.com", resourceTable.resolve("calculator.example.com"));
+  }
+
+  @Test
+  void testGetFilePaths() throws IOException {
+    ResourceTable resourceTable = new ResourceTable(ByteBuffer.wrap(arscBytes));
+
+    assertTrue(resourceTable.getFilePaths("xml").contains("res/K5.xml"));
+    assertFalse(resourceTable.getFilePaths("xml").contains(resourceTable.getValue(0x7f0e0000)));
+    assertTrue(resourceTable.getFilePaths("nonexistent").isEmpty());
+  }
+
+  @Test
+  void testOpenMapsFile() throws IOException {
+    Path arscPath = Files.createTempFile("resources", ".arsc");
+    try {
+      Files.write(arscPath, arscBytes);
+      assertEquals("Navigate up", ResourceTable.open(arscPath).getValue(0x7f140001));
+    } finally {
+      arscPath.toFile().deleteOnExit();
+    }
+  }
+
+  @Test
+  void testOpenInDirectoryPrefersBaseApk(@TempDir Path tempDir) throws IOException {
+    assertNull(ResourceTable.openInDirectory(tempDir));
+
+    /* Only the table of the base APK is valid, opening a split table would fail */
+    for (String apkName : List.of("config.arm64_v8a", "base", "split_feature")) {
+      Path arscPath = tempDir.resolve("app").resolve(apkName).resolve("resources.arsc");
+      Files.createDirectories(arscPath.getParent());
+      Files.write(arscPath, apkName.equals("base") ? arscBytes : new byte[] {3, 0, 8, 0});
+    }
+    assertEquals("Navigate up", ResourceTable.openInDirectory(tempDir).getValue(0x7f140001));
+  }
+
+  @Test
+  void testOpenInvalidTable() {
+    assertThrows(
+        IOException.class, () -> new ResourceTable(ByteBuffer.wrap(new byte[] {3, 0, 8, 0})));
+  }
+
+  @Test
+  void testMalformedStringPool() throws IOException {
+    ByteBuffer table = ByteBuffer.wrap(arscBytes).order(ByteOrder.LITTLE_ENDIAN);
+    int poolStart = table.getShort(2);
+    int poolEnd = poolStart + table.getInt(poolStart + 4);
+    int stringsStart = poolStart + table.getInt(poolStart + 20);
+    int stringIndex = 0;
+    int stringPosition = new String(arscBytes, StandardCharsets.ISO_8859_1).indexOf("Navigate up");
+    while (stringsStart + table.getInt(poolStart + 28 + stringIndex * 4) + 2 != stringPosition) {
+      stringIndex++;
+    }
+
+    /* The strings of the pool start far behind the end of the table */
+    byte[] movedStrings = arscBytes.clone();
+    ByteBuffer.wrap(movedStrings)
+        .order(ByteOrder.LITTLE_ENDIAN)
+        .putInt(poolStart + 20, Integer.MAX_VALUE);
+    ResourceTable movedTable = new ResourceTable(ByteBuffer.wrap(movedStrings));
+    assertNull(movedTable.getValue(0x7f140001));
+    assertEquals("@7F140001", movedTable.resolve("@7F140001"));
+
+    /* The last string of the pool claims to be longer than the rest of the pool */
+    byte[] longString = arscBytes.clone();
+    ByteBuffer.wrap(longString)
+        .order(ByteOrder.LITTLE_ENDIAN)
+        .putInt(poolStart + 28 + stringIndex * 4, poolEnd - 4 - stringsStart)
+        .putInt(poolEnd - 4, 0x00FFFF00);
+    assertNull(new ResourceTable(ByteBuffer.wrap(longString)).getValue(0x7f140001));
+  }
+
+  @Test
+  void testFileAnalyzerResolvesReferences() throws IOException {
+    ResourceTable resourceTable = new ResourceTable(ByteBuffer.wrap(arscBytes));
+    File manifest = new File("AndroidManifest.xml");
+
+    List<FileInfo> fileInfos =
+        FileAnalyzer.processStrings(
+            Collections.singletonMap(manifest, List.of("@7F140094")), resourceTable);
+
+    assertEquals(1, fileInfos.size());
+    assertTrue(
+        fileInfos.get(0).getDomains().contains("https://calculator-app-eng.firebaseio.com"));
+    assertTrue(
+        FileAnalyzer.processStrings(Collections.singletonMap(manifest, List.of("@7F140094")))
+            .isEmpty());
+  }
+}
@@ -0,0 +1,191 @@
+package app.components.manifest;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import app.components.model.ResourceFinding;
+import app.components.model.XMLFileInfo;
+import app.components.parsing.xmlparsing.ResourceXMLScanner;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+class ResourceXMLScannerTest {
+
+  @Test
+  void testIsRuleTarget() {
+    assertTrue(ResourceXMLScanner.isRuleTarget("res/xml/network_security_config.xml"));
+    assertTrue(ResourceXMLScanner.isRuleTarget("res/xml-v25/file_paths.xml"));
+    assertTrue(ResourceXMLScanner.isRuleTarget("res/-1.xml"));
+    assertFalse(ResourceXMLScanner.isRuleTarget("res/layout/activity_main.xml"));
+    assertFalse(ResourceXMLScanner.isRuleTarget("AndroidManifest.xml"));
+    assertFalse(ResourceXMLScanner.isRuleTarget("res/drawable/icon.png"));
+  }
+
+  @Test
+  void testScanNetworkSecurityConfig() throws IOException {
+    byte[] xml =
+        new BinaryXMLBuilder()
+            .start("network-security-config")
+            .start("base-config", "cleartextTrafficPermitted", "true")
+            .start("trust-anchors")
+            .start("certificates", "src", "user")
+            .end("certificates")
+            .end("trust-anchors")
+            .end("base-config")
+            .start("domain-config", "cleartextTrafficPermitted", "false")
+            .end("domain-config")
+            .start("debug-overrides")
+            .start("trust-anchors")
+            .start("certificates", "src", "user")
+            .end("certificates")
+            .end("trust-anchors")
+            .end("debug-overrides")
+            .end("network-security-config")
+            .build();
+
+    List<ResourceFinding> findings =
+        ResourceXMLScanner.scan("res/xml/nsc.xml", new ByteArrayInputStream(xml), null);
+
+    assertEquals(
+        Set.of(
+            new ResourceFinding(
+                XMLFileInfo.CLEARTEXT_PNAME,
+                "Medium",
+                "res/xml/nsc.xml",
+                "<base-config cleartextTrafficPermitted=\"true\">"),
+            new ResourceFinding(
+                XMLFileInfo.USER_CERTIFICATES_PNAME,
+                "Medium",
+                "res/xml/nsc.xml",
+                "<certificates src=\"user\">")),
+        new HashSet<>(findings));
+    assertEquals(2, findings.size());
+  }
+
+  @Test
+  void testScanFileProviderPaths() throws IOException {
+    byte[] xml =
+        new BinaryXMLBuilder()
+            .start("paths")
+            .start("root-path", "name", "root", "path", "")
+            .end("root-path")
+            .start("external-path", "name", "external", "path", ".")
+            .end("external-path")
+            .start("cache-path", "name", "images", "path", "images/")
+            .end("cache-path")
+            .end("paths")
+            .build();
+
+    XMLFileInfo xmlFileInfo = new XMLFileInfo();
+    xmlFileInfo
+        .getResourceFindings()
+        .addAll(ResourceXMLScanner.scan("res/-1.xml", new ByteArrayInputStream(xml), null));
+
+    assertEquals(2, xmlFileInfo.getResourceFindings().size());
+    assertTrue(
+        xmlFileInfo
+            .getResourceFindings()
+            .contains(
+                new ResourceFinding(
+                    XMLFileInfo.FILE_PROVIDER_PATHS_PNAME,
+                    "Medium",
+                    "res/-1.xml",
+                    "<external-path name=\"external\" path=\".\">")));
+    assertEquals(
+        "Danger", xmlFileInfo.getResourcePatterns().get(XMLFileInfo.FILE_PROVIDER_PATHS_PNAME));
+  }
+
+  @Test
+  void testScanOtherResource() throws IOException {
+    byte[] xml =
+        new BinaryXMLBuilder()
+            .start("LinearLayout")
+            .start("root-path", "path", "")
+            .end("root-path")
+            .end("LinearLayout")
+            .build();
+
+    assertTrue(
+        ResourceXMLScanner.scan("res/xml/layout.xml", new ByteArrayInputStream(xml), null)
+            .isEmpty());
+  }
+
+  /** Builds a binary XML file of elements with string attributes without a namespace. */
+  private static class BinaryXMLBuilder {
+    private final List<String> strings = new ArrayList<>();
+    private final ByteArrayOutputStream elements = new ByteArrayOutputStream();
+
+    BinaryXMLBuilder start(String tag, String... attributes) {
+      int attributeCount = attributes.length / 2;
+      ByteBuffer chunk = allocate(36 + attributeCount * 20);
+      chunk.putShort((short) 0x0102).putShort((short) 16).putInt(chunk.capacity());
+      chunk.putInt(1).putInt(-1).putInt(-1).putInt(indexOf(tag));
+      chunk.putShort((short) 20).putShort((short) 20).putShort((short) attributeCount);
+      chunk.putShort((short) 0).putShort((short) 0).putShort((short) 0);
+      for (int i = 0; i < attributeCount; i++) {
+        int value = indexOf(attributes[i * 2 + 1]);
+        chunk.putInt(-1).putInt(indexOf(attributes[i * 2])).putInt(value);
+        chunk.putShort((short) 8).put((byte) 0).put((byte) 0x03).putInt(value);
+      }
+      elements.writeBytes(chunk.array());
+      return this;
+    }
+
+    BinaryXMLBuilder end(String tag) {
+      ByteBuffer chunk = allocate(24);
+      chunk.putShort((short) 0x0103).putShort((short) 16).putInt(24);
+      chunk.putInt(1).putInt(-1).putInt(-1).putInt(indexOf(tag));
+      elements.writeBytes(chunk.array());
+      return this;
+    }
+
+    byte[] build() {
+      ByteArrayOutputStream stringData = new ByteArrayOutputStream();
+      ByteBuffer offsets = allocate(strings.size() * 4);
+      for (String string : strings) {
+        offsets.putInt(stringData.size());
+        stringData.write(string.length() & 0xFF);
+        stringData.write(string.length() >> 8);
+        stringData.writeBytes(string.getBytes(StandardCharsets.UTF_16LE));
+        stringData.write(0);
+        stringData.write(0);
+      }
+      byte[] stringBytes = Arrays.copyOf(stringData.toByteArray(), (stringData.size() + 3) & ~3);
+      int poolSize = 28 + offsets.capacity() + stringBytes.length;
+
+      ByteBuffer header = allocate(8 + 28);
+      header.putShort((short) 0x0003).putShort((short) 8);
+      header.putInt(8 + poolSize + elements.size());
+      header.putShort((short) 0x0001).putShort((short) 28).putInt(poolSize);
+      header.putInt(strings.size()).putInt(0).putInt(0);
+      header.putInt(28 + offsets.capacity()).putInt(0);
+
+      ByteArrayOutputStream file = new ByteArrayOutputStream();
+      file.writeBytes(header.array());
+      file.writeBytes(offsets.array());
+      file.writeBytes(stringBytes);
+      file.writeBytes(elements.toByteArray());
+      return file.toByteArray();
+    }
+
+    private int indexOf(String string) {
+      if (!strings.contains(string)) {
+        strings.add(string);
+      }
+      return strings.indexOf(string);
+    }
+
+    private static ByteBuffer allocate(int size) {
+      return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+    }
+  }
+}
@@ -0,0 +1,70 @@
+package app.components.parsing;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import app.components.model.DangerousPattern;
+import app.components.model.FileInfo;
+import app.components.model.PermissionItem;
+import app.components.model.ResourceFinding;
+import app.components.model.XMLFileInfo;
+import app.components.parsing.javaparsing.codeparsing.PatternDetector;
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+class TriageScoreTest {
+
+  @Test
+  public void testEmptyResults() {
+    assertEquals(
+        0,
+        TriageScore.calculate(
+            new XMLFileInfo(),
+            Collections.emptyList(),
+            Collections.emptyList(),
+            Collections.emptyList()));
+  }
+
+  @Test
+  public void testCalculate() {
+    XMLFileInfo xmlFileInfo = new XMLFileInfo();
+    xmlFileInfo.setAppDebuggable(true);
+    xmlFileInfo.setBackupAllowedValue(true);
+    xmlFileInfo.setPermissionItems(
+        Set.of(
+            new PermissionItem("android.permission.CAMERA", "High", ""),
+            new PermissionItem("android.permission.INTERNET", "Normal", "")));
+    xmlFileInfo
+        .getResourceFindings()
+        .addAll(
+            Set.of(
+                new ResourceFinding(XMLFileInfo.CLEARTEXT_PNAME, "Low", "res/xml/a.xml", "a"),
+                new ResourceFinding(XMLFileInfo.CLEARTEXT_PNAME, "Medium", "res/xml/a.xml", "b")));
+    FileInfo fileInfo = new FileInfo(new File("com/example/Main.java"));
+    fileInfo.addBlacklistedIP("1.2.3.4", "node");
+
+    List<DangerousPattern> detectedPatterns =
+        List.of(
+            new DangerousPattern("Random", "", null, false, null, "", "Medium", 1, null),
+            new DangerousPattern("Random", "", null, false, null, "", "Medium", 1, null),
+            new DangerousPattern("Log", "", null, false, null, "", "Low", 2, null));
+    PatternDetector possible = new PatternDetector("Cipher", 2, false, "", "Danger");
+    PatternDetector detected = new PatternDetector("Log", 1, false, "", "Low");
+
+    int expectedScore =
+        TriageScore.DANGER_WEIGHT
+            + TriageScore.MEDIUM_WEIGHT
+            + TriageScore.HIGH_PERMISSION_WEIGHT
+            + TriageScore.BLACKLISTED_IP_WEIGHT
+            + TriageScore.MEDIUM_WEIGHT
+            + TriageScore.MEDIUM_WEIGHT
+            + TriageScore.LOW_WEIGHT
+            + TriageScore.DANGER_WEIGHT / 2;
+    assertEquals(
+        expectedScore,
+        TriageScore.calculate(
+            xmlFileInfo, detectedPatterns, List.of(possible, detected), List.of(fileInfo)));
+  }
+}
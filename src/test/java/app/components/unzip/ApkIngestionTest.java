@@ -0,0 +1,123 @@
+package app.components.unzip;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import app.components.conversion.unzip.ApkIngestion;
+import app.components.parsing.xmlparsing.ResourceTable;
+import app.utils.FileHashing;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ApkIngestionTest {
+
+  private static final Path APK_PATH = Paths.get("src/test/resources/apk/calc.apk");
+
+  @Test
+  void testHash() throws IOException {
+    List<String> notifiedHashes = new ArrayList<>();
+    ApkIngestion ingestion = ApkIngestion.ingest(APK_PATH, notifiedHashes::add);
+
+    assertEquals(
+        FileHashing.generateHashFromFile(APK_PATH.toString(), "SHA-256"), ingestion.getHash());
+    assertEquals(List.of(ingestion.getHash()), notifiedHashes);
+  }
+
+  @Test
+  void testIndex() throws IOException {
+    ApkIngestion ingestion = ApkIngestion.ingest(APK_PATH, null);
+
+    try (ZipFile zipFile = new ZipFile(APK_PATH.toFile());
+        InputStream in = zipFile.getInputStream(zipFile.getEntry("AndroidManifest.xml"))) {
+      assertEquals(
+          zipFile.stream().filter(entry -> !entry.isDirectory()).count(),
+          ingestion.getEntryNames().size());
+      assertArrayEquals(in.readAllBytes(), ingestion.getManifest());
+    }
+    assertTrue(ingestion.getEntryNames().contains("classes.dex"));
+    assertNull(ingestion.getEntry("nonexistent.dex"));
+  }
+
+  @Test
+  void testStoredEntryIsReadFromMapping() throws IOException {
+    ApkIngestion ingestion = ApkIngestion.ingest(APK_PATH, null);
+
+    ByteBuffer tableBuffer = ingestion.getEntry("resources.arsc");
+    assertTrue(tableBuffer.isDirect());
+    assertEquals("Navigate up", new ResourceTable(tableBuffer).getValue(0x7f140001));
+  }
+
+  @Test
+  void testIngestNonArchive(@TempDir Path tempDir) throws IOException {
+    Path textPath = Files.write(tempDir.resolve("notes.apk"), "not an archive".getBytes());
+    ApkIngestion ingestion = ApkIngestion.ingest(textPath, null);
+
+    assertEquals(
+        FileHashing.generateHashFromFile(textPath.toString(), "SHA-256"), ingestion.getHash());
+    assertTrue(ingestion.getEntryNames().isEmpty());
+    assertNull(ingestion.getManifest());
+  }
+
+  @Test
+  void testCorruptCentralDirectory(@TempDir Path tempDir) throws IOException {
+    byte[] archive = createArchive();
+    ByteBuffer buffer = ByteBuffer.wrap(archive).order(ByteOrder.LITTLE_ENDIAN);
+    int directoryOffset = buffer.getInt(archive.length - 22 + 16);
+    int nameLength = Short.toUnsignedInt(buffer.getShort(directoryOffset + 28));
+    int extraLength = Short.toUnsignedInt(buffer.getShort(directoryOffset + 30));
+    int commentLength = Short.toUnsignedInt(buffer.getShort(directoryOffset + 32));
+    int secondRecordOffset = directoryOffset + 46 + nameLength + extraLength + commentLength;
+
+    /* The manifest claims to be smaller than it inflates to */
+    byte[] shrunkManifest = archive.clone();
+    ByteBuffer.wrap(shrunkManifest).order(ByteOrder.LITTLE_ENDIAN).putInt(directoryOffset + 24, 16);
+    ApkIngestion shrunkIngestion =
+        ApkIngestion.ingest(Files.write(tempDir.resolve("shrunk.apk"), shrunkManifest), null);
+    assertTrue(shrunkIngestion.getEntryNames().isEmpty());
+    assertNull(shrunkIngestion.getManifest());
+
+    /* The second entry points behind the end of the archive */
+    byte[] movedEntry = archive.clone();
+    ByteBuffer.wrap(movedEntry)
+        .order(ByteOrder.LITTLE_ENDIAN)
+        .putInt(secondRecordOffset + 42, Integer.MAX_VALUE);
+    ApkIngestion movedIngestion =
+        ApkIngestion.ingest(Files.write(tempDir.resolve("moved.apk"), movedEntry), null);
+    assertNotNull(movedIngestion.getManifest());
+    assertThrows(IOException.class, () -> movedIngestion.getEntry("resources.arsc"));
+
+    /* The central directory starts behind the end of the archive */
+    byte[] movedDirectory = archive.clone();
+    ByteBuffer.wrap(movedDirectory)
+        .order(ByteOrder.LITTLE_ENDIAN)
+        .putInt(archive.length - 22 + 16, archive.length + 1024);
+    ApkIngestion directoryIngestion =
+        ApkIngestion.ingest(Files.write(tempDir.resolve("directory.apk"), movedDirectory), null);
+    assertTrue(directoryIngestion.getEntryNames().isEmpty());
+  }
+
+  private static byte[] createArchive() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (ZipOutputStream zip = new ZipOutputStream(out)) {
+      zip.putNextEntry(new ZipEntry("AndroidManifest.xml"));
+      zip.write(new byte[4096]);
+      zip.closeEntry();
+      zip.putNextEntry(new ZipEntry("resources.arsc"));
+      zip.write(new byte[1024]);
+      zip.closeEntry();
+    }
+    return out.toByteArray();
+  }
+}
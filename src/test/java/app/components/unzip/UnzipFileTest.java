@@ -4,6 +4,7 @@ import static org.junit.jupiter.api.Assertions.*;
 
 import app.components.conversion.unzip.UnzipFile;
 import app.utils.ReadFilesFromDirectory;
+import app.utils.ThreadPoolManager;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
@@ -27,6 +28,25 @@ class UnzipFileTest {
     unzip(tempDir, zipPath);
   }
 
+  @Test
+  void testUnzipSelectively(@TempDir Path tempDir) throws IOException, InterruptedException {
+    Path zipPath = Paths.get("src/test/resources/apk/calc.apk");
+    Path extractedPath =
+        UnzipFile.unzip(
+            zipPath.toString(),
+            tempDir.toString(),
+            name -> name.endsWith(".dex") || name.equals("AndroidManifest.xml"),
+            true);
+    ThreadPoolManager.getInstance().shutdownExecutor();
+
+    List<File> dexFiles =
+        ReadFilesFromDirectory.getSpecificFilesFromDirectory(extractedPath, ".dex");
+    assertFalse(dexFiles.isEmpty(), "No DEX files were created in the expected folder");
+    assertTrue(Files.exists(extractedPath.resolve("AndroidManifest.xml")));
+    assertFalse(Files.exists(extractedPath.resolve("resources.arsc")));
+    assertFalse(Files.exists(extractedPath.resolve("res")));
+  }
+
   @Test
   void testUnzipInvalidFile(@TempDir Path tempDir) throws IOException {
     Path invalidZipPath = tempDir.resolve("invalid.apk");